@@ -4,17 +4,33 @@ import net.sf.saxon.TransformerFactoryImpl;
 
 import org.apache.log4j.Logger;
 import org.fao.geonet.utils.CachedTransformer;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.File;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.URIResolver;
 import javax.xml.transform.stream.StreamSource;
 
 
@@ -22,6 +38,14 @@ import javax.xml.transform.stream.StreamSource;
  * Caching implementation of JAXP transformer factory. This implementation caches templates that
  * were loaded from local files so that consequent calls to local stylesheets require stylesheet
  * reparsing only if stylesheet was changed.
+ *
+ * The cache is read without locking and a stylesheet missing from the cache is compiled only once,
+ * whatever the number of threads requesting it. The stylesheets and the files they include or
+ * import are checked for modifications by a background scan, every
+ * <code>geonetwork.xslt.cache.checkInterval</code> milliseconds (1000 by default). A modified
+ * stylesheet may thus still be served from the cache for up to this interval after the
+ * modification. With an interval of 0 or less, they are checked on each request instead, which
+ * costs a file system access per file and per request.
  */
 public class CachingTransformerFactory extends TransformerFactoryImpl implements CachedTransformer {
     /**
@@ -30,17 +54,22 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
     protected static final Logger logger =
         Logger.getLogger(CachingTransformerFactory.class);
     /**
-     * Active readers count.
+     * Milliseconds between two checks of the modification of the cached stylesheets.
      */
-    static int activeReaders = 0;
+    static final long CHECK_INTERVAL = Long.getLong("geonetwork.xslt.cache.checkInterval", 1000);
     /**
-     * Active writers count.
+     * Namespace of the xsl:include and xsl:import elements.
      */
-    static int activeWriters = 0;
+    private static final String XSL_NAMESPACE = "http://www.w3.org/1999/XSL/Transform";
     /**
      * Map to hold templates cache.
      */
-    private static Map<String, TemplatesCacheEntry> templatesCache = new HashMap<String, TemplatesCacheEntry>();
+    private static final ConcurrentMap<String, TemplatesCacheEntry> templatesCache =
+        new ConcurrentHashMap<String, TemplatesCacheEntry>();
+    /**
+     * True once the background check of the modifications is scheduled.
+     */
+    private static final AtomicBoolean checkScheduled = new AtomicBoolean();
 
     /**
      * Clear the stylesheet cache. This is not part of the JAXP TransformerFactoryImpl so users
@@ -48,16 +77,14 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      * broken.
      */
     public void clearCache() {
-        beforeWrite();
         templatesCache.clear();
-        afterWrite();
     }
 
     /**
      * Process the source into a Transformer object. If source is a StreamSource with
      * <code>systemID</code> pointing to a file, transformer is produced from a cached templates
-     * object. Cache is done in soft references; cached objects are reloaded, when file's date of
-     * last modification changes.
+     * object. Cached objects are reloaded when the file or one of the files it includes or imports
+     * is modified.
      *
      * @param source An object that holds a URI, input stream, etc.
      * @return A Transformer object that may be used to perform a transformation in a single thread,
@@ -94,102 +121,157 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      */
     protected Transformer newTransformer(final File file)
         throws TransformerConfigurationException {
+        final String absolutePath = file.getAbsolutePath();
         // Search the cache for the templates entry
-        TemplatesCacheEntry templatesCacheEntry = read(file.getAbsolutePath());
-
-        // If entry found
-        if (templatesCacheEntry != null) {
-            // Check timestamp of modification
-            if (templatesCacheEntry.lastModified
-                < templatesCacheEntry.templatesFile.lastModified())
-                templatesCacheEntry = null;
+        TemplatesCacheEntry templatesCacheEntry = templatesCache.get(absolutePath);
+
+        // Without background check, check the modifications now
+        if (templatesCacheEntry != null && CHECK_INTERVAL <= 0 && templatesCacheEntry.isObsolete()) {
+            templatesCache.remove(absolutePath, templatesCacheEntry);
+            templatesCacheEntry = null;
         }
         // If no templatesEntry is found or this entry was obsolete
         if (templatesCacheEntry == null) {
-            //System.out.println("Loading transformation [" + file.getAbsolutePath() + "].");
             // If this file does not exists, throw the exception
             if (!file.exists()) {
                 throw new TransformerConfigurationException(
                     "Requested transformation ["
-                        + file.getAbsolutePath()
+                        + absolutePath
                         + "] does not exist.");
             }
 
-            // Create new cache entry
-            templatesCacheEntry =
-                new TemplatesCacheEntry(newTemplates(new StreamSource(file)), file);
-
-            // Save this entry to the cache
-            write(file.getAbsolutePath(), templatesCacheEntry);
-        } else {
-            //System.out.println("Using cached transformation [" + file.getAbsolutePath() + "].");
+            // Save a new entry to the cache, unless a concurrent request did
+            TemplatesCacheEntry newEntry = new TemplatesCacheEntry(absolutePath, file);
+            templatesCacheEntry = templatesCache.putIfAbsent(absolutePath, newEntry);
+            if (templatesCacheEntry == null) {
+                templatesCacheEntry = newEntry;
+                scheduleCheck();
+            }
         }
-        return templatesCacheEntry.templates.newTransformer();
+        return templatesCacheEntry.getTemplates(this).newTransformer();
     }
 
     /**
-     * Returns a templates cache entry for the specified absolute path.
-     *
-     * @param absolutePath absolute path of the entry.
-     * @return Templates cache entry for the specified path.
+     * Removes the cached templates whose stylesheet or one of its dependencies was modified.
      */
-    protected TemplatesCacheEntry read(String absolutePath) {
-        beforeRead();
-        final TemplatesCacheEntry templatesCacheEntry = templatesCache.get(absolutePath);
-        afterRead();
-        return templatesCacheEntry;
+    static void removeObsoleteEntries() {
+        for (Map.Entry<String, TemplatesCacheEntry> entry : templatesCache.entrySet()) {
+            if (entry.getValue().isObsolete()) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Transformation [" + entry.getKey() + "] was modified.");
+                }
+                templatesCache.remove(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     /**
-     * Saves templates cache entry for the specified absolute path.
-     *
-     * @param absolutePath        absolute path of the entry.
-     * @param templatesCacheEntry templates cache entry to save.
+     * Starts the background check of the modifications, if not done yet.
      */
-    protected void write(String absolutePath, TemplatesCacheEntry templatesCacheEntry) {
-        beforeWrite();
-        templatesCache.put(absolutePath, templatesCacheEntry);
-        afterWrite();
+    private static void scheduleCheck() {
+        if (CHECK_INTERVAL > 0 && checkScheduled.compareAndSet(false, true)) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "xslt-cache-check");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        removeObsoleteEntries();
+                    } catch (Throwable t) {
+                        logger.error("Error checking the modifications of the cached transformations", t);
+                    }
+                }
+            }, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
-     * Invoked just before reading, waits until reading is allowed.
+     * Returns the files included or imported by a stylesheet, recursively, with their date of last
+     * modification. The stylesheet itself is the first file.
+     *
+     * @param file stylesheet file.
+     * @return the date of last modification of the files.
      */
-    protected synchronized void beforeRead() {
-        while (activeWriters > 0)
-            try {
-                wait();
-            } catch (InterruptedException iex) {
-            }
-        ++activeReaders;
+    Map<File, Long> collectDependencies(File file) {
+        Map<File, Long> dependencies = new LinkedHashMap<File, Long>();
+        dependencies.put(file, file.lastModified());
+        collectDependencies(file, dependencies);
+        return dependencies;
     }
 
-    /**
-     * Invoked just after reading.
-     */
-    protected synchronized void afterRead() {
-        --activeReaders;
-        notifyAll();
-    }
+    private void collectDependencies(File file, Map<File, Long> dependencies) {
+        final List<String> hrefs = new ArrayList<String>();
+        try {
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+            parserFactory.newSAXParser().parse(file, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if (XSL_NAMESPACE.equals(uri) && ("include".equals(localName) || "import".equals(localName))) {
+                        String href = attributes.getValue("href");
+                        if (href != null) {
+                            hrefs.add(href);
+                        }
+                    }
+                }
 
-    /**
-     * Invoked just before writing, waits until writing is allowed.
-     */
-    protected synchronized void beforeWrite() {
-        while (activeReaders > 0 || activeWriters > 0)
-            try {
-                wait();
-            } catch (InterruptedException iex) {
+                @Override
+                public InputSource resolveEntity(String publicId, String systemId) {
+                    // Only the elements matter, do not load the DTDs
+                    return new InputSource(new StringReader(""));
+                }
+            });
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Could not read the dependencies of [" + file + "]: " + e.getMessage());
+            }
+            return;
+        }
+
+        String base = file.toURI().toString();
+        for (String href : hrefs) {
+            File dependency = resolve(href, base);
+            if (dependency != null && !dependencies.containsKey(dependency)) {
+                dependencies.put(dependency, dependency.lastModified());
+                collectDependencies(dependency, dependencies);
             }
-        ++activeWriters;
+        }
     }
 
     /**
-     * Invoked just after writing.
+     * Resolves an included or imported stylesheet the way the compilation does.
+     *
+     * @return the file of the stylesheet, null if it is not a local file.
      */
-    protected synchronized void afterWrite() {
-        --activeWriters;
-        notifyAll();
+    private File resolve(String href, String base) {
+        try {
+            String systemId = null;
+            URIResolver resolver = getURIResolver();
+            if (resolver != null) {
+                Source source = resolver.resolve(href, base);
+                if (source != null) {
+                    systemId = source.getSystemId();
+                }
+            }
+            if (systemId == null) {
+                systemId = new URI(base).resolve(href).toString();
+            }
+            URI uri = new URI(systemId);
+            if ("file".equalsIgnoreCase(uri.getScheme())) {
+                return new File(uri.getPath()).getAbsoluteFile();
+            }
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Could not resolve [" + href + "] from [" + base + "]: " + e.getMessage());
+            }
+        }
+        return null;
     }
 
     /**
@@ -197,30 +279,79 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      */
     private static final class TemplatesCacheEntry {
         /**
-         * When was the cached entry last modified.
+         * Key of the entry in the cache.
          */
-        private long lastModified;
+        private final String absolutePath;
 
         /**
-         * Cached templates object.
+         * Templates file object.
          */
-        private Templates templates;
+        private final File templatesFile;
 
         /**
-         * Templates file object.
+         * The files the templates were compiled from, with their date of last modification when
+         * they were read. Null until the templates are compiled.
+         */
+        private volatile Map<File, Long> dependencies;
+
+        /**
+         * Cached templates object, null until compiled.
          */
-        private File templatesFile;
+        private volatile Templates templates;
 
         /**
          * Constructs a new cache entry.
          *
-         * @param templates     templates to cache.
-         * @param templatesFile file, from which this transformer was loaded.
+         * @param absolutePath  key of the entry in the cache.
+         * @param templatesFile file, from which this transformer is loaded.
          */
-        private TemplatesCacheEntry(final Templates templates, final File templatesFile) {
-            this.templates = templates;
+        private TemplatesCacheEntry(final String absolutePath, final File templatesFile) {
+            this.absolutePath = absolutePath;
             this.templatesFile = templatesFile;
-            this.lastModified = templatesFile.lastModified();
+        }
+
+        /**
+         * Returns the templates, compiling them on the first call. Concurrent first calls wait
+         * for the compilation.
+         */
+        private Templates getTemplates(CachingTransformerFactory factory) throws TransformerConfigurationException {
+            Templates result = templates;
+            if (result == null) {
+                synchronized (this) {
+                    result = templates;
+                    if (result == null) {
+                        try {
+                            // read the dates first so a modification during the compilation is detected
+                            Map<File, Long> compiledFrom = factory.collectDependencies(templatesFile);
+                            result = factory.newTemplates(new StreamSource(templatesFile));
+                            dependencies = Collections.unmodifiableMap(compiledFrom);
+                            templates = result;
+                        } catch (TransformerConfigurationException | RuntimeException e) {
+                            // let the next request try again
+                            templatesCache.remove(absolutePath, this);
+                            throw e;
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return true if the stylesheet or one of its dependencies was modified since the
+         * templates were compiled.
+         */
+        private boolean isObsolete() {
+            Map<File, Long> compiledFrom = dependencies;
+            if (compiledFrom == null) {
+                return false;
+            }
+            for (Map.Entry<File, Long> dependency : compiledFrom.entrySet()) {
+                if (dependency.getKey().lastModified() != dependency.getValue()) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package de.fzi.dbs.xml.transform;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CachingTransformerFactoryTest {
+    private static final String XSL_START = "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:output method=\"text\"/>";
+    private static final String XSL_END = "</xsl:stylesheet>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final CountingTransformerFactory factory = new CountingTransformerFactory();
+
+    @Before
+    public void clearCache() {
+        factory.clearCache();
+    }
+
+    @Test
+    public void concurrentMissesCompileOnce() throws Exception {
+        final File stylesheet = write("main.xsl", XSL_START + "<xsl:template match=\"/\">main</xsl:template>" + XSL_END);
+        factory.compilationDelay = 200;
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        return transform(stylesheet);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("main", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, factory.compilations.get());
+
+        assertEquals("main", transform(stylesheet));
+        assertEquals(1, factory.compilations.get());
+    }
+
+    @Test
+    public void modifiedDependencyInvalidatesTheEntry() throws Exception {
+        File stylesheet = write("main.xsl", XSL_START + "<xsl:import href=\"imported.xsl\"/>"
+            + "<xsl:template match=\"/\"><xsl:call-template name=\"value\"/></xsl:template>" + XSL_END);
+        write("imported.xsl", XSL_START + "<xsl:include href=\"included.xsl\"/>" + XSL_END);
+        File included = write("included.xsl", XSL_START + "<xsl:template name=\"value\">one</xsl:template>" + XSL_END);
+
+        assertEquals("one", transform(stylesheet));
+        CachingTransformerFactory.removeObsoleteEntries();
+        assertEquals("one", transform(stylesheet));
+        assertEquals(1, factory.compilations.get());
+
+        long lastModified = included.lastModified();
+        write("included.xsl", XSL_START + "<xsl:template name=\"value\">two</xsl:template>" + XSL_END);
+        included.setLastModified(lastModified + 10000);
+        CachingTransformerFactory.removeObsoleteEntries();
+
+        assertEquals("two", transform(stylesheet));
+        assertEquals(2, factory.compilations.get());
+    }
+
+    @Test
+    public void failedCompilationIsRetried() throws Exception {
+        File stylesheet = write("main.xsl", XSL_START + "<xsl:template match=\"/\">main</xsl:template>" + XSL_END);
+        factory.failures.set(1);
+
+        try {
+            transform(stylesheet);
+            fail("the first compilation should fail");
+        } catch (TransformerConfigurationException e) {
+            // expected
+        }
+        assertEquals("main", transform(stylesheet));
+        assertEquals(2, factory.compilations.get());
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String transform(File stylesheet) throws Exception {
+        StringWriter result = new StringWriter();
+        factory.newTransformer(new StreamSource(stylesheet))
+            .transform(new StreamSource(new StringReader("<root/>")), new StreamResult(result));
+        return result.toString();
+    }
+
+    /**
+     * Counts the compilations of the stylesheets, failing or slowing them down on demand.
+     */
+    private static class CountingTransformerFactory extends CachingTransformerFactory {
+        final AtomicInteger compilations = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile long compilationDelay;
+
+        @Override
+        public Templates newTemplates(Source source) throws TransformerConfigurationException {
+            compilations.incrementAndGet();
+            if (failures.getAndDecrement() > 0) {
+                throw new TransformerConfigurationException("Compilation failure");
+            }
+            if (compilationDelay > 0) {
+                try {
+                    Thread.sleep(compilationDelay);
+                } catch (InterruptedException e) {
+                    throw new TransformerConfigurationException(e);
+                }
+            }
+            return super.newTemplates(source);
+        }
+    }
+}
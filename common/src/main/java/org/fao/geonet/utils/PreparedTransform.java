@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.utils;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.FeatureKeys;
+import org.fao.geonet.utils.nio.NioPathHolder;
+import org.jdom.Element;
+import org.jdom.transform.JDOMResult;
+import org.jdom.transform.JDOMSource;
+import org.xml.sax.ContentHandler;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * A stylesheet prepared for repeated transformations, see {@link Xml#prepareTransform(Path)}.
+ *
+ * The stylesheet is compiled by a transformer factory whose settings are fixed when it is created,
+ * instead of updating the settings of the shared factory for each transformation. When the factory
+ * caches the stylesheets itself (see {@link CachedTransformer}), the factory cache is used so that
+ * the modifications of the stylesheet are followed, otherwise the compiled stylesheet is kept here.
+ *
+ * The transformations read the JDOM tree in place: unlike {@link Xml#transform(Element, Path,
+ * Map)}, the element is not detached from its parent. A prepared transform can be shared by
+ * threads.
+ */
+public final class PreparedTransform {
+    private static volatile FactoryHolder factoryHolder;
+
+    private final Path styleSheetPath;
+    private final String systemId;
+    private final TransformerFactory factory;
+    /**
+     * The compiled stylesheet, null if the factory caches it.
+     */
+    private final Templates templates;
+    /**
+     * The date of last modification of the compiled stylesheet.
+     */
+    private final long lastModified;
+
+    PreparedTransform(Path styleSheetPath) throws TransformerConfigurationException, IOException {
+        this.styleSheetPath = styleSheetPath;
+        URI uri = styleSheetPath.toUri();
+        this.systemId = uri.toASCIIString();
+        this.factory = getFactory();
+        if (factory instanceof CachedTransformer && "file".equalsIgnoreCase(uri.getScheme())) {
+            this.templates = null;
+            this.lastModified = 0;
+        } else {
+            this.lastModified = Files.getLastModifiedTime(styleSheetPath).toMillis();
+            NioPathHolder.setBase(styleSheetPath);
+            try (InputStream in = IO.newInputStream(styleSheetPath)) {
+                this.templates = factory.newTemplates(new StreamSource(in, systemId));
+            }
+        }
+    }
+
+    public Path getStyleSheetPath() {
+        return styleSheetPath;
+    }
+
+    /**
+     * @return false if the transformer factory was changed or, when the compiled stylesheet is
+     * kept here, if the stylesheet was modified since.
+     */
+    boolean isUpToDate() throws TransformerConfigurationException, IOException {
+        return factory == getFactory()
+            && (templates == null || Files.getLastModifiedTime(styleSheetPath).toMillis() == lastModified);
+    }
+
+    /**
+     * Creates a transformer of the stylesheet.
+     *
+     * @param params the stylesheet parameters, may be null.
+     */
+    public Transformer newTransformer(Map<String, Object> params) throws TransformerConfigurationException {
+        NioPathHolder.setBase(styleSheetPath);
+        Transformer transformer = templates != null ? templates.newTransformer() : factory.newTransformer(new StreamSource(systemId));
+        if (params != null) {
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                transformer.setParameter(param.getKey(), param.getValue());
+            }
+        }
+        return transformer;
+    }
+
+    /**
+     * Transforms an xml tree into another.
+     */
+    public Element transform(Element xml, Map<String, Object> params) throws TransformerException {
+        JDOMResult resXml = new JDOMResult();
+        transform(xml, params, resXml);
+        return (Element) resXml.getDocument().getRootElement().detach();
+    }
+
+    /**
+     * Transforms an xml tree to a result, a {@link SAXResult} or a {@link StreamResult} for
+     * example.
+     */
+    public void transform(Element xml, Map<String, Object> params, Result result) throws TransformerException {
+        newTransformer(params).transform(new JDOMSource(xml), result);
+    }
+
+    /**
+     * Transforms an xml tree to SAX events.
+     */
+    public void transform(Element xml, Map<String, Object> params, ContentHandler handler) throws TransformerException {
+        transform(xml, params, new SAXResult(handler));
+    }
+
+    /**
+     * Transforms an xml tree to a stream.
+     */
+    public void transform(Element xml, Map<String, Object> params, OutputStream out) throws TransformerException, IOException {
+        transform(xml, params, new StreamResult(out));
+        out.flush();
+    }
+
+    /**
+     * @return the factory of the prepared transforms, created from the same implementation as
+     * the shared factory of {@link TransformerFactoryFactory}.
+     */
+    private static TransformerFactory getFactory() throws TransformerConfigurationException {
+        TransformerFactory shared = TransformerFactoryFactory.getTransformerFactory();
+        FactoryHolder holder = factoryHolder;
+        if (holder == null || holder.shared != shared) {
+            holder = new FactoryHolder(shared);
+            factoryHolder = holder;
+        }
+        return holder.factory;
+    }
+
+    /**
+     * A factory with fixed settings and the shared factory it was created from.
+     */
+    private static final class FactoryHolder {
+        private final TransformerFactory shared;
+        private final TransformerFactory factory;
+
+        FactoryHolder(TransformerFactory shared) {
+            this.shared = shared;
+            this.factory = TransformerFactory.newInstance(shared.getClass().getName(), shared.getClass().getClassLoader());
+            factory.setURIResolver(new Xml.JeevesURIResolver());
+            try {
+                factory.setAttribute(FeatureKeys.VERSION_WARNING, false);
+                factory.setAttribute(FeatureKeys.LINE_NUMBERING, true);
+                factory.setAttribute(FeatureKeys.PRE_EVALUATE_DOC_FUNCTION, false);
+                factory.setAttribute(FeatureKeys.RECOVERY_POLICY, Configuration.RECOVER_SILENTLY);
+            } catch (IllegalArgumentException e) {
+                Log.warning(Log.ENGINE, "WARNING: transformerfactory doesnt like saxon attributes!", e);
+            }
+        }
+    }
+}
@@ -26,6 +26,11 @@ package org.fao.geonet.utils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import net.sf.json.JSON;
 import net.sf.json.xml.XMLSerializer;
 import net.sf.saxon.Configuration;
@@ -113,6 +118,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -128,6 +136,28 @@ public final class Xml {
     public static final Namespace xsiNS = Namespace.getNamespace("xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
     public static final NioPathAwareEntityResolver PATH_RESOLVER = new NioPathAwareEntityResolver();
 
+    /**
+     * The compiled XML schemas by xsd path and cache generation. A {@link Schema} is immutable and
+     * thread safe, so a compiled schema is shared by all the validations against the same xsd.
+     */
+    private static final Cache<SchemaKey, Schema> SCHEMA_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(Integer.getInteger("geonetwork.xml.schemaCache.maxSize", 100))
+        .build();
+
+    /**
+     * Bumped when the schema cache is cleared. A compilation started before the clear caches its
+     * schema under the previous generation, where it is never looked up again.
+     */
+    private static final AtomicLong SCHEMA_GENERATION = new AtomicLong();
+
+    /**
+     * The prepared transforms by stylesheet path, so that the callers transforming many documents
+     * with the same stylesheet do not prepare it for each document.
+     */
+    private static final Cache<Path, PreparedTransform> PREPARED_TRANSFORMS = CacheBuilder.newBuilder()
+        .maximumSize(Integer.getInteger("geonetwork.xml.preparedTransformCache.maxSize", 200))
+        .build();
+
     //--------------------------------------------------------------------------
 
     /**
@@ -372,6 +402,21 @@ public final class Xml {
         return (Element) resXml.getDocument().getRootElement().detach();
     }
 
+    /**
+     * Prepares a stylesheet on disk for repeated transformations, without changing the settings
+     * of the shared transformer factory nor detaching the transformed trees. The prepared
+     * transform of a stylesheet is kept and returned again until the stylesheet or the
+     * transformer factory changes.
+     */
+    public static PreparedTransform prepareTransform(Path styleSheetPath) throws Exception {
+        PreparedTransform transform = PREPARED_TRANSFORMS.getIfPresent(styleSheetPath);
+        if (transform == null || !transform.isUpToDate()) {
+            transform = new PreparedTransform(styleSheetPath);
+            PREPARED_TRANSFORMS.put(styleSheetPath, transform);
+        }
+        return transform;
+    }
+
     public static Object unmarshall(Element xml, Class clazz) throws Exception {
         JAXBContext jaxbContext = JAXBContext.newInstance(clazz);
         Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
@@ -958,7 +1003,79 @@ public final class Xml {
 
     //---------------------------------------------------------------------------
 
-    private static Schema getSchemaFromPath(Path schemaPath) throws SAXException {
+    /**
+     * Compile the xml schema described by the .xsd file path, if it is not already cached, so
+     * that the next validations against it do not wait for the compilation.
+     */
+    public static void preloadSchema(Path schemaPath) throws SAXException {
+        getSchemaFromPath(schemaPath);
+    }
+
+    /**
+     * Remove the compiled xml schemas from the cache, for example when the xsd files have been
+     * modified.
+     */
+    public static void clearSchemaCache() {
+        SCHEMA_GENERATION.incrementAndGet();
+        SCHEMA_CACHE.invalidateAll();
+    }
+
+    //---------------------------------------------------------------------------
+
+    @VisibleForTesting
+    static Schema getSchemaFromPath(final Path schemaPath) throws SAXException {
+        try {
+            return SCHEMA_CACHE.get(new SchemaKey(schemaPath, SCHEMA_GENERATION.get()), new Callable<Schema>() {
+                @Override
+                public Schema call() throws SAXException {
+                    return compileSchema(schemaPath);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (ExecutionError e) {
+            throw (Error) e.getCause();
+        }
+    }
+
+    /**
+     * The key of a compiled schema: the xsd path and the cache generation it was compiled in.
+     */
+    private static final class SchemaKey {
+        private final Path path;
+        private final long generation;
+
+        private SchemaKey(Path path, long generation) {
+            this.path = path;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SchemaKey)) {
+                return false;
+            }
+            SchemaKey other = (SchemaKey) o;
+            return generation == other.generation && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + (int) (generation ^ (generation >>> 32));
+        }
+    }
+
+    private static Schema compileSchema(Path schemaPath) throws SAXException {
         PathStreamSource schemaFile = new PathStreamSource(schemaPath);
         schemaFile.setSystemId(schemaPath.toUri().toASCIIString());
 
@@ -1132,7 +1249,7 @@ public final class Xml {
         return retBool;
     }
 
-    private static class JeevesURIResolver implements URIResolver {
+    static class JeevesURIResolver implements URIResolver {
 
         /**
          *
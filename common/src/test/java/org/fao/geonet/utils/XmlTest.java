@@ -29,15 +29,18 @@ import com.google.common.jimfs.Jimfs;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.Constants;
 import org.fao.geonet.SystemInfo;
+import org.fao.geonet.exceptions.XSDValidationErrorEx;
 import org.fao.geonet.utils.debug.OpenResourceTracker;
 import org.jdom.Attribute;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.jdom.Text;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.context.support.GenericApplicationContext;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -51,7 +54,10 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 
 /**
@@ -61,6 +67,7 @@ public class XmlTest {
     public static final Namespace GMD = Namespace.getNamespace("gmd", "http://www.isotc211.org/2005/gmd");
     public static final Namespace GCO = Namespace.getNamespace("gco", "http://www.isotc211.org/2005/gco");
     private static final List<Namespace> NAMESPACES = Arrays.asList(GMD, GCO);
+    private static final Namespace VALIDATION = Namespace.getNamespace("http://geonetwork-opensource.org/test/validation");
     public static Element TEST_METADATA;
 
     @BeforeClass
@@ -150,6 +157,39 @@ public class XmlTest {
         }
     }
 
+    @Test
+    public void testPreparedTransform() throws Exception {
+        TransformerFactoryFactory.init("net.sf.saxon.TransformerFactoryImpl");
+        try {
+            final GenericApplicationContext applicationContext = new GenericApplicationContext();
+            applicationContext.refresh();
+            applicationContext.getBeanFactory().registerSingleton("systemInfo", SystemInfo.createForTesting(SystemInfo.STAGE_DEVELOPMENT));
+            ApplicationContextHolder.set(applicationContext);
+
+            Path path = Paths.get(XmlTest.class.getResource("xmltest/xsl/test.xsl").toURI());
+            PreparedTransform transform = Xml.prepareTransform(path);
+            // the stylesheet is prepared once
+            assertSame(transform, Xml.prepareTransform(path));
+            Element parent = new Element("parent");
+            Element el = new Element("el");
+            parent.addContent(el);
+
+            assertTransformedXml(transform.transform(el, null));
+            assertTransformedXml(transform.transform(el, null));
+            // the transformed tree is left in place
+            assertSame(parent, el.getParent());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            transform.transform(el, null, out);
+            assertTransformedXml(Xml.loadString(out.toString(Constants.ENCODING), false));
+
+            final Path test = setupMemoryFs(path.getParent());
+            assertTransformedXml(Xml.prepareTransform(test.resolve("xsl/test.xsl")).transform(el, null));
+        } finally {
+            TransformerFactoryFactory.init(null);
+        }
+    }
+
     protected void assertTransformedXml(Element result) {
         assertEquals("root", result.getName());
         assertEquals(3, result.getChildren().size());
@@ -192,5 +232,58 @@ public class XmlTest {
         assertSame(attribute, actual.get(0));
     }
 
+    @Test
+    public void testValidateUsesCompiledSchema() throws Exception {
+        Path xsd = Paths.get(XmlTest.class.getResource("xmltest/validation.xsd").toURI());
+
+        Xml.validate(xsd, validationRecord("title", "12"));
+        assertNull(Xml.validateInfo(xsd, validationRecord("title", null), new XmlErrorHandler(), null));
+        try {
+            Xml.validate(xsd, validationRecord("title", "twelve"));
+            fail("the count is not an integer");
+        } catch (XSDValidationErrorEx e) {
+            // expected
+        }
+        assertNotNull(Xml.validateInfo(xsd, validationRecord(null, "12"), new XmlErrorHandler(), null));
+
+        javax.xml.validation.Schema schema = Xml.getSchemaFromPath(xsd);
+        assertSame(schema, Xml.getSchemaFromPath(xsd));
+
+        Xml.clearSchemaCache();
+        assertNotSame(schema, Xml.getSchemaFromPath(xsd));
+    }
+
+    /**
+     * Compare the time spent validating records when the xml schema is compiled for each
+     * validation and when the compiled schema is reused.
+     */
+    @Test
+    @Ignore
+    public void benchmarkValidate() throws Exception {
+        Path xsd = Paths.get(XmlTest.class.getResource("xmltest/validation.xsd").toURI());
+        Element record = validationRecord("title", "12");
+        final int iterations = 2000;
+        for (boolean cached : new boolean[]{false, true, false, true}) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (!cached) {
+                    Xml.clearSchemaCache();
+                }
+                Xml.validateInfo(xsd, record, new XmlErrorHandler(), null);
+            }
+            System.out.println(String.format("%s: %d us/validation", cached ? "compiled schema reused" : "schema compiled",
+                (System.nanoTime() - start) / iterations / 1000));
+        }
+    }
 
+    private Element validationRecord(String title, String count) {
+        Element record = new Element("record", VALIDATION);
+        if (title != null) {
+            record.addContent(new Element("title", VALIDATION).setText(title));
+        }
+        if (count != null) {
+            record.addContent(new Element("count", VALIDATION).setText(count));
+        }
+        return record;
+    }
 }
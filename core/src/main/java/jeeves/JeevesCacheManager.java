@@ -23,21 +23,63 @@
 
 package jeeves;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.DummyCounter;
+import com.yammer.metrics.core.DummyTimer;
+import com.yammer.metrics.core.Timer;
+import com.yammer.metrics.core.TimerContext;
+import jeeves.monitor.MonitorManager;
+import jeeves.monitor.counter.JeevesCacheHitCounter;
+import jeeves.monitor.counter.JeevesCacheMissCounter;
+import jeeves.monitor.timer.JeevesCacheLoadTimer;
+import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.JeevesJCS;
+import org.springframework.context.ConfigurableApplicationContext;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Short term and eternal caches of objects which are expensive to load.
+ *
+ * Hits do not take any lock. On a miss, the value is loaded once: concurrent lookups of the same
+ * key wait for the value loaded by the first one. The hits, misses and load times are published
+ * through the {@link MonitorManager}.
+ *
+ * The JCS regions JeevesCacheManagerTenSeconds and JeevesCacheManagerETERNAL can still be used
+ * instead by setting the system property {@value #JCS_BACKEND_PROPERTY} to true.
+ */
 public class JeevesCacheManager {
 
+    public static final String JCS_BACKEND_PROPERTY = "jeeves.cache.jcs";
+
     private static final String TEN_SECOND_KEY = "JeevesCacheManagerTenSeconds";
     private static final String ETERNAL_KEY = "JeevesCacheManagerETERNAL";
 
-    private static Map<String, Lock> locks = new HashMap<String, Lock>();
+    private static final boolean USE_JCS = Boolean.getBoolean(JCS_BACKEND_PROPERTY);
+
+    private static final Cache<String, Object> TEN_SECOND_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(10000)
+        .expireAfterWrite(10, TimeUnit.SECONDS)
+        .build();
+    private static final Cache<String, Object> ETERNAL_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(1000)
+        .build();
+
+    /**
+     * Locks of the JCS backend.
+     */
+    private static final Striped<Lock> locks = Striped.lazyWeakLock(64);
+
+    private static volatile MonitorHolder monitor;
 
     /**
      * Looks in a very short term cache for the item if it is no longer in cache then loads the
@@ -53,19 +95,84 @@ public class JeevesCacheManager {
      * @param loader an object for loading the data if the data has expired from the cache already
      */
     public static <V> V findInTenSecondCache(String key, Callable<V> loader) throws Exception {
-        return find(TEN_SECOND_KEY, key, loader);
+        if (USE_JCS) {
+            return findInJCS(TEN_SECOND_KEY, key, loader);
+        }
+        return find(TEN_SECOND_CACHE, key, loader);
     }
 
     public static <V> V findInEternalCache(String key, Callable<V> loader) throws Exception {
-        return find(ETERNAL_KEY, key, loader);
+        if (USE_JCS) {
+            return findInJCS(ETERNAL_KEY, key, loader);
+        }
+        return find(ETERNAL_CACHE, key, loader);
+    }
+
+    /**
+     * Remove all the cached objects.
+     */
+    public static void clear() throws Exception {
+        TEN_SECOND_CACHE.invalidateAll();
+        ETERNAL_CACHE.invalidateAll();
+        if (USE_JCS) {
+            JeevesJCS.getInstance(TEN_SECOND_KEY).clear();
+            JeevesJCS.getInstance(ETERNAL_KEY).clear();
+        }
     }
 
-    private static <V> V find(String cacheName, String key, Callable<V> loader) throws Exception {
-        Lock lock = getLock(key);
+    private static <V> V find(Cache<String, Object> cache, String key, final Callable<V> loader) throws Exception {
+        final MonitorHolder monitor = getMonitor();
+
+        @SuppressWarnings("unchecked")
+        V value = (V) cache.getIfPresent(key);
+        if (value != null) {
+            monitor.hits.inc();
+            return value;
+        }
+
+        final boolean[] loaded = new boolean[1];
         try {
-            if (!lock.tryLock(30, TimeUnit.SECONDS)) {
-                throw new IllegalStateException("Timed out trying to get the log for the JeevesCache");
+            @SuppressWarnings("unchecked")
+            V result = (V) cache.get(key, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    loaded[0] = true;
+                    TimerContext timerContext = monitor.loadTime.time();
+                    try {
+                        return loader.call();
+                    } finally {
+                        timerContext.stop();
+                    }
+                }
+            });
+            return result;
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            // The loader returned null, nothing is cached
+            return null;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
+            throw e;
+        } catch (ExecutionError e) {
+            throw (Error) e.getCause();
+        } finally {
+            if (loaded[0]) {
+                monitor.misses.inc();
+            } else {
+                // Loaded by a concurrent lookup
+                monitor.hits.inc();
+            }
+        }
+    }
+
+    private static <V> V findInJCS(String cacheName, String key, Callable<V> loader) throws Exception {
+        Lock lock = locks.get(key);
+        if (!lock.tryLock(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Timed out trying to get the log for the JeevesCache");
+        }
+        try {
             JeevesJCS cache = JeevesJCS.getInstance(cacheName);
 
             @SuppressWarnings("unchecked")
@@ -83,12 +190,44 @@ public class JeevesCacheManager {
         }
     }
 
-    private static synchronized Lock getLock(String key) {
-        Lock lock = locks.get(key);
-        if (lock == null) {
-            lock = new ReentrantLock();
-            locks.put(key, lock);
+    private static MonitorHolder getMonitor() {
+        ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
+        MonitorHolder current = monitor;
+        if (current == null || current.applicationContext != applicationContext) {
+            current = new MonitorHolder(applicationContext);
+            monitor = current;
+        }
+        return current;
+    }
+
+    /**
+     * The metrics of the application context of the current thread.
+     */
+    private static final class MonitorHolder {
+        private final ConfigurableApplicationContext applicationContext;
+        private final Counter hits;
+        private final Counter misses;
+        private final Timer loadTime;
+
+        MonitorHolder(ConfigurableApplicationContext applicationContext) {
+            this.applicationContext = applicationContext;
+            MonitorManager monitorManager = null;
+            if (applicationContext != null) {
+                try {
+                    monitorManager = applicationContext.getBean(MonitorManager.class);
+                } catch (Exception e) {
+                    // no monitoring
+                }
+            }
+            if (monitorManager != null) {
+                hits = monitorManager.getCounter(JeevesCacheHitCounter.class);
+                misses = monitorManager.getCounter(JeevesCacheMissCounter.class);
+                loadTime = monitorManager.getTimer(JeevesCacheLoadTimer.class);
+            } else {
+                hits = DummyCounter.INSTANCE;
+                misses = DummyCounter.INSTANCE;
+                loadTime = DummyTimer.INSTANCE;
+            }
         }
-        return lock;
     }
 }
@@ -25,6 +25,7 @@ package jeeves;
 
 import jeeves.server.overrides.ConfigurationOverrides;
 
+import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
 import org.jdom.JDOMException;
@@ -33,20 +34,29 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.ServletContext;
 
 //=============================================================================
 
+/**
+ * Caches the content of an xml file and reloads it when the file changes. The file is checked at
+ * most once per interval. The cacher can be shared by several threads.
+ */
 public class XmlFileCacher {
     private ServletContext servletContext;
     private Path appPath;
     private Path file;
     private int interval; //--- in secs
-    private long lastTime;
+    private volatile long lastTime;
     private FileTime lastModified;
 
-    private Element elem;
+    private volatile Element elem;
+
+    private final Executor refresher;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
 
     //--------------------------------------------------------------------------
     //---
@@ -73,10 +83,22 @@ public class XmlFileCacher {
      *                       is loaded
      */
     public XmlFileCacher(Path file, int interval, ServletContext servletContext, Path appPath) {
+        this(file, interval, servletContext, appPath, null);
+    }
+
+    /**
+     * @param servletContext if non-null the config-overrides can be applied to the xml file when it
+     *                       is loaded
+     * @param refresher      if non-null the file is checked and reloaded by the refresher while
+     *                       the previous content is still returned. Otherwise the file is reloaded
+     *                       by the thread calling {@link #get()}.
+     */
+    public XmlFileCacher(Path file, int interval, ServletContext servletContext, Path appPath, Executor refresher) {
         this.file = file;
         this.interval = interval;
         this.servletContext = servletContext;
         this.appPath = appPath;
+        this.refresher = refresher;
     }
 
     //--------------------------------------------------------------------------
@@ -86,27 +108,56 @@ public class XmlFileCacher {
     //--------------------------------------------------------------------------
 
     public Element get() throws JDOMException, IOException {
-        if (elem == null) {
-            elem = load();
-            lastTime = System.currentTimeMillis();
-            lastModified = Files.getLastModifiedTime(file);
-        } else {
-            long now = System.currentTimeMillis();
-            int delta = (int) (now - lastTime) / 1000;
-
-            if ((delta >= interval)) {
-                FileTime fileModified = Files.getLastModifiedTime(file);
-
-                if (!lastModified.equals(fileModified)) {
+        Element current = elem;
+        if (current == null) {
+            synchronized (this) {
+                if (elem == null) {
+                    FileTime fileModified = Files.getLastModifiedTime(file);
                     elem = load();
                     lastModified = fileModified;
+                    lastTime = System.currentTimeMillis();
                 }
+                return elem;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        int delta = (int) (now - lastTime) / 1000;
 
+        if ((delta >= interval)) {
+            if (refresher == null) {
+                refresh(now);
+                return elem;
+            }
+            if (refreshing.compareAndSet(false, true)) {
                 lastTime = now;
+                refresher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            refresh(System.currentTimeMillis());
+                        } catch (Exception e) {
+                            Log.warning(Log.RESOURCES, "Unable to reload " + file + ": " + e.getMessage());
+                        } finally {
+                            refreshing.set(false);
+                        }
+                    }
+                });
             }
         }
 
-        return elem;
+        return current;
+    }
+
+    private synchronized void refresh(long now) throws JDOMException, IOException {
+        FileTime fileModified = Files.getLastModifiedTime(file);
+
+        if (!lastModified.equals(fileModified)) {
+            elem = load();
+            lastModified = fileModified;
+        }
+
+        lastTime = now;
     }
 
     //--------------------------------------------------------------------------
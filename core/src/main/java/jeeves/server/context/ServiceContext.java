@@ -41,11 +41,13 @@ import org.jdom.Element;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.transaction.TransactionStatus;
 
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 
 //=============================================================================
@@ -87,6 +89,10 @@ public class ServiceContext extends BasicContext {
      * @see #_responseHeaders
      */
     private Integer _statusCode;
+    /**
+     * File output written to the response once the service returns, instead of a file on disk.
+     */
+    private StreamedResponse _streamedResponse;
     public ServiceContext(final String service, final ConfigurableApplicationContext jeevesApplicationContext,
                           final Map<String, Object> contexts, final EntityManager entityManager) {
         super(jeevesApplicationContext, contexts, entityManager);
@@ -121,6 +127,20 @@ public class ServiceContext extends BasicContext {
         ApplicationContextHolder.set(this.getApplicationContext());
     }
 
+    /**
+     * Called at the end of a task which set its own Service context, eg. a task of a pool which
+     * may also run in the submitting thread, to restore the Service context of the thread.
+     *
+     * @param previous the Service context set before the task, or null to clear it
+     */
+    public static void restoreThreadLocal(@Nullable ServiceContext previous) {
+        if (previous == null) {
+            THREAD_LOCAL_INSTANCE.remove();
+        } else {
+            previous.setAsThreadLocal();
+        }
+    }
+
     //--------------------------------------------------------------------------
     //---
     //--- API methods
@@ -320,6 +340,32 @@ public class ServiceContext extends BasicContext {
         this._statusCode = statusCode;
     }
 
+    public StreamedResponse getStreamedResponse() {
+        return _streamedResponse;
+    }
+
+    /**
+     * Send the output of a service with a file output page by writing it to the response, rather
+     * than returning a file built beforehand. The element returned by the service is ignored.
+     */
+    public void setStreamedResponse(StreamedResponse streamedResponse) {
+        this._streamedResponse = streamedResponse;
+    }
+
+    /**
+     * A file written while it is sent to the client.
+     */
+    public interface StreamedResponse {
+        String getContentType();
+
+        String getFileName();
+
+        /**
+         * Write the file, the stream must not be closed.
+         */
+        void write(OutputStream out) throws Exception;
+    }
+
 }
 
 //=============================================================================
@@ -740,25 +740,33 @@ public class ServiceManager {
 
 
                 }
-                final BinaryFile binaryFile = new BinaryFile(response);
-                String contentType = binaryFile.getContentType();
+                final ServiceContext.StreamedResponse streamedResponse = context.getStreamedResponse();
+                if (streamedResponse != null) {
+                    req.beginStream(streamedResponse.getContentType(), -1,
+                        "attachment;filename=" + streamedResponse.getFileName(), cache);
+                    streamedResponse.write(req.getOutputStream());
+                    req.endStream();
+                } else {
+                    final BinaryFile binaryFile = new BinaryFile(response);
+                    String contentType = binaryFile.getContentType();
 
-                if (contentType == null)
-                    contentType = "application/octet-stream";
+                    if (contentType == null)
+                        contentType = "application/octet-stream";
 
-                String contentDisposition = binaryFile.getContentDisposition();
-                String contentLength = binaryFile.getContentLength();
+                    String contentDisposition = binaryFile.getContentDisposition();
+                    String contentLength = binaryFile.getContentLength();
 
-                int cl = (contentLength == null) ? -1 : Integer.parseInt(contentLength);
+                    int cl = (contentLength == null) ? -1 : Integer.parseInt(contentLength);
 
-                // Did we set up a status code for the response?
-                if (context.getStatusCode() != null) {
-                    ((ServiceRequest) req).setStatusCode(context.getStatusCode());
+                    // Did we set up a status code for the response?
+                    if (context.getStatusCode() != null) {
+                        ((ServiceRequest) req).setStatusCode(context.getStatusCode());
+                    }
+                    req.beginStream(contentType, cl, contentDisposition, cache);
+                    binaryFile.write(req.getOutputStream());
+                    req.endStream();
+                    binaryFile.removeIfTheCase();
                 }
-                req.beginStream(contentType, cl, contentDisposition, cache);
-                binaryFile.write(req.getOutputStream());
-                req.endStream();
-                binaryFile.removeIfTheCase();
             }
 
             //--- BLOB output
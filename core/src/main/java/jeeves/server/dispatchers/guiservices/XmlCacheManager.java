@@ -34,25 +34,33 @@ import org.springframework.context.ApplicationContext;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import javax.annotation.PreDestroy;
 import javax.servlet.ServletContext;
 
+/**
+ * Caches the xml files (often localized strings) used by the gui services.
+ *
+ * Lookups do not lock: the files are cached by base directory, file and language in a concurrent
+ * map. The cached files are checked for changes at most every 10 seconds and reloaded in the
+ * background, the previous content being returned until the new one is loaded.
+ */
 public class XmlCacheManager {
-    WeakHashMap<String, Map<String, XmlFileCacher>> xmlCaches = new WeakHashMap<String, Map<String, XmlFileCacher>>();
-
-    private Map<String, XmlFileCacher> getCacheMap(boolean localized, Path base, String file) {
-        String key = localized + ":" + base + ":" + file;
-        Map<String, XmlFileCacher> cacheMap = xmlCaches.get(key);
-        if (cacheMap == null) {
-            cacheMap = new HashMap<>(10);
-            xmlCaches.put(key, cacheMap);
+    private final ConcurrentMap<CacheKey, XmlFileCacher> xmlCaches = new ConcurrentHashMap<>();
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "xml-cache-refresher");
+            thread.setDaemon(true);
+            return thread;
         }
-
-        return cacheMap;
-    }
+    });
 
     /**
      * Obtain the stings for the provided xml file.
@@ -66,10 +74,8 @@ public class XmlCacheManager {
      * @param defaultLang      a fall back language
      * @param makeCopy         if false then xml is not cloned and MUST NOT BE MODIFIED!
      */
-    public synchronized Element get(ApplicationContext context, boolean localized, Path base, String file, String preferedLanguage,
-                                    String defaultLang, boolean makeCopy) throws JDOMException, IOException {
-
-        Map<String, XmlFileCacher> cacheMap = getCacheMap(localized, base, file);
+    public Element get(ApplicationContext context, boolean localized, Path base, String file, String preferedLanguage,
+                       String defaultLang, boolean makeCopy) throws JDOMException, IOException {
 
         Path appPath = context.getBean(GeonetworkDataDirectory.class).getWebappDir();
         Path xmlFilePath;
@@ -88,11 +94,15 @@ public class XmlCacheManager {
 
         ServletContext servletContext = context.getBean(ServletContext.class);
 
-        XmlFileCacher xmlCache = cacheMap.get(preferedLanguage);
+        CacheKey key = new CacheKey(localized, base, file, preferedLanguage);
+        XmlFileCacher xmlCache = xmlCaches.get(key);
         Path xmlFile = xmlFilePath;
         if (xmlCache == null) {
-            xmlCache = new XmlFileCacher(xmlFile, servletContext, appPath);
-            cacheMap.put(preferedLanguage, xmlCache);
+            XmlFileCacher newCache = new XmlFileCacher(xmlFile, 10, servletContext, appPath, refresher);
+            xmlCache = xmlCaches.putIfAbsent(key, newCache);
+            if (xmlCache == null) {
+                xmlCache = newCache;
+            }
         }
 
         Element result;
@@ -105,13 +115,52 @@ public class XmlCacheManager {
         } catch (Exception e) {
             Log.debug(Log.RESOURCES, "Error cloning the cached data.  Attempted to get: " + xmlFilePath + " but failed so falling back to default language", e);
             Path xmlDefaultLangFilePath = rootPath.resolve(defaultLang).resolve(file);
-            xmlCache = new XmlFileCacher(xmlDefaultLangFilePath, servletContext, appPath);
-            cacheMap.put(preferedLanguage, xmlCache);
-            result = (Element) xmlCache.get().clone();
+            XmlFileCacher defaultLangCache = new XmlFileCacher(xmlDefaultLangFilePath, 10, servletContext, appPath, refresher);
+            xmlCaches.replace(key, xmlCache, defaultLangCache);
+            result = (Element) defaultLangCache.get().clone();
         }
         String name = com.google.common.io.Files.getNameWithoutExtension(xmlFile.getFileName().toString());
 
         return result.setName(name);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private static final class CacheKey {
+        private final boolean localized;
+        private final Path base;
+        private final String file;
+        private final String language;
+
+        CacheKey(boolean localized, Path base, String file, String language) {
+            this.localized = localized;
+            this.base = base;
+            this.file = file;
+            this.language = language;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            CacheKey other = (CacheKey) o;
+            return localized == other.localized
+                && base.equals(other.base)
+                && file.equals(other.file)
+                && (language == null ? other.language == null : language.equals(other.language));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (localized ? 1 : 0);
+            result = 31 * result + base.hashCode();
+            result = 31 * result + file.hashCode();
+            result = 31 * result + (language != null ? language.hashCode() : 0);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves.xlink;
+
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.filter.ElementFilter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Index of the elements of a document by their id attribute, used to resolve the local XLinks
+ * ({@code xlink:href="#id"}) of the document.
+ *
+ * The index is built in a single pass over the document. Like the XPath expression it replaces,
+ * it finds the first element in document order among the descendants of the children of the root.
+ * The elements which are not in the document anymore, or which were added after the index was
+ * built, are looked up with the XPath expression.
+ */
+final class LocalFragmentIndex {
+    private final Element md;
+    private final Map<String, Element> elementsById = new HashMap<String, Element>();
+
+    LocalFragmentIndex(Element md) {
+        this.md = md;
+        for (Object child : md.getChildren()) {
+            @SuppressWarnings("unchecked")
+            Iterator<Element> descendants = ((Element) child).getDescendants(new ElementFilter());
+            while (descendants.hasNext()) {
+                Element element = descendants.next();
+                String id = element.getAttributeValue("id");
+                if (id != null && !elementsById.containsKey(id)) {
+                    elementsById.put(id, element);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the element having the id, null if there is none.
+     */
+    Element get(String id) throws JDOMException {
+        Element element = elementsById.get(id);
+        if (element != null && isBelowChildrenOfRoot(element)) {
+            return element;
+        }
+        return Xml.selectElement(md, "*//*[@id='" + id + "']");
+    }
+
+    /**
+     * @return the number of XLinks of the descendants of the fragment pointing to the href.
+     */
+    static int countReferences(Element fragment, String href) {
+        int count = 0;
+        @SuppressWarnings("unchecked")
+        Iterator<Element> descendants = fragment.getDescendants(new ElementFilter());
+        while (descendants.hasNext()) {
+            if (href.equals(descendants.next().getAttributeValue(XLink.HREF, XLink.NAMESPACE_XLINK))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isBelowChildrenOfRoot(Element element) {
+        int depth = 0;
+        Element parent = element.getParentElement();
+        while (parent != null) {
+            depth++;
+            if (parent == md) {
+                return depth >= 2;
+            }
+            parent = parent.getParentElement();
+        }
+        return false;
+    }
+}
@@ -23,6 +23,7 @@
 
 package jeeves.xlink;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 import jeeves.server.context.ServiceContext;
 import jeeves.server.local.LocalServiceRequest;
@@ -33,6 +34,7 @@ import org.fao.geonet.JeevesJCS;
 import org.fao.geonet.kernel.SpringLocalServiceInvoker;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
+import org.fao.geonet.util.WorkerPools;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Attribute;
@@ -50,13 +52,11 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -102,6 +102,35 @@ public final class Processor {
 
     private static CopyOnWriteArraySet<URIMapper> uriMapper = new CopyOnWriteArraySet<URIMapper>();
 
+    /**
+     * Fetches the remote fragments, on {@code geonetwork.xlink.fetchThreads} threads of the
+     * "xlink-fetch" worker pool with at most {@code geonetwork.xlink.maxConnectionsPerHost}
+     * concurrent requests per host. The failures are remembered for
+     * {@code geonetwork.xlink.failureCache.ttl} seconds.
+     */
+    private static final RemoteFragmentFetcher FETCHER = new RemoteFragmentFetcher(
+        Integer.getInteger("geonetwork.xlink.fetchThreads", 8),
+        Integer.getInteger("geonetwork.xlink.maxConnectionsPerHost", 4),
+        Long.getLong("geonetwork.xlink.failureCache.ttl", 60)) {
+        @Override
+        protected Element getCached(String uri) throws IOException {
+            try {
+                return (Element) JeevesJCS.getInstance(XLINK_JCS).getFromGroup(uri.toLowerCase(), mapURI(uri));
+            } catch (CacheException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        protected void cache(String uri, Element fragment) throws IOException {
+            try {
+                JeevesJCS.getInstance(XLINK_JCS).putInGroup(uri.toLowerCase(), mapURI(uri), fragment);
+            } catch (CacheException e) {
+                throw new IOException(e);
+            }
+        }
+    };
+
     /**
      * Default constructor. Builds a Processor.
      */
@@ -158,6 +187,7 @@ public final class Processor {
      */
     public static void clearCache() throws CacheException {
         JeevesJCS.getInstance(XLINK_JCS).clear();
+        FETCHER.clearFailures();
     }
 
     //--------------------------------------------------------------------------
@@ -193,37 +223,10 @@ public final class Processor {
                 }
 
                 uri = uri.replaceAll("&+", "&");
-                String mappedURI = mapURI(uri);
-
-                JeevesJCS xlinkCache = JeevesJCS.getInstance(XLINK_JCS);
-                remoteFragment = (Element) xlinkCache.getFromGroup(uri.toLowerCase(), mappedURI);
+                remoteFragment = FETCHER.fetch(uri);
                 if (remoteFragment == null) {
-                    Log.info(Log.XLINK_PROCESSOR, "cache MISS on " + uri.toLowerCase());
-                    URL url = new URL(uri.replaceAll("&amp;", "&"));
-
-                    URLConnection conn = url.openConnection();
-                    conn.setConnectTimeout(1000);
-
-                    BufferedInputStream in = new BufferedInputStream(conn.getInputStream());
-                    try {
-                        remoteFragment = Xml.loadStream(in);
-                        if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
-                            Log.debug(Log.XLINK_PROCESSOR, "Read:\n" + Xml.getString(remoteFragment));
-                    } finally {
-                        in.close();
-                    }
-                } else {
-                    Log.debug(Log.XLINK_PROCESSOR, "cache HIT on " + uri.toLowerCase());
-                }
-
-                if (remoteFragment != null && !remoteFragment.getName().equalsIgnoreCase("error")) {
-                    xlinkCache.putInGroup(uri.toLowerCase(), mappedURI, remoteFragment);
-                    if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
-                        Log.debug(Log.XLINK_PROCESSOR, "cache miss for " + uri);
-                } else {
                     return null;
                 }
-
             }
         } catch (Exception e) {    // MalformedURLException, IOException
             Log.error(Log.XLINK_PROCESSOR, "Failed on " + uri, e);
@@ -320,6 +323,10 @@ public final class Processor {
         if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
             Log.debug(Log.XLINK_PROCESSOR, "returned " + xlinks.size() + " elements");
 
+        if (action.equals(ACTION_RESOLVE) || action.equals(ACTION_DETACH)) {
+            prefetch(xlinks);
+        }
+
         Set<String> errors = Sets.newHashSet();
         // process remote xlinks, skip local xlinks for later
         for (Attribute xlink : xlinks) {
@@ -343,13 +350,14 @@ public final class Processor {
     /**
      * Search for Local XLinks in XML document. eg. xlink:href="#details"
      * <p/>
-     * TODO : cache local fragments to avoid calling same xpath.
+     * The fragments are looked up in a {@link LocalFragmentIndex} of the document.
      *
      * @param action Define what to do with XLink ({@link #ACTION_DETACH, #ACTION_REMOVE,
      *               #ACTION_RESOLVE}).
      * @return All set of all the xlinks that failed to resolve.
      */
-    private static Set<String> searchLocalXLink(Element md, String action) {
+    @VisibleForTesting
+    static Set<String> searchLocalXLink(Element md, String action) {
         List<Attribute> xlinks = getXLinksWithXPath(md, "*//@xlink:href[starts-with(.,'#')]");
 
         if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
@@ -358,6 +366,8 @@ public final class Processor {
         Set<String> errors = Sets.newHashSet();
         // now all remote fragments have been added, process local xlinks (uncached)
         Map<String, Element> localIds = new HashMap<String, Element>();
+        Map<String, Integer> selfReferences = new HashMap<String, Integer>();
+        LocalFragmentIndex index = null;
         for (Attribute xlink : xlinks) {
             Element element = xlink.getParent();
             if (action.equals(ACTION_REMOVE)) {
@@ -370,20 +380,25 @@ public final class Processor {
                 Element localFragment = localIds.get(idSearch);
                 try {
                     if (localFragment == null) {
-                        localFragment = Xml.selectElement(md, "*//*[@id='" + idSearch + "']");
+                        if (index == null) {
+                            index = new LocalFragmentIndex(md);
+                        }
+                        localFragment = index.get(idSearch);
                         localIds.put(idSearch, localFragment);
                     }
 
                     // -- avoid recursivity if an xlink:href #ID is a descendant of the localFragment
-
-                    // Should work in XPath v2. Failed with JDOM :
-                    // localFragment = Xml.selectElement(md, "*//*[@id='" + idSearch + "' "
-                    //  		+ "and count(descendant::*[@xlink:href='#" + idSearch + "'])=0]");
-                    List<Attribute> subXlinks = getXLinksWithXPath(localFragment, "*//@xlink:href[.='#" + idSearch + "']");
-                    if (subXlinks.size() != 0) {
-                        Log.warning(Log.XLINK_PROCESSOR, "found a fragment " + Xml.getString(localFragment) + " containing "
-                            + subXlinks.size() + " reference(s) to itself. Id: " + idSearch);
-                        continue;
+                    if (localFragment != null) {
+                        Integer references = selfReferences.get(idSearch);
+                        if (references == null) {
+                            references = LocalFragmentIndex.countReferences(localFragment, xlink.getValue());
+                            selfReferences.put(idSearch, references);
+                        }
+                        if (references != 0) {
+                            Log.warning(Log.XLINK_PROCESSOR, "found a fragment " + Xml.getString(localFragment) + " containing "
+                                + references + " reference(s) to itself. Id: " + idSearch);
+                            continue;
+                        }
                     }
                 } catch (Exception e) {
                     Log.error(Log.XLINK_PROCESSOR, "Failed to look up localxlink " + idSearch + ": " + e.getMessage(), e);
@@ -415,23 +430,13 @@ public final class Processor {
         Element element = xlink.getParent();
 
         // Don't process XLink for configured elements
-        List<String> excludedXlinkElements = new ArrayList<String>();
-        SettingManager sm = ApplicationContextHolder.get().getBean(SettingManager.class);
-        String xlinkElementNamesToIgnore = sm.getValue(Settings.SYSTEM_XLINK_RESOLVER_IGNORE);
-        if (StringUtils.isNotEmpty(xlinkElementNamesToIgnore)) {
-            for (String el : xlinkElementNamesToIgnore.split(",")) {
-                excludedXlinkElements.add(el.trim());
-            }
-        }
-
-        if (excludedXlinkElements.contains(element.getName())) {
+        if (getExcludedXlinkElements().contains(element.getName())) {
             return null;
         }
 
         if (!hrefUri.equals("")) {
-            String show = element.getAttributeValue(XLink.SHOW, XLink.NAMESPACE_XLINK);
-            if (show == null || show.equals("")) show = XLink.SHOW_EMBED;
-            if (show.equalsIgnoreCase(XLink.SHOW_EMBED) || show.equalsIgnoreCase(XLink.SHOW_REPLACE)) {
+            String show = getShow(element);
+            if (isResolvedShow(show)) {
                 if (action.equals(ACTION_REMOVE)) {
                     element.removeContent();
                 } else if (action.equals(ACTION_UNCACHE)) {
@@ -477,6 +482,56 @@ public final class Processor {
         return null;
     }
 
+    /**
+     * @return the xlink:show of the element, embed when it is not set.
+     */
+    private static String getShow(Element element) {
+        String show = element.getAttributeValue(XLink.SHOW, XLink.NAMESPACE_XLINK);
+        return show == null || show.equals("") ? XLink.SHOW_EMBED : show;
+    }
+
+    /**
+     * @return true if the XLinks with this xlink:show are resolved, only embed and replace are.
+     */
+    private static boolean isResolvedShow(String show) {
+        return show.equalsIgnoreCase(XLink.SHOW_EMBED) || show.equalsIgnoreCase(XLink.SHOW_REPLACE);
+    }
+
+    /**
+     * Fetch the distinct remote fragments of the XLinks in parallel, so that they are found in
+     * the cache when the XLinks are resolved one after the other. Only the XLinks that
+     * {@link #doXLink} resolves from a remote URI are fetched.
+     */
+    private static void prefetch(List<Attribute> xlinks) {
+        List<String> excludedXlinkElements = getExcludedXlinkElements();
+        Set<String> uris = new LinkedHashSet<String>();
+        for (Attribute xlink : xlinks) {
+            String uri = xlink.getValue();
+            String lowerCaseUri = uri.toLowerCase();
+            Element element = xlink.getParent();
+            if (uri.startsWith(XLink.LOCAL_PROTOCOL) || lowerCaseUri.startsWith("file://")
+                || !lowerCaseUri.contains("://")
+                || excludedXlinkElements.contains(element.getName())
+                || !isResolvedShow(getShow(element))) {
+                continue;
+            }
+            uris.add(uri.replaceAll("&+", "&"));
+        }
+        FETCHER.prefetch(uris, ApplicationContextHolder.get().getBean(WorkerPools.class));
+    }
+
+    private static List<String> getExcludedXlinkElements() {
+        List<String> excludedXlinkElements = new ArrayList<String>();
+        SettingManager sm = ApplicationContextHolder.get().getBean(SettingManager.class);
+        String xlinkElementNamesToIgnore = sm.getValue(Settings.SYSTEM_XLINK_RESOLVER_IGNORE);
+        if (StringUtils.isNotEmpty(xlinkElementNamesToIgnore)) {
+            for (String el : xlinkElementNamesToIgnore.split(",")) {
+                excludedXlinkElements.add(el.trim());
+            }
+        }
+        return excludedXlinkElements;
+    }
+
     //--------------------------------------------------------------------------
     private static void cleanXLinkAttributes(Element element, String action) {
         // Clean all XLink related attributes
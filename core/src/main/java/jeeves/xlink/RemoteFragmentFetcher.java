@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves.xlink;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.fao.geonet.util.WorkerPools;
+import org.fao.geonet.utils.Log;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the remote fragments of XLinks.
+ *
+ * <ul> <li>Concurrent fetches of the same URI share a single request.</li> <li>The number of
+ * concurrent requests to a host is limited.</li> <li>The URIs which failed, and the hosts which
+ * could not be reached, are not requested again for a while so that a dead host does not add its
+ * timeout to every record.</li> <li>The distinct URIs of a document can be fetched in
+ * parallel.</li> </ul>
+ */
+class RemoteFragmentFetcher {
+    private static final String HOST_KEY_PREFIX = "host:";
+
+    private final int threads;
+    private final ConcurrentMap<String, FutureTask<Element>> inFlight = new ConcurrentHashMap<String, FutureTask<Element>>();
+    private final Cache<String, String> failures;
+    private final LoadingCache<String, Semaphore> hostPermits;
+
+    /**
+     * @param threads         number of threads fetching the fragments of a document in parallel.
+     * @param maxPerHost      maximum number of concurrent requests to a host.
+     * @param failureCacheTtl number of seconds a failure is remembered.
+     */
+    RemoteFragmentFetcher(int threads, final int maxPerHost, long failureCacheTtl) {
+        this.threads = threads;
+        this.failures = CacheBuilder.newBuilder()
+            .expireAfterWrite(failureCacheTtl, TimeUnit.SECONDS)
+            .maximumSize(10000)
+            .build();
+        this.hostPermits = CacheBuilder.newBuilder().build(new CacheLoader<String, Semaphore>() {
+            @Override
+            public Semaphore load(String host) {
+                return new Semaphore(Math.max(1, maxPerHost), true);
+            }
+        });
+    }
+
+    /**
+     * @return the fragment of the URI, from the cache or fetched, null if the URI is known to
+     * fail or returned an error.
+     */
+    Element fetch(final String uri) throws IOException, JDOMException {
+        Element fragment = getCached(uri);
+        if (fragment != null) {
+            if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
+                Log.debug(Log.XLINK_PROCESSOR, "cache HIT on " + uri.toLowerCase());
+            return fragment;
+        }
+
+        String failure = getFailure(uri);
+        if (failure != null) {
+            if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
+                Log.debug(Log.XLINK_PROCESSOR, "skipping " + uri + " which recently failed: " + failure);
+            return null;
+        }
+
+        String key = uri.toLowerCase();
+        FutureTask<Element> task = new FutureTask<Element>(new Callable<Element>() {
+            @Override
+            public Element call() throws Exception {
+                return load(uri);
+            }
+        });
+        FutureTask<Element> running = inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + uri, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof JDOMException) {
+                throw (JDOMException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Fetch the fragments of the URIs in parallel on the "xlink-fetch" worker pool and wait until
+     * they are all fetched. The failures are only logged, they are reported when the fragments are
+     * looked up.
+     */
+    void prefetch(Collection<String> uris, WorkerPools workerPools) {
+        List<String> distinct = new ArrayList<String>(new LinkedHashSet<String>(uris));
+        if (threads <= 1 || distinct.size() <= 1) {
+            return;
+        }
+
+        ExecutorService pool = workerPools.getPool("xlink-fetch", threads);
+        List<Future<Element>> futures = new ArrayList<Future<Element>>(distinct.size());
+        for (final String uri : distinct) {
+            futures.add(pool.submit(new Callable<Element>() {
+                @Override
+                public Element call() throws Exception {
+                    return fetch(uri);
+                }
+            }));
+        }
+        try {
+            for (Future<Element> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
+                        Log.debug(Log.XLINK_PROCESSOR, "prefetch failed: " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Future<Element> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Forget the failures, the URIs and hosts will be requested again.
+     */
+    void clearFailures() {
+        failures.invalidateAll();
+    }
+
+    /**
+     * @return the cached fragment of the URI, null if it is not cached.
+     */
+    protected Element getCached(String uri) throws IOException {
+        return null;
+    }
+
+    /**
+     * Cache the fragment of the URI.
+     */
+    protected void cache(String uri, Element fragment) throws IOException {
+    }
+
+    /**
+     * Request the fragment of the URI.
+     */
+    protected Element download(String uri) throws IOException, JDOMException {
+        URL url = new URL(uri.replaceAll("&amp;", "&"));
+
+        URLConnection conn = url.openConnection();
+        conn.setConnectTimeout(1000);
+
+        BufferedInputStream in = new BufferedInputStream(conn.getInputStream());
+        try {
+            Element fragment = Xml.loadStream(in);
+            if (Log.isDebugEnabled(Log.XLINK_PROCESSOR))
+                Log.debug(Log.XLINK_PROCESSOR, "Read:\n" + Xml.getString(fragment));
+            return fragment;
+        } finally {
+            in.close();
+        }
+    }
+
+    private Element load(String uri) throws IOException, JDOMException {
+        // A concurrent fetch may have completed since the cache lookup
+        Element fragment = getCached(uri);
+        if (fragment != null) {
+            return fragment;
+        }
+
+        Log.info(Log.XLINK_PROCESSOR, "cache MISS on " + uri.toLowerCase());
+        String host = getHost(uri);
+        Semaphore permits = host == null ? null : hostPermits.getUnchecked(host);
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+            try {
+                fragment = download(uri);
+            } finally {
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + uri, e);
+        } catch (ConnectException | UnknownHostException | SocketTimeoutException e) {
+            failures.put(uri.toLowerCase(), e.toString());
+            if (host != null) {
+                failures.put(HOST_KEY_PREFIX + host, e.toString());
+            }
+            throw e;
+        } catch (IOException | JDOMException | RuntimeException e) {
+            failures.put(uri.toLowerCase(), e.toString());
+            throw e;
+        }
+
+        if (fragment == null || fragment.getName().equalsIgnoreCase("error")) {
+            failures.put(uri.toLowerCase(), "error response");
+            return null;
+        }
+        cache(uri, fragment);
+        return fragment;
+    }
+
+    private String getFailure(String uri) {
+        String failure = failures.getIfPresent(uri.toLowerCase());
+        if (failure == null) {
+            String host = getHost(uri);
+            if (host != null) {
+                failure = failures.getIfPresent(HOST_KEY_PREFIX + host);
+            }
+        }
+        return failure;
+    }
+
+    private static String getHost(String uri) {
+        try {
+            String host = new URL(uri).getHost();
+            return host == null || host.isEmpty() ? null : host.toLowerCase(Locale.ROOT);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+}
@@ -33,24 +33,127 @@ import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
 import org.jdom.filter.ElementFilter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ConfigurableApplicationContext;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import static org.fao.geonet.kernel.schema.MetadataSchema.SCHEMATRON_DIR;
 
 /**
  * Class Handles validating a metadata against the applicable schematrons.
  *
+ * The applicable schematrons of a record are run in parallel on the pool of the {@link
+ * SchematronEngine}, the reports are added in the order of the schematrons.
  */
 public class AbstractSchematronValidator {
+    @Autowired
+    private SchematronEngine schematronEngine;
+
+    /**
+     * Decides if a criteria accepts the metadata being validated.
+     */
+    protected interface CriteriaEvaluator {
+        boolean accepts(SchematronCriteria criteria);
+    }
+
+    /**
+     * @return an evaluator computing the result of identical criteria only once, the criteria
+     * of the different groups and schematrons of a schema are often the same.
+     */
+    protected static CriteriaEvaluator memoize(final CriteriaEvaluator evaluator) {
+        final Map<String, Boolean> results = new HashMap<String, Boolean>();
+        return new CriteriaEvaluator() {
+            @Override
+            public boolean accepts(SchematronCriteria criteria) {
+                String key = criteria.getType() + ":" + criteria.getValue();
+                Boolean accepts = results.get(key);
+                if (accepts == null) {
+                    accepts = evaluator.accepts(criteria);
+                    results.put(key, accepts);
+                }
+                return accepts;
+            }
+        };
+    }
+
+    protected ApplicableSchematron getApplicableSchematron(Schematron schematron, List<SchematronCriteriaGroup> criteriaGroups,
+                                                           CriteriaEvaluator evaluator) {
+        //Loop through all criteria to see if apply schematron
+        //if any criteria does not apply, do not apply at all (AND)
+        SchematronRequirement requirement = SchematronRequirement.DISABLED;
+        for (SchematronCriteriaGroup criteriaGroup : criteriaGroups) {
+            List<SchematronCriteria> criteriaList = criteriaGroup.getCriteria();
+            boolean apply = false;
+            for (SchematronCriteria criteria : criteriaList) {
+                apply = evaluator.accepts(criteria);
+                if (!apply) {
+                    break;
+                }
+            }
+
+            if (apply) {
+                if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
+                    Log.debug(Geonet.DATA_MANAGER, " - Schematron group is accepted:" + criteriaGroup.getId().getName() +
+                        " for schematron: " + schematron.getRuleName());
+                }
+                requirement = requirement.highestRequirement(criteriaGroup.getRequirement());
+            } else {
+                requirement = requirement.highestRequirement(SchematronRequirement.DISABLED);
+            }
+        }
+        return new ApplicableSchematron(requirement, schematron);
+    }
+
+    protected List<ApplicableSchematron> getApplicableSchematronList(String schemaName, CriteriaEvaluator evaluator) {
+        List<ApplicableSchematron> applicableSchematron = new ArrayList<ApplicableSchematron>();
+        for (SchematronEngine.RuleSet ruleSet : schematronEngine.getRuleSets(schemaName)) {
+            final ApplicableSchematron applicable = getApplicableSchematron(ruleSet.getSchematron(),
+                ruleSet.getCriteriaGroups(), evaluator);
+
+            if (applicable.requirement != SchematronRequirement.DISABLED) {
+                if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
+                    Log.debug(Geonet.DATA_MANAGER, " - rule:" + ruleSet.getSchematron().getRuleName());
+                }
 
-    protected void runSchematron(String lang, Path schemaDir, List<MetadataValidation> validations, Element schemaTronXmlOut,
-                               int metadataId, Element md, ApplicableSchematron applicable) {
+                applicableSchematron.add(applicable);
+            }
+        }
+        return applicableSchematron;
+    }
+
+    /**
+     * Run the applicable schematrons and append their reports to the main report.
+     */
+    protected void runSchematrons(final String lang, final Path schemaDir, List<MetadataValidation> validations,
+                                  Element schemaTronXmlOut, final int metadataId, final Element md,
+                                  List<ApplicableSchematron> applicableSchematron) throws Exception {
         final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        ThesaurusManager thesaurusManager = applicationContext.getBean(ThesaurusManager.class);
+        final String thesaurusDir = applicationContext.getBean(ThesaurusManager.class).getThesauriDirectory().toString();
+
+        List<Callable<SchematronResult>> tasks = new ArrayList<Callable<SchematronResult>>(applicableSchematron.size());
+        for (final ApplicableSchematron applicable : applicableSchematron) {
+            tasks.add(new Callable<SchematronResult>() {
+                @Override
+                public SchematronResult call() {
+                    return runSchematron(lang, schemaDir, thesaurusDir, metadataId, md, applicable);
+                }
+            });
+        }
+
+        for (SchematronResult result : schematronEngine.invokeAll(tasks)) {
+            if (validations != null && result.validation != null) {
+                validations.add(result.validation);
+            }
+            // -- append report to main XML report.
+            schemaTronXmlOut.addContent(result.report);
+        }
+    }
 
+    private SchematronResult runSchematron(String lang, Path schemaDir, String thesaurusDir, int metadataId,
+                                           Element md, ApplicableSchematron applicable) {
         final Schematron schematron = applicable.schematron;
         final SchematronRequirement requirement = applicable.requirement;
         final String ruleId = schematron.getRuleName();
@@ -61,14 +164,15 @@ public class AbstractSchematronValidator {
         report.setAttribute("dbident", String.valueOf(schematron.getId()), Edit.NAMESPACE);
         report.setAttribute("required", requirement.toString(), Edit.NAMESPACE);
 
+        MetadataValidation validation = null;
         try {
             Map<String, Object> params = new HashMap<String, Object>();
             params.put("lang", lang);
             params.put("rule", ruleId);
-            params.put("thesaurusDir", thesaurusManager.getThesauriDirectory().toString());
+            params.put("thesaurusDir", thesaurusDir);
 
             Path file = schemaDir.resolve(SCHEMATRON_DIR).resolve(schematron.getFile());
-            Element xmlReport = Xml.transform(md, file, params);
+            Element xmlReport = Xml.prepareTransform(file).transform(md, params);
             if (xmlReport != null) {
                 report.addContent(xmlReport);
                 // add results to persistent validation information
@@ -79,15 +183,12 @@ public class AbstractSchematronValidator {
                 i = xmlReport.getDescendants(new ElementFilter("failed-assert", Geonet.Namespaces.SVRL));
                 int invalidRules = Iterators.size(i);
 
-                if (validations != null) {
-                    validations.add(new MetadataValidation().
-                        setId(new MetadataValidationId(metadataId, ruleId)).
-                        setStatus(invalidRules != 0 ? MetadataValidationStatus.INVALID : MetadataValidationStatus.VALID).
-                        setRequired(requirement == SchematronRequirement.REQUIRED).
-                        setNumTests(firedRules).
-                        setNumFailures(invalidRules));
-
-                }
+                validation = new MetadataValidation().
+                    setId(new MetadataValidationId(metadataId, ruleId)).
+                    setStatus(invalidRules != 0 ? MetadataValidationStatus.INVALID : MetadataValidationStatus.VALID).
+                    setRequired(requirement == SchematronRequirement.REQUIRED).
+                    setNumTests(firedRules).
+                    setNumFailures(invalidRules);
             }
         } catch (Exception e) {
             Log.error(Geonet.DATA_MANAGER, "WARNING: schematron xslt " + ruleId + " failed", e);
@@ -98,7 +199,16 @@ public class AbstractSchematronValidator {
             report.addContent(errorReport);
         }
 
-        // -- append report to main XML report.
-        schemaTronXmlOut.addContent(report);
+        return new SchematronResult(report, validation);
+    }
+
+    private static final class SchematronResult {
+        private final Element report;
+        private final MetadataValidation validation;
+
+        private SchematronResult(Element report, MetadataValidation validation) {
+            this.report = report;
+            this.validation = validation;
+        }
     }
 }
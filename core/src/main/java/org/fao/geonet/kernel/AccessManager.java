@@ -23,17 +23,24 @@
 
 package org.fao.geonet.kernel;
 
+import static org.fao.geonet.repository.specification.OperationAllowedSpecs.hasGroupIdIn;
 import static org.fao.geonet.repository.specification.OperationAllowedSpecs.hasMetadataId;
+import static org.fao.geonet.repository.specification.OperationAllowedSpecs.hasMetadataIdIn;
 import static org.fao.geonet.repository.specification.OperationAllowedSpecs.hasOperation;
 import static org.springframework.data.jpa.domain.Specifications.where;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.fao.geonet.ApplicationContextHolder;
@@ -43,43 +50,68 @@ import org.fao.geonet.domain.Group;
 import org.fao.geonet.domain.MetadataSourceInfo;
 import org.fao.geonet.domain.Operation;
 import org.fao.geonet.domain.OperationAllowed;
+import org.fao.geonet.domain.OperationAllowedId;
 import org.fao.geonet.domain.Pair;
 import org.fao.geonet.domain.Profile;
 import org.fao.geonet.domain.ReservedGroup;
 import org.fao.geonet.domain.ReservedOperation;
-import org.fao.geonet.domain.Setting;
 import org.fao.geonet.domain.User;
 import org.fao.geonet.domain.UserGroup;
+import org.fao.geonet.domain.UserGroupId;
 import org.fao.geonet.domain.User_;
+import org.fao.geonet.events.group.GroupCreated;
+import org.fao.geonet.events.group.GroupRemoved;
+import org.fao.geonet.events.group.GroupUpdated;
+import org.fao.geonet.events.user.UserEvent;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.repository.GroupRepository;
 import org.fao.geonet.repository.GroupRepositoryCustom;
 import org.fao.geonet.repository.OperationAllowedRepository;
 import org.fao.geonet.repository.OperationRepository;
-import org.fao.geonet.repository.SettingRepository;
 import org.fao.geonet.repository.SortUtils;
 import org.fao.geonet.repository.UserGroupRepository;
 import org.fao.geonet.repository.UserRepository;
+import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.repository.specification.UserGroupSpecs;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
-import org.springframework.context.ConfigurableApplicationContext;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.data.jpa.domain.Specifications;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 
 /**
  * Handles the access to a metadata depending on the metadata/group.
+ *
+ * The groups of an authenticated user are read from a snapshot kept in the user session, and the
+ * operations from a snapshot shared by all the users. The snapshots are dropped when a user, a
+ * group or a membership is modified, and after {@code geonetwork.access.snapshotMaxAge}
+ * milliseconds (60 seconds by default) to catch up with memberships removed by bulk deletes.
  */
-public class AccessManager {
+public class AccessManager implements ApplicationListener<ApplicationEvent> {
+    /**
+     * The user session property holding the {@link AccessSnapshot} of the user.
+     */
+    private static final String SNAPSHOT_PROPERTY = AccessManager.class.getName() + ".snapshot";
+    private static final long SNAPSHOT_MAX_AGE = Long.getLong("geonetwork.access.snapshotMaxAge", 60000L);
+
+    /**
+     * Incremented each time a user, a group or a membership is modified, a snapshot loaded before a
+     * modification is not used anymore.
+     */
+    private final AtomicLong version = new AtomicLong();
+    private volatile OperationsSnapshot operations;
 
     @Autowired
-    SettingRepository settingRepository;
+    SettingManager settingManager;
 
     @Autowired
     IMetadataUtils metadataUtils;
@@ -116,7 +148,7 @@ public class AccessManager {
         Set<Operation> results;
         // if user is an administrator OR is the owner of the record then allow all operations
         if (isOwner(context, mdId)) {
-            results = new HashSet<>(operationRepository.findAll());
+            results = new HashSet<>(getOperationsById().values());
         } else {
             if (operations == null) {
                 results = new HashSet<>(getAllOperations(context, mdId, ip));
@@ -126,7 +158,7 @@ public class AccessManager {
 
             UserSession us = context.getUserSession();
             if ((us != null) && us.isAuthenticated() && us.getProfile() == Profile.Editor && us.getProfile() == Profile.Reviewer) {
-                results.add(operationRepository.findReservedOperation(ReservedOperation.view));
+                results.add(getOperationsById().get(ReservedOperation.view.getId()));
             }
         }
 
@@ -143,6 +175,104 @@ public class AccessManager {
         return names;
     }
 
+    /**
+     * Returns the operations the user can perform on each of the metadata, as {@link
+     * #getOperations(ServiceContext, String, String)} does for one metadata, with the same number
+     * of queries whatever the number of metadata.
+     *
+     * @param mdIds the metadata internal identifiers
+     * @return the operations by metadata internal identifier, in the order of {@code mdIds}
+     */
+    public Map<String, Set<Operation>> getOperations(ServiceContext context, Collection<String> mdIds, String ip) throws Exception {
+        Map<String, Set<Operation>> results = new LinkedHashMap<>();
+        if (mdIds.isEmpty()) {
+            return results;
+        }
+        Map<Integer, Operation> allOperations = getOperationsById();
+        UserSession us = context.getUserSession();
+
+        Set<Integer> ids = new HashSet<>();
+        for (String mdId : mdIds) {
+            ids.add(Integer.valueOf(mdId));
+        }
+
+        // if user is an administrator OR is the owner of the record then allow all operations
+        Set<Integer> notOwned = new HashSet<>(ids);
+        if (isUserAuthenticated(us)) {
+            Map<Integer, MetadataSourceInfo> allSourceInfo = metadataUtils.findAllSourceInfo(
+                MetadataSpecs.hasMetadataIdIn(ids));
+            for (Map.Entry<Integer, MetadataSourceInfo> sourceInfo : allSourceInfo.entrySet()) {
+                if (isOwner(context, sourceInfo.getValue())) {
+                    notOwned.remove(sourceInfo.getKey());
+                }
+            }
+        }
+
+        Map<Integer, Set<Operation>> allowed = new HashMap<>();
+        if (!notOwned.isEmpty()) {
+            Set<Integer> groups = getUserGroups(us, ip, false);
+            for (OperationAllowed opAllowed : operationAllowedRepository.findAll(
+                where(hasMetadataIdIn(notOwned)).and(hasGroupIdIn(groups)))) {
+                OperationAllowedId id = opAllowed.getId();
+                Set<Operation> mdOperations = allowed.get(id.getMetadataId());
+                if (mdOperations == null) {
+                    mdOperations = new HashSet<>();
+                    allowed.put(id.getMetadataId(), mdOperations);
+                }
+                mdOperations.add(allOperations.get(id.getOperationId()));
+            }
+        }
+
+        for (String mdId : mdIds) {
+            Integer id = Integer.valueOf(mdId);
+            Set<Operation> mdOperations;
+            if (!notOwned.contains(id)) {
+                mdOperations = new HashSet<>(allOperations.values());
+            } else if (allowed.containsKey(id)) {
+                mdOperations = allowed.get(id);
+            } else {
+                mdOperations = new HashSet<>();
+            }
+            results.put(mdId, mdOperations);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the metadata the user can edit, as {@link #canEdit(ServiceContext, String)} does for
+     * one metadata, with the same number of queries whatever the number of metadata.
+     *
+     * @param mdIds the metadata internal identifiers
+     * @return the identifiers of the metadata the user can edit
+     */
+    public Set<String> getEditableMetadataIds(ServiceContext context, Collection<String> mdIds) throws Exception {
+        Set<String> editable = new HashSet<>();
+        AccessSnapshot snapshot = getSnapshot(context.getUserSession());
+        if (mdIds.isEmpty() || snapshot == null) {
+            return editable;
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (String mdId : mdIds) {
+            ids.add(Integer.valueOf(mdId));
+        }
+        Map<Integer, MetadataSourceInfo> allSourceInfo = metadataUtils.findAllSourceInfo(MetadataSpecs.hasMetadataIdIn(ids));
+        for (Map.Entry<Integer, MetadataSourceInfo> sourceInfo : allSourceInfo.entrySet()) {
+            if (isOwner(context, sourceInfo.getValue())) {
+                editable.add(String.valueOf(sourceInfo.getKey()));
+            }
+        }
+
+        Set<Integer> editorGroups = snapshot.getGroups(Profile.Editor);
+        if (!editorGroups.isEmpty()) {
+            for (OperationAllowed opAllowed : operationAllowedRepository.findAll(
+                where(hasMetadataIdIn(ids)).and(hasGroupIdIn(editorGroups)).and(hasOperation(ReservedOperation.editing)))) {
+                editable.add(String.valueOf(opAllowed.getId().getMetadataId()));
+            }
+        }
+        return editable;
+    }
+
     /**
      * Returns all operations permitted by the user on a particular metadata.
      */
@@ -150,9 +280,10 @@ public class AccessManager {
         HashSet<Operation> operations = new HashSet<Operation>();
         Set<Integer> groups = getUserGroups(context.getUserSession(),
             ip, false);
+        Map<Integer, Operation> allOperations = getOperationsById();
         for (OperationAllowed opAllow : operationAllowedRepository.findByMetadataId(mdId)) {
             if (groups.contains(opAllow.getId().getGroupId())) {
-                operations.add(operationRepository.findOne(opAllow.getId().getOperationId()));
+                operations.add(allOperations.get(opAllow.getId().getOperationId()));
             }
         }
         return operations;
@@ -164,8 +295,6 @@ public class AccessManager {
      * @param editingGroupsOnly TODO
      */
     public Set<Integer> getUserGroups(UserSession usrSess, String ip, boolean editingGroupsOnly) throws Exception {
-        final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-
         Set<Integer> hs = new HashSet<Integer>();
 
         // add All (1) network group
@@ -175,22 +304,12 @@ public class AccessManager {
             hs.add(ReservedGroup.intranet.getId());
 
         // get other groups
-        if ((usrSess != null) && usrSess.isAuthenticated()) {
+        AccessSnapshot snapshot = getSnapshot(usrSess);
+        if (snapshot != null) {
             // add (-1) GUEST group
             hs.add(ReservedGroup.guest.getId());
 
-            if (Profile.Administrator == usrSess.getProfile()) {
-                List<Integer> allGroupIds = groupRepository.findIds();
-
-                hs.addAll(allGroupIds);
-            } else {
-                Specification<UserGroup> spec = UserGroupSpecs.hasUserId(usrSess.getUserIdAsInt());
-                if (editingGroupsOnly) {
-                    spec = Specifications.where(spec).and(UserGroupSpecs.hasProfile(Profile.Editor));
-                }
-
-                hs.addAll(userGroupRepository.findGroupIds(spec));
-            }
+            hs.addAll(editingGroupsOnly ? snapshot.editingGroups : snapshot.groups);
         }
         return hs;
     }
@@ -216,14 +335,9 @@ public class AccessManager {
         Set<Integer> hs = new HashSet<Integer>();
 
         // get other groups
-        if ((usrSess != null) && usrSess.isAuthenticated()) {
-            Specification<UserGroup> spec =
-                UserGroupSpecs.hasUserId(usrSess.getUserIdAsInt());
-            spec = Specifications
-                .where(spec)
-                .and(UserGroupSpecs.hasProfile(Profile.Reviewer));
-
-            hs.addAll(userGroupRepository.findGroupIds(spec));
+        AccessSnapshot snapshot = getSnapshot(usrSess);
+        if (snapshot != null) {
+            hs.addAll(snapshot.getGroups(Profile.Reviewer));
         }
         return hs;
     }
@@ -353,11 +467,7 @@ public class AccessManager {
         if (groupOwner == null) {
             return false;
         }
-        for (Integer userGroup : getReviewerGroups(us)) {
-            if (userGroup == groupOwner.intValue())
-                return true;
-        }
-        return false;
+        return getSnapshot(us).getGroups(Profile.Reviewer).contains(groupOwner);
     }
 
     /**
@@ -491,20 +601,13 @@ public class AccessManager {
      * @param metadata The metadata info.
      */
     public boolean hasReviewPermission(final ServiceContext context, final AbstractMetadata metadata) throws Exception {
-        UserSession us = context.getUserSession();
-        if (!isUserAuthenticated(us)) {
+        AccessSnapshot snapshot = getSnapshot(context.getUserSession());
+        if (snapshot == null) {
             return false;
         }
 
         // Check if the user is a reviewer in the metadata owners group.
-        Specification<UserGroup> hasUserIdAndGroupAndProfile = where(UserGroupSpecs.hasProfile(Profile.Reviewer))
-            .and(UserGroupSpecs.hasGroupId(metadata.getSourceInfo().getGroupOwner()))
-            .and(UserGroupSpecs.hasUserId(us.getUserIdAsInt()));
-
-        UserGroupRepository userGroupRepo = context.getBean(UserGroupRepository.class);
-        long count = userGroupRepo.count(hasUserIdAndGroupAndProfile);
-
-        return  (count > 0);
+        return snapshot.getGroups(Profile.Reviewer).contains(metadata.getSourceInfo().getGroupOwner());
     }
 
     /**
@@ -514,28 +617,25 @@ public class AccessManager {
      * @param id The metadata internal identifier
      */
     private boolean hasEditingPermissionWithProfile(final ServiceContext context, final String id, Profile profile) throws Exception {
-        UserSession us = context.getUserSession();
-        if (!isUserAuthenticated(us)) {
+        AccessSnapshot snapshot = getSnapshot(context.getUserSession());
+        if (snapshot == null) {
             return false;
         }
 
-        List<OperationAllowed> allOpAlloweds = operationAllowedRepository.findAll(
-          where(hasMetadataId(id)).and(hasOperation(ReservedOperation.editing)));
-
-        if (allOpAlloweds.isEmpty()) {
+        Set<Integer> profileGroups = snapshot.getGroups(profile);
+        if (profileGroups.isEmpty()) {
             return false;
         }
 
-        Specifications spec = where(UserGroupSpecs.hasProfile(profile)).and(UserGroupSpecs.hasUserId(us.getUserIdAsInt()));
+        List<OperationAllowed> allOpAlloweds = operationAllowedRepository.findAll(
+          where(hasMetadataId(id)).and(hasOperation(ReservedOperation.editing)));
 
-        List<Integer> opAlloweds = new ArrayList<Integer>();
         for (OperationAllowed opAllowed : allOpAlloweds) {
-            opAlloweds.add(opAllowed.getId().getGroupId());
+            if (profileGroups.contains(opAllowed.getId().getGroupId())) {
+                return true;
+            }
         }
-        spec = spec.and(UserGroupSpecs.hasGroupIds(opAlloweds));
-
-        return (!userGroupRepository.findAll(spec).isEmpty());
-
+        return false;
     }
 
     /**
@@ -544,34 +644,27 @@ public class AccessManager {
      * @param id The metadata internal identifier
      */
     public boolean hasOnwershipReviewPermission(final ServiceContext context, final String id) throws Exception {
-        UserSession us = context.getUserSession();
-        if (!isUserAuthenticated(us)) {
+        AccessSnapshot snapshot = getSnapshot(context.getUserSession());
+        if (snapshot == null) {
             return false;
         }
 
-        UserGroupRepository userGroupRepository = context.getBean(UserGroupRepository.class);
         IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
 
-        Specifications spec = where(UserGroupSpecs.hasProfile(Profile.Reviewer)).and(UserGroupSpecs.hasUserId(us.getUserIdAsInt()));
-
-        List<Integer> opAlloweds = new ArrayList<Integer>();
-        opAlloweds.add(metadataUtils.findOne(id).getSourceInfo().getGroupOwner());
-
-        spec = spec.and(UserGroupSpecs.hasGroupIds(opAlloweds));
-
-        return (!userGroupRepository.findAll(spec).isEmpty());
+        return snapshot.getGroups(Profile.Reviewer).contains(metadataUtils.findOne(id).getSourceInfo().getGroupOwner());
     }
 
     public int getPrivilegeId(final String name) {
-        final Operation op = operationRepository.findByName(name);
-        if (op == null) {
-            throw new IllegalArgumentException("No Operation/privilege found with name: " + name);
+        for (Operation op : getOperationsById().values()) {
+            if (op.getName().equals(name)) {
+                return op.getId();
+            }
         }
-        return op.getId();
+        throw new IllegalArgumentException("No Operation/privilege found with name: " + name);
     }
 
     public String getPrivilegeName(int id) {
-        return operationRepository.findOne(id).getName();
+        return getOperationsById().get(id).getName();
     }
 
     public boolean isIntranet(String ip) {
@@ -591,14 +684,13 @@ public class AccessManager {
         }
 
         // IPv4
-        Setting network = settingRepository.findOne(Settings.SYSTEM_INTRANET_NETWORK);
-        Setting netmask = settingRepository.findOne(Settings.SYSTEM_INTRANET_NETMASK);
+        String network = settingManager.getValue(Settings.SYSTEM_INTRANET_NETWORK);
+        String netmask = settingManager.getValue(Settings.SYSTEM_INTRANET_NETMASK);
 
         try {
-            if (network != null && netmask != null &&
-                StringUtils.isNotEmpty(network.getValue()) && StringUtils.isNotEmpty(netmask.getValue())) {
-                long lIntranetNet = getAddress(network.getValue());
-                long lIntranetMask = getAddress(netmask.getValue());
+            if (StringUtils.isNotEmpty(network) && StringUtils.isNotEmpty(netmask)) {
+                long lIntranetNet = getAddress(network);
+                long lIntranetMask = getAddress(netmask);
                 long lAddress = getAddress(ip.split(",")[0]);
                 return (lAddress & lIntranetMask) == (lIntranetNet & lIntranetMask);
             }
@@ -649,4 +741,156 @@ public class AccessManager {
             return true;
         }
     }
+
+    /**
+     * Drop the snapshots when a user, a group or a membership is modified.
+     */
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof UserEvent || event instanceof GroupCreated
+            || event instanceof GroupUpdated || event instanceof GroupRemoved) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Drop the snapshots of all the users, and drop them again when the current transaction
+     * completes so that the snapshots loaded meanwhile, which may not have the committed or rolled
+     * back memberships, are not kept.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the snapshot of the groups of the user, null if the user is not authenticated.
+     */
+    private AccessSnapshot getSnapshot(UserSession us) {
+        if (!isUserAuthenticated(us)) {
+            return null;
+        }
+        // The user of a session depends on the security context of the thread
+        final int userId = us.getUserIdAsInt();
+        final Profile profile = us.getProfile();
+        final long currentVersion = version.get();
+        Object current = us.getProperty(SNAPSHOT_PROPERTY);
+        if (current instanceof AccessSnapshot
+            && ((AccessSnapshot) current).isValid(currentVersion, userId, profile)) {
+            return (AccessSnapshot) current;
+        }
+
+        Map<Profile, Set<Integer>> groupsByProfile = new EnumMap<>(Profile.class);
+        for (UserGroup userGroup : userGroupRepository.findAll(UserGroupSpecs.hasUserId(userId))) {
+            UserGroupId id = userGroup.getId();
+            Set<Integer> groups = groupsByProfile.get(id.getProfile());
+            if (groups == null) {
+                groups = new HashSet<>();
+                groupsByProfile.put(id.getProfile(), groups);
+            }
+            groups.add(id.getGroupId());
+        }
+        List<Integer> allGroupIds = profile == Profile.Administrator ? groupRepository.findIds() : null;
+        AccessSnapshot snapshot = new AccessSnapshot(currentVersion, userId, profile, groupsByProfile, allGroupIds);
+        // Not kept if the memberships were modified while loading
+        if (version.get() == currentVersion) {
+            us.setProperty(SNAPSHOT_PROPERTY, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return all the operations by id. The operations are shared and must not be modified.
+     */
+    private Map<Integer, Operation> getOperationsById() {
+        OperationsSnapshot current = operations;
+        final long currentVersion = version.get();
+        if (current != null && current.isValid(currentVersion)) {
+            return current.operations;
+        }
+
+        Map<Integer, Operation> operationsById = new HashMap<>();
+        for (Operation operation : operationRepository.findAll()) {
+            operationsById.put(operation.getId(), operation);
+        }
+        operationsById = Collections.unmodifiableMap(operationsById);
+        if (version.get() == currentVersion) {
+            operations = new OperationsSnapshot(currentVersion, operationsById);
+        }
+        return operationsById;
+    }
+
+    /**
+     * The groups of a user, by profile.
+     */
+    private static final class AccessSnapshot {
+        private final long version;
+        private final long loadTime = System.currentTimeMillis();
+        private final int userId;
+        private final Profile profile;
+        private final Map<Profile, Set<Integer>> groupsByProfile;
+        /**
+         * The groups the user has access to: all the groups for an administrator.
+         */
+        private final Set<Integer> groups;
+        /**
+         * The groups the user can edit in: all the groups for an administrator.
+         */
+        private final Set<Integer> editingGroups;
+
+        private AccessSnapshot(long version, int userId, Profile profile, Map<Profile, Set<Integer>> groupsByProfile,
+                               List<Integer> allGroupIds) {
+            this.version = version;
+            this.userId = userId;
+            this.profile = profile;
+            this.groupsByProfile = groupsByProfile;
+
+            Set<Integer> memberGroups = new HashSet<>();
+            for (Set<Integer> profileGroups : groupsByProfile.values()) {
+                memberGroups.addAll(profileGroups);
+            }
+            if (allGroupIds != null) {
+                this.groups = Collections.unmodifiableSet(new HashSet<>(allGroupIds));
+                this.editingGroups = this.groups;
+            } else {
+                this.groups = Collections.unmodifiableSet(memberGroups);
+                this.editingGroups = getGroups(Profile.Editor);
+            }
+        }
+
+        /**
+         * @return the groups in which the user has exactly this profile.
+         */
+        private Set<Integer> getGroups(Profile profile) {
+            Set<Integer> profileGroups = groupsByProfile.get(profile);
+            return profileGroups == null ? Collections.<Integer>emptySet() : Collections.unmodifiableSet(profileGroups);
+        }
+
+        private boolean isValid(long currentVersion, int currentUserId, Profile currentProfile) {
+            return version == currentVersion && userId == currentUserId && profile == currentProfile
+                && System.currentTimeMillis() - loadTime < SNAPSHOT_MAX_AGE;
+        }
+    }
+
+    private static final class OperationsSnapshot {
+        private final long version;
+        private final long loadTime = System.currentTimeMillis();
+        private final Map<Integer, Operation> operations;
+
+        private OperationsSnapshot(long version, Map<Integer, Operation> operations) {
+            this.version = version;
+            this.operations = operations;
+        }
+
+        private boolean isValid(long currentVersion) {
+            return version == currentVersion && System.currentTimeMillis() - loadTime < SNAPSHOT_MAX_AGE;
+        }
+    }
 }
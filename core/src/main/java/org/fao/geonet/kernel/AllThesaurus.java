@@ -33,6 +33,7 @@ import org.locationtech.jts.util.Assert;
 import org.fao.geonet.Constants;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.exceptions.TermNotFoundException;
+import org.fao.geonet.kernel.search.keyword.KeywordLabelIndex;
 import org.fao.geonet.kernel.search.keyword.KeywordRelation;
 import org.fao.geonet.languages.IsoLanguagesMapper;
 import org.fao.geonet.utils.Log;
@@ -52,6 +53,7 @@ import java.net.URLEncoder;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -75,6 +77,7 @@ public class AllThesaurus extends Thesaurus {
     private final IsoLanguagesMapper isoLangMapper;
     private final String downloadUrl;
     private final String keywordUrl;
+    private volatile MergedLabelIndex mergedLabelIndex;
 
     public AllThesaurus(ThesaurusFinder thesaurusFinder, IsoLanguagesMapper isoLangMapper, String siteUrl) {
         this.thesaurusFinder = thesaurusFinder;
@@ -150,23 +153,23 @@ public class AllThesaurus extends Thesaurus {
     }
 
     @Override
-    public synchronized LocalRepository getRepository() {
+    public LocalRepository getRepository() {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized Thesaurus setRepository(LocalRepository repository) {
+    public Thesaurus setRepository(LocalRepository repository) {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized Thesaurus initRepository() throws ConfigurationException, IOException {
+    public Thesaurus initRepository() throws ConfigurationException, IOException {
         // do nothing
         return this;
     }
 
     @Override
-    public synchronized QueryResultsTable performRequest(final String query) throws IOException, MalformedQueryException,
+    public QueryResultsTable performRequest(final String query) throws IOException, MalformedQueryException,
         QueryEvaluationException, AccessDeniedException {
         final Map<Thesaurus, QueryResultsTable> allResults = Maps.newIdentityHashMap();
         onThesauri(null, new Function<Thesaurus, Void>() {
@@ -189,40 +192,72 @@ public class AllThesaurus extends Thesaurus {
         return new AllQueryResultsTable(allResults);
     }
 
+    /**
+     * The label indexes of all the thesauri merged, with the uris of the concepts built by {@link
+     * #buildKeywordUri(String, String)}. The merged index is rebuilt when the index of one of the
+     * thesauri changes.
+     */
+    @Override
+    public KeywordLabelIndex getLabelIndex() throws IOException, MalformedQueryException,
+        QueryEvaluationException, AccessDeniedException {
+        Map<String, KeywordLabelIndex> indexes = new LinkedHashMap<>();
+        for (Thesaurus thesaurus : this.thesaurusFinder.getThesauriMap().values()) {
+            if (!thesaurus.getKey().equals(ALL_THESAURUS_KEY)) {
+                indexes.put(thesaurus.getKey(), thesaurus.getLabelIndex());
+            }
+        }
+
+        MergedLabelIndex merged = mergedLabelIndex;
+        if (merged == null || !merged.isMergeOf(indexes)) {
+            KeywordLabelIndex.Builder builder = new KeywordLabelIndex.Builder();
+            for (final Map.Entry<String, KeywordLabelIndex> index : indexes.entrySet()) {
+                builder.addAll(index.getValue(), new Function<String, String>() {
+                    @Override
+                    public String apply(String uri) {
+                        return buildKeywordUri(index.getKey(), uri);
+                    }
+                });
+            }
+            merged = new MergedLabelIndex(indexes, builder.build());
+            mergedLabelIndex = merged;
+        }
+        return merged.index;
+    }
+
     @Override
     public boolean hasConceptScheme(String uri) {
         return false;
     }
 
     @Override
-    public synchronized URI addElement(KeywordBean keyword) throws IOException, AccessDeniedException, GraphException {
+    public URI addElement(KeywordBean keyword) throws IOException, AccessDeniedException, GraphException {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized Thesaurus removeElement(KeywordBean keyword) throws MalformedQueryException, QueryEvaluationException,
+    public Thesaurus removeElement(KeywordBean keyword) throws MalformedQueryException, QueryEvaluationException,
         IOException, AccessDeniedException {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized Thesaurus removeElement(String namespace, String code) throws AccessDeniedException {
+    public Thesaurus removeElement(String namespace, String code) throws AccessDeniedException {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized Thesaurus removeElement(String uri) throws AccessDeniedException {
+    public Thesaurus removeElement(String uri) throws AccessDeniedException {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized URI updateElement(KeywordBean keyword, boolean replace) throws AccessDeniedException, IOException,
+    public URI updateElement(KeywordBean keyword, boolean replace) throws AccessDeniedException, IOException,
         MalformedQueryException, QueryEvaluationException, GraphException {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized boolean isFreeCode(final String namespace, final String code) throws AccessDeniedException {
+    public boolean isFreeCode(final String namespace, final String code) throws AccessDeniedException {
         return onThesauri(true, new Function<Thesaurus, Boolean>() {
             @Nullable
             @Override
@@ -245,12 +280,12 @@ public class AllThesaurus extends Thesaurus {
     }
 
     @Override
-    public synchronized Thesaurus updateCode(String namespace, String oldcode, String newcode) throws AccessDeniedException, IOException {
+    public Thesaurus updateCode(String namespace, String oldcode, String newcode) throws AccessDeniedException, IOException {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    public synchronized Thesaurus updateCodeByURI(String olduri, String newuri) throws AccessDeniedException, IOException {
+    public Thesaurus updateCodeByURI(String olduri, String newuri) throws AccessDeniedException, IOException {
         throw new UnsupportedOperationException();
     }
 
@@ -266,7 +301,7 @@ public class AllThesaurus extends Thesaurus {
     }
 
     @Override
-    public synchronized void addRelation(String subject, KeywordRelation related, String relatedSubject) throws AccessDeniedException,
+    public void addRelation(String subject, KeywordRelation related, String relatedSubject) throws AccessDeniedException,
         IOException, MalformedQueryException, QueryEvaluationException, GraphException {
         throw new UnsupportedOperationException();
     }
@@ -363,7 +398,7 @@ public class AllThesaurus extends Thesaurus {
     }
 
     @Override
-    public synchronized void clear() throws IOException, AccessDeniedException {
+    public void clear() throws IOException, AccessDeniedException {
         throw new UnsupportedOperationException();
     }
 
@@ -412,6 +447,35 @@ public class AllThesaurus extends Thesaurus {
         }
     }
 
+    /**
+     * The label index of all the thesauri and the indexes it has been built from.
+     */
+    private static final class MergedLabelIndex {
+        private final Map<String, KeywordLabelIndex> sources;
+        private final KeywordLabelIndex index;
+
+        MergedLabelIndex(Map<String, KeywordLabelIndex> sources, KeywordLabelIndex index) {
+            this.sources = sources;
+            this.index = index;
+        }
+
+        /**
+         * @return true if the index has been built from these indexes, the indexes of the
+         * thesauri being rebuilt rather than modified.
+         */
+        boolean isMergeOf(Map<String, KeywordLabelIndex> indexes) {
+            if (!sources.keySet().equals(indexes.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, KeywordLabelIndex> entry : indexes.entrySet()) {
+                if (sources.get(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     public static final class DecomposedAllUri {
         private static final Pattern URI_DECOMPOSER = Pattern.compile(Pattern.quote(URI_CODE_PREFIX) + "(.+)" + SEPARATOR + "(.+)");
         public final String thesaurusKey, keywordUri;
@@ -96,6 +96,11 @@ public class SchemaManager {
      * Active writers count
      */
     private static int activeWriters = 0;
+    /**
+     * Compile the xsd of the schemas when they are loaded, set -Dgeonetwork.schema.preloadXsd=false
+     * to compile them on their first validation instead.
+     */
+    private static final boolean PRELOAD_XSD = Boolean.parseBoolean(System.getProperty("geonetwork.schema.preloadXsd", "true"));
     private Map<String, Schema> hmSchemas = new HashMap<String, Schema>();
     private Map<String, Namespace> hmSchemasTypenames = new HashMap<String, Namespace>();
     private String[] fnames = {"labels.xml", "codelists.xml", "strings.xml"};
@@ -233,6 +238,7 @@ public class SchemaManager {
 
         writeSchemaPluginCatalog(schemaPluginCatRoot);
 
+        preloadXsdSchemas();
     }
 
     //--------------------------------------------------------------------------
@@ -327,6 +333,9 @@ public class SchemaManager {
         beforeWrite();
         try {
             realAddPluginSchema(applicationContext, name, zipFs);
+            Xml.clearSchemaCache();
+            clearSchematronRuleSets();
+            preloadXsdSchemas();
         } finally {
             afterWrite();
         }
@@ -355,6 +364,9 @@ public class SchemaManager {
 
             // -- add the new one
             realAddPluginSchema(applicationContext, name, zipFs);
+            Xml.clearSchemaCache();
+            clearSchematronRuleSets();
+            preloadXsdSchemas();
         } finally {
             afterWrite();
         }
@@ -587,6 +599,16 @@ public class SchemaManager {
     }
 
 
+    /**
+     * Drop the cached schematron rule sets, the schematrons of a plugin schema being registered
+     * or removed with it.
+     */
+    private static void clearSchematronRuleSets() {
+        if (ApplicationContextHolder.get() != null) {
+            ApplicationContextHolder.get().getBean(SchematronEngine.class).clearRuleSets();
+        }
+    }
+
     /**
      * Deletes the schema from the schema information hash tables.
      *
@@ -598,7 +620,8 @@ public class SchemaManager {
         try {
             boolean doDependencies = true;
             realDeletePluginSchema(name, doDependencies);
-
+            Xml.clearSchemaCache();
+            clearSchematronRuleSets();
         } finally {
             afterWrite();
         }
@@ -901,6 +924,37 @@ public class SchemaManager {
         }
     }
 
+    /**
+     * Compiles the xsd of the schemas in the background so that the first validations do not
+     * wait for it.
+     */
+    private void preloadXsdSchemas() {
+        if (!PRELOAD_XSD) {
+            return;
+        }
+        final List<Path> xsdFiles = new ArrayList<Path>();
+        for (Schema schema : hmSchemas.values()) {
+            Path xsdFile = schema.getDir().resolve(Geonet.File.SCHEMA);
+            if (Files.exists(xsdFile)) {
+                xsdFiles.add(xsdFile);
+            }
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (Path xsdFile : xsdFiles) {
+                    try {
+                        Xml.preloadSchema(xsdFile);
+                    } catch (Exception e) {
+                        Log.warning(Geonet.SCHEMA_MANAGER, "Failed to compile " + xsdFile + ": " + e.getMessage());
+                    }
+                }
+            }
+        }, "schema-xsd-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * Loads the metadata schema from disk and adds it to the pool.
      *
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2001-2017 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.fao.geonet.domain.Schematron;
+import org.fao.geonet.domain.SchematronCriteriaGroup;
+import org.fao.geonet.entitylistener.GeonetworkEntityListener;
+import org.fao.geonet.entitylistener.PersistentEventType;
+import org.fao.geonet.repository.SchematronCriteriaGroupRepository;
+import org.fao.geonet.repository.SchematronRepository;
+import org.fao.geonet.util.WorkerPools;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared state of the schematron validation: the rule sets of each schema with their criteria
+ * groups and the pool running the rule sets of a record in parallel.
+ *
+ * The rule sets are kept for {@code geonetwork.schematron.ruleSetCache.ttl} seconds (60 by
+ * default) and are dropped right away when a schematron, a criteria group or a criteria is
+ * persisted, updated or removed (see {@link RuleSetsListener}). The pool has {@code
+ * geonetwork.schematron.threads} threads (the number of processors by default), a value of 1 runs
+ * the rule sets in the calling thread.
+ */
+public class SchematronEngine {
+    private static final int THREADS = Integer.getInteger("geonetwork.schematron.threads",
+        Runtime.getRuntime().availableProcessors());
+    private static final long RULE_SETS_TTL = Long.getLong("geonetwork.schematron.ruleSetCache.ttl", 60);
+
+    private final Cache<String, List<RuleSet>> ruleSets = CacheBuilder.newBuilder()
+        .expireAfterWrite(RULE_SETS_TTL, TimeUnit.SECONDS)
+        .build();
+
+    @Autowired
+    private SchematronRepository schematronRepository;
+    @Autowired
+    private SchematronCriteriaGroupRepository criteriaGroupRepository;
+    @Autowired
+    private WorkerPools workerPools;
+
+    /**
+     * A schematron of a schema and the criteria groups deciding when it applies.
+     */
+    public static final class RuleSet {
+        private final Schematron schematron;
+        private final List<SchematronCriteriaGroup> criteriaGroups;
+
+        RuleSet(Schematron schematron, List<SchematronCriteriaGroup> criteriaGroups) {
+            this.schematron = schematron;
+            this.criteriaGroups = Collections.unmodifiableList(criteriaGroups);
+        }
+
+        public Schematron getSchematron() {
+            return schematron;
+        }
+
+        public List<SchematronCriteriaGroup> getCriteriaGroups() {
+            return criteriaGroups;
+        }
+    }
+
+    /**
+     * Drops the cached rule sets when an entity they are made of is modified.
+     */
+    public static class RuleSetsListener<T> implements GeonetworkEntityListener<T> {
+        private final SchematronEngine engine;
+        private final Class<T> entityClass;
+
+        public RuleSetsListener(SchematronEngine engine, Class<T> entityClass) {
+            this.engine = engine;
+            this.entityClass = entityClass;
+        }
+
+        @Override
+        public Class<T> getEntityClass() {
+            return entityClass;
+        }
+
+        @Override
+        public void handleEvent(PersistentEventType type, T entity) {
+            if (type != PersistentEventType.PostLoad) {
+                engine.clearRuleSets();
+            }
+        }
+    }
+
+    /**
+     * @return the rule sets of a schema sorted by display priority.
+     */
+    public List<RuleSet> getRuleSets(final String schemaName) {
+        try {
+            return ruleSets.get(schemaName, new Callable<List<RuleSet>>() {
+                @Override
+                public List<RuleSet> call() {
+                    return loadRuleSets(schemaName);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Drop the cached rule sets, to be called when schematrons or criteria are modified without
+     * going through their entities, or when schema plugins are modified.
+     */
+    public void clearRuleSets() {
+        ruleSets.invalidateAll();
+    }
+
+    /**
+     * Run the tasks on the pool and wait for all of them.
+     *
+     * @return the results in the order of the tasks.
+     */
+    <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (THREADS <= 1 || tasks.size() <= 1) {
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+
+        ExecutorService pool = workerPools.getPool("schematron", THREADS);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private List<RuleSet> loadRuleSets(String schemaName) {
+        List<Schematron> schematronList = schematronRepository.findAllBySchemaName(schemaName);
+        Collections.sort(schematronList, Schematron.DISPLAY_PRIORITY_COMPARATOR);
+
+        List<RuleSet> ruleSets = new ArrayList<>(schematronList.size());
+        for (Schematron schematron : schematronList) {
+            ruleSets.add(new RuleSet(schematron, criteriaGroupRepository.findAllById_SchematronId(schematron.getId())));
+        }
+        return Collections.unmodifiableList(ruleSets);
+    }
+}
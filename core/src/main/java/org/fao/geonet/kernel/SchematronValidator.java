@@ -23,24 +23,17 @@
 
 package org.fao.geonet.kernel;
 
-import com.google.common.collect.Lists;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Edit;
-import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.MetadataValidation;
 import org.fao.geonet.domain.Schematron;
 import org.fao.geonet.domain.SchematronCriteria;
-import org.fao.geonet.domain.SchematronCriteriaGroup;
-import org.fao.geonet.domain.SchematronRequirement;
 import org.fao.geonet.kernel.schema.MetadataSchema;
 import org.fao.geonet.repository.SchematronCriteriaGroupRepository;
-import org.fao.geonet.repository.SchematronRepository;
-import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.context.ConfigurableApplicationContext;
 
 import java.nio.file.Path;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -61,9 +54,7 @@ public class SchematronValidator extends AbstractSchematronValidator {
         try {
             List<ApplicableSchematron> applicableSchematron = getApplicableSchematronList(metadataId, md, metadataSchema);
 
-            for (ApplicableSchematron applicable : applicableSchematron) {
-                runSchematron(lang, schemaDir, validations, schemaTronXmlOut, metadataId, md, applicable);
-            }
+            runSchematrons(lang, schemaDir, validations, schemaTronXmlOut, metadataId, md, applicableSchematron);
         } catch (Throwable e) {
             Element errorReport = new Element("schematronVerificationError", Edit.NAMESPACE);
             errorReport.addContent("Schematron error occurred, rules could not be verified: " + e.getMessage());
@@ -81,27 +72,8 @@ public class SchematronValidator extends AbstractSchematronValidator {
     public List<ApplicableSchematron> getApplicableSchematronList(final int metadataId,
                                                            final Element md,
                                                            final MetadataSchema metadataSchema) {
-        List<ApplicableSchematron> applicableSchematron = Lists.newArrayList();
-        SchematronRepository schematronRepository = ApplicationContextHolder.get().getBean(SchematronRepository.class);
-
-        final List<Schematron> schematronList = schematronRepository.findAllBySchemaName(metadataSchema.getName());
-
-        Collections.sort(schematronList, Schematron.DISPLAY_PRIORITY_COMPARATOR);
-
-        //Loop through all xsl files
-        for (Schematron schematron : schematronList) {
-            final ApplicableSchematron applicable = getApplicableSchematron(metadataId, md, metadataSchema, schematron);
-
-
-            if (applicable.requirement != SchematronRequirement.DISABLED) {
-                if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
-                    Log.debug(Geonet.DATA_MANAGER, " - rule:" + schematron.getRuleName());
-                }
-
-                applicableSchematron.add(applicable);
-            }
-        }
-        return applicableSchematron;
+        return getApplicableSchematronList(metadataSchema.getName(),
+            memoize(criteriaEvaluator(metadataId, md, metadataSchema)));
     }
 
 
@@ -109,39 +81,19 @@ public class SchematronValidator extends AbstractSchematronValidator {
                                                  final Element md,
                                                  final MetadataSchema metadataSchema,
                                                  final Schematron schematron) {
-        //it contains absolute path to the xsl file
-        final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        SchematronCriteriaGroupRepository criteriaGroupRepository = applicationContext.getBean(SchematronCriteriaGroupRepository.class);
-
-        List<SchematronCriteriaGroup> criteriaGroups = criteriaGroupRepository.findAllById_SchematronId(schematron.getId());
-
-        //Loop through all criteria to see if apply schematron
-        //if any criteria does not apply, do not apply at all (AND)
-        SchematronRequirement requirement = SchematronRequirement.DISABLED;
-        for (SchematronCriteriaGroup criteriaGroup : criteriaGroups) {
-            List<SchematronCriteria> criteriaList = criteriaGroup.getCriteria();
-            boolean apply = false;
-            for (SchematronCriteria criteria : criteriaList) {
-                apply = criteria.accepts(applicationContext, metadataId, md, metadataSchema.getSchemaNS());
-                if (!apply) {
-                    break;
-                }
-            }
+        SchematronCriteriaGroupRepository criteriaGroupRepository = ApplicationContextHolder.get().getBean(SchematronCriteriaGroupRepository.class);
 
-            if (apply) {
-                if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
-                    Log.debug(Geonet.DATA_MANAGER, " - Schematron group is accepted:" + criteriaGroup.getId().getName() +
-                        " for schematron: " + schematron.getRuleName());
-                }
-                requirement = requirement.highestRequirement(criteriaGroup.getRequirement());
-            } else {
-                requirement = requirement.highestRequirement(SchematronRequirement.DISABLED);
-            }
-        }
-        return new ApplicableSchematron(requirement, schematron);
+        return getApplicableSchematron(schematron, criteriaGroupRepository.findAllById_SchematronId(schematron.getId()),
+            criteriaEvaluator(metadataId, md, metadataSchema));
     }
 
-
-
-
+    private CriteriaEvaluator criteriaEvaluator(final int metadataId, final Element md, final MetadataSchema metadataSchema) {
+        final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
+        return new CriteriaEvaluator() {
+            @Override
+            public boolean accepts(SchematronCriteria criteria) {
+                return criteria.accepts(applicationContext, metadataId, md, metadataSchema.getSchemaNS());
+            }
+        };
+    }
 }
@@ -23,15 +23,11 @@
 
 package org.fao.geonet.kernel;
 
-import com.google.common.collect.Lists;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Edit;
-import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.*;
 import org.fao.geonet.kernel.schema.MetadataSchema;
 import org.fao.geonet.repository.SchematronCriteriaGroupRepository;
-import org.fao.geonet.repository.SchematronRepository;
-import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.context.ConfigurableApplicationContext;
 
@@ -56,9 +52,7 @@ public class SchematronValidatorExternalMd extends AbstractSchematronValidator {
         try {
             List<ApplicableSchematron> applicableSchematron = getApplicableSchematronList(md, metadataSchema, groupOwnerId);
 
-            for (ApplicableSchematron applicable : applicableSchematron) {
-                runSchematron(lang, schemaDir, validations, schemaTronXmlOut, -1, md, applicable);
-            }
+            runSchematrons(lang, schemaDir, validations, schemaTronXmlOut, -1, md, applicableSchematron);
         } catch (Throwable e) {
             Element errorReport = new Element("schematronVerificationError", Edit.NAMESPACE);
             errorReport.addContent("Schematron error ocurred, rules could not be verified: " + e.getMessage());
@@ -72,27 +66,8 @@ public class SchematronValidatorExternalMd extends AbstractSchematronValidator {
     public List<ApplicableSchematron> getApplicableSchematronList( final Element md,
                                                            final MetadataSchema metadataSchema,
                                                            final Integer groupOwnerId) {
-
-        List<ApplicableSchematron> applicableSchematron = Lists.newArrayList();
-        SchematronRepository schematronRepository = ApplicationContextHolder.get().getBean(SchematronRepository.class);
-
-        final List<Schematron> schematronList = schematronRepository.findAllBySchemaName(metadataSchema.getName());
-
-        Collections.sort(schematronList, Schematron.DISPLAY_PRIORITY_COMPARATOR);
-
-        //Loop through all xsl files
-        for (Schematron schematron : schematronList) {
-            final ApplicableSchematron applicable = getApplicableSchematron(md, metadataSchema, schematron, groupOwnerId);
-
-            if (applicable.requirement != SchematronRequirement.DISABLED) {
-                if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
-                    Log.debug(Geonet.DATA_MANAGER, " - rule:" + schematron.getRuleName());
-                }
-
-                applicableSchematron.add(applicable);
-            }
-        }
-        return applicableSchematron;
+        return getApplicableSchematronList(metadataSchema.getName(),
+            memoize(criteriaEvaluator(md, metadataSchema, groupOwnerId)));
     }
 
 
@@ -101,42 +76,20 @@ public class SchematronValidatorExternalMd extends AbstractSchematronValidator {
                                                  final MetadataSchema metadataSchema,
                                                  final Schematron schematron,
                                                  final Integer groupOwnerId) {
-        //it contains absolute path to the xsl file
-        final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        SchematronCriteriaGroupRepository criteriaGroupRepository = applicationContext.getBean(SchematronCriteriaGroupRepository.class);
-
-        List<SchematronCriteriaGroup> criteriaGroups = criteriaGroupRepository.findAllById_SchematronId(schematron.getId());
-
-        //Loop through all criteria to see if apply schematron
-        //if any criteria does not apply, do not apply at all (AND)
-        SchematronRequirement requirement = SchematronRequirement.DISABLED;
-        for (SchematronCriteriaGroup criteriaGroup : criteriaGroups) {
-            List<SchematronCriteria> criteriaList = criteriaGroup.getCriteria();
-            boolean apply = false;
-            for (SchematronCriteria criteria : criteriaList) {
-                boolean tmpApply = criteria.accepts(applicationContext, md, metadataSchema.getSchemaNS(), groupOwnerId);
-
-                if (!tmpApply) {
-                    apply = false;
-                    break;
-                } else {
-                    apply = true;
-                }
-            }
+        SchematronCriteriaGroupRepository criteriaGroupRepository = ApplicationContextHolder.get().getBean(SchematronCriteriaGroupRepository.class);
 
-            if (apply) {
-                if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
-                    Log.debug(Geonet.DATA_MANAGER, " - Schematron group is accepted:" + criteriaGroup.getId().getName() +
-                        " for schematron: " + schematron.getRuleName());
-                }
-                requirement = requirement.highestRequirement(criteriaGroup.getRequirement());
-            } else {
-                requirement = requirement.highestRequirement(SchematronRequirement.DISABLED);
-            }
-        }
-        return new ApplicableSchematron(requirement, schematron);
+        return getApplicableSchematron(schematron, criteriaGroupRepository.findAllById_SchematronId(schematron.getId()),
+            criteriaEvaluator(md, metadataSchema, groupOwnerId));
     }
 
-
-
+    private CriteriaEvaluator criteriaEvaluator(final Element md, final MetadataSchema metadataSchema,
+                                                final Integer groupOwnerId) {
+        final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
+        return new CriteriaEvaluator() {
+            @Override
+            public boolean accepts(SchematronCriteria criteria) {
+                return criteria.accepts(applicationContext, md, metadataSchema.getSchemaNS(), groupOwnerId);
+            }
+        };
+    }
 }
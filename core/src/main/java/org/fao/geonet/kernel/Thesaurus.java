@@ -22,6 +22,10 @@
 
 package org.fao.geonet.kernel;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.ISODate;
 import org.fao.geonet.exceptions.TermNotFoundException;
@@ -29,6 +33,7 @@ import org.fao.geonet.kernel.rdf.Query;
 import org.fao.geonet.kernel.rdf.QueryBuilder;
 import org.fao.geonet.kernel.rdf.Selectors;
 import org.fao.geonet.kernel.rdf.Wheres;
+import org.fao.geonet.kernel.search.keyword.KeywordLabelIndex;
 import org.fao.geonet.kernel.search.keyword.KeywordRelation;
 import org.fao.geonet.languages.IsoLanguagesMapper;
 import org.fao.geonet.util.LangUtils;
@@ -69,13 +74,23 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.Nonnull;
 
 public class Thesaurus {
     private static final String DEFAULT_THESAURUS_NAMESPACE = "http://custom.shared.obj.ch/concept#";
 
+    /**
+     * Maximum number of values (rows x columns) of the query results kept in the cache of each
+     * thesaurus, 0 disables the cache.
+     */
+    private static final int QUERY_CACHE_MAX_VALUES = Integer.getInteger("geonetwork.thesaurus.queryCache.maxValues", 100000);
+
     private String fname;
 
     private String type;
@@ -84,7 +99,29 @@ public class Thesaurus {
 
     private Path thesaurusFile;
 
-    private LocalRepository repository;
+    private volatile LocalRepository repository;
+
+    /**
+     * Queries share the read lock, modifications of the repository take the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Results of the queries, emptied on each modification of the repository.
+     */
+    private final Cache<String, QueryResultsTable> queryCache = CacheBuilder.newBuilder()
+        .maximumWeight(QUERY_CACHE_MAX_VALUES)
+        .weigher(new Weigher<String, QueryResultsTable>() {
+            @Override
+            public int weigh(String query, QueryResultsTable table) {
+                return 1 + table.getRowCount() * table.getColumnCount();
+            }
+        })
+        .build();
+
+    private final Object labelIndexLock = new Object();
+
+    private volatile KeywordLabelIndex labelIndex;
 
     private String title;
 
@@ -258,16 +295,22 @@ public class Thesaurus {
         // needs to have term/concept id tacked onto the end
     }
 
-    public synchronized LocalRepository getRepository() {
+    public LocalRepository getRepository() {
         return repository;
     }
 
-    public synchronized Thesaurus setRepository(LocalRepository repository) {
-        this.repository = repository;
+    public Thesaurus setRepository(LocalRepository repository) {
+        lock.writeLock().lock();
+        try {
+            this.repository = repository;
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
         return this;
     }
 
-    public synchronized Thesaurus initRepository() throws ConfigurationException, IOException {
+    public Thesaurus initRepository() throws ConfigurationException, IOException {
         RepositoryConfig repConfig = new RepositoryConfig(getKey());
 
         SailConfig syncSail = new SailConfig("org.openrdf.sesame.sailimpl.sync.SyncRdfSchemaRepository");
@@ -284,9 +327,48 @@ public class Thesaurus {
     }
 
     /**
-     * TODO javadoc.
+     * Run a SeRQL query on the repository.
+     *
+     * Queries run concurrently and their results are cached until the next modification of the
+     * thesaurus, the returned table must not be modified.
      */
-    public synchronized QueryResultsTable performRequest(String query) throws IOException, MalformedQueryException,
+    public QueryResultsTable performRequest(final String query) throws IOException, MalformedQueryException,
+        QueryEvaluationException, AccessDeniedException {
+        lock.readLock().lock();
+        try {
+            if (QUERY_CACHE_MAX_VALUES <= 0) {
+                return executeQuery(query);
+            }
+            QueryResultsTable cached = queryCache.getIfPresent(query);
+            if (cached != null) {
+                return cached;
+            }
+            return queryCache.get(query, new Callable<QueryResultsTable>() {
+                @Override
+                public QueryResultsTable call() throws Exception {
+                    return executeQuery(query);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof MalformedQueryException) {
+                throw (MalformedQueryException) cause;
+            } else if (cause instanceof QueryEvaluationException) {
+                throw (QueryEvaluationException) cause;
+            } else if (cause instanceof AccessDeniedException) {
+                throw (AccessDeniedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private QueryResultsTable executeQuery(String query) throws IOException, MalformedQueryException,
         QueryEvaluationException, AccessDeniedException {
         if (Log.isDebugEnabled(Geonet.THESAURUS))
             Log.debug(Geonet.THESAURUS, "Query : " + query);
@@ -295,6 +377,40 @@ public class Thesaurus {
         return repository.performTableQuery(QueryLanguage.SERQL, query);
     }
 
+    /**
+     * Get the index of the preferred labels of the concepts, built on first use and after each
+     * modification of the thesaurus.
+     */
+    public KeywordLabelIndex getLabelIndex() throws IOException, MalformedQueryException,
+        QueryEvaluationException, AccessDeniedException {
+        KeywordLabelIndex index = labelIndex;
+        if (index != null) {
+            return index;
+        }
+        // Hold the read lock so that the index is not built from a repository being modified
+        lock.readLock().lock();
+        try {
+            synchronized (labelIndexLock) {
+                index = labelIndex;
+                if (index == null) {
+                    index = KeywordLabelIndex.build(this);
+                    labelIndex = index;
+                }
+                return index;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forget the query results and the label index, the write lock must be held.
+     */
+    private void invalidate() {
+        queryCache.invalidateAll();
+        labelIndex = null;
+    }
+
     public boolean hasConceptScheme(String uri) {
 
         String query = "SELECT conceptScheme"
@@ -358,69 +474,75 @@ public class Thesaurus {
      *
      * @param keyword The keyword to add
      */
-    public synchronized URI addElement(KeywordBean keyword) throws IOException, AccessDeniedException, GraphException {
-        Graph myGraph = new org.openrdf.model.impl.GraphImpl();
-
-        ValueFactory myFactory = myGraph.getValueFactory();
-
-        // Define namespace
-        String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
-        String namespaceGml = "http://www.opengis.net/gml#";
-
-        // Create subject
-        URI mySubject = myFactory.createURI(keyword.getUriCode());
-
-        URI skosClass = myFactory.createURI(namespaceSkos, "Concept");
-        URI rdfType = myFactory.createURI(org.openrdf.vocabulary.RDF.TYPE);
-        URI predicatePrefLabel = myFactory
-            .createURI(namespaceSkos, "prefLabel");
-        URI predicateScopeNote = myFactory
-            .createURI(namespaceSkos, "scopeNote");
-
-        URI predicateBoundedBy = myFactory.createURI(namespaceGml, "BoundedBy");
-        URI predicateEnvelope = myFactory.createURI(namespaceGml, "Envelope");
-        URI predicateSrsName = myFactory.createURI(namespaceGml, "srsName");
-        URI srsNameURI = myFactory
-            .createURI("http://www.opengis.net/gml/srs/epsg.xml#epsg:4326");
-        BNode gmlNode = myFactory.createBNode();
-        URI predicateLowerCorner = myFactory.createURI(namespaceGml,
-            "lowerCorner");
-        URI predicateUpperCorner = myFactory.createURI(namespaceGml,
-            "upperCorner");
-
-        Literal lowerCorner = myFactory.createLiteral(keyword.getCoordWest() + " " + keyword.getCoordSouth());
-        Literal upperCorner = myFactory.createLiteral(keyword.getCoordEast() + " " + keyword.getCoordNorth());
-
-        mySubject.addProperty(rdfType, skosClass);
-        Set<Entry<String, String>> values = keyword.getValues().entrySet();
-        for (Entry<String, String> entry : values) {
-            String language = toiso639_1_Lang(entry.getKey());
-            Value valueObj = myFactory.createLiteral(entry.getValue(), language);
-            myGraph.add(mySubject, predicatePrefLabel, valueObj);
+    public URI addElement(KeywordBean keyword) throws IOException, AccessDeniedException, GraphException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = new org.openrdf.model.impl.GraphImpl();
 
-        }
-        Set<Entry<String, String>> definitions = keyword.getDefinitions().entrySet();
-        for (Entry<String, String> entry : definitions) {
-            String language = toiso639_1_Lang(entry.getKey());
-            Value definitionObj = myFactory.createLiteral(entry.getValue(), language);
-            myGraph.add(mySubject, predicateScopeNote, definitionObj);
+            ValueFactory myFactory = myGraph.getValueFactory();
 
-        }
-        myGraph.add(mySubject, predicateBoundedBy, gmlNode);
+            // Define namespace
+            String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
+            String namespaceGml = "http://www.opengis.net/gml#";
+
+            // Create subject
+            URI mySubject = myFactory.createURI(keyword.getUriCode());
+
+            URI skosClass = myFactory.createURI(namespaceSkos, "Concept");
+            URI rdfType = myFactory.createURI(org.openrdf.vocabulary.RDF.TYPE);
+            URI predicatePrefLabel = myFactory
+                .createURI(namespaceSkos, "prefLabel");
+            URI predicateScopeNote = myFactory
+                .createURI(namespaceSkos, "scopeNote");
+
+            URI predicateBoundedBy = myFactory.createURI(namespaceGml, "BoundedBy");
+            URI predicateEnvelope = myFactory.createURI(namespaceGml, "Envelope");
+            URI predicateSrsName = myFactory.createURI(namespaceGml, "srsName");
+            URI srsNameURI = myFactory
+                .createURI("http://www.opengis.net/gml/srs/epsg.xml#epsg:4326");
+            BNode gmlNode = myFactory.createBNode();
+            URI predicateLowerCorner = myFactory.createURI(namespaceGml,
+                "lowerCorner");
+            URI predicateUpperCorner = myFactory.createURI(namespaceGml,
+                "upperCorner");
+
+            Literal lowerCorner = myFactory.createLiteral(keyword.getCoordWest() + " " + keyword.getCoordSouth());
+            Literal upperCorner = myFactory.createLiteral(keyword.getCoordEast() + " " + keyword.getCoordNorth());
+
+            mySubject.addProperty(rdfType, skosClass);
+            Set<Entry<String, String>> values = keyword.getValues().entrySet();
+            for (Entry<String, String> entry : values) {
+                String language = toiso639_1_Lang(entry.getKey());
+                Value valueObj = myFactory.createLiteral(entry.getValue(), language);
+                myGraph.add(mySubject, predicatePrefLabel, valueObj);
+
+            }
+            Set<Entry<String, String>> definitions = keyword.getDefinitions().entrySet();
+            for (Entry<String, String> entry : definitions) {
+                String language = toiso639_1_Lang(entry.getKey());
+                Value definitionObj = myFactory.createLiteral(entry.getValue(), language);
+                myGraph.add(mySubject, predicateScopeNote, definitionObj);
+
+            }
+            myGraph.add(mySubject, predicateBoundedBy, gmlNode);
 
-        gmlNode.addProperty(rdfType, predicateEnvelope);
-        myGraph.add(gmlNode, predicateLowerCorner, lowerCorner);
-        myGraph.add(gmlNode, predicateUpperCorner, upperCorner);
-        myGraph.add(gmlNode, predicateSrsName, srsNameURI);
+            gmlNode.addProperty(rdfType, predicateEnvelope);
+            myGraph.add(gmlNode, predicateLowerCorner, lowerCorner);
+            myGraph.add(gmlNode, predicateUpperCorner, upperCorner);
+            myGraph.add(gmlNode, predicateSrsName, srsNameURI);
 
-        repository.addGraph(myGraph);
-        return mySubject;
+            repository.addGraph(myGraph);
+            return mySubject;
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     /**
      * Remove keyword from thesaurus.
      */
-    public synchronized Thesaurus removeElement(KeywordBean keyword) throws MalformedQueryException,
+    public Thesaurus removeElement(KeywordBean keyword) throws MalformedQueryException,
         QueryEvaluationException, IOException, AccessDeniedException {
         String namespace = keyword.getNameSpaceCode();
         String code = keyword.getRelativeCode();
@@ -431,23 +553,35 @@ public class Thesaurus {
     /**
      * Remove keyword from thesaurus.
      */
-    public synchronized Thesaurus removeElement(String namespace, String code) throws AccessDeniedException {
-        Graph myGraph = repository.getGraph();
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI subject = myFactory.createURI(namespace, code);
+    public Thesaurus removeElement(String namespace, String code) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI subject = myFactory.createURI(namespace, code);
 
-        return removeElement(myGraph, subject);
+            return removeElement(myGraph, subject);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     /**
      * Remove keyword from thesaurus.
      */
-    public synchronized Thesaurus removeElement(String uri) throws AccessDeniedException {
-        Graph myGraph = repository.getGraph();
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI subject = myFactory.createURI(uri);
+    public Thesaurus removeElement(String uri) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI subject = myFactory.createURI(uri);
 
-        return removeElement(myGraph, subject);
+            return removeElement(myGraph, subject);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     private Thesaurus removeElement(Graph myGraph, URI subject)
@@ -486,93 +620,98 @@ public class Thesaurus {
      *                languages) and the coordinates will only be updated if they are non-empty
      *                strings.
      */
-    public synchronized URI updateElement(KeywordBean keyword, boolean replace) throws AccessDeniedException, IOException,
+    public URI updateElement(KeywordBean keyword, boolean replace) throws AccessDeniedException, IOException,
         MalformedQueryException, QueryEvaluationException, GraphException {
+        lock.writeLock().lock();
+        try {
+            // Get thesaurus graph
+            Graph myGraph = repository.getGraph();
 
-        // Get thesaurus graph
-        Graph myGraph = repository.getGraph();
+            // Set namespace skos and predicates
+            ValueFactory myFactory = myGraph.getValueFactory();
+            String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
+            URI predicatePrefLabel = myFactory.createURI(namespaceSkos, "prefLabel");
+            URI predicateScopeNote = myFactory.createURI(namespaceSkos, "scopeNote");
 
-        // Set namespace skos and predicates
-        ValueFactory myFactory = myGraph.getValueFactory();
-        String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
-        URI predicatePrefLabel = myFactory.createURI(namespaceSkos, "prefLabel");
-        URI predicateScopeNote = myFactory.createURI(namespaceSkos, "scopeNote");
+            // Get subject (URI)
+            URI subject = myFactory.createURI(keyword.getUriCode());
 
-        // Get subject (URI)
-        URI subject = myFactory.createURI(keyword.getUriCode());
+            // Remove old labels
+            StatementIterator iter = myGraph.getStatements(subject, predicatePrefLabel, null);
+            removeMatchingLiterals(replace, myGraph, iter, keyword.getValues().keySet());
 
-        // Remove old labels
-        StatementIterator iter = myGraph.getStatements(subject, predicatePrefLabel, null);
-        removeMatchingLiterals(replace, myGraph, iter, keyword.getValues().keySet());
+            // remove old scopeNote
+            iter = myGraph.getStatements(subject, predicateScopeNote, null);
+            removeMatchingLiterals(replace, myGraph, iter, keyword.getDefinitions().keySet());
 
-        // remove old scopeNote
-        iter = myGraph.getStatements(subject, predicateScopeNote, null);
-        removeMatchingLiterals(replace, myGraph, iter, keyword.getDefinitions().keySet());
+            // add updated Labels
+            Set<Entry<String, String>> values = keyword.getValues().entrySet();
+            for (Entry<String, String> entry : values) {
+                String language = toiso639_1_Lang(entry.getKey());
+                Value valueObj = myFactory.createLiteral(entry.getValue(), language);
+                myGraph.add(subject, predicatePrefLabel, valueObj);
 
-        // add updated Labels
-        Set<Entry<String, String>> values = keyword.getValues().entrySet();
-        for (Entry<String, String> entry : values) {
-            String language = toiso639_1_Lang(entry.getKey());
-            Value valueObj = myFactory.createLiteral(entry.getValue(), language);
-            myGraph.add(subject, predicatePrefLabel, valueObj);
+            }
+            // add updated Definitions/Notes
+            Set<Entry<String, String>> definitions = keyword.getDefinitions().entrySet();
+            for (Entry<String, String> entry : definitions) {
+                String language = toiso639_1_Lang(entry.getKey());
+                Value definitionObj = myFactory.createLiteral(entry.getValue(), language);
+                myGraph.add(subject, predicateScopeNote, definitionObj);
 
-        }
-        // add updated Definitions/Notes
-        Set<Entry<String, String>> definitions = keyword.getDefinitions().entrySet();
-        for (Entry<String, String> entry : definitions) {
-            String language = toiso639_1_Lang(entry.getKey());
-            Value definitionObj = myFactory.createLiteral(entry.getValue(), language);
-            myGraph.add(subject, predicateScopeNote, definitionObj);
+            }
 
-        }
+            // update bbox
+            if (replace || !(keyword.getCoordEast() + keyword.getCoordNorth() + keyword.getCoordWest() + keyword.getCoordSouth()).trim().isEmpty()) {
+                String namespaceGml = "http://www.opengis.net/gml#";
+                URI predicateBoundedBy = myFactory.createURI(namespaceGml, "BoundedBy");
+                URI predicateLowerCorner = myFactory.createURI(namespaceGml, "lowerCorner");
+                URI predicateUpperCorner = myFactory.createURI(namespaceGml, "upperCorner");
 
-        // update bbox
-        if (replace || !(keyword.getCoordEast() + keyword.getCoordNorth() + keyword.getCoordWest() + keyword.getCoordSouth()).trim().isEmpty()) {
-            String namespaceGml = "http://www.opengis.net/gml#";
-            URI predicateBoundedBy = myFactory.createURI(namespaceGml, "BoundedBy");
-            URI predicateLowerCorner = myFactory.createURI(namespaceGml, "lowerCorner");
-            URI predicateUpperCorner = myFactory.createURI(namespaceGml, "upperCorner");
-
-            BNode subjectGml = null;
-            iter = myGraph.getStatements(subject, predicateBoundedBy, null);
-            while (iter.hasNext()) {
-                AtomicReference<Statement> st = new AtomicReference<Statement>(iter.next());
-                if (st.get().getObject() instanceof BNode) {
-                    subjectGml = (BNode) st.get().getObject();
+                BNode subjectGml = null;
+                iter = myGraph.getStatements(subject, predicateBoundedBy, null);
+                while (iter.hasNext()) {
+                    AtomicReference<Statement> st = new AtomicReference<Statement>(iter.next());
+                    if (st.get().getObject() instanceof BNode) {
+                        subjectGml = (BNode) st.get().getObject();
+                    }
                 }
-            }
-            if (subjectGml != null) {
-                // lowerCorner
-                iter = myGraph.getStatements(subjectGml, predicateLowerCorner, null);
-                while (true) {
-                    if (!(iter.hasNext())) {
+                if (subjectGml != null) {
+                    // lowerCorner
+                    iter = myGraph.getStatements(subjectGml, predicateLowerCorner, null);
+                    while (true) {
+                        if (!(iter.hasNext())) {
+                            break;
+                        }
+                        AtomicReference<Statement> st = new AtomicReference<Statement>(iter.next());
+                        myGraph.remove(st.get());
                         break;
                     }
-                    AtomicReference<Statement> st = new AtomicReference<Statement>(iter.next());
-                    myGraph.remove(st.get());
-                    break;
-                }
-                // upperCorner
-                iter = myGraph.getStatements(subjectGml, predicateUpperCorner, null);
-                while (true) {
-                    if (!(iter.hasNext())) {
+                    // upperCorner
+                    iter = myGraph.getStatements(subjectGml, predicateUpperCorner, null);
+                    while (true) {
+                        if (!(iter.hasNext())) {
+                            break;
+                        }
+                        AtomicReference<Statement> st = new AtomicReference<Statement>(iter.next());
+                        myGraph.remove(st.get());
                         break;
                     }
-                    AtomicReference<Statement> st = new AtomicReference<Statement>(iter.next());
-                    myGraph.remove(st.get());
-                    break;
-                }
-                // create the new statements
-                Literal lowerCorner = myFactory.createLiteral(keyword.getCoordWest() + " " + keyword.getCoordSouth());
-                Literal upperCorner = myFactory.createLiteral(keyword.getCoordEast() + " " + keyword.getCoordNorth());
+                    // create the new statements
+                    Literal lowerCorner = myFactory.createLiteral(keyword.getCoordWest() + " " + keyword.getCoordSouth());
+                    Literal upperCorner = myFactory.createLiteral(keyword.getCoordEast() + " " + keyword.getCoordNorth());
 
-                // Add the new statements
-                myGraph.add(subjectGml, predicateLowerCorner, lowerCorner);
-                myGraph.add(subjectGml, predicateUpperCorner, upperCorner);
+                    // Add the new statements
+                    myGraph.add(subjectGml, predicateLowerCorner, lowerCorner);
+                    myGraph.add(subjectGml, predicateUpperCorner, upperCorner);
+                }
             }
-        }
 
-        return subject;
+            return subject;
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
 
@@ -605,18 +744,23 @@ public class Thesaurus {
      * @param namespace Use null, to check a concept identifier not based on thesaurus namespace
      * @param code      The concept identifier
      */
-    public synchronized boolean isFreeCode(String namespace, String code) throws AccessDeniedException {
+    public boolean isFreeCode(String namespace, String code) throws AccessDeniedException {
         boolean res = true;
-        Graph myGraph = repository.getGraph();
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI obj = namespace == null ? myFactory.createURI(code) : myFactory.createURI(namespace, code);
-        Collection<?> statementsCollection = myGraph.getStatementCollection(obj, null, null);
-        if (statementsCollection != null && statementsCollection.size() > 0) {
-            res = false;
-        }
-        statementsCollection = myGraph.getStatementCollection(null, null, obj);
-        if (statementsCollection != null && statementsCollection.size() > 0) {
-            res = false;
+        lock.readLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI obj = namespace == null ? myFactory.createURI(code) : myFactory.createURI(namespace, code);
+            Collection<?> statementsCollection = myGraph.getStatementCollection(obj, null, null);
+            if (statementsCollection != null && statementsCollection.size() > 0) {
+                res = false;
+            }
+            statementsCollection = myGraph.getStatementCollection(null, null, obj);
+            if (statementsCollection != null && statementsCollection.size() > 0) {
+                res = false;
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return res;
     }
@@ -629,16 +773,21 @@ public class Thesaurus {
      * Update concept code by creating URI from namespace and code. This is recommended when
      * thesaurus concept identifiers contains # eg. http://vocab.nerc.ac.uk/collection/P07/current#CFV13N44
      */
-    public synchronized Thesaurus updateCode(String namespace, String oldcode, String newcode) throws AccessDeniedException, IOException {
-        Graph myGraph = repository.getGraph();
-
-        ValueFactory myFactory = myGraph.getValueFactory();
+    public Thesaurus updateCode(String namespace, String oldcode, String newcode) throws AccessDeniedException, IOException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
 
-        URI oldobj = myFactory.createURI(namespace, oldcode);
-        URI newobj = myFactory.createURI(namespace, newcode);
+            ValueFactory myFactory = myGraph.getValueFactory();
 
-        return updateElementCode(myGraph, oldobj, newobj);
+            URI oldobj = myFactory.createURI(namespace, oldcode);
+            URI newobj = myFactory.createURI(namespace, newcode);
 
+            return updateElementCode(myGraph, oldobj, newobj);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -647,15 +796,21 @@ public class Thesaurus {
      *
      * eg. http://vocab.nerc.ac.uk/collection/P07/current/CFV13N44/
      */
-    public synchronized Thesaurus updateCodeByURI(String olduri, String newuri) throws AccessDeniedException, IOException {
-        Graph myGraph = repository.getGraph();
+    public Thesaurus updateCodeByURI(String olduri, String newuri) throws AccessDeniedException, IOException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
 
-        ValueFactory myFactory = myGraph.getValueFactory();
+            ValueFactory myFactory = myGraph.getValueFactory();
 
-        URI oldobj = myFactory.createURI(olduri);
-        URI newobj = myFactory.createURI(newuri);
+            URI oldobj = myFactory.createURI(olduri);
+            URI newobj = myFactory.createURI(newuri);
 
-        return updateElementCode(myGraph, oldobj, newobj);
+            return updateElementCode(myGraph, oldobj, newobj);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     private Thesaurus updateElementCode(Graph myGraph, URI oldobj, URI newobj) {
@@ -680,26 +835,31 @@ public class Thesaurus {
      * Set the title of the thesaurus and save the graph to the repository.
      */
     public void addTitleElement(String thesaurusTitle) throws IOException, AccessDeniedException, GraphException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = new org.openrdf.model.impl.GraphImpl();
 
-        Graph myGraph = new org.openrdf.model.impl.GraphImpl();
-
-        ValueFactory myFactory = myGraph.getValueFactory();
+            ValueFactory myFactory = myGraph.getValueFactory();
 
-        String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
-        String namespaceDC = "http://purl.org/dc/elements/1.1/";
+            String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
+            String namespaceDC = "http://purl.org/dc/elements/1.1/";
 
-        URI mySubject = myFactory.createURI("http://geonetwork-opensource.org/", thesaurusTitle);
-        URI skosClass = myFactory.createURI(namespaceSkos, "ConceptScheme");
-        URI titleURI = myFactory.createURI(namespaceDC, "title");
+            URI mySubject = myFactory.createURI("http://geonetwork-opensource.org/", thesaurusTitle);
+            URI skosClass = myFactory.createURI(namespaceSkos, "ConceptScheme");
+            URI titleURI = myFactory.createURI(namespaceDC, "title");
 
-        URI rdfType = myFactory.createURI(org.openrdf.vocabulary.RDF.TYPE);
+            URI rdfType = myFactory.createURI(org.openrdf.vocabulary.RDF.TYPE);
 
-        mySubject.addProperty(rdfType, skosClass);
+            mySubject.addProperty(rdfType, skosClass);
 
-        Value valueObj = myFactory.createLiteral(thesaurusTitle);
-        myGraph.add(mySubject, titleURI, valueObj);
+            Value valueObj = myFactory.createLiteral(thesaurusTitle);
+            myGraph.add(mySubject, titleURI, valueObj);
 
-        repository.addGraph(myGraph);
+            repository.addGraph(myGraph);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
     //   <skos:ConceptScheme rdf:about="http://www.thesaurus.gc.ca/#CoreSubjectThesaurus">
     //      <dc:title>main title</dc:title>
@@ -940,21 +1100,26 @@ public class Thesaurus {
      * @param subject the keyword that is related to the other keyword
      * @param related the relation between the two keywords
      */
-    public synchronized void addRelation(String subject, KeywordRelation related, String relatedSubject) throws AccessDeniedException, IOException,
+    public void addRelation(String subject, KeywordRelation related, String relatedSubject) throws AccessDeniedException, IOException,
         MalformedQueryException, QueryEvaluationException, GraphException {
-
-        Graph myGraph = repository.getGraph();
-
-        // Set namespace skos and predicates
-        ValueFactory myFactory = myGraph.getValueFactory();
-        String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
-        URI relationURI = myFactory.createURI(namespaceSkos, related.name);
-        URI opposteRelationURI = myFactory.createURI(namespaceSkos, related.opposite().name);
-        URI subjectURI = myFactory.createURI(subject);
-        URI relatedSubjectURI = myFactory.createURI(relatedSubject);
-
-        myGraph.add(subjectURI, relationURI, relatedSubjectURI);
-        myGraph.add(relatedSubjectURI, opposteRelationURI, subjectURI);
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+
+            // Set namespace skos and predicates
+            ValueFactory myFactory = myGraph.getValueFactory();
+            String namespaceSkos = "http://www.w3.org/2004/02/skos/core#";
+            URI relationURI = myFactory.createURI(namespaceSkos, related.name);
+            URI opposteRelationURI = myFactory.createURI(namespaceSkos, related.opposite().name);
+            URI subjectURI = myFactory.createURI(subject);
+            URI relatedSubjectURI = myFactory.createURI(relatedSubject);
+
+            myGraph.add(subjectURI, relationURI, relatedSubjectURI);
+            myGraph.add(relatedSubjectURI, opposteRelationURI, subjectURI);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -1182,9 +1347,15 @@ public class Thesaurus {
         return updateElement(bean, true);
     }
 
-    public synchronized void clear() throws IOException, AccessDeniedException {
-        AdminListener listener = new DummyAdminListener();
-        repository.clear(listener);
+    public void clear() throws IOException, AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            AdminListener listener = new DummyAdminListener();
+            repository.clear(listener);
+        } finally {
+            invalidate();
+            lock.writeLock().unlock();
+        }
     }
 
     public String getDefaultNamespace() {
@@ -26,6 +26,7 @@ package org.fao.geonet.kernel;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Geonet;
@@ -214,6 +215,31 @@ public abstract class XmlSerializer {
         return metadataXml;
     }
 
+    /**
+     * Remove the withheld elements of a record from its xml, the privileges of the user on the
+     * record being already known, eg. computed for a page of search results. Does not depend on
+     * the current thread, so records can be filtered in parallel.
+     *
+     * @param operations the operations the user has on the record
+     * @param canEdit    false to remove the elements withheld to the users who cannot edit the
+     *                   record
+     */
+    public static void removeHiddenElements(Element metadataXml, MetadataSchema mds, Set<ReservedOperation> operations,
+                                            boolean canEdit) throws JDOMException {
+        List<Namespace> namespaces = mds.getNamespaces();
+        Pair<String, Element> downloadXpathFilter = mds.getOperationFilter(ReservedOperation.download);
+        if (downloadXpathFilter != null && !operations.contains(ReservedOperation.download)) {
+            removeFilteredElement(metadataXml, downloadXpathFilter, namespaces);
+        }
+        Pair<String, Element> dynamicXpathFilter = mds.getOperationFilter(ReservedOperation.dynamic);
+        if (dynamicXpathFilter != null && !operations.contains(ReservedOperation.dynamic)) {
+            removeFilteredElement(metadataXml, dynamicXpathFilter, namespaces);
+        }
+        if (!canEdit) {
+            removeFilteredElement(metadataXml, mds.getOperationFilter(ReservedOperation.editing), namespaces);
+        }
+    }
+
     /**
      * TODO javadoc.
      *
@@ -23,6 +23,7 @@
 
 package org.fao.geonet.kernel.backup;
 
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
@@ -141,8 +142,17 @@ public class ArchiveAllMetadataJob extends QuartzJobBean {
             boolean resolveXlink = true;
             boolean removeXlinkAttribute = false;
             boolean skipOnError = true;
-            Path srcFile = MEFLib.doMEF2Export(serviceContext, new HashSet<>(uuids), format, false, stylePath,
-                    resolveXlink, removeXlinkAttribute, skipOnError, true, true);
+            // The archive is written next to the backup folder, which only holds finished backups,
+            // and replaces the previous backup once complete
+            Files.createDirectories(dataDirectory.getBackupDir());
+            Path srcFile = Files.createTempFile(dataDirectory.getBackupDir(), CATALOG_ARCHIVE_BACKUP_FILE_PREFIX, ".zip");
+            try (OutputStream out = Files.newOutputStream(srcFile)) {
+                MEFLib.doMEF2Export(serviceContext, new HashSet<>(uuids), format, false, stylePath,
+                    resolveXlink, removeXlinkAttribute, skipOnError, true, true, out);
+            } catch (Exception | Error e) {
+                Files.deleteIfExists(srcFile);
+                throw e;
+            }
 
             Path backupDir = dataDirectory.getBackupDir().resolve(BACKUP_DIR);
             String today = new SimpleDateFormat("-yyyy-MM-dd-HH:mm").format(new Date());
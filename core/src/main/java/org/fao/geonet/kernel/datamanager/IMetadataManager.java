@@ -23,6 +23,7 @@
 
 package org.fao.geonet.kernel.datamanager;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -161,6 +162,17 @@ public interface IMetadataManager {
                         boolean forEditing, boolean applyOperationsFilters,
                         boolean withEditorValidationErrors, boolean keepXlinkAttributes) throws Exception;
 
+    /**
+     * Retrieves several metadata (in xml) for display, as {@link #getMetadata(ServiceContext, String,
+     * boolean, boolean, boolean, boolean)} does for each of them with no editing information and
+     * the operation filters applied, with the same number of queries whatever the number of
+     * records.
+     *
+     * @param keepXlinkAttributes When XLinks are resolved, do not remove XLink attributes.
+     * @return the records by id, in the order of the ids. The records not found are left out.
+     */
+    Map<String, Element> getMetadata(ServiceContext srvContext, List<String> ids, boolean keepXlinkAttributes) throws Exception;
+
     /**
      * Update of owner info.
      */
@@ -51,7 +51,6 @@ import org.fao.geonet.domain.userfeedback.RatingsSetting;
 import org.fao.geonet.events.history.RecordDeletedEvent;
 import org.fao.geonet.events.md.MetadataIndexCompleted;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
-import org.fao.geonet.kernel.IndexMetadataTask;
 import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.SelectionManager;
 import org.fao.geonet.kernel.SvnManager;
@@ -87,10 +86,13 @@ import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -99,7 +101,6 @@ import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -149,6 +150,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
     private ApplicationEventPublisher publisher;
 
+    private IndexEnrichmentLoader indexEnrichmentLoader;
+
     public BaseMetadataIndexer() {
     }
 
@@ -168,7 +171,7 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
     Set<String> waitForIndexing = new HashSet<String>();
     Set<String> indexing = new HashSet<String>();
-    Set<IndexMetadataTask> batchIndex = new ConcurrentHashSet<IndexMetadataTask>();
+    Set<MetadataIndexPipeline> batchIndex = new ConcurrentHashSet<MetadataIndexPipeline>();
 
     @Override
     public void forceIndexChanges() throws IOException {
@@ -291,6 +294,10 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
      * transaction commits before starting threads (to make sure that all metadata
      * are committed).
      *
+     * Records are processed by a {@link MetadataIndexPipeline}: they are read by pages,
+     * the information needed to enrich the index documents is prefetched for each page
+     * and the index documents are built on a pool of threads.
+     *
      * @param context     context object
      * @param metadataIds the metadata ids to index
      */
@@ -303,43 +310,45 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
         } catch (NoTransactionException e) {
             // not in a transaction so we can go ahead.
         }
-        // split reindexing task according to number of processors we can assign
-        int threadCount = ThreadUtils.getNumberOfThreads();
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-
-        int perThread;
-        if (metadataIds.size() < threadCount)
-            perThread = metadataIds.size();
-        else
-            perThread = metadataIds.size() / threadCount;
-        int index = 0;
         if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
             Log.debug(Geonet.INDEX_ENGINE, "Indexing " + metadataIds.size() + " records.");
             Log.debug(Geonet.INDEX_ENGINE, metadataIds.toString());
         }
-        AtomicInteger numIndexedTracker = new AtomicInteger();
-        while (index < metadataIds.size()) {
-            int start = index;
-            int count = Math.min(perThread, metadataIds.size() - start);
-            int nbRecords = start + count;
-
-            if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
-                Log.debug(Geonet.INDEX_ENGINE, "Indexing records from " + start + " to " + nbRecords);
-            }
 
-            List<?> subList = metadataIds.subList(start, nbRecords);
+        Runnable pipeline = new MetadataIndexPipeline(this, context, metadataIds, batchIndex, transactionStatus,
+            ThreadUtils.getNumberOfThreads());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(pipeline);
+        executor.shutdown();
+    }
 
-            if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
-                Log.debug(Geonet.INDEX_ENGINE, subList.toString());
-            }
+    /**
+     * Load in one query per kind of information the database content needed to
+     * enrich the index documents of the records.
+     *
+     * @param metadataIds the metadata ids (either integers or strings)
+     * @param groups      the groups, loaded once per run by {@link #loadIndexEnrichmentGroups()}
+     */
+    IndexEnrichment loadIndexEnrichment(Collection<?> metadataIds, List<Group> groups) {
+        boolean withFeedbackCounts = RatingsSetting.ADVANCED.equals(
+            settingManager.getValue(Settings.SYSTEM_LOCALRATING_ENABLE));
+        return getIndexEnrichmentLoader().load(metadataIds, groups, withFeedbackCounts);
+    }
 
-            // create threads to process this chunk of ids
-            Runnable worker = new IndexMetadataTask(context, subList, batchIndex, transactionStatus, numIndexedTracker);
-            executor.execute(worker);
-            index += count;
-        }
+    /**
+     * @return the groups shared by the enrichment of all the pages of an indexing run.
+     */
+    List<Group> loadIndexEnrichmentGroups() {
+        return getIndexEnrichmentLoader().loadGroups();
+    }
 
-        executor.shutdown();
+    private IndexEnrichmentLoader getIndexEnrichmentLoader() {
+        if (indexEnrichmentLoader == null) {
+            indexEnrichmentLoader = new IndexEnrichmentLoader(metadataUtils, statusRepository,
+                metadataValidationRepository, operationAllowedRepository, inspireAtomFeedRepository,
+                userRepository, groupRepository, userFeedbackRepository);
+        }
+        return indexEnrichmentLoader;
     }
 
     @Override
@@ -354,8 +363,14 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
     @Override
     public void indexMetadata(final List<String> metadataIds) throws Exception {
-        for (String metadataId : metadataIds) {
-            indexMetadata(metadataId, false, null);
+        List<Group> groups = loadIndexEnrichmentGroups();
+        for (int start = 0; start < metadataIds.size(); start += MetadataIndexPipeline.PAGE_SIZE) {
+            List<String> page = metadataIds.subList(start,
+                Math.min(start + MetadataIndexPipeline.PAGE_SIZE, metadataIds.size()));
+            IndexEnrichment enrichment = loadIndexEnrichment(page, groups);
+            for (String metadataId : page) {
+                indexMetadata(metadataId, false, null, enrichment);
+            }
         }
 
         searchManager.forceIndexChanges();
@@ -364,10 +379,20 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
     @Override
     public void indexMetadata(final String metadataId, boolean forceRefreshReaders, ISearchManager searchManager)
         throws Exception {
+        indexMetadata(metadataId, forceRefreshReaders, searchManager, null);
+    }
+
+    /**
+     * Index one record defined by metadataId using the prefetched enrichment information if it covers the record.
+     *
+     * @return false if the record could not be indexed, the error being logged.
+     */
+    boolean indexMetadata(final String metadataId, boolean forceRefreshReaders, ISearchManager searchManager,
+                          @Nullable IndexEnrichment enrichment) throws Exception {
         waitLoopLock.lock();
         try {
             if (waitForIndexing.contains(metadataId)) {
-                return;
+                return true;
             }
             while (indexing.contains(metadataId)) {
                 try {
@@ -377,7 +402,7 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
                         wait(200);
                     }
                 } catch (InterruptedException e) {
-                    return;
+                    return true;
                 } finally {
                     waitForIndexing.remove(metadataId);
                 }
@@ -397,8 +422,13 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             Vector<Element> moreFields = new Vector<Element>();
             int id$ = Integer.parseInt(metadataId);
 
+            // The record prefetched with the page saves a query
+            final boolean prefetched = enrichment != null && enrichment.covers(id$);
+            fullMd = prefetched ? enrichment.getMetadata(id$) : null;
+
             // get metadata, extracting and indexing any xlinks
-            Element md = getXmlSerializer().selectNoXLinkResolver(metadataId, true, false);
+            Element md = fullMd != null ? getXmlSerializer().removeHiddenElements(true, fullMd, false)
+                : getXmlSerializer().selectNoXLinkResolver(metadataId, true, false);
             if (getXmlSerializer().resolveXLinks()) {
                 List<Attribute> xlinks = Processor.getXLinks(md);
                 if (xlinks.size() > 0) {
@@ -415,7 +445,9 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
                 moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.HASXLINKS, "0", true, true));
             }
 
-            fullMd = metadataUtils.findOne(id$);
+            if (fullMd == null) {
+                fullMd = metadataUtils.findOne(id$);
+            }
 
             final String schema = fullMd.getDataInfo().getSchemaId();
             final String createDate = fullMd.getDataInfo().getCreateDate().getDateAndTime();
@@ -455,7 +487,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.POPULARITY, popularity, true, true));
             moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.RATING, rating, true, true));
             if (RatingsSetting.ADVANCED.equals(settingManager.getValue(Settings.SYSTEM_LOCALRATING_ENABLE))) {
-                int nbOfFeedback = userFeedbackRepository.findByMetadata_Uuid(uuid).size();
+                int nbOfFeedback = prefetched && enrichment.hasFeedbackCounts() ? enrichment.getFeedbackCount(uuid)
+                    : userFeedbackRepository.findByMetadata_Uuid(uuid).size();
                 moreFields.add(
                     SearchManager.makeField(Geonet.IndexFieldNames.FEEDBACKCOUNT, nbOfFeedback + "", true, true));
             }
@@ -463,7 +496,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.EXTRA, extra, false, true));
 
             // If the metadata has an atom document, index related information
-            InspireAtomFeed feed = inspireAtomFeedRepository.findByMetadataId(id$);
+            InspireAtomFeed feed = prefetched ? enrichment.getAtomFeed(id$)
+                : inspireAtomFeedRepository.findByMetadataId(id$);
 
             if ((feed != null) && StringUtils.isNotEmpty(feed.getAtom())) {
                 moreFields.add(SearchManager.makeField("has_atom", "y", true, true));
@@ -471,7 +505,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             }
 
             if (owner != null) {
-                User user = userRepository.findOne(fullMd.getSourceInfo().getOwner());
+                Integer ownerId = fullMd.getSourceInfo().getOwner();
+                User user = prefetched && ownerId != null ? enrichment.getUser(ownerId) : userRepository.findOne(ownerId);
                 if (user != null) {
                     moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.USERINFO, user.getUsername() + "|"
                         + user.getSurname() + "|" + user.getName() + "|" + user.getProfile(), true, false));
@@ -484,7 +519,7 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
             String logoUUID = null;
             if (groupOwner != null) {
-                final Group group = groupRepository.findOne(groupOwner);
+                final Group group = prefetched ? enrichment.getGroup(groupOwner) : groupRepository.findOne(groupOwner);
                 if (group != null) {
                     moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.GROUP_OWNER,
                         String.valueOf(groupOwner), true, true));
@@ -525,7 +560,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             }
 
             // get privileges
-            List<OperationAllowed> operationsAllowed = operationAllowedRepository.findAllById_MetadataId(id$);
+            List<OperationAllowed> operationsAllowed = prefetched ? enrichment.getOperationsAllowed(id$)
+                : operationAllowedRepository.findAllById_MetadataId(id$);
 
             boolean isPublishedToAll = false;
 
@@ -537,7 +573,7 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
                 moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.OP_PREFIX + operationId,
                     String.valueOf(groupId), true, true));
                 if (operationId == ReservedOperation.view.getId()) {
-                    Group g = groupRepository.findOne(groupId);
+                    Group g = prefetched ? enrichment.getGroup(groupId) : groupRepository.findOne(groupId);
                     if (g != null) {
                         moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.GROUP_PUBLISHED, g.getName(),
                             true, true));
@@ -560,7 +596,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
             // get status
             Sort statusSort = new Sort(Sort.Direction.DESC, MetadataStatus_.changeDate.getName());
-            List<MetadataStatus> statuses = statusRepository.findAllByMetadataIdAndByType(id$, StatusValueType.workflow, statusSort);
+            List<MetadataStatus> statuses = prefetched ? enrichment.getWorkflowStatuses(id$)
+                : statusRepository.findAllByMetadataIdAndByType(id$, StatusValueType.workflow, statusSort);
             if (!statuses.isEmpty()) {
                 MetadataStatus stat = statuses.get(0);
                 String status = String.valueOf(stat.getStatusValue().getId());
@@ -574,7 +611,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             // -1 : not evaluated
             // 0 : invalid
             // 1 : valid
-            List<MetadataValidation> validationInfo = metadataValidationRepository.findAllById_MetadataId(id$);
+            List<MetadataValidation> validationInfo = prefetched ? enrichment.getValidations(id$)
+                : metadataValidationRepository.findAllById_MetadataId(id$);
             if (validationInfo.isEmpty()) {
                 moreFields.add(SearchManager.makeField(Geonet.IndexFieldNames.VALID, "-1", true, true));
             } else {
@@ -630,6 +668,7 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
         if (fullMd != null) {
             this.publisher.publishEvent(new MetadataIndexCompleted(fullMd));
         }
+        return fullMd != null;
     }
 
 
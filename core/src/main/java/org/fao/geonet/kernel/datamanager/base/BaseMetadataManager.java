@@ -31,6 +31,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
 import jeeves.constants.Jeeves;
 import jeeves.server.ServiceConfig;
 import jeeves.server.UserSession;
@@ -57,6 +58,7 @@ import org.fao.geonet.domain.MetadataSourceInfo;
 import org.fao.geonet.domain.MetadataType;
 import org.fao.geonet.domain.MetadataValidation;
 import org.fao.geonet.domain.Metadata_;
+import org.fao.geonet.domain.Operation;
 import org.fao.geonet.domain.OperationAllowed;
 import org.fao.geonet.domain.OperationAllowedId;
 import org.fao.geonet.domain.Pair;
@@ -103,7 +105,9 @@ import org.fao.geonet.repository.UserRepository;
 import org.fao.geonet.repository.UserSavedSelectionRepository;
 import org.fao.geonet.repository.specification.MetadataFileUploadSpecs;
 import org.fao.geonet.repository.specification.MetadataSpecs;
+import org.fao.geonet.repository.specification.MetadataValidationSpecs;
 import org.fao.geonet.repository.specification.OperationAllowedSpecs;
+import org.fao.geonet.util.WorkerPools;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
@@ -136,7 +140,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -144,16 +150,26 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static org.springframework.data.jpa.domain.Specifications.where;
 
 public class BaseMetadataManager implements IMetadataManager {
 
     private static final Logger LOGGER_DATA_MANAGER = LoggerFactory.getLogger(Geonet.DATA_MANAGER);
+    /**
+     * Number of threads parsing the records loaded by {@link #getMetadata(ServiceContext, List, boolean)}.
+     */
+    private static final int PARSER_THREADS = Integer.getInteger("geonetwork.metadata.parser.threads",
+        Runtime.getRuntime().availableProcessors());
 
     @Autowired
     protected IMetadataUtils metadataUtils;
     @Autowired
+    private WorkerPools workerPools;
+    @Autowired
     private IMetadataIndexer metadataIndexer;
     @Autowired
     private IMetadataValidator metadataValidator;
@@ -716,6 +732,137 @@ public class BaseMetadataManager implements IMetadataManager {
         return metadataXml;
     }
 
+    /**
+     * Retrieves several metadata (in xml) for display. The records, their privileges and the
+     * information added to them are loaded by a few queries for all the records, and the records
+     * are parsed and their withheld elements removed in parallel.
+     */
+    @Override
+    public Map<String, Element> getMetadata(ServiceContext srvContext, List<String> ids, boolean keepXlinkAttributes)
+        throws Exception {
+        Map<String, Element> result = new LinkedHashMap<>();
+        Set<Integer> intIds = new HashSet<>();
+        for (String id : ids) {
+            intIds.add(Integer.valueOf(id));
+        }
+        if (intIds.isEmpty()) {
+            return result;
+        }
+
+        Map<String, AbstractMetadata> records = new HashMap<>();
+        for (AbstractMetadata metadata : metadataUtils.findAll(intIds)) {
+            records.put(String.valueOf(metadata.getId()), metadata);
+        }
+        List<String> found = new ArrayList<>(records.size());
+        for (String id : ids) {
+            if (records.containsKey(id) && !found.contains(id)) {
+                found.add(id);
+            }
+        }
+        if (found.isEmpty()) {
+            return result;
+        }
+
+        // The privileges of the user on all the records
+        Map<String, Set<Operation>> operations = accessManager.getOperations(srvContext, found, srvContext.getIpAddress());
+        Set<String> editable = accessManager.getEditableMetadataIds(srvContext, found);
+        XmlSerializer.ThreadLocalConfiguration config = XmlSerializer.getThreadLocal(false);
+        boolean forceFilterEditOperation = config != null && config.isForceFilterEditOperation();
+
+        // The data is read in this thread which holds the persistence context
+        Map<String, Future<Element>> parsed = new LinkedHashMap<>();
+        for (String id : found) {
+            AbstractMetadata metadata = records.get(id);
+            final String data = metadata.getData();
+            final MetadataSchema schema = schemaManager.getSchema(metadata.getDataInfo().getSchemaId());
+            final Set<ReservedOperation> reservedOperations = toReservedOperations(operations.get(id));
+            final boolean canEdit = editable.contains(id) && !forceFilterEditOperation;
+            Callable<Element> parse = new Callable<Element>() {
+                @Override
+                public Element call() throws Exception {
+                    Element metadataXml = Xml.loadString(data, false);
+                    XmlSerializer.removeHiddenElements(metadataXml, schema, reservedOperations, canEdit);
+                    return metadataXml;
+                }
+            };
+            parsed.put(id, PARSER_THREADS > 1 && found.size() > 1 ? workerPools.getPool("metadata-parser", PARSER_THREADS).submit(parse)
+                : Futures.immediateFuture(parse.call()));
+        }
+
+        boolean doXLinks = getXmlSerializer().resolveXLinks();
+        Map<String, Element> infos = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Element>> entry : parsed.entrySet()) {
+            Element metadataXml;
+            try {
+                metadataXml = entry.getValue().get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            if (doXLinks) {
+                if (keepXlinkAttributes) {
+                    Processor.processXLink(metadataXml, srvContext);
+                } else {
+                    Processor.detachXLink(metadataXml, srvContext);
+                }
+            }
+            metadataXml.addNamespaceDeclaration(Edit.NAMESPACE);
+            infos.put(entry.getKey(), buildInfoElemStart(records.get(entry.getKey()), null));
+            result.put(entry.getKey(), metadataXml);
+        }
+
+        buildPrivilegesMetadataInfo(srvContext, infos);
+
+        Set<Integer> ownerIds = new HashSet<>();
+        Set<Integer> groupOwnerIds = new HashSet<>();
+        for (AbstractMetadata metadata : records.values()) {
+            ownerIds.add(metadata.getSourceInfo().getOwner());
+            if (metadata.getSourceInfo().getGroupOwner() != null) {
+                groupOwnerIds.add(metadata.getSourceInfo().getGroupOwner());
+            }
+        }
+        Map<Integer, User> owners = new HashMap<>();
+        for (User user : userRepository.findAll(ownerIds)) {
+            owners.put(user.getId(), user);
+        }
+        Map<Integer, Group> groupOwners = new HashMap<>();
+        if (!groupOwnerIds.isEmpty()) {
+            for (Group group : groupRepository.findAll(groupOwnerIds)) {
+                groupOwners.put(group.getId(), group);
+            }
+        }
+        Map<Integer, List<MetadataValidation>> validations = new HashMap<>();
+        for (MetadataValidation validation : metadataValidationRepository.findAll(MetadataValidationSpecs.hasMetadataIdIn(intIds))) {
+            List<MetadataValidation> mdValidations = validations.get(validation.getId().getMetadataId());
+            if (mdValidations == null) {
+                mdValidations = new ArrayList<>();
+                validations.put(validation.getId().getMetadataId(), mdValidations);
+            }
+            mdValidations.add(validation);
+        }
+
+        for (Map.Entry<String, Element> entry : infos.entrySet()) {
+            AbstractMetadata metadata = records.get(entry.getKey());
+            Integer groupOwner = metadata.getSourceInfo().getGroupOwner();
+            buildInfoElemEnd(srvContext, entry.getValue(), metadata, owners.get(metadata.getSourceInfo().getOwner()),
+                groupOwner == null ? null : groupOwners.get(groupOwner), validations.get(metadata.getId()));
+            result.get(entry.getKey()).addContent(entry.getValue());
+        }
+        return result;
+    }
+
+    private static Set<ReservedOperation> toReservedOperations(Set<Operation> operations) {
+        Set<ReservedOperation> reservedOperations = new HashSet<>();
+        if (operations != null) {
+            for (Operation operation : operations) {
+                ReservedOperation reservedOperation = ReservedOperation.lookup(operation.getId());
+                if (reservedOperation != null) {
+                    reservedOperations.add(reservedOperation);
+                }
+            }
+        }
+        return reservedOperations;
+    }
+
     /**
      * Retrieves a metadata (in xml) given its id. Use this method when you must
      * retrieve a metadata in the same transaction.
@@ -835,6 +982,33 @@ public class BaseMetadataManager implements IMetadataManager {
      */
     private Element buildInfoElem(ServiceContext context, String id, String version) throws Exception {
         AbstractMetadata metadata = metadataUtils.findOne(id);
+        Element info = buildInfoElemStart(metadata, version);
+
+        Map<String, Element> map = Maps.newHashMap();
+        map.put(id, info);
+        buildPrivilegesMetadataInfo(context, map);
+
+        // add owner name
+        User user = userRepository.findOne("" + metadata.getSourceInfo().getOwner());
+
+        // add groupowner name
+        Integer groupOwner = metadata.getSourceInfo().getGroupOwner();
+        Group group = null;
+        if (groupOwner != null) {
+            group = groupRepository.findOne(groupOwner);
+        }
+
+        // Add validity information
+        List<MetadataValidation> validationInfo = metadataValidationRepository.findAllById_MetadataId(Integer.parseInt(id));
+        buildInfoElemEnd(context, info, metadata, user, group, validationInfo);
+        return info;
+    }
+
+    /**
+     * @return the info element with the information held by the metadata record, before the privileges.
+     */
+    private Element buildInfoElemStart(AbstractMetadata metadata, String version) throws Exception {
+        String id = String.valueOf(metadata.getId());
         final MetadataDataInfo dataInfo = metadata.getDataInfo();
         String schema = dataInfo.getSchemaId();
         String createDate = dataInfo.getCreateDate().getDateAndTime();
@@ -848,8 +1022,6 @@ public class BaseMetadataManager implements IMetadataManager {
         String harvestUuid = metadata.getHarvestInfo().getUuid();
         String popularity = "" + dataInfo.getPopularity();
         String rating = "" + dataInfo.getRating();
-        String owner = "" + metadata.getSourceInfo().getOwner();
-        Integer groupOwner = metadata.getSourceInfo().getGroupOwner();
         String displayOrder = "" + dataInfo.getDisplayOrder();
 
         Element info = new Element(Edit.RootChild.INFO, Edit.NAMESPACE);
@@ -875,25 +1047,29 @@ public class BaseMetadataManager implements IMetadataManager {
         if (version != null) {
             addElement(info, Edit.Info.Elem.VERSION, version);
         }
+        return info;
+    }
 
-        Map<String, Element> map = Maps.newHashMap();
-        map.put(id, info);
-        buildPrivilegesMetadataInfo(context, map);
-
+    /**
+     * Add the information which does not come from the metadata record to the info element, after
+     * the privileges.
+     *
+     * @param user           the owner of the record, null if not found
+     * @param group          the group owner of the record, null if none
+     * @param validationInfo the validation results of the record, null or empty if not validated
+     */
+    private void buildInfoElemEnd(ServiceContext context, Element info, AbstractMetadata metadata, User user, Group group,
+                                  List<MetadataValidation> validationInfo) {
         // add owner name
-        User user = userRepository.findOne(owner);
         if (user != null) {
             String ownerName = user.getName();
             addElement(info, Edit.Info.Elem.OWNERNAME, ownerName);
         }
 
         // add groupowner name
-        if (groupOwner != null) {
-            Group group = groupRepository.findOne(groupOwner);
-            if (group != null) {
-                String groupOwnerName = group.getName();
-                addElement(info, Edit.Info.Elem.GROUPOWNERNAME, groupOwnerName);
-            }
+        if (group != null) {
+            String groupOwnerName = group.getName();
+            addElement(info, Edit.Info.Elem.GROUPOWNERNAME, groupOwnerName);
         }
 
         for (MetadataCategory category : metadata.getCategories()) {
@@ -909,7 +1085,6 @@ public class BaseMetadataManager implements IMetadataManager {
          */
 
         // Add validity information
-        List<MetadataValidation> validationInfo = metadataValidationRepository.findAllById_MetadataId(Integer.parseInt(id));
         if (validationInfo == null || validationInfo.size() == 0) {
             addElement(info, Edit.Info.Elem.VALID, "-1");
         } else {
@@ -940,7 +1115,6 @@ public class BaseMetadataManager implements IMetadataManager {
         }
         addElement(info, Edit.Info.Elem.BASEURL, protocol + "://" + host + port + context.getBaseUrl());
         addElement(info, Edit.Info.Elem.LOCSERV, "/srv/en");
-        return info;
     }
 
     /**
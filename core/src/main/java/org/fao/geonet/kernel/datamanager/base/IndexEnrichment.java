@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.Group;
+import org.fao.geonet.domain.InspireAtomFeed;
+import org.fao.geonet.domain.MetadataStatus;
+import org.fao.geonet.domain.MetadataValidation;
+import org.fao.geonet.domain.OperationAllowed;
+import org.fao.geonet.domain.User;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Database information used to enrich the index documents of a set of records, loaded with one
+ * query per kind of information instead of one query per record.
+ *
+ * Records which are not part of the set are not covered and must be looked up individually (see
+ * {@link #covers(int)}). Instances are built by {@link IndexEnrichmentLoader}.
+ */
+public class IndexEnrichment {
+    private final Set<Integer> metadataIds;
+    private final Map<Integer, List<MetadataStatus>> workflowStatuses = new HashMap<>();
+    private final Map<Integer, List<MetadataValidation>> validations = new HashMap<>();
+    private final Map<Integer, List<OperationAllowed>> operationsAllowed = new HashMap<>();
+    private final Map<Integer, AbstractMetadata> metadata = new HashMap<>();
+    private final Map<Integer, InspireAtomFeed> atomFeeds = new HashMap<>();
+    private final Map<Integer, User> users = new HashMap<>();
+    private final Map<Integer, Group> groups = new HashMap<>();
+    private Map<String, Integer> feedbackCounts;
+
+    public IndexEnrichment(Collection<Integer> metadataIds) {
+        this.metadataIds = Collections.unmodifiableSet(new HashSet<>(metadataIds));
+    }
+
+    /**
+     * @return true if the information of the record has been prefetched.
+     */
+    public boolean covers(int metadataId) {
+        return metadataIds.contains(metadataId);
+    }
+
+    public Set<Integer> getMetadataIds() {
+        return metadataIds;
+    }
+
+    /**
+     * Add the workflow statuses. They are expected to be sorted by descending change date so that
+     * the first status of each record is the current one.
+     */
+    IndexEnrichment addWorkflowStatuses(List<MetadataStatus> statuses) {
+        for (MetadataStatus status : statuses) {
+            add(workflowStatuses, status.getMetadataId(), status);
+        }
+        return this;
+    }
+
+    IndexEnrichment addValidations(List<MetadataValidation> validationList) {
+        for (MetadataValidation validation : validationList) {
+            add(validations, validation.getId().getMetadataId(), validation);
+        }
+        return this;
+    }
+
+    IndexEnrichment addOperationsAllowed(List<OperationAllowed> operationAllowedList) {
+        for (OperationAllowed operationAllowed : operationAllowedList) {
+            add(operationsAllowed, operationAllowed.getId().getMetadataId(), operationAllowed);
+        }
+        return this;
+    }
+
+    /**
+     * Add the records. If a draft and a record share the same id, the first one added wins.
+     */
+    IndexEnrichment addMetadata(Iterable<? extends AbstractMetadata> metadataList) {
+        for (AbstractMetadata md : metadataList) {
+            if (!metadata.containsKey(md.getId())) {
+                metadata.put(md.getId(), md);
+            }
+        }
+        return this;
+    }
+
+    IndexEnrichment addAtomFeeds(List<InspireAtomFeed> feeds) {
+        for (InspireAtomFeed feed : feeds) {
+            atomFeeds.put(feed.getMetadataId(), feed);
+        }
+        return this;
+    }
+
+    IndexEnrichment addUsers(List<User> userList) {
+        for (User user : userList) {
+            users.put(user.getId(), user);
+        }
+        return this;
+    }
+
+    /**
+     * Add the groups. All the groups of the catalog are expected, a group missing in the
+     * enrichment does not exist.
+     */
+    IndexEnrichment addGroups(List<Group> groupList) {
+        for (Group group : groupList) {
+            groups.put(group.getId(), group);
+        }
+        return this;
+    }
+
+    IndexEnrichment setFeedbackCounts(Map<String, Integer> feedbackCounts) {
+        this.feedbackCounts = feedbackCounts;
+        return this;
+    }
+
+    @Nullable
+    public AbstractMetadata getMetadata(int metadataId) {
+        return metadata.get(metadataId);
+    }
+
+    @Nullable
+    public InspireAtomFeed getAtomFeed(int metadataId) {
+        return atomFeeds.get(metadataId);
+    }
+
+    @Nullable
+    public User getUser(int userId) {
+        return users.get(userId);
+    }
+
+    @Nullable
+    public Group getGroup(int groupId) {
+        return groups.get(groupId);
+    }
+
+    /**
+     * @return true if the number of user feedbacks has been loaded.
+     */
+    public boolean hasFeedbackCounts() {
+        return feedbackCounts != null;
+    }
+
+    public int getFeedbackCount(String metadataUuid) {
+        Integer count = feedbackCounts == null ? null : feedbackCounts.get(metadataUuid);
+        return count == null ? 0 : count;
+    }
+
+    public List<MetadataStatus> getWorkflowStatuses(int metadataId) {
+        return get(workflowStatuses, metadataId);
+    }
+
+    public List<MetadataValidation> getValidations(int metadataId) {
+        return get(validations, metadataId);
+    }
+
+    public List<OperationAllowed> getOperationsAllowed(int metadataId) {
+        return get(operationsAllowed, metadataId);
+    }
+
+    private static <T> void add(Map<Integer, List<T>> map, int metadataId, T value) {
+        List<T> values = map.get(metadataId);
+        if (values == null) {
+            values = new ArrayList<>();
+            map.put(metadataId, values);
+        }
+        values.add(value);
+    }
+
+    private static <T> List<T> get(Map<Integer, List<T>> map, int metadataId) {
+        List<T> values = map.get(metadataId);
+        return values == null ? Collections.<T>emptyList() : values;
+    }
+}
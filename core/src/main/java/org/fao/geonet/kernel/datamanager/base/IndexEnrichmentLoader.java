@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.Group;
+import org.fao.geonet.domain.MetadataStatus_;
+import org.fao.geonet.domain.StatusValueType;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.repository.GroupRepository;
+import org.fao.geonet.repository.InspireAtomFeedRepository;
+import org.fao.geonet.repository.MetadataStatusRepository;
+import org.fao.geonet.repository.MetadataValidationRepository;
+import org.fao.geonet.repository.OperationAllowedRepository;
+import org.fao.geonet.repository.UserRepository;
+import org.fao.geonet.repository.specification.InspireAtomFeedSpecs;
+import org.fao.geonet.repository.specification.MetadataValidationSpecs;
+import org.fao.geonet.repository.specification.OperationAllowedSpecs;
+import org.fao.geonet.repository.userfeedback.UserFeedbackRepository;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load the {@link IndexEnrichment} of a set of records. Each kind of information is fetched with
+ * one query for all the records, so the number of queries does not depend on the number of
+ * records:
+ * <ul>
+ * <li>the records (and their categories),</li>
+ * <li>the workflow statuses,</li>
+ * <li>the validations,</li>
+ * <li>the operations allowed,</li>
+ * <li>the INSPIRE atom feeds,</li>
+ * <li>the owners,</li>
+ * <li>the number of user feedbacks (only if requested).</li>
+ * </ul>
+ * The groups do not depend on the records, they are loaded once with {@link #loadGroups()} and
+ * shared by all the pages of a run.
+ */
+public class IndexEnrichmentLoader {
+    private final IMetadataUtils metadataUtils;
+    private final MetadataStatusRepository statusRepository;
+    private final MetadataValidationRepository metadataValidationRepository;
+    private final OperationAllowedRepository operationAllowedRepository;
+    private final InspireAtomFeedRepository inspireAtomFeedRepository;
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final UserFeedbackRepository userFeedbackRepository;
+
+    public IndexEnrichmentLoader(IMetadataUtils metadataUtils,
+                                 MetadataStatusRepository statusRepository,
+                                 MetadataValidationRepository metadataValidationRepository,
+                                 OperationAllowedRepository operationAllowedRepository,
+                                 InspireAtomFeedRepository inspireAtomFeedRepository,
+                                 UserRepository userRepository,
+                                 GroupRepository groupRepository,
+                                 UserFeedbackRepository userFeedbackRepository) {
+        this.metadataUtils = metadataUtils;
+        this.statusRepository = statusRepository;
+        this.metadataValidationRepository = metadataValidationRepository;
+        this.operationAllowedRepository = operationAllowedRepository;
+        this.inspireAtomFeedRepository = inspireAtomFeedRepository;
+        this.userRepository = userRepository;
+        this.groupRepository = groupRepository;
+        this.userFeedbackRepository = userFeedbackRepository;
+    }
+
+    /**
+     * @return all the groups, to pass to {@link #load(Collection, List, boolean)}.
+     */
+    public List<Group> loadGroups() {
+        return groupRepository.findAll();
+    }
+
+    /**
+     * @param metadataIds          the metadata ids (either integers or strings). Ids which are not
+     *                             numbers are not covered by the enrichment.
+     * @param groups               the groups, as returned by {@link #loadGroups()}.
+     * @param loadFeedbackCounts   true to also count the user feedbacks of the records.
+     */
+    public IndexEnrichment load(Collection<?> metadataIds, List<Group> groups, boolean loadFeedbackCounts) {
+        Set<Integer> ids = new HashSet<>(metadataIds.size());
+        for (Object metadataId : metadataIds) {
+            try {
+                ids.add(Integer.valueOf(metadataId.toString()));
+            } catch (NumberFormatException e) {
+                // Not covered by the enrichment, reported when indexing the record
+            }
+        }
+        IndexEnrichment enrichment = new IndexEnrichment(ids);
+        if (ids.isEmpty()) {
+            return enrichment;
+        }
+
+        enrichment.addMetadata(metadataUtils.findAll(ids));
+
+        Set<Integer> owners = new HashSet<>();
+        Set<String> uuids = new HashSet<>();
+        for (Integer id : ids) {
+            AbstractMetadata md = enrichment.getMetadata(id);
+            if (md != null) {
+                if (md.getSourceInfo().getOwner() != null) {
+                    owners.add(md.getSourceInfo().getOwner());
+                }
+                uuids.add(md.getUuid());
+            }
+        }
+
+        Sort statusSort = new Sort(Sort.Direction.DESC, MetadataStatus_.changeDate.getName());
+        enrichment
+            .addWorkflowStatuses(statusRepository.findAllByMetadataIdInAndByType(ids, StatusValueType.workflow, statusSort))
+            .addValidations(metadataValidationRepository.findAll(MetadataValidationSpecs.hasMetadataIdIn(ids)))
+            .addOperationsAllowed(operationAllowedRepository.findAll(OperationAllowedSpecs.hasMetadataIdIn(ids)))
+            .addAtomFeeds(inspireAtomFeedRepository.findAll(InspireAtomFeedSpecs.hasMetadataIdIn(ids)))
+            .addGroups(groups);
+        if (!owners.isEmpty()) {
+            enrichment.addUsers(userRepository.findAll(owners));
+        }
+
+        if (loadFeedbackCounts) {
+            Map<String, Integer> feedbackCounts = new HashMap<>();
+            if (!uuids.isEmpty()) {
+                for (Object[] row : userFeedbackRepository.countByMetadataUuidIn(new ArrayList<>(uuids))) {
+                    feedbackCounts.put((String) row[0], ((Number) row[1]).intValue());
+                }
+            }
+            enrichment.setFeedbackCounts(feedbackCounts);
+        }
+        return enrichment;
+    }
+}
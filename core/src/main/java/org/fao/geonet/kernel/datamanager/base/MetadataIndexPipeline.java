@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.ApplicationContextHolder;
+import org.fao.geonet.Util;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.Group;
+import org.fao.geonet.domain.User;
+import org.fao.geonet.kernel.search.SearchManager;
+import org.fao.geonet.utils.Log;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.TransactionStatus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Staged bulk indexing of a list of records:
+ * <ol>
+ * <li>the ids are read by pages and the database information needed to enrich the index
+ * documents of a page is prefetched with one query per kind of information (see
+ * {@link IndexEnrichment}),</li>
+ * <li>the records of a page are transformed with the index XSLT on a pool of workers while the
+ * next page is prefetched,</li>
+ * <li>the index writer changes are committed every {@link #COMMIT_INTERVAL} records instead of
+ * per record.</li>
+ * </ol>
+ * Progress and throughput are published through JMX while the pipeline is running.
+ */
+@ManagedResource()
+public class MetadataIndexPipeline implements Runnable {
+    static final int PAGE_SIZE = 200;
+    static final int COMMIT_INTERVAL = 500;
+
+    private final BaseMetadataIndexer indexer;
+    private final ServiceContext context;
+    private final List<?> metadataIds;
+    private final TransactionStatus transactionStatus;
+    private final Set<MetadataIndexPipeline> runningPipelines;
+    private final SearchManager searchManager;
+    private final int threadCount;
+    private User user;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger inError = new AtomicInteger();
+    private final AtomicInteger pagesLoaded = new AtomicInteger();
+    private final AtomicLong prefetchTime = new AtomicLong();
+    private volatile long startTime = -1;
+    private volatile long endTime = -1;
+
+    /**
+     * @param indexer           the indexer used to build the documents
+     * @param context           context object
+     * @param metadataIds       the metadata ids to index (either integers or strings)
+     * @param runningPipelines  the pipelines currently running. The pipeline is part of it
+     *                          until it completes.
+     * @param transactionStatus if non-null, wait for the transaction to complete before indexing
+     * @param threadCount       the number of threads transforming the records
+     */
+    public MetadataIndexPipeline(@Nonnull BaseMetadataIndexer indexer, @Nonnull ServiceContext context,
+                                 @Nonnull List<?> metadataIds, @Nonnull Set<MetadataIndexPipeline> runningPipelines,
+                                 @Nullable TransactionStatus transactionStatus, int threadCount) {
+        this.indexer = indexer;
+        this.context = context;
+        this.metadataIds = metadataIds;
+        this.runningPipelines = runningPipelines;
+        this.transactionStatus = transactionStatus;
+        this.threadCount = Math.max(1, threadCount);
+        this.searchManager = context.getBean(SearchManager.class);
+
+        runningPipelines.add(this);
+
+        if (context.getUserSession() != null) {
+            this.user = context.getUserSession().getPrincipal();
+        }
+    }
+
+    @ManagedAttribute
+    public int getToProcessCount() {
+        return metadataIds.size();
+    }
+
+    @ManagedAttribute
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    @ManagedAttribute
+    public int getInError() {
+        return inError.get();
+    }
+
+    @ManagedAttribute
+    public int getPagesLoaded() {
+        return pagesLoaded.get();
+    }
+
+    @ManagedAttribute
+    public long getPrefetchTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(prefetchTime.get());
+    }
+
+    @ManagedAttribute
+    public long getElapsedTimeMillis() {
+        if (startTime < 0) {
+            return 0;
+        }
+        long end = endTime < 0 ? System.nanoTime() : endTime;
+        return TimeUnit.NANOSECONDS.toMillis(end - startTime);
+    }
+
+    /**
+     * @return the number of records indexed per second since the pipeline started.
+     */
+    @ManagedAttribute
+    public double getThroughput() {
+        long elapsed = getElapsedTimeMillis();
+        return elapsed == 0 ? 0 : processed.get() * 1000d / elapsed;
+    }
+
+    @Override
+    public void run() {
+        ObjectName probeName = null;
+        MBeanExporter exporter = null;
+        ExecutorService workers = null;
+        try {
+            context.setAsThreadLocal();
+            if (!waitForTransactionAndServlet()) {
+                return;
+            }
+
+            try {
+                exporter = ApplicationContextHolder.get().getBean(MBeanExporter.class);
+                probeName = new ObjectName(String.format("geonetwork:name=indexing-pipeline,idx=%s", this.hashCode()));
+                exporter.registerManagedResource(this, probeName);
+            } catch (Exception e) {
+                Log.debug(Geonet.INDEX_ENGINE, "Indexing pipeline progress not published through JMX: " + e.getMessage());
+                exporter = null;
+            }
+
+            startTime = System.nanoTime();
+            workers = Executors.newFixedThreadPool(threadCount);
+            List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+            List<Group> groups = indexer.loadIndexEnrichmentGroups();
+            for (int start = 0; start < metadataIds.size(); start += PAGE_SIZE) {
+                List<?> page = metadataIds.subList(start, Math.min(start + PAGE_SIZE, metadataIds.size()));
+
+                // Prefetch the next page while the workers are still busy with the current one
+                long prefetchStart = System.nanoTime();
+                IndexEnrichment enrichment = indexer.loadIndexEnrichment(page, groups);
+                prefetchTime.addAndGet(System.nanoTime() - prefetchStart);
+                pagesLoaded.incrementAndGet();
+
+                CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[inFlight.size()])).join();
+                inFlight = submit(page, enrichment, workers);
+            }
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[inFlight.size()])).join();
+
+            if (user != null && context.getUserSession().getUserId() == null) {
+                context.getUserSession().loginAs(user);
+            }
+            searchManager.forceIndexChanges();
+        } catch (Exception e) {
+            Log.error(Geonet.INDEX_ENGINE, "Error occurred indexing metadata", e);
+        } finally {
+            endTime = System.nanoTime();
+            if (workers != null) {
+                workers.shutdown();
+            }
+            if (exporter != null) {
+                exporter.unregisterManagedResource(probeName);
+            }
+            runningPipelines.remove(this);
+            if (startTime >= 0) {
+                Log.info(Geonet.INDEX_ENGINE, String.format(
+                    "Indexed %d/%d records in %d ms (%.1f records/s, %d errors).",
+                    processed.get(), metadataIds.size(), getElapsedTimeMillis(), getThroughput(), inError.get()));
+            }
+        }
+    }
+
+    private List<CompletableFuture<Void>> submit(List<?> page, final IndexEnrichment enrichment, ExecutorService workers) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(page.size());
+        for (final Object metadataId : page) {
+            futures.add(CompletableFuture.runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    context.setAsThreadLocal();
+                    try {
+                        if (!indexer.indexMetadata(metadataId.toString(), false, null, enrichment)) {
+                            inError.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        inError.incrementAndGet();
+                        Log.error(Geonet.INDEX_ENGINE, "Error indexing metadata '" + metadataId + "': " + e.getMessage()
+                            + "\n" + Util.getStackTrace(e));
+                    } finally {
+                        if (processed.incrementAndGet() % COMMIT_INTERVAL == 0) {
+                            commit();
+                        }
+                    }
+                }
+            }, workers));
+        }
+        return futures;
+    }
+
+    /**
+     * Commit the changes of the records indexed so far, called by the worker which completes each
+     * {@link #COMMIT_INTERVAL}th record.
+     */
+    private void commit() {
+        try {
+            searchManager.forceIndexChanges();
+        } catch (Exception e) {
+            Log.error(Geonet.INDEX_ENGINE, "Error committing the indexed metadata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return false if the thread was interrupted while waiting.
+     */
+    private boolean waitForTransactionAndServlet() {
+        while (transactionStatus != null && !transactionStatus.isCompleted()) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        // poll context to see whether servlet is up yet
+        while (!context.isServletInitialized()) {
+            if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
+                Log.debug(Geonet.DATA_MANAGER, "Waiting for servlet to finish initializing..");
+            }
+            try {
+                Thread.sleep(10000); // sleep 10 seconds
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -107,7 +107,6 @@ public class Importer {
         final ServiceContext context, final Path mefFile) throws Exception {
         ApplicationContext applicationContext = ApplicationContextHolder.get();
         final DataManager dm = applicationContext.getBean(DataManager.class);
-        final SettingManager sm = applicationContext.getBean(SettingManager.class);
 
         // Load preferred schema and set to iso19139 by default
         String preferredSchema = applicationContext.getBean(ServiceConfig.class).getValue("preferredSchema", "iso19139");
@@ -146,87 +145,7 @@ public class Importer {
             }
 
             public void handleMetadataFiles(DirectoryStream<Path> metadataXmlFiles, Element info, int index) throws Exception {
-                String infoSchema = "_none_";
-                if (info != null && info.getContentSize() != 0) {
-                    Element general = info.getChild("general");
-                    if (general != null && general.getContentSize() != 0) {
-                        if (general.getChildText("schema") != null) {
-                            infoSchema = general.getChildText("schema");
-                        }
-                    }
-                }
-
-                Path lastUnknownMetadataFolderName = null;
-                if (Log.isDebugEnabled(Geonet.MEF))
-                    Log.debug(Geonet.MEF, "Multiple metadata files");
-
-                if (Log.isDebugEnabled(Geonet.MEF))
-                    Log.debug(Geonet.MEF, "info.xml says schema should be " + infoSchema);
-
-                Element metadataValidForImport;
-
-                Map<String, Pair<String, Element>> mdFiles = new HashMap<String, Pair<String, Element>>();
-                for (Path file : metadataXmlFiles) {
-                    if (file != null && java.nio.file.Files.isRegularFile(file)) {
-                        Element metadata = Xml.loadFile(file);
-                        try {
-                            String metadataSchema = dm.autodetectSchema(metadata, null);
-                            // If local node doesn't know metadata
-                            // schema try to load next xml file.
-                            if (metadataSchema == null) {
-                                continue;
-                            }
-
-                            String currFile = "Found metadata file " + file.getParent().getParent().relativize(file);
-
-                            mdFiles.put(metadataSchema, Pair.read(currFile, metadata));
-
-                        } catch (NoSchemaMatchesException e) {
-                            // Important folder name to identify metadata should be ../../
-                            lastUnknownMetadataFolderName = file.getParent().getParent().relativize(file);
-                            Log.debug(Geonet.MEF, "No schema match for " + lastUnknownMetadataFolderName + ".");
-                        }
-                    }
-                }
-
-                if (mdFiles.size() == 0) {
-                    throw new BadFormatEx("No valid metadata file found" + ((lastUnknownMetadataFolderName == null) ?
-                        "" :
-                        (" in " + lastUnknownMetadataFolderName)) + ".");
-                }
-
-                // 1st: Select metadata with schema in info file
-                Pair<String, Element> mdInform = mdFiles.get(infoSchema);
-                if (mdInform != null) {
-                    if (Log.isDebugEnabled(Geonet.MEF)) {
-                        Log.debug(Geonet.MEF, mdInform.one() + " with info.xml schema (" + infoSchema + ").");
-                    }
-                    metadataValidForImport = mdInform.two();
-                    handleMetadata(metadataValidForImport, index);
-                    return;
-                }
-
-                // 2nd: Select metadata with preferredSchema
-                mdInform = mdFiles.get(finalPreferredSchema);
-                if (mdInform != null) {
-                    if (Log.isDebugEnabled(Geonet.MEF)) {
-                        Log.debug(Geonet.MEF, mdInform.one() + " with preferred schema (" + finalPreferredSchema + ").");
-                    }
-                    metadataValidForImport = mdInform.two();
-                    handleMetadata(metadataValidForImport, index);
-                    return;
-                }
-
-                // Lastly: Select the first metadata in the map
-                String metadataSchema = (String) mdFiles.keySet().toArray()[0];
-                mdInform = mdFiles.get(metadataSchema);
-                if (Log.isDebugEnabled(Geonet.MEF)) {
-                    Log.debug(Geonet.MEF, mdInform.one() + " with known schema (" + metadataSchema + ").");
-                }
-                metadataValidForImport = mdInform.two();
-
-                // Import valid metadata
-                handleMetadata(metadataValidForImport, index);
+                handleMetadata(selectMetadataFile(dm, metadataXmlFiles, info, finalPreferredSchema), index);
             }
 
             // --------------------------------------------------------------------
@@ -251,213 +170,345 @@ public class Importer {
              * UUID.
              */
             public void handleInfo(Element info, int index) throws Exception {
-                String uuid = null;
-                String createDate = null;
-                String changeDate = null;
-                String sourceName = null;
-                Map<String, String> sourceTranslations = Maps.newHashMap();
-                // Schema in info.xml is not used here anymore.
-                // It is used in handleMetadataFiles as the first option to pick a
-                // metadata file from those in a metadata dir in a MEF2
-                // String schema = null;
-                String rating = null;
-                String popularity = null;
-                Element categs = null;
-                final Element privileges;
-
-                // Apply a stylesheet transformation if requested
-
-                if (!style.equals("_none_")) {
-                    FilePathChecker.verify(style);
-
-                    final GeonetworkDataDirectory dataDirectory = applicationContext.getBean(GeonetworkDataDirectory.class);
-                    Path stylePath = dataDirectory.getWebappDir().resolve(Geonet.Path.IMPORT_STYLESHEETS);
-                    Path xsltPath = stylePath.resolve(style + ".xsl");
-                    if (Files.exists(xsltPath)) {
-                        md.add(index, Xml.transform(md.get(index), xsltPath));
-                    } else {
-                        throw new Exception(String.format("XSL transformation '%s' not found.", style));
-                    }
+                Element featureCatalog = fc.size() > index ? fc.get(index) : null;
+                ImportedRecord record = prepareRecord(md.get(index), featureCatalog, info, style, isTemplate, category,
+                    groupId, validate, assign, source, context);
+                md.set(index, record.getMetadata());
+                insertRecord(record, md, index, metadataIdMap, uuidAction, source, isTemplate, groupId, context);
+                dm.indexMetadata(metadataIdMap.get(index), true, null);
+            }
+
+            // --------------------------------------------------------------------
+
+            public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+                if (Log.isDebugEnabled(Geonet.MEF)) {
+                    Log.debug(Geonet.MEF, "Adding public file with name=" + file);
                 }
+                saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PUBLIC, file, changeDate, is);
+            }
 
-                final Element metadata = md.get(index);
-                String schema = dm.autodetectSchema(metadata, null);
+            // --------------------------------------------------------------------
 
-                if (schema == null)
-                    throw new Exception("Unknown schema");
+            public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
+                if (Log.isDebugEnabled(Geonet.MEF))
+                    Log.debug(Geonet.MEF, "Adding private file with name=" + file);
+                saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PRIVATE, file, changeDate, is);
+            }
 
-                // Handle non MEF files insertion
-                if (info.getChildren().size() == 0) {
-                    if (category != null) {
-                        categs = new Element("categories");
-                        for (String c : category) {
-                            // TODO: convert id to name ?
-                            categs.addContent((new Element("category")).setAttribute("name", c));
-                        }
-                    }
-                    privileges = new Element("group");
-                    privileges.addContent(new Element("operation").setAttribute("name", "view"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "editing"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "download"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "notify"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "dynamic"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "featured"));
-
-                    if (isTemplate == MetadataType.METADATA) {
-                        // Get the Metadata uuid if it's not a template.
-                        uuid = dm.extractUUID(schema, md.get(index));
-                    } else if (isTemplate == MetadataType.SUB_TEMPLATE) {
-                        // Get subtemplate uuid if defined in @uuid at root
-                        uuid = md.get(index).getAttributeValue("uuid");
-                    } else if (isTemplate == MetadataType.TEMPLATE_OF_SUB_TEMPLATE) {
-                        // Get subtemplate uuid if defined in @uuid at root
-                        uuid = md.get(index).getAttributeValue("uuid");
-                    }
+        });
 
-                } else {
-                    if (Log.isDebugEnabled(Geonet.MEF))
-                        Log.debug(Geonet.MEF, "Collecting info file:\n" + Xml.getString(info));
-
-                    categs = info.getChild("categories");
-                    privileges = info.getChild("privileges");
-
-                    Element general = info.getChild("general");
-
-                    uuid = general.getChildText("uuid");
-                    createDate = general.getChildText("createDate");
-                    changeDate = general.getChildText("changeDate");
-                    // If "assign" checkbox is set to true, we assign the metadata to the current catalog siteID/siteName
-                    if (assign) {
-                        if (Log.isDebugEnabled(Geonet.MEF)) {
-                            Log.debug(Geonet.MEF, "Assign to local catalog");
-                        }
-                    } else {
-                        // --- If siteId is not set, set to current node
-                        sourceName = general.getChildText("siteName");
-                        sourceTranslations = translationXmlToLangMap(general.getChildren("siteTranslations"));
-                        if (Log.isDebugEnabled(Geonet.MEF))
-                            Log.debug(Geonet.MEF, "Assign to catalog: " + source);
-                    }
-                    rating = general.getChildText("rating");
-                    popularity = general.getChildText("popularity");
-                }
+        return metadataIdMap;
+    }
 
-                if (schema.startsWith("iso19139")) {
-                    // In GeoNetwork 3.x, links to resources changed:
-                    // * thumbnails contains full URL instead of file name only
-                    // * API mode change old URL structure.
-                    MetadataResourceDatabaseMigration.updateMetadataResourcesLink(metadata, null, sm);
+    /**
+     * Select the metadata document to import among the files of the metadata folder of a MEF2
+     * record: the one in the schema given by the information file, else the one in the preferred
+     * schema, else the first one in a schema known by the catalog.
+     */
+    static Element selectMetadataFile(DataManager dm, DirectoryStream<Path> metadataXmlFiles, Element info,
+                                      String preferredSchema) throws Exception {
+        String infoSchema = "_none_";
+        if (info != null && info.getContentSize() != 0) {
+            Element general = info.getChild("general");
+            if (general != null && general.getContentSize() != 0) {
+                if (general.getChildText("schema") != null) {
+                    infoSchema = general.getChildText("schema");
                 }
+            }
+        }
 
-                if (validate) {
-                    Integer groupIdVal = null;
-                    if (org.apache.commons.lang.StringUtils.isNotEmpty(groupId)) {
-                        groupIdVal = Integer.parseInt(groupId);
-                    }
+        Path lastUnknownMetadataFolderName = null;
+        if (Log.isDebugEnabled(Geonet.MEF))
+            Log.debug(Geonet.MEF, "Multiple metadata files");
 
-                    // Validate xsd and schematron
-                    DataManager.validateExternalMetadata(schema, metadata, context, groupIdVal);
-                }
+        if (Log.isDebugEnabled(Geonet.MEF))
+            Log.debug(Geonet.MEF, "info.xml says schema should be " + infoSchema);
 
+        Map<String, Pair<String, Element>> mdFiles = new HashMap<String, Pair<String, Element>>();
+        for (Path file : metadataXmlFiles) {
+            if (file != null && java.nio.file.Files.isRegularFile(file)) {
+                Element metadata = Xml.loadFile(file);
                 try {
-                    importRecord(uuid, uuidAction, md, schema, index, source, sourceName, sourceTranslations, context, metadataIdMap,
-                        createDate, changeDate, groupId, isTemplate);
-                } catch (Exception e) {
-                    throw new Exception("Failed to import metadata with uuid '" + uuid + "'. " + e.getLocalizedMessage(), e);
-                }
+                    String metadataSchema = dm.autodetectSchema(metadata, null);
+                    // If local node doesn't know metadata
+                    // schema try to load next xml file.
+                    if (metadataSchema == null) {
+                        continue;
+                    }
 
-                if (fc.size() != 0 && fc.get(index) != null) {
-                    // UUID is set as @uuid in root element
-                    uuid = UUID.randomUUID().toString();
+                    String currFile = "Found metadata file " + file.getParent().getParent().relativize(file);
 
-                    fc.add(index, dm.setUUID("iso19110", uuid, fc.get(index)));
+                    mdFiles.put(metadataSchema, Pair.read(currFile, metadata));
 
-                    //
-                    // insert metadata
-                    //
-                    int userid = context.getUserSession().getUserIdAsInt();
-                    String group = null, docType = null, title = null, category = null;
-                    boolean ufo = false, indexImmediate = false;
-                    String fcId = dm
-                        .insertMetadata(context, "iso19110", fc.get(index), uuid, userid, group, source, isTemplate.codeString, docType,
-                            category, createDate, changeDate, ufo, indexImmediate);
+                } catch (NoSchemaMatchesException e) {
+                    // Important folder name to identify metadata should be ../../
+                    lastUnknownMetadataFolderName = file.getParent().getParent().relativize(file);
+                    Log.debug(Geonet.MEF, "No schema match for " + lastUnknownMetadataFolderName + ".");
+                }
+            }
+        }
 
-                    if (Log.isDebugEnabled(Geonet.MEF))
-                        Log.debug(Geonet.MEF, "Adding Feature catalog with uuid: " + uuid);
+        if (mdFiles.size() == 0) {
+            throw new BadFormatEx("No valid metadata file found" + ((lastUnknownMetadataFolderName == null) ?
+                "" :
+                (" in " + lastUnknownMetadataFolderName)) + ".");
+        }
 
-                    // Create database relation between metadata and feature
-                    // catalog
-                    String mdId = metadataIdMap.get(index);
+        // 1st: Select metadata with schema in info file
+        Pair<String, Element> mdInform = mdFiles.get(infoSchema);
+        if (mdInform != null) {
+            if (Log.isDebugEnabled(Geonet.MEF)) {
+                Log.debug(Geonet.MEF, mdInform.one() + " with info.xml schema (" + infoSchema + ").");
+            }
+            return mdInform.two();
+        }
 
-                    final MetadataRelationRepository relationRepository = context.getBean(MetadataRelationRepository.class);
-                    final MetadataRelation relation = new MetadataRelation();
-                    relation.setId(new MetadataRelationId(Integer.valueOf(mdId), Integer.valueOf(fcId)));
+        // 2nd: Select metadata with preferredSchema
+        mdInform = mdFiles.get(preferredSchema);
+        if (mdInform != null) {
+            if (Log.isDebugEnabled(Geonet.MEF)) {
+                Log.debug(Geonet.MEF, mdInform.one() + " with preferred schema (" + preferredSchema + ").");
+            }
+            return mdInform.two();
+        }
 
-                    relationRepository.save(relation);
+        // Lastly: Select the first metadata in the map
+        String metadataSchema = (String) mdFiles.keySet().toArray()[0];
+        mdInform = mdFiles.get(metadataSchema);
+        if (Log.isDebugEnabled(Geonet.MEF)) {
+            Log.debug(Geonet.MEF, mdInform.one() + " with known schema (" + metadataSchema + ").");
+        }
+        return mdInform.two();
+    }
 
-                    metadataIdMap.add(fcId);
-                    // TODO : privileges not handled for feature catalog ...
-                }
+    /**
+     * Apply the import stylesheet to a record, read its information file and validate it. This
+     * does not change the database and may run in parallel for several records.
+     */
+    static ImportedRecord prepareRecord(Element metadata, Element featureCatalog, Element info, String style,
+                                        MetadataType isTemplate, String[] category, String groupId, boolean validate,
+                                        boolean assign, String source, ServiceContext context) throws Exception {
+        final DataManager dm = context.getBean(DataManager.class);
+        final SettingManager sm = context.getBean(SettingManager.class);
+
+        String uuid = null;
+        String createDate = null;
+        String changeDate = null;
+        String sourceName = null;
+        Map<String, String> sourceTranslations = Maps.newHashMap();
+        // Schema in info.xml is not used here anymore.
+        // It is used in selectMetadataFile as the first option to pick a
+        // metadata file from those in a metadata dir in a MEF2
+        // String schema = null;
+        String rating = null;
+        String popularity = null;
+        Element categs = null;
+        final Element privileges;
+
+        // Apply a stylesheet transformation if requested
+
+        if (!style.equals("_none_")) {
+            FilePathChecker.verify(style);
+
+            final GeonetworkDataDirectory dataDirectory = context.getBean(GeonetworkDataDirectory.class);
+            Path stylePath = dataDirectory.getWebappDir().resolve(Geonet.Path.IMPORT_STYLESHEETS);
+            Path xsltPath = stylePath.resolve(style + ".xsl");
+            if (Files.exists(xsltPath)) {
+                metadata = Xml.transform(metadata, xsltPath);
+            } else {
+                throw new Exception(String.format("XSL transformation '%s' not found.", style));
+            }
+        }
 
-                final int iMetadataId = Integer.valueOf(metadataIdMap.get(index));
-
-                final String finalPopularity = popularity;
-                final String finalRating = rating;
-                final Element finalCategs = categs;
-                final String finalGroupId = groupId;
-                context.getBean(IMetadataManager.class).update(iMetadataId, new Updater<Metadata>() {
-                    @Override public void apply(@Nonnull final Metadata metadata) {
-                        final MetadataDataInfo dataInfo = metadata.getDataInfo();
-                        if (finalPopularity != null) {
-                            dataInfo.setPopularity(Integer.valueOf(finalPopularity));
-                        }
-                        if (finalRating != null) {
-                            dataInfo.setRating(Integer.valueOf(finalRating));
-                        }
-                        dataInfo.setType(isTemplate);
-
-                        metadata.getHarvestInfo().setHarvested(false);
-
-                        addCategoriesToMetadata(metadata, finalCategs, context);
-
-                        if (finalGroupId == null || finalGroupId.equals("")) {
-                            Group ownerGroup = addPrivileges(context, dm, iMetadataId, privileges);
-                            if (ownerGroup != null) {
-                                metadata.getSourceInfo().setGroupOwner(ownerGroup.getId());
-                            }
-                        } else {
-                            final OperationAllowedRepository allowedRepository = context.getBean(OperationAllowedRepository.class);
-                            final Set<OperationAllowed> allowedSet = addOperations(context, dm, privileges, iMetadataId,
-                                Integer.valueOf(finalGroupId));
-                            allowedRepository.save(allowedSet);
-                        }
+        String schema = dm.autodetectSchema(metadata, null);
 
-                    }
-                });
+        if (schema == null)
+            throw new Exception("Unknown schema");
 
-                dm.indexMetadata(metadataIdMap.get(index), true, null);
+        // Handle non MEF files insertion
+        if (info.getChildren().size() == 0) {
+            if (category != null) {
+                categs = new Element("categories");
+                for (String c : category) {
+                    // TODO: convert id to name ?
+                    categs.addContent((new Element("category")).setAttribute("name", c));
+                }
+            }
+            privileges = new Element("group");
+            privileges.addContent(new Element("operation").setAttribute("name", "view"));
+            privileges.addContent(new Element("operation").setAttribute("name", "editing"));
+            privileges.addContent(new Element("operation").setAttribute("name", "download"));
+            privileges.addContent(new Element("operation").setAttribute("name", "notify"));
+            privileges.addContent(new Element("operation").setAttribute("name", "dynamic"));
+            privileges.addContent(new Element("operation").setAttribute("name", "featured"));
+
+            if (isTemplate == MetadataType.METADATA) {
+                // Get the Metadata uuid if it's not a template.
+                uuid = dm.extractUUID(schema, metadata);
+            } else if (isTemplate == MetadataType.SUB_TEMPLATE) {
+                // Get subtemplate uuid if defined in @uuid at root
+                uuid = metadata.getAttributeValue("uuid");
+            } else if (isTemplate == MetadataType.TEMPLATE_OF_SUB_TEMPLATE) {
+                // Get subtemplate uuid if defined in @uuid at root
+                uuid = metadata.getAttributeValue("uuid");
             }
 
-            // --------------------------------------------------------------------
+        } else {
+            if (Log.isDebugEnabled(Geonet.MEF))
+                Log.debug(Geonet.MEF, "Collecting info file:\n" + Xml.getString(info));
 
-            public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            categs = info.getChild("categories");
+            privileges = info.getChild("privileges");
+
+            Element general = info.getChild("general");
+
+            uuid = general.getChildText("uuid");
+            createDate = general.getChildText("createDate");
+            changeDate = general.getChildText("changeDate");
+            // If "assign" checkbox is set to true, we assign the metadata to the current catalog siteID/siteName
+            if (assign) {
                 if (Log.isDebugEnabled(Geonet.MEF)) {
-                    Log.debug(Geonet.MEF, "Adding public file with name=" + file);
+                    Log.debug(Geonet.MEF, "Assign to local catalog");
                 }
-                saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PUBLIC, file, changeDate, is);
+            } else {
+                // --- If siteId is not set, set to current node
+                sourceName = general.getChildText("siteName");
+                sourceTranslations = translationXmlToLangMap(general.getChildren("siteTranslations"));
+                if (Log.isDebugEnabled(Geonet.MEF))
+                    Log.debug(Geonet.MEF, "Assign to catalog: " + source);
             }
+            rating = general.getChildText("rating");
+            popularity = general.getChildText("popularity");
+        }
 
-            // --------------------------------------------------------------------
+        if (schema.startsWith("iso19139")) {
+            // In GeoNetwork 3.x, links to resources changed:
+            // * thumbnails contains full URL instead of file name only
+            // * API mode change old URL structure.
+            MetadataResourceDatabaseMigration.updateMetadataResourcesLink(metadata, null, sm);
+        }
 
-            public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
-                if (Log.isDebugEnabled(Geonet.MEF))
-                    Log.debug(Geonet.MEF, "Adding private file with name=" + file);
-                saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PRIVATE, file, changeDate, is);
+        if (validate) {
+            Integer groupIdVal = null;
+            if (org.apache.commons.lang.StringUtils.isNotEmpty(groupId)) {
+                groupIdVal = Integer.parseInt(groupId);
             }
 
-        });
+            // Validate xsd and schematron
+            DataManager.validateExternalMetadata(schema, metadata, context, groupIdVal);
+        }
 
-        return metadataIdMap;
+        ImportedRecord record = new ImportedRecord();
+        record.metadata = metadata;
+        record.schema = schema;
+        record.featureCatalog = featureCatalog;
+        record.uuid = uuid;
+        record.createDate = createDate;
+        record.changeDate = changeDate;
+        record.sourceName = sourceName;
+        record.sourceTranslations = sourceTranslations;
+        record.rating = rating;
+        record.popularity = popularity;
+        record.categories = categs;
+        record.privileges = privileges;
+        return record;
+    }
+
+    /**
+     * Insert a prepared record, its feature catalog and its privileges. The record is not
+     * indexed.
+     *
+     * @param md            the metadata documents, the one of the record is at {@code index}
+     * @param metadataIdMap receives the id of the record at {@code index} and the id of its
+     *                      feature catalog at the end
+     */
+    static void insertRecord(ImportedRecord record, List<Element> md, int index, List<String> metadataIdMap,
+                             MEFLib.UuidAction uuidAction, String source, final MetadataType isTemplate,
+                             String groupId, final ServiceContext context) throws Exception {
+        final DataManager dm = context.getBean(DataManager.class);
+        String uuid = record.uuid;
+        String createDate = record.createDate;
+        String changeDate = record.changeDate;
+        String rating = record.rating;
+        String popularity = record.popularity;
+        Element categs = record.categories;
+        final Element privileges = record.privileges;
+
+        try {
+            importRecord(uuid, uuidAction, md, record.schema, index, source, record.sourceName, record.sourceTranslations, context, metadataIdMap,
+                createDate, changeDate, groupId, isTemplate);
+        } catch (Exception e) {
+            throw new Exception("Failed to import metadata with uuid '" + uuid + "'. " + e.getLocalizedMessage(), e);
+        }
+
+        if (record.featureCatalog != null) {
+            // UUID is set as @uuid in root element
+            uuid = UUID.randomUUID().toString();
+
+            Element featureCatalog = dm.setUUID("iso19110", uuid, record.featureCatalog);
+
+            //
+            // insert metadata
+            //
+            int userid = context.getUserSession().getUserIdAsInt();
+            String group = null, docType = null, title = null, category = null;
+            boolean ufo = false, indexImmediate = false;
+            String fcId = dm
+                .insertMetadata(context, "iso19110", featureCatalog, uuid, userid, group, source, isTemplate.codeString, docType,
+                    category, createDate, changeDate, ufo, indexImmediate);
+
+            if (Log.isDebugEnabled(Geonet.MEF))
+                Log.debug(Geonet.MEF, "Adding Feature catalog with uuid: " + uuid);
+
+            // Create database relation between metadata and feature
+            // catalog
+            String mdId = metadataIdMap.get(index);
+
+            final MetadataRelationRepository relationRepository = context.getBean(MetadataRelationRepository.class);
+            final MetadataRelation relation = new MetadataRelation();
+            relation.setId(new MetadataRelationId(Integer.valueOf(mdId), Integer.valueOf(fcId)));
+
+            relationRepository.save(relation);
+
+            metadataIdMap.add(fcId);
+            // TODO : privileges not handled for feature catalog ...
+        }
+
+        final int iMetadataId = Integer.valueOf(metadataIdMap.get(index));
+
+        final String finalPopularity = popularity;
+        final String finalRating = rating;
+        final Element finalCategs = categs;
+        final String finalGroupId = groupId;
+        context.getBean(IMetadataManager.class).update(iMetadataId, new Updater<Metadata>() {
+            @Override public void apply(@Nonnull final Metadata metadata) {
+                final MetadataDataInfo dataInfo = metadata.getDataInfo();
+                if (finalPopularity != null) {
+                    dataInfo.setPopularity(Integer.valueOf(finalPopularity));
+                }
+                if (finalRating != null) {
+                    dataInfo.setRating(Integer.valueOf(finalRating));
+                }
+                dataInfo.setType(isTemplate);
+
+                metadata.getHarvestInfo().setHarvested(false);
+
+                addCategoriesToMetadata(metadata, finalCategs, context);
+
+                if (finalGroupId == null || finalGroupId.equals("")) {
+                    Group ownerGroup = addPrivileges(context, dm, iMetadataId, privileges);
+                    if (ownerGroup != null) {
+                        metadata.getSourceInfo().setGroupOwner(ownerGroup.getId());
+                    }
+                } else {
+                    final OperationAllowedRepository allowedRepository = context.getBean(OperationAllowedRepository.class);
+                    final Set<OperationAllowed> allowedSet = addOperations(context, dm, privileges, iMetadataId,
+                        Integer.valueOf(finalGroupId));
+                    allowedRepository.save(allowedSet);
+                }
+
+            }
+        });
     }
 
     public static void addCategoriesToMetadata(AbstractMetadata metadata, Element finalCategs, ServiceContext context) {
@@ -558,7 +609,7 @@ public class Importer {
 
     // --------------------------------------------------------------------------
 
-    private static void saveFile(ServiceContext context, String id, MetadataResourceVisibility access, String file, String changeDate,
+    static void saveFile(ServiceContext context, String id, MetadataResourceVisibility access, String file, String changeDate,
         InputStream is) throws Exception {
         final Store store = context.getBean("resourceStore", Store.class);
         final IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
@@ -643,6 +694,32 @@ public class Importer {
         return toAdd;
     }
 
+    /**
+     * A record read from an archive, ready to be inserted.
+     */
+    static final class ImportedRecord {
+        private Element metadata;
+        private String schema;
+        private Element featureCatalog;
+        private String uuid;
+        private String createDate;
+        private String changeDate;
+        private String sourceName;
+        private Map<String, String> sourceTranslations;
+        private String rating;
+        private String popularity;
+        private Element categories;
+        private Element privileges;
+
+        Element getMetadata() {
+            return metadata;
+        }
+
+        String getUuid() {
+            return uuid;
+        }
+    }
+
 }
 
 // =============================================================================
@@ -31,12 +31,24 @@ import static org.fao.geonet.kernel.mef.MEFConstants.FILE_METADATA;
 import static org.fao.geonet.kernel.mef.MEFConstants.MD_DIR;
 import static org.fao.geonet.kernel.mef.MEFConstants.SCHEMA;
 
-import java.nio.file.FileSystem;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
@@ -48,9 +60,7 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.fao.geonet.Constants;
 import org.fao.geonet.GeonetContext;
-import org.fao.geonet.ZipUtil;
 import org.fao.geonet.api.records.attachments.Store;
-import org.fao.geonet.api.records.attachments.StoreUtils;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.MetadataRelation;
@@ -70,13 +80,32 @@ import org.fao.geonet.kernel.search.SearchManager;
 import org.fao.geonet.lib.Lib;
 import org.fao.geonet.repository.MetadataRelationRepository;
 import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.util.WorkerPools;
 import org.fao.geonet.utils.Log;
-import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
+import org.jdom.output.XMLOutputter;
+import org.springframework.transaction.TransactionStatus;
 
 import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import jeeves.transaction.TransactionTask;
 
 class MEF2Exporter {
+    /**
+     * Number of threads preparing the records of a streamed export, 1 prepares them in the thread
+     * writing the archive.
+     */
+    private static final int THREADS = Integer.getInteger("geonetwork.mef.export.threads",
+        Runtime.getRuntime().availableProcessors());
+    /**
+     * Maximum number of records prepared ahead of the one being written. This bounds the memory
+     * and the open attachments held by an export.
+     */
+    private static final int MAX_PENDING_RECORDS = Integer.getInteger("geonetwork.mef.export.pendingRecords",
+        THREADS * 2);
+
+    private static final String CSV_HEADER = "\"schema\";\"uuid\";\"id\";\"type\";\"isHarvested\";\"title\";\"abstract\"\n";
+
     /**
      * Create a MEF2 file in ZIP format.
      *
@@ -103,14 +132,94 @@ class MEF2Exporter {
                                 boolean approved) throws Exception {
 
         Path file = Files.createTempFile("mef-", ".mef");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            doExport(context, uuids, format, skipUUID, stylePath, resolveXlink, removeXlinkAttribute, skipError,
+                addSchemaLocation, approved, out);
+        } catch (Exception | Error e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Write a MEF2 file in ZIP format to a stream. The entries of each record are written as soon
+     * as the record is ready, so the archive is never held on disk. The records are formatted and
+     * their attachments opened on a bounded pool, ahead of the record being written, and are
+     * written in the order of {@code uuids}. The index files are written last.
+     *
+     * The stream is not closed.
+     *
+     * @param uuids  List of records to export.
+     * @param format {@link Format} to export.
+     * @param out    the stream receiving the archive.
+     */
+    public static void doExport(final ServiceContext context, Set<String> uuids,
+                                final Format format, final boolean skipUUID, Path stylePath, final boolean resolveXlink,
+                                final boolean removeXlinkAttribute, boolean skipError, final boolean addSchemaLocation,
+                                final boolean approved, OutputStream out) throws Exception {
         SearchManager searchManager = context.getBean(SearchManager.class);
-        String contextLang = context.getLanguage() == null ? Geonet.DEFAULT_LANGUAGE : context.getLanguage();
-        try (
-            FileSystem zipFs = ZipUtil.createZipFs(file);
-            IndexAndTaxonomy indexReaderAndTaxonomy = searchManager.getNewIndexReader(contextLang);
-        ) {
-            StringBuilder csvBuilder = new StringBuilder("\"schema\";\"uuid\";\"id\";\"type\";\"isHarvested\";\"title\";\"abstract\"\n");
-            Element html = new Element("html").addContent(new Element("head").addContent(Arrays.asList(
+        final String contextLang = context.getLanguage() == null ? Geonet.DEFAULT_LANGUAGE : context.getLanguage();
+        try (IndexAndTaxonomy indexReaderAndTaxonomy = searchManager.getNewIndexReader(contextLang)) {
+            final IndexSearcher searcher = new IndexSearcher(indexReaderAndTaxonomy.indexReader);
+            ZipOutputStream zos = new ZipOutputStream(out, CHARSET);
+            StringBuilder csvBuilder = new StringBuilder(CSV_HEADER);
+            Element html = createIndexHtml();
+            Element body = html.getChild("body");
+
+            Deque<Future<ExportedRecord>> pending = new ArrayDeque<>();
+            try {
+                for (final String uuid : uuids) {
+                    if (pending.size() >= MAX_PENDING_RECORDS) {
+                        write(zos, pending.poll().get(), skipError, csvBuilder, body);
+                    }
+                    Callable<ExportedRecord> task = new Callable<ExportedRecord>() {
+                        @Override
+                        public ExportedRecord call() {
+                            return prepareRecord(context, searcher, contextLang, uuid, format, skipUUID,
+                                resolveXlink, removeXlinkAttribute, addSchemaLocation, approved);
+                        }
+                    };
+                    if (THREADS <= 1) {
+                        FutureTask<ExportedRecord> future = new FutureTask<>(task);
+                        future.run();
+                        pending.add(future);
+                    } else {
+                        pending.add(context.getBean(WorkerPools.class).getPool("mef-export", THREADS).submit(task));
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    write(zos, pending.poll().get(), skipError, csvBuilder, body);
+                }
+            } finally {
+                // The records still pending use the index reader and may hold attachments
+                for (Future<ExportedRecord> future : pending) {
+                    try {
+                        future.get().close();
+                    } catch (Exception e) {
+                        Log.debug(Geonet.MEF, "Error releasing a record not exported: " + e.getMessage());
+                    }
+                }
+            }
+
+            zos.putNextEntry(new ZipEntry("index.csv"));
+            Writer writer = new OutputStreamWriter(zos, CHARSET);
+            writer.append(csvBuilder);
+            writer.flush();
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry("index.html"));
+            new XMLOutputter(org.jdom.output.Format.getPrettyFormat()).output(html, writer);
+            writer.flush();
+            zos.closeEntry();
+
+            zos.finish();
+        }
+    }
+
+    private static Element createIndexHtml() {
+        return new Element("html").addContent(Arrays.asList(
+            new Element("head").addContent(Arrays.asList(
                 new Element("title").setText("Export Index"),
                 new Element("link").setAttribute("rel", "stylesheet").
                     setAttribute("href", "https://maxcdn.bootstrapcdn.com/bootstrap/3.3.4/css/bootstrap.min.css"),
@@ -131,104 +240,162 @@ class MEF2Exporter {
                     + ".entry:hover {\n"
                     + "  background-color: #f5f5f5;\n"
                     + "}\n")
-            )));
-            Element body = new Element("body");
-            html.addContent(body);
-            for (Object uuid1 : uuids) {
-                String uuid = (String) uuid1;
-                final String cleanUUID = cleanForCsv(uuid);
-                try {
-                    IndexSearcher searcher = new IndexSearcher(indexReaderAndTaxonomy.indexReader);
-                    BooleanQuery query = new BooleanQuery();
-
-                    AbstractMetadata md = context.getBean(IMetadataUtils.class).findOneByUuid(uuid);
-
-                    //Here we just care if we need the approved version explicitly.
-                    //IMetadataUtils already filtered draft for non editors.
-
-                    if(approved) {
-                    	md = context.getBean(MetadataRepository.class).findOneByUuid(uuid);
-                    }
-                    String id = String.valueOf(md.getId());
-
-                    query.add(new BooleanClause(new TermQuery(new Term(LuceneIndexField.ID, id)), BooleanClause.Occur.MUST));
-                    query.add(new BooleanClause(new TermQuery(new Term(LOCALE, contextLang)), BooleanClause.Occur.SHOULD));
-                    TopDocs topDocs = searcher.search(query, NoFilterFilter.instance(), 5);
-                    String mdSchema = null, mdTitle = null, mdAbstract = null, isHarvested = null;
-                    MetadataType mdType = null;
-
-                    for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                        Document doc = searcher.doc(scoreDoc.doc);
-                        String locale = doc.get(Geonet.IndexFieldNames.LOCALE);
-                        if (mdSchema == null) {
-                            mdSchema = doc.get(Geonet.IndexFieldNames.SCHEMA);
-                        }
-                        if (mdTitle == null || contextLang.equals(locale)) {
-                            mdTitle = doc.get(LuceneIndexField.TITLE);
-                        }
-                        if (mdAbstract == null || contextLang.equals(locale)) {
-                            mdAbstract = doc.get(LuceneIndexField.ABSTRACT);
-                        }
-                        if (isHarvested == null) {
-                            isHarvested = doc.get(Geonet.IndexFieldNames.IS_HARVESTED);
-                        }
-                        if (mdType == null) {
-                            String tmp = doc.get(LuceneIndexField.IS_TEMPLATE);
-                            mdType = MetadataType.lookup(tmp.charAt(0));
-                        }
+            )),
+            new Element("body")));
+    }
 
-                    }
+    /**
+     * Write the entries of a record and add it to the index, in the thread writing the archive.
+     */
+    private static void write(ZipOutputStream zos, ExportedRecord record, boolean skipError,
+                              StringBuilder csvBuilder, Element body) throws IOException {
+        try {
+            if (record.error != null) {
+                if (skipError) {
+                    Log.error(Geonet.MEF, "Error exporting metadata to MEF file: " + record.uuid, record.error);
+                    return;
+                }
+                if (record.error instanceof RuntimeException) {
+                    throw (RuntimeException) record.error;
+                }
+                throw new RuntimeException(record.error);
+            }
+            for (ExportedEntry entry : record.entries) {
+                zos.putNextEntry(new ZipEntry(entry.name));
+                if (entry.data != null) {
+                    zos.write(entry.data);
+                } else if (entry.resource != null) {
+                    Files.copy(entry.resource.getPath(), zos);
+                }
+                zos.closeEntry();
+            }
+            csvBuilder.append(record.csvLine);
+            body.addContent(record.htmlEntry);
+        } finally {
+            record.close();
+        }
+    }
 
-                    if (mdType == null) {
-                        mdType = MetadataType.METADATA;
-                    }
-					csvBuilder.append('"').append(cleanForCsv(mdSchema)).append("\";\"").
-                        append(cleanUUID).append("\";\"").
-                        append(cleanForCsv(id)).append("\";\"").
-                        append(mdType.toString()).append("\";\"").
-                        append(cleanForCsv(isHarvested)).append("\";\"").
-                        append(cleanForCsv(mdTitle)).append("\";\"").
-                        append(cleanForCsv(mdAbstract)).append("\"\n");
-
-                    body.addContent(new Element("div").setAttribute("class", "entry").addContent(Arrays.asList(
-                        new Element("h4").setAttribute("class", "title").addContent(
-                            new Element("a").setAttribute("href", uuid).setText(cleanXml(mdTitle))),
-                        new Element("p").setAttribute("class", "abstract").setText(cleanXml(mdAbstract)),
-                        new Element("table").setAttribute("class", "table").addContent(Arrays.asList(
-                            new Element("thead").addContent(
-                                new Element("tr").addContent(Arrays.asList(
-                                    new Element("th").setText("ID"),
-                                    new Element("th").setText("UUID"),
-                                    new Element("th").setText("Type"),
-                                    new Element("th").setText("isHarvested")
-                                ))),
-                            new Element("tbody").addContent(
-                                new Element("tr").addContent(Arrays.asList(
-                                    new Element("td").setAttribute("class", "id").setText(id),
-                                    new Element("td").setAttribute("class", "uuid").setText(xmlContentEscaper().escape
-                                        (uuid)),
-                                    new Element("td").setAttribute("class", "type").setText(mdType.toString()),
-                                    new Element("td").setAttribute("class", "isHarvested").setText(isHarvested)
-                                )))
-                        ))
-                    )));
-                    createMetadataFolder(context, md, zipFs, skipUUID, stylePath,
-                    format, resolveXlink, removeXlinkAttribute, addSchemaLocation);                } catch (Throwable t) {
-                    if (skipError) {
-                        Log.error(Geonet.MEF, "Error exporting metadata to MEF file: " + uuid1, t);
-                    } else {
-                        if (t instanceof RuntimeException) {
-                            throw (RuntimeException) t;
+    /**
+     * Load, format and read the attachments of a record, in a pool thread. Errors are kept in the
+     * record to be reported in the thread writing the archive.
+     */
+    private static ExportedRecord prepareRecord(final ServiceContext context, final IndexSearcher searcher,
+                                                final String contextLang, final String uuid, final Format format,
+                                                final boolean skipUUID, final boolean resolveXlink,
+                                                final boolean removeXlinkAttribute, final boolean addSchemaLocation,
+                                                final boolean approved) {
+        ServiceContext previousContext = ServiceContext.get();
+        context.setAsThreadLocal();
+        final ExportedRecord record = new ExportedRecord(uuid);
+        try {
+            TransactionManager.runInTransaction("MEF2Exporter.prepareRecord", context.getApplicationContext(),
+                TransactionManager.TransactionRequirement.CREATE_ONLY_WHEN_NEEDED,
+                TransactionManager.CommitBehavior.ONLY_COMMIT_NEWLY_CREATED_TRANSACTIONS, false,
+                new TransactionTask<Void>() {
+                    @Override
+                    public Void doInTransaction(TransactionStatus transaction) {
+                        try {
+                            prepareRecord(context, searcher, contextLang, record, format, skipUUID, resolveXlink,
+                                removeXlinkAttribute, addSchemaLocation, approved);
+                        } catch (Throwable t) {
+                            record.error = t;
                         }
-                        throw new RuntimeException(t);
+                        return null;
                     }
-                }
+                });
+        } catch (Throwable t) {
+            record.error = t;
+        } finally {
+            ServiceContext.restoreThreadLocal(previousContext);
+        }
+        if (record.error != null) {
+            record.close();
+        }
+        return record;
+    }
+
+    private static void prepareRecord(ServiceContext context, IndexSearcher searcher, String contextLang,
+                                      ExportedRecord record, Format format, boolean skipUUID, boolean resolveXlink,
+                                      boolean removeXlinkAttribute, boolean addSchemaLocation,
+                                      boolean approved) throws Exception {
+        String uuid = record.uuid;
+        final String cleanUUID = cleanForCsv(uuid);
+        BooleanQuery query = new BooleanQuery();
+
+        AbstractMetadata md = context.getBean(IMetadataUtils.class).findOneByUuid(uuid);
+
+        //Here we just care if we need the approved version explicitly.
+        //IMetadataUtils already filtered draft for non editors.
 
+        if(approved) {
+        	md = context.getBean(MetadataRepository.class).findOneByUuid(uuid);
+        }
+        String id = String.valueOf(md.getId());
+
+        query.add(new BooleanClause(new TermQuery(new Term(LuceneIndexField.ID, id)), BooleanClause.Occur.MUST));
+        query.add(new BooleanClause(new TermQuery(new Term(LOCALE, contextLang)), BooleanClause.Occur.SHOULD));
+        TopDocs topDocs = searcher.search(query, NoFilterFilter.instance(), 5);
+        String mdSchema = null, mdTitle = null, mdAbstract = null, isHarvested = null;
+        MetadataType mdType = null;
+
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            Document doc = searcher.doc(scoreDoc.doc);
+            String locale = doc.get(Geonet.IndexFieldNames.LOCALE);
+            if (mdSchema == null) {
+                mdSchema = doc.get(Geonet.IndexFieldNames.SCHEMA);
+            }
+            if (mdTitle == null || contextLang.equals(locale)) {
+                mdTitle = doc.get(LuceneIndexField.TITLE);
+            }
+            if (mdAbstract == null || contextLang.equals(locale)) {
+                mdAbstract = doc.get(LuceneIndexField.ABSTRACT);
             }
-            Files.write(zipFs.getPath("/index.csv"), csvBuilder.toString().getBytes(Constants.CHARSET));
-            Files.write(zipFs.getPath("/index.html"), Xml.getString(html).getBytes(Constants.CHARSET));
+            if (isHarvested == null) {
+                isHarvested = doc.get(Geonet.IndexFieldNames.IS_HARVESTED);
+            }
+            if (mdType == null) {
+                String tmp = doc.get(LuceneIndexField.IS_TEMPLATE);
+                mdType = MetadataType.lookup(tmp.charAt(0));
+            }
+
         }
-        return file;
+
+        if (mdType == null) {
+            mdType = MetadataType.METADATA;
+        }
+        record.csvLine = new StringBuilder().append('"').append(cleanForCsv(mdSchema)).append("\";\"").
+            append(cleanUUID).append("\";\"").
+            append(cleanForCsv(id)).append("\";\"").
+            append(mdType.toString()).append("\";\"").
+            append(cleanForCsv(isHarvested)).append("\";\"").
+            append(cleanForCsv(mdTitle)).append("\";\"").
+            append(cleanForCsv(mdAbstract)).append("\"\n").toString();
+
+        record.htmlEntry = new Element("div").setAttribute("class", "entry").addContent(Arrays.asList(
+            new Element("h4").setAttribute("class", "title").addContent(
+                new Element("a").setAttribute("href", uuid).setText(cleanXml(mdTitle))),
+            new Element("p").setAttribute("class", "abstract").setText(cleanXml(mdAbstract)),
+            new Element("table").setAttribute("class", "table").addContent(Arrays.asList(
+                new Element("thead").addContent(
+                    new Element("tr").addContent(Arrays.asList(
+                        new Element("th").setText("ID"),
+                        new Element("th").setText("UUID"),
+                        new Element("th").setText("Type"),
+                        new Element("th").setText("isHarvested")
+                    ))),
+                new Element("tbody").addContent(
+                    new Element("tr").addContent(Arrays.asList(
+                        new Element("td").setAttribute("class", "id").setText(id),
+                        new Element("td").setAttribute("class", "uuid").setText(xmlContentEscaper().escape
+                            (uuid)),
+                        new Element("td").setAttribute("class", "type").setText(mdType.toString()),
+                        new Element("td").setAttribute("class", "isHarvested").setText(isHarvested)
+                    )))
+            ))
+        ));
+        createMetadataFolder(context, md, record, skipUUID, format, resolveXlink, removeXlinkAttribute,
+            addSchemaLocation);
     }
 
     private static String cleanXml(String xmlTextContent) {
@@ -251,16 +418,16 @@ class MEF2Exporter {
      * files are included in MEF file. Export relevant information according to format parameter.
      *
      * @param metadata  Metadata record to export
-     * @param zipFs Zip file to add new record
+     * @param exported  Record receiving the entries of the folder
      */
     private static void createMetadataFolder(ServiceContext context,
-                                             AbstractMetadata metadata, FileSystem zipFs, boolean skipUUID,
-                                             Path stylePath, Format format, boolean resolveXlink,
+                                             AbstractMetadata metadata, ExportedRecord exported, boolean skipUUID,
+                                             Format format, boolean resolveXlink,
                                              boolean removeXlinkAttribute,
                                              boolean addSchemaLocation) throws Exception {
 
-        final Path metadataRootDir = zipFs.getPath(metadata.getUuid());
-        Files.createDirectories(metadataRootDir);
+        final String metadataRootDir = metadata.getUuid() + "/";
+        exported.addDirectory(metadataRootDir);
 
         Pair<AbstractMetadata, String> recordAndMetadataForExport =
             MEFLib.retrieveMetadata(context, metadata, resolveXlink, removeXlinkAttribute, addSchemaLocation);
@@ -273,24 +440,24 @@ class MEF2Exporter {
         if (!"y".equals(isTemp) && !"n".equals(isTemp))
             throw new Exception("Cannot export sub template");
 
-        final Path metadataXmlDir = metadataRootDir.resolve(MD_DIR);
-        Files.createDirectories(metadataXmlDir);
+        final String metadataXmlDir = metadataRootDir + MD_DIR;
+        exported.addDirectory(metadataXmlDir);
 
         for (Pair<String, String> output : ExportFormat.getFormats(context, record)) {
-            Files.write(metadataXmlDir.resolve(output.one()), output.two().getBytes(CHARSET));
+            exported.addFile(metadataXmlDir + output.one(), output.two().getBytes(CHARSET));
         }
 
         // --- save native metadata
-        Files.write(metadataXmlDir.resolve(FILE_METADATA), xmlDocumentAsString.getBytes(CHARSET));
+        exported.addFile(metadataXmlDir + FILE_METADATA, xmlDocumentAsString.getBytes(CHARSET));
 
 
         // --- save Feature Catalog
         String ftUUID = getFeatureCatalogID(context, record.getId());
         if (!ftUUID.equals("")) {
             Pair<AbstractMetadata, String> ftrecordAndMetadata = MEFLib.retrieveMetadata(context, record, resolveXlink, removeXlinkAttribute, addSchemaLocation);
-            Path featureMdDir = metadataRootDir.resolve(SCHEMA);
-            Files.createDirectories(featureMdDir);
-            Files.write(featureMdDir.resolve(FILE_METADATA), ftrecordAndMetadata.two().getBytes(CHARSET));
+            String featureMdDir = metadataRootDir + SCHEMA;
+            exported.addDirectory(featureMdDir);
+            exported.addFile(featureMdDir + FILE_METADATA, ftrecordAndMetadata.two().getBytes(CHARSET));
         }
 
         final Store store = context.getBean("resourceStore", Store.class);
@@ -300,18 +467,21 @@ class MEF2Exporter {
         // --- save thumbnails and maps
 
         if (format == Format.PARTIAL || format == Format.FULL) {
-            StoreUtils.extract(context, metadata.getUuid(), publicResources, metadataRootDir.resolve("public"), true);
+            addResources(context, store, metadata.getUuid(), publicResources, metadataRootDir + "public/", exported);
         }
 
         List<MetadataResource> privateResources = null;
         if (format == Format.FULL) {
+            ExportedRecord privateEntries = new ExportedRecord(metadata.getUuid());
             try {
                 Lib.resource.checkPrivilege(context, id, ReservedOperation.download);
                 privateResources = store.getResources(context, metadata.getUuid(),
                     MetadataResourceVisibility.PRIVATE, null, true);
-                StoreUtils.extract(context, metadata.getUuid(), privateResources, metadataRootDir.resolve("private"), true);
+                addResources(context, store, metadata.getUuid(), privateResources, metadataRootDir + "private/", privateEntries);
+                exported.entries.addAll(privateEntries.entries);
             } catch (Exception e) {
                 // Current user could not download private data
+                privateEntries.close();
             }
         }
 
@@ -319,7 +489,21 @@ class MEF2Exporter {
         byte[] binData = MEFLib.buildInfoFile(context, record, format, publicResources,
             privateResources, skipUUID).getBytes(Constants.ENCODING);
 
-        Files.write(metadataRootDir.resolve(FILE_INFO), binData);
+        exported.addFile(metadataRootDir + FILE_INFO, binData);
+    }
+
+    /**
+     * Open the attachments of a record. Depending on the store this may download them, the
+     * holders are kept open until the entries are written.
+     */
+    private static void addResources(ServiceContext context, Store store, String metadataUuid,
+                                     List<MetadataResource> resources, String directory,
+                                     ExportedRecord exported) throws Exception {
+        exported.addDirectory(directory);
+        for (MetadataResource resource : resources) {
+            exported.addResource(directory + resource.getFilename(),
+                store.getResource(context, metadataUuid, resource.getVisibility(), resource.getFilename(), true));
+        }
     }
 
     /**
@@ -346,4 +530,64 @@ class MEF2Exporter {
 
         return ftUuid != null ? ftUuid : "";
     }
+
+    /**
+     * An entry of the archive: a directory, a file held in memory or an attachment.
+     */
+    private static final class ExportedEntry {
+        private final String name;
+        private final byte[] data;
+        private final Store.ResourceHolder resource;
+
+        private ExportedEntry(String name, byte[] data, Store.ResourceHolder resource) {
+            this.name = name;
+            this.data = data;
+            this.resource = resource;
+        }
+    }
+
+    /**
+     * A record ready to be written: its entries and its lines in the index files, or the error
+     * which prevented preparing it.
+     */
+    private static final class ExportedRecord implements Closeable {
+        private final String uuid;
+        private final List<ExportedEntry> entries = new ArrayList<>();
+        private String csvLine;
+        private Element htmlEntry;
+        private Throwable error;
+
+        private ExportedRecord(String uuid) {
+            this.uuid = uuid;
+        }
+
+        private void addDirectory(String name) {
+            entries.add(new ExportedEntry(name, null, null));
+        }
+
+        private void addFile(String name, byte[] data) {
+            entries.add(new ExportedEntry(name, data, null));
+        }
+
+        private void addResource(String name, Store.ResourceHolder resource) {
+            entries.add(new ExportedEntry(name, null, resource));
+        }
+
+        /**
+         * Release the attachments.
+         */
+        @Override
+        public void close() {
+            for (ExportedEntry entry : entries) {
+                if (entry.resource != null) {
+                    try {
+                        entry.resource.close();
+                    } catch (IOException e) {
+                        Log.warning(Geonet.MEF, "Error releasing attachment " + entry.name + ": " + e.getMessage());
+                    }
+                }
+            }
+            entries.clear();
+        }
+    }
 }
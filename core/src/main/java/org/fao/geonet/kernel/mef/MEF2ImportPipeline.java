@@ -0,0 +1,409 @@
+//=============================================================================
+//===	Copyright (C) 2001-2007 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.mef;
+
+import static org.fao.geonet.kernel.mef.MEFConstants.FILE_INFO;
+
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.fao.geonet.ZipUtil;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.MetadataResourceVisibility;
+import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.exceptions.BadFormatEx;
+import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.datamanager.IMetadataManager;
+import org.fao.geonet.util.WorkerPools;
+import org.fao.geonet.utils.IO;
+import org.fao.geonet.utils.Log;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.springframework.transaction.TransactionStatus;
+
+import jeeves.server.ServiceConfig;
+import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import jeeves.transaction.TransactionTask;
+
+/**
+ * Import of a MEF2 archive in stages. The records are read, parsed, transformed and validated on
+ * a pool of threads. They are inserted in the calling thread by batches, each batch in its own
+ * transaction. A record replacing an existing one is inserted on its own instead, see {@link
+ * #insertBatch(List, MEFImportReport)}. All of them are indexed in bulk once inserted, before the
+ * import returns. A record which cannot be imported is added to the {@link MEFImportReport} and
+ * does not stop the import of the others.
+ *
+ * The pool has {@code geonetwork.mef.import.threads} threads (the number of processors by
+ * default), a value of 1 reads the records in the calling thread. Batches hold
+ * {@code geonetwork.mef.import.batchSize} records (100 by default).
+ */
+final class MEF2ImportPipeline {
+    private static final int THREADS = Integer.getInteger("geonetwork.mef.import.threads",
+        Runtime.getRuntime().availableProcessors());
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("geonetwork.mef.import.batchSize", 100));
+
+    private final MEFLib.UuidAction uuidAction;
+    private final String style;
+    private final String source;
+    private final MetadataType isTemplate;
+    private final String[] category;
+    private final String groupId;
+    private final boolean validate;
+    private final boolean assign;
+    private final ServiceContext context;
+    private final DataManager dm;
+    private final MEF2Visitor visitor = new MEF2Visitor();
+
+    MEF2ImportPipeline(MEFLib.UuidAction uuidAction, String style, String source, MetadataType isTemplate,
+                       String[] category, String groupId, boolean validate, boolean assign, ServiceContext context) {
+        this.uuidAction = uuidAction;
+        this.style = style;
+        this.source = source;
+        this.isTemplate = isTemplate;
+        this.category = category;
+        this.groupId = groupId;
+        this.validate = validate;
+        this.assign = assign;
+        this.context = context;
+        this.dm = context.getBean(DataManager.class);
+    }
+
+    MEFImportReport run(Path mefFile) throws Exception {
+        final String preferredSchema = context.getBean(ServiceConfig.class).getValue("preferredSchema", "iso19139");
+        MEFImportReport report = new MEFImportReport();
+
+        try (FileSystem zipFs = ZipUtil.openZipFs(mefFile)) {
+            Path root = zipFs.getRootDirectories().iterator().next();
+            List<Path> recordDirs = new ArrayList<>();
+            try (DirectoryStream<Path> paths = Files.newDirectoryStream(root)) {
+                for (Path file : paths) {
+                    if (Files.isDirectory(file)) {
+                        recordDirs.add(file);
+                    }
+                }
+            }
+
+            // Records are read ahead while a batch is inserted
+            int maxPending = BATCH_SIZE + THREADS * 2;
+            Deque<Future<ParsedRecord>> pending = new ArrayDeque<>();
+            List<ParsedRecord> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                for (final Path recordDir : recordDirs) {
+                    if (pending.size() >= maxPending) {
+                        batch.add(pending.poll().get());
+                        if (batch.size() >= BATCH_SIZE) {
+                            insertBatch(batch, report);
+                            batch.clear();
+                        }
+                    }
+                    Callable<ParsedRecord> task = new Callable<ParsedRecord>() {
+                        @Override
+                        public ParsedRecord call() {
+                            return read(recordDir, preferredSchema);
+                        }
+                    };
+                    if (THREADS <= 1) {
+                        FutureTask<ParsedRecord> future = new FutureTask<>(task);
+                        future.run();
+                        pending.add(future);
+                    } else {
+                        pending.add(context.getBean(WorkerPools.class).getPool("mef-import", THREADS).submit(task));
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    batch.add(pending.poll().get());
+                    if (batch.size() >= BATCH_SIZE) {
+                        insertBatch(batch, report);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    insertBatch(batch, report);
+                }
+            } finally {
+                // The records still pending read the archive, which is closed next
+                for (Future<ParsedRecord> future : pending) {
+                    try {
+                        future.get();
+                    } catch (Exception e) {
+                        Log.debug(Geonet.MEF, "Error reading a record not imported: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        if (!report.getMetadataIds().isEmpty()) {
+            dm.indexMetadata(new ArrayList<>(report.getMetadataIds()));
+        }
+        Log.info(Geonet.MEF, String.format("Imported %d records from MEF file %s, %d errors.",
+            report.getProcessedRecords() - report.getErrors().size(), mefFile.getFileName(), report.getErrors().size()));
+        return report;
+    }
+
+    /**
+     * Read, transform and validate a record, in a pool thread. Errors are kept in the record to be
+     * reported by the calling thread.
+     */
+    private ParsedRecord read(final Path recordDir, final String preferredSchema) {
+        ServiceContext previousContext = ServiceContext.get();
+        context.setAsThreadLocal();
+        final ParsedRecord parsed = new ParsedRecord(recordDir);
+        try {
+            TransactionManager.runInTransaction("MEF2ImportPipeline.read", context.getApplicationContext(),
+                TransactionManager.TransactionRequirement.CREATE_ONLY_WHEN_NEEDED,
+                TransactionManager.CommitBehavior.ONLY_COMMIT_NEWLY_CREATED_TRANSACTIONS, false,
+                new TransactionTask<Void>() {
+                    @Override
+                    public Void doInTransaction(TransactionStatus transaction) {
+                        try {
+                            read(parsed, preferredSchema);
+                        } catch (Exception e) {
+                            parsed.error = e;
+                        }
+                        return null;
+                    }
+                });
+        } catch (RuntimeException e) {
+            parsed.error = e;
+        } finally {
+            ServiceContext.restoreThreadLocal(previousContext);
+        }
+        return parsed;
+    }
+
+    private void read(ParsedRecord parsed, String preferredSchema) throws Exception {
+        Path metadataDir = parsed.dir.resolve("metadata");
+        if (IO.isEmptyDir(metadataDir)) {
+            throw new BadFormatEx("Missing XML document in metadata folder " + metadataDir + ".");
+        }
+
+        Path fcFile = visitor.getFeatureCalalogFile(parsed.dir);
+        Element featureCatalog = fcFile != null ? Xml.loadFile(fcFile) : null;
+
+        Path fileInfo = parsed.dir.resolve(FILE_INFO);
+        parsed.info = Files.exists(fileInfo) ? Xml.loadFile(fileInfo) : new Element("info");
+
+        Element metadata;
+        try (DirectoryStream<Path> xmlFiles = Files.newDirectoryStream(metadataDir)) {
+            metadata = Importer.selectMetadataFile(dm, xmlFiles, parsed.info, preferredSchema);
+        }
+        parsed.record = Importer.prepareRecord(metadata, featureCatalog, parsed.info, style, isTemplate, category,
+            groupId, validate, assign, source, context);
+    }
+
+    /**
+     * Insert a batch of records in one transaction. If one of them fails, the batch is rolled back
+     * and its records are inserted one by one, so that only the failing records are lost. The
+     * attachments are saved once the records are committed.
+     *
+     * Replacing a record deletes its index document and its attachments, which a rollback does not
+     * restore. The records replacing existing ones are thus inserted one by one, outside of the
+     * batch, so that the failure of another record does not roll back their replacement.
+     */
+    private void insertBatch(List<ParsedRecord> batch, MEFImportReport report) {
+        List<ParsedRecord> valid = new ArrayList<>(batch.size());
+        List<ParsedRecord> toInsert = new ArrayList<>(batch.size());
+        List<ParsedRecord> replacing = new ArrayList<>();
+        Set<String> batchUuids = new HashSet<>();
+        for (ParsedRecord parsed : batch) {
+            report.incrementProcessedRecords();
+            if (parsed.error != null) {
+                addError(report, parsed, parsed.error);
+                continue;
+            }
+            valid.add(parsed);
+            if (isReplacing(parsed, batchUuids)) {
+                replacing.add(parsed);
+            } else {
+                toInsert.add(parsed);
+            }
+        }
+
+        if (!toInsert.isEmpty() && !insert(toInsert) && toInsert.size() > 1) {
+            for (ParsedRecord parsed : toInsert) {
+                insert(Collections.singletonList(parsed));
+            }
+        }
+        for (ParsedRecord parsed : replacing) {
+            insert(Collections.singletonList(parsed));
+        }
+
+        for (ParsedRecord parsed : valid) {
+            if (parsed.error != null) {
+                addError(report, parsed, parsed.error);
+                continue;
+            }
+            report.addMetadataIds(parsed.ids);
+            try {
+                saveAttachments(parsed);
+            } catch (Exception e) {
+                addError(report, parsed, e);
+            }
+        }
+    }
+
+    /**
+     * @param batchUuids the uuids of the records of the batch already checked, the record uuid is
+     *                   added.
+     * @return true if the record will replace a record of the catalog or of the batch.
+     */
+    private boolean isReplacing(ParsedRecord parsed, Set<String> batchUuids) {
+        String uuid = parsed.record.getUuid();
+        if (uuidAction != MEFLib.UuidAction.OVERWRITE || uuid == null || uuid.isEmpty()) {
+            return false;
+        }
+        if (!batchUuids.add(uuid)) {
+            return true;
+        }
+        try {
+            return dm.existsMetadataUuid(uuid);
+        } catch (Exception e) {
+            // on its own, the insertion reports the error without failing the batch
+            return true;
+        }
+    }
+
+    /**
+     * @return false if one of the records failed and the transaction was rolled back.
+     */
+    private boolean insert(final List<ParsedRecord> records) {
+        try {
+            return TransactionManager.runInTransaction("MEF2ImportPipeline.insert", context.getApplicationContext(),
+                TransactionManager.TransactionRequirement.CREATE_NEW,
+                TransactionManager.CommitBehavior.ALWAYS_COMMIT, false,
+                new TransactionTask<Boolean>() {
+                    @Override
+                    public Boolean doInTransaction(TransactionStatus transaction) {
+                        for (ParsedRecord parsed : records) {
+                            parsed.ids = null;
+                            parsed.error = null;
+                        }
+                        for (ParsedRecord parsed : records) {
+                            try {
+                                List<Element> md = new ArrayList<>(Collections.singletonList(parsed.record.getMetadata()));
+                                List<String> ids = new ArrayList<>();
+                                Importer.insertRecord(parsed.record, md, 0, ids, uuidAction, source, isTemplate,
+                                    groupId, context);
+                                parsed.ids = ids;
+                            } catch (Exception e) {
+                                parsed.error = e;
+                                transaction.setRollbackOnly();
+                                return false;
+                            }
+                        }
+                        try {
+                            // Constraint violations would otherwise only be raised by the commit
+                            context.getBean(IMetadataManager.class).flush();
+                        } catch (RuntimeException e) {
+                            for (ParsedRecord parsed : records) {
+                                parsed.error = e;
+                            }
+                            transaction.setRollbackOnly();
+                            return false;
+                        }
+                        return true;
+                    }
+                });
+        } catch (RuntimeException e) {
+            for (ParsedRecord parsed : records) {
+                parsed.error = e;
+            }
+            return false;
+        }
+    }
+
+    private void saveAttachments(ParsedRecord parsed) throws Exception {
+        final String metadataId = parsed.ids.get(0);
+        visitor.handleBin(parsed.dir, new IMEFVisitor() {
+            @Override
+            public void handleMetadata(Element md, int index) {
+            }
+
+            @Override
+            public void handleMetadataFiles(DirectoryStream<Path> files, Element info, int index) {
+            }
+
+            @Override
+            public void handleInfo(Element info, int index) {
+            }
+
+            @Override
+            public void handleFeatureCat(Element md, int index) {
+            }
+
+            @Override
+            public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+                Importer.saveFile(context, metadataId, MetadataResourceVisibility.PUBLIC, file, changeDate, is);
+            }
+
+            @Override
+            public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
+                Importer.saveFile(context, metadataId, MetadataResourceVisibility.PRIVATE, file, changeDate, is);
+            }
+        }, parsed.info, 0);
+    }
+
+    private static void addError(MEFImportReport report, ParsedRecord parsed, Exception error) {
+        String name = parsed.getName();
+        if (parsed.record != null && parsed.record.getUuid() != null && !name.equals(parsed.record.getUuid())) {
+            name += " (" + parsed.record.getUuid() + ")";
+        }
+        Log.error(Geonet.MEF, "Error importing record " + name + " from MEF file: " + error.getMessage(), error);
+        report.addError(name, error);
+    }
+
+    /**
+     * A record folder of the archive and the outcome of its import.
+     */
+    private static final class ParsedRecord {
+        private final Path dir;
+        private Element info;
+        private Importer.ImportedRecord record;
+        private List<String> ids;
+        private Exception error;
+
+        private ParsedRecord(Path dir) {
+            this.dir = dir;
+        }
+
+        private String getName() {
+            String name = dir.getFileName().toString();
+            return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        }
+    }
+}
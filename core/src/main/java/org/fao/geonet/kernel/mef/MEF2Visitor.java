@@ -174,7 +174,7 @@ public class MEF2Visitor implements IVisitor {
      *
      * @return File
      */
-    private Path getFeatureCalalogFile(Path file) throws IOException {
+    Path getFeatureCalalogFile(Path file) throws IOException {
         Path tmp = null;
         Path fcRepo = file.resolve(MEFConstants.SCHEMA);
 
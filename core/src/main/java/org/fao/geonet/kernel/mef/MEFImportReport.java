@@ -0,0 +1,73 @@
+//=============================================================================
+//===	Copyright (C) 2001-2007 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.mef;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a pipelined MEF import: the ids of the records inserted and the errors of the
+ * records which could not be imported, keyed by the name of the record in the archive.
+ */
+public class MEFImportReport {
+    private final List<String> metadataIds = new ArrayList<>();
+    private final Map<String, Exception> errors = new LinkedHashMap<>();
+    private int processedRecords;
+
+    /**
+     * @return the ids of the records and feature catalogs inserted, in the order of the archive.
+     */
+    public List<String> getMetadataIds() {
+        return Collections.unmodifiableList(metadataIds);
+    }
+
+    /**
+     * @return the error of each record not imported, or whose attachments could not be saved.
+     */
+    public Map<String, Exception> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return the number of records of the archive processed.
+     */
+    public int getProcessedRecords() {
+        return processedRecords;
+    }
+
+    void addMetadataIds(List<String> ids) {
+        metadataIds.addAll(ids);
+    }
+
+    void addError(String record, Exception error) {
+        errors.put(record, error);
+    }
+
+    void incrementProcessedRecords() {
+        processedRecords++;
+    }
+}
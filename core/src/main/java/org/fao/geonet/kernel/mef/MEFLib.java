@@ -34,6 +34,7 @@ import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
@@ -115,6 +116,20 @@ public class MEFLib {
         return Importer.doImport(fileType, uuidAction, style, source, isTemplate, category, groupId, validate, assign, context, mefFile);
     }
 
+    /**
+     * Import the records of a MEF2 file, reading them in parallel and inserting them by batches.
+     * The records which cannot be imported are listed in the report instead of stopping the
+     * import. The records are indexed once all of them are inserted, they can be searched when
+     * this method returns.
+     */
+    public static MEFImportReport doMEF2Import(UuidAction uuidAction, String style, String source,
+                                               MetadataType isTemplate, String[] category, String groupId,
+                                               boolean validate, boolean assign, ServiceContext context,
+                                               Path mefFile) throws Exception {
+        return new MEF2ImportPipeline(uuidAction, style, source, isTemplate, category, groupId, validate, assign,
+            context).run(mefFile);
+    }
+
     public static List<String> doImport(Element params, ServiceContext context, Path mefFile, Path stylePath) throws Exception {
         return Importer.doImport(params, context, mefFile, stylePath);
     }
@@ -152,6 +167,18 @@ public class MEFLib {
 
     // --------------------------------------------------------------------------
 
+    public static void doMEF2Export(ServiceContext context,
+                                    Set<String> uuids, String format, boolean skipUUID, Path stylePath, boolean resolveXlink,
+                                    boolean removeXlinkAttribute, boolean skipError, boolean addSchemaLocation,
+                                    boolean approved, OutputStream out)
+        throws Exception {
+        MEF2Exporter.doExport(context, uuids, Format.parse(format),
+            skipUUID, stylePath, resolveXlink, removeXlinkAttribute,
+            skipError, addSchemaLocation, approved, out);
+    }
+
+    // --------------------------------------------------------------------------
+
     public static void visit(Path mefFile, IVisitor visitor, IMEFVisitor v)
         throws Exception {
         visitor.visit(mefFile, v);
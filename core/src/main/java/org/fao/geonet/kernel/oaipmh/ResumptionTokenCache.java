@@ -29,18 +29,30 @@ import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.utils.Log;
 import org.fao.oaipmh.responses.GeonetworkResumptionToken;
 
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ResumptionTokenCache extends Thread {
 
 
     public final static int CACHE_EXPUNGE_DELAY = 10 * 1000; // 10 seconds
+    /**
+     * Default maximum number of record ids held by all the cached tokens.
+     */
+    public final static long DEFAULT_CACHE_MAX_IDS = 5000000;
 
-    private Map<String, GeonetworkResumptionToken> map;
+    private final Map<String, CachedToken> map = new ConcurrentHashMap<>();
+    /**
+     * The number of record ids held by the cached tokens, guarded by this.
+     */
+    private long cachedIds;
+    /**
+     * Orders the accesses to the tokens, the least recently used token has the lowest value.
+     */
+    private final AtomicLong accessClock = new AtomicLong();
     private static Object stopper = new Object();
     private volatile boolean running = true;
     private SettingManager settingMan;
@@ -54,8 +66,6 @@ public class ResumptionTokenCache extends Thread {
         if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
             Log.debug(Geonet.OAI_HARVESTER, "OAI cache ::init timout:" + getTimeout());
 
-        map = Collections.synchronizedMap(new HashMap<String, GeonetworkResumptionToken>());
-
         this.setDaemon(true);
         this.setName("Cached Search Session Expiry Thread");
         this.start();
@@ -93,6 +103,14 @@ public class ResumptionTokenCache extends Thread {
         return settingMan.getValueAsInt("system/oai/cachesize");
     }
 
+    /**
+     * @return the maximum number of record ids held by all the cached tokens, set with the
+     * geonetwork.oai.tokenCache.maxIds system property.
+     */
+    public long getCacheMaxIds() {
+        return Long.getLong("geonetwork.oai.tokenCache.maxIds", DEFAULT_CACHE_MAX_IDS);
+    }
+
     public void run() {
         synchronized (stopper) {
             while (running && !isInterrupted()) {
@@ -113,53 +131,87 @@ public class ResumptionTokenCache extends Thread {
 
         Date now = getUTCTime();
 
-        for (Map.Entry entry : map.entrySet()) {
-            if (((GeonetworkResumptionToken) entry.getValue()).getExpirDate().toDate().getTime() / 1000 < (now.getTime() / 1000)) {
-                map.remove(entry.getKey());
+        for (Map.Entry<String, CachedToken> entry : map.entrySet()) {
+            if (entry.getValue().token.getExpirDate().toDate().getTime() / 1000 < (now.getTime() / 1000)) {
+                remove(entry.getKey());
                 if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
                     Log.debug(Geonet.OAI_HARVESTER, "OAI cache ::expunge removing:" + entry.getKey());
             }
         }
     }
 
-    // remove oldest token from cache
+    // remove least recently used token from cache
     private void removeLast() {
         if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
             Log.debug(Geonet.OAI_HARVESTER, "OAI cache ::removeLast");
 
 
         long oldest = Long.MAX_VALUE;
-        Object oldkey = "";
+        String oldkey = null;
 
-        for (Map.Entry entry : map.entrySet()) {
+        for (Map.Entry<String, CachedToken> entry : map.entrySet()) {
 
-            if (((GeonetworkResumptionToken) entry.getValue()).getExpirDate().getSeconds() < oldest) {
+            if (entry.getValue().lastAccess < oldest) {
                 oldkey = entry.getKey();
-                oldest = ((GeonetworkResumptionToken) entry.getValue()).getExpirDate().getSeconds();
+                oldest = entry.getValue().lastAccess;
             }
         }
 
-        map.remove(oldkey);
+        if (oldkey != null) {
+            remove(oldkey);
+        }
         if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
             Log.debug(Geonet.OAI_HARVESTER, "OAI cache ::removeLast removing:" + oldkey);
 
 
     }
 
-    public synchronized GeonetworkResumptionToken getResumptionToken(String str) {
-        return map.get(str);
+    /**
+     * @return the number of record ids held by the cached tokens.
+     */
+    synchronized long getCachedIds() {
+        return cachedIds;
+    }
+
+    /**
+     * @return the number of cached tokens.
+     */
+    int size() {
+        return map.size();
+    }
+
+    private void remove(String key) {
+        CachedToken removed = map.remove(key);
+        if (removed != null) {
+            cachedIds -= removed.idCount;
+        }
+    }
+
+    public GeonetworkResumptionToken getResumptionToken(String str) {
+        CachedToken cached = map.get(str);
+        if (cached == null) {
+            return null;
+        }
+        cached.lastAccess = accessClock.incrementAndGet();
+        return cached.token;
     }
 
     public synchronized void storeResumptionToken(GeonetworkResumptionToken resumptionToken) {
         if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
-            Log.debug(Geonet.OAI_HARVESTER, "OAI cache ::store " + resumptionToken.getKey() + " size: " + map.size());
-
-        if (map.size() == getCachemaxsize()) {
+            Log.debug(Geonet.OAI_HARVESTER, "OAI cache ::store " + resumptionToken.getKey() + " size: " + map.size()
+                + " ids: " + cachedIds);
+
+        CachedToken cached = new CachedToken(resumptionToken, accessClock.incrementAndGet());
+        // The previous copy of the token does not take room
+        remove(resumptionToken.getKey());
+        // Make room for the token, a token holding more ids than the limit is cached alone
+        while (!map.isEmpty() && (map.size() >= getCachemaxsize() || cachedIds + cached.idCount > getCacheMaxIds())) {
             removeLast();
         }
 
         resumptionToken.setExpirDate(new ISODate(getUTCTime().getTime() + getTimeout() * 1000, false));
-        map.put(resumptionToken.getKey(), resumptionToken);
+        map.put(resumptionToken.getKey(), cached);
+        cachedIds += cached.idCount;
     }
 
     public void stopRunning() {
@@ -174,4 +226,16 @@ public class ResumptionTokenCache extends Thread {
         }
     }
 
+    private static final class CachedToken {
+        private final GeonetworkResumptionToken token;
+        private final int idCount;
+        private volatile long lastAccess;
+
+        private CachedToken(GeonetworkResumptionToken token, long lastAccess) {
+            this.token = token;
+            this.lastAccess = lastAccess;
+            this.idCount = token.getRes() == null ? 0 : token.getRes().getIdCount();
+        }
+    }
+
 }
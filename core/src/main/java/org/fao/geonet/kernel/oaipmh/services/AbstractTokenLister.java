@@ -168,11 +168,11 @@ public abstract class AbstractTokenLister implements OaiPmhService {
                 if (schemas.size() == 0) result.setIds(new ArrayList<Integer>());
             }
 
-            if (result.getIds().size() == 0)
+            if (result.getIdCount() == 0)
                 throw new NoRecordsMatchException("No results");
 
             // we only need a new token if the result set is big enough
-            if (result.getIds().size() > getMaxRecords()) {
+            if (result.getIdCount() > getMaxRecords()) {
                 token = new GeonetworkResumptionToken(req, result);
                 cache.storeResumptionToken(token);
             }
@@ -66,8 +66,8 @@ public class ListIdentifiers extends AbstractTokenLister {
 
         int num = 0;
 
-        while (num < getMaxRecords() && pos < result.getIds().size()) {
-            int id = result.getIds().get(pos);
+        while (num < getMaxRecords() && pos < result.getIdCount()) {
+            int id = result.getId(pos);
 
             Header h = buildHeader(context, id, result.prefix);
 
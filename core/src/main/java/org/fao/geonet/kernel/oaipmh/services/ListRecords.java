@@ -68,8 +68,8 @@ public class ListRecords extends AbstractTokenLister {
 
         //--- loop to retrieve metadata
 
-        while (num < getMaxRecords() && pos < result.getIds().size()) {
-            int id = result.getIds().get(pos);
+        while (num < getMaxRecords() && pos < result.getIdCount()) {
+            int id = result.getId(pos);
 
             Record r = buildRecord(context, id, result.prefix);
 
@@ -196,6 +196,45 @@ public class KeywordsSearcher {
         }
     }
 
+    /**
+     * Find the keywords of a thesaurus having a label starting with the prefix, using the in-memory
+     * label index of the thesaurus instead of querying the RDF repository. Meant for
+     * autocompletion.
+     *
+     * @param sThesaurusName the key of the thesaurus
+     * @param prefix         the start of the labels, the case is ignored
+     * @param maxResults     the maximum number of keywords to find
+     * @param languages      the languages of the labels to look at and to load into the keywords,
+     *                       as 3 letter codes
+     */
+    public void searchByLabelPrefix(String sThesaurusName, String prefix, int maxResults, String... languages) throws Exception {
+        searchByLabelPrefix(sThesaurusName, prefix, maxResults, null, languages);
+    }
+
+    /**
+     * Same as {@link #searchByLabelPrefix(String, String, int, String...)}, the keywords found
+     * being sorted with the comparator if not null.
+     */
+    public void searchByLabelPrefix(String sThesaurusName, String prefix, int maxResults,
+                                    @Nullable Comparator<KeywordBean> comparator, String... languages) throws Exception {
+        _results.clear();
+        Thesaurus thesaurus = _thesaurusFinder.getThesaurusByName(sThesaurusName);
+        String[] twoLetterLanguages = new String[languages.length];
+        for (int i = 0; i < languages.length; i++) {
+            twoLetterLanguages[i] = _isoLanguageMapper.iso639_2_to_iso639_1(languages[i], languages[i]);
+        }
+        for (String uri : thesaurus.getLabelIndex().findByPrefix(prefix, maxResults, twoLetterLanguages)) {
+            try {
+                _results.add(thesaurus.getKeyword(uri, languages));
+            } catch (TermNotFoundException e) {
+                // the concept has been removed since the index was built
+            }
+        }
+        if (comparator != null) {
+            Collections.sort(_results, comparator);
+        }
+    }
+
     public void search(KeywordSearchParams params) throws Exception {
         this._results = params.search(_thesaurusFinder);
     }
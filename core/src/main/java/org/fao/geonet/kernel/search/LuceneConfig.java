@@ -92,6 +92,9 @@ public class LuceneConfig {
     private boolean trackMaxScore = false;
     private boolean docsScoredInOrder = false;
     private long commitInterval = 30 * 1000;
+    private long commitMaxDelay = 30 * 1000;
+    private int commitMaxDocuments = 1000;
+    private boolean nrtReopenWithoutCommit = false;
     private boolean useNRTManagerReopenThread = true;
     private double nrtManagerReopenThreadMaxStaleSec = 5;
     private double nrtManagerReopenThreadMinStaleSec = 0.1f;
@@ -191,6 +194,28 @@ public class LuceneConfig {
                         "Invalid long value for commitInterval. Using default value.");
                 }
             }
+            String cMD = elem.getChildText("commitMaxDelay");
+            if (cMD != null) {
+                try {
+                    commitMaxDelay = Long.parseLong(cMD);
+                } catch (NumberFormatException e) {
+                    Log.warning(Geonet.SEARCH_ENGINE,
+                        "Invalid long value for commitMaxDelay. Using default value.");
+                }
+            }
+            String cMDocs = elem.getChildText("commitMaxDocuments");
+            if (cMDocs != null) {
+                try {
+                    commitMaxDocuments = Integer.parseInt(cMDocs);
+                } catch (NumberFormatException e) {
+                    Log.warning(Geonet.SEARCH_ENGINE,
+                        "Invalid integer value for commitMaxDocuments. Using default value.");
+                }
+            }
+            String reopenWithoutCommit = elem.getChildText("nrtReopenWithoutCommit");
+            if (reopenWithoutCommit != null) {
+                nrtReopenWithoutCommit = Boolean.parseBoolean(reopenWithoutCommit);
+            }
             String reopenThread = elem.getChildText(USE_NRT_MANAGER_REOPEN_THREAD);
             if (reopenThread != null) {
                 try {
@@ -779,6 +804,30 @@ public class LuceneConfig {
         return this.commitInterval;
     }
 
+    /**
+     * Maximum time, in milliseconds, a document added or deleted waits before being committed.
+     */
+    public long commitMaxDelay() {
+        return this.commitMaxDelay;
+    }
+
+    /**
+     * Number of documents added or deleted which triggers a commit, 0 or less to commit on time
+     * only.
+     */
+    public int commitMaxDocuments() {
+        return this.commitMaxDocuments;
+    }
+
+    /**
+     * If true the searchers are reopened from the index writers without committing them first,
+     * the commits are done in the background according to {@link #commitMaxDelay()} and {@link
+     * #commitMaxDocuments()}.
+     */
+    public boolean nrtReopenWithoutCommit() {
+        return this.nrtReopenWithoutCommit;
+    }
+
     /**
      * How often to check if a commit is required
      */
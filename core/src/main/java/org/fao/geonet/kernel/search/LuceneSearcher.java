@@ -59,6 +59,7 @@ import org.apache.lucene.queryparser.flexible.standard.config.NumericConfig;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -91,7 +92,7 @@ import org.fao.geonet.domain.Source;
 import org.fao.geonet.domain.UserGroup;
 import org.fao.geonet.exceptions.UnAuthorizedException;
 import org.fao.geonet.kernel.AccessManager;
-import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.datamanager.IMetadataManager;
 import org.fao.geonet.kernel.region.Region;
 import org.fao.geonet.kernel.region.RegionsDAO;
 import org.fao.geonet.kernel.search.LuceneConfig.LuceneConfigNumericField;
@@ -147,6 +148,17 @@ import java.util.Set;
  */
 public class LuceneSearcher extends MetaSearcher implements MetadataRecordSelector {
     private static Logger LOGGER = LoggerFactory.getLogger(Geonet.SEARCH_ENGINE);
+    /**
+     * Number of hits collected at once when presenting a page, the hits after the page are kept in
+     * the window cache for the next pages.
+     */
+    private static final int WINDOW_SIZE = Integer.getInteger("geonetwork.search.windowSize", 100);
+    /**
+     * Maximum number of result windows cached, 0 to collect the hits of each page.
+     */
+    private static final int WINDOW_CACHE_SIZE = Integer.getInteger("geonetwork.search.windowCacheSize", 200);
+    private static final ResultWindowCache WINDOW_CACHE = WINDOW_CACHE_SIZE > 0
+        ? new ResultWindowCache(WINDOW_CACHE_SIZE) : null;
     private SearchManager _sm;
     private String _styleSheetName;
 
@@ -171,6 +183,12 @@ public class LuceneSearcher extends MetaSearcher implements MetadataRecordSelect
      */
     private String _geomWKT = null;
     private long _versionToken = -1;
+    /**
+     * The last hit collected by {@link #present}, the next page is collected after it.
+     */
+    private FieldDoc _cursor;
+    private int _cursorEnd;
+    private long _cursorVersion = -1;
     private SummaryType _summaryConfig;
     private boolean _logSearch = true;
 
@@ -1109,6 +1127,7 @@ public class LuceneSearcher extends MetaSearcher implements MetadataRecordSelect
         computeQuery(srvContext, request, config);
 
         LOGGER.debug("LuceneSearcher performing query");
+        _cursor = null;
         performQuery(srvContext, getFrom() - 1, getTo(), buildSummary);
         updateSearchRange(request);
 
@@ -1166,70 +1185,137 @@ public class LuceneSearcher extends MetaSearcher implements MetadataRecordSelect
             response.addContent((Element) _elSummary.clone());
 
         if (getTo() > 0) {
-            TopDocs tdocs = performQuery(srvContext, getFrom() - 1, getTo(), false); // get enough hits to show a page
-
             int nrHits = getTo() - (getFrom() - 1);
-            if (tdocs.scoreDocs.length >= nrHits) {
+            try (IndexAndTaxonomy indexAndTaxonomy = _sm.getIndexReader(_language.presentationLanguage, _versionToken);) {
+                _versionToken = indexAndTaxonomy.version;
+                TopDocs tdocs = collectPage(indexAndTaxonomy.indexReader, getFrom() - 1, getTo());
+                if (tdocs.scoreDocs.length < nrHits) {
+                    throw new Exception("Failed: Not enough search results (" + tdocs.scoreDocs.length + ") available to meet request for " + nrHits + ".");
+                }
                 Set<Integer> userGroups = null;
-                try (IndexAndTaxonomy indexAndTaxonomy = _sm.getIndexReader(_language.presentationLanguage, _versionToken);) {
-                    _versionToken = indexAndTaxonomy.version;
 
+                // Load the records of the page all at once
+                List<String> ids = null;
+                Map<String, Element> records = null;
+                if (!inFastMode) {
+                    ids = new ArrayList<>(nrHits);
                     for (int i = 0; i < nrHits; i++) {
-                        Document doc;
-                        if (inFastMode) {
-                            // no selector
-                            doc = indexAndTaxonomy.indexReader.document(tdocs.scoreDocs[i].doc);
-                        } else {
-                            DocumentStoredFieldVisitor docVisitor = new DocumentStoredFieldVisitor("_id");
-                            indexAndTaxonomy.indexReader.document(tdocs.scoreDocs[i].doc, docVisitor);
-                            doc = docVisitor.getDocument();
-                        }
-                        String id = doc.get("_id");
-                        Element md = null;
+                        DocumentStoredFieldVisitor docVisitor = new DocumentStoredFieldVisitor("_id");
+                        indexAndTaxonomy.indexReader.document(tdocs.scoreDocs[i].doc, docVisitor);
+                        ids.add(docVisitor.getDocument().get("_id"));
+                    }
+                    if (srvContext != null) {
+                        boolean keepXlinkAttributes = false;
+                        records = gc.getBean(IMetadataManager.class).getMetadata(srvContext, ids, keepXlinkAttributes);
+                    }
+                }
+
+                for (int i = 0; i < nrHits; i++) {
+                    Document doc = null;
+                    String id;
+                    if (inFastMode) {
+                        // no selector
+                        doc = indexAndTaxonomy.indexReader.document(tdocs.scoreDocs[i].doc);
+                        id = doc.get("_id");
+                    } else {
+                        id = ids.get(i);
+                    }
+                    Element md = null;
 
-                        if (fast) {
-                            md = LuceneSearcher.getMetadataFromIndex(doc, id, false, null, null, null, extraDumpFields);
-                        } else if ("indexpdf".equals(sFast)) {
-                            if (userGroups == null) {
-                                userGroups = gc.getBean(AccessManager.class).getUserGroups(srvContext.getUserSession(), srvContext.getIpAddress(), false);
+                    if (fast) {
+                        md = LuceneSearcher.getMetadataFromIndex(doc, id, false, null, null, null, extraDumpFields);
+                    } else if ("indexpdf".equals(sFast)) {
+                        if (userGroups == null) {
+                            userGroups = gc.getBean(AccessManager.class).getUserGroups(srvContext.getUserSession(), srvContext.getIpAddress(), false);
 
-                            }
+                        }
 
-                            // Retrieve information from the index for the record
-                            md = LuceneSearcher.getMetadataFromIndexForPdf(srvContext.getUserSession(), userGroups, doc, id,
-                                _language.presentationLanguage, _luceneConfig.getMultilingualSortFields(), _luceneConfig.getDumpFields(), extraDumpFields);
-                        } else if ("index".equals(sFast)) {
-                            // Retrieve information from the index for the record
-                            md = LuceneSearcher.getMetadataFromIndex(doc, id, true, _language.presentationLanguage, _luceneConfig.getMultilingualSortFields(), _luceneConfig.getDumpFields(), extraDumpFields);
-
-                            buildPrivilegesMetadataInfo(srvContext, doc, md.getChild(Edit.RootChild.INFO, Edit.NAMESPACE));
-                        } else if (srvContext != null) {
-                            boolean forEditing = false, withValidationErrors = false, keepXlinkAttributes = false;
-                            md = gc.getBean(DataManager.class).getMetadata(srvContext, id, forEditing, withValidationErrors, keepXlinkAttributes);
+                        // Retrieve information from the index for the record
+                        md = LuceneSearcher.getMetadataFromIndexForPdf(srvContext.getUserSession(), userGroups, doc, id,
+                            _language.presentationLanguage, _luceneConfig.getMultilingualSortFields(), _luceneConfig.getDumpFields(), extraDumpFields);
+                    } else if ("index".equals(sFast)) {
+                        // Retrieve information from the index for the record
+                        md = LuceneSearcher.getMetadataFromIndex(doc, id, true, _language.presentationLanguage, _luceneConfig.getMultilingualSortFields(), _luceneConfig.getDumpFields(), extraDumpFields);
+
+                        buildPrivilegesMetadataInfo(srvContext, doc, md.getChild(Edit.RootChild.INFO, Edit.NAMESPACE));
+                    } else if (records != null) {
+                        md = records.get(id);
+                        // the same record may be returned twice
+                        if (md != null && md.getParent() != null) {
+                            md = (Element) md.clone();
                         }
+                    }
 
-                        //--- a metadata could have been deleted just before showing
-                        //--- search results
+                    //--- a metadata could have been deleted just before showing
+                    //--- search results
 
-                        if (md != null) {
-                            // Calculate score and add it to info elem
-                            if (_luceneConfig.isTrackDocScores()) {
-                                Float score = tdocs.scoreDocs[i].score;
-                                Element info = md.getChild(Edit.RootChild.INFO, Edit.NAMESPACE);
-                                addElement(info, Edit.Info.Elem.SCORE, score.toString());
-                            }
-                            response.addContent(md);
+                    if (md != null) {
+                        // Calculate score and add it to info elem
+                        if (_luceneConfig.isTrackDocScores()) {
+                            Float score = tdocs.scoreDocs[i].score;
+                            Element info = md.getChild(Edit.RootChild.INFO, Edit.NAMESPACE);
+                            addElement(info, Edit.Info.Elem.SCORE, score.toString());
                         }
+                        response.addContent(md);
                     }
                 }
-            } else {
-                throw new Exception("Failed: Not enough search results (" + tdocs.scoreDocs.length + ") available to meet request for " + nrHits + ".");
             }
         }
 
         return response;
     }
 
+    /**
+     * Collect the hits of a page of the results of the query. The page is read from the window
+     * cache when a previous page collected it, otherwise the hits are collected after the last hit
+     * of the previous page when it ends where the page starts, and by sorting the results up to
+     * the end of the page if not.
+     *
+     * @param reader   the reader of the version {@link #_versionToken} of the index
+     * @param startHit the first hit of the page
+     * @param endHit   the hit after the last one of the page
+     */
+    private TopDocs collectPage(IndexReader reader, int startHit, int endHit) throws IOException {
+        long version = _versionToken;
+        ResultWindowCache.Key key = null;
+        if (WINDOW_CACHE != null && version != -1) {
+            // the duplicate removing filter only depends on the query
+            key = new ResultWindowCache.Key(_query, _geomWKT == null ? null : _filter, _sort,
+                _language.presentationLanguage, version);
+            TopDocs cached = WINDOW_CACHE.get(key, startHit, endHit);
+            if (cached != null) {
+                _numHits = cached.totalHits;
+                return cached;
+            }
+        }
+
+        int pageSize = endHit - startHit;
+        int windowSize = key == null ? pageSize : Math.max(pageSize, WINDOW_SIZE);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        TopDocs hits;
+        if (_cursor != null && version != -1 && _cursorVersion == version && _cursorEnd == startHit) {
+            hits = searcher.searchAfter(_cursor, _query, _filter, windowSize, _sort,
+                _luceneConfig.isTrackDocScores(), _luceneConfig.isTrackMaxScore());
+        } else {
+            int numHits = (int) Math.min((long) startHit + windowSize, Integer.MAX_VALUE);
+            TopFieldCollector tfc = TopFieldCollector.create(_sort, numHits, true,
+                _luceneConfig.isTrackDocScores(), _luceneConfig.isTrackMaxScore(), _luceneConfig.isDocsScoredInOrder());
+            searcher.search(_query, _filter, tfc);
+            hits = tfc.topDocs(startHit, windowSize);
+        }
+        _numHits = hits.totalHits;
+
+        if (hits.scoreDocs.length > 0) {
+            _cursor = (FieldDoc) hits.scoreDocs[hits.scoreDocs.length - 1];
+            _cursorEnd = startHit + hits.scoreDocs.length;
+            _cursorVersion = version;
+        }
+        if (key != null) {
+            WINDOW_CACHE.put(key, startHit, hits);
+        }
+        return ResultWindowCache.slice(hits, 0, pageSize);
+    }
+
     /**
      * Perform a query, loop over results in order to find values containing the search value for a
      * specific field.
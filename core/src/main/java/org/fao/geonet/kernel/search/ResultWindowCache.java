@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the last window of sorted hits of recent queries, so that the next pages of a
+ * search are read from the window instead of sorting the results again.
+ *
+ * The hits hold the document ids of one version of the index, the windows are keyed by the version
+ * token of the readers they were collected from. The query holds the groups of the user, so a window
+ * is only shared by the users having the same privileges.
+ */
+class ResultWindowCache {
+    private final Cache<Key, Window> windows;
+
+    /**
+     * @param maximumSize the maximum number of windows kept.
+     */
+    ResultWindowCache(int maximumSize) {
+        windows = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+    }
+
+    /**
+     * @return the hits from startHit (inclusive) to endHit (exclusive) or null if they are not all
+     * in the cached window of the query.
+     */
+    TopDocs get(Key key, int startHit, int endHit) {
+        Window window = windows.getIfPresent(key);
+        if (window == null || startHit < window.start) {
+            return null;
+        }
+        int windowEnd = window.start + window.hits.scoreDocs.length;
+        // the last window of the results may be shorter than the requested page
+        boolean lastWindow = windowEnd >= window.hits.totalHits;
+        if (endHit > windowEnd && !lastWindow) {
+            return null;
+        }
+        return slice(window.hits, startHit - window.start, endHit - window.start);
+    }
+
+    /**
+     * Keep the hits collected from startHit, replacing the previous window of the query.
+     */
+    void put(Key key, int startHit, TopDocs hits) {
+        windows.put(key, new Window(startHit, hits));
+    }
+
+    /**
+     * @return the hits between from (inclusive) and to (exclusive), within the bounds of the hits.
+     */
+    static TopDocs slice(TopDocs hits, int from, int to) {
+        int length = hits.scoreDocs.length;
+        ScoreDoc[] scoreDocs = Arrays.copyOfRange(hits.scoreDocs, Math.min(from, length), Math.min(to, length));
+        return new TopDocs(hits.totalHits, scoreDocs, hits.getMaxScore());
+    }
+
+    /**
+     * Identifies the sorted results of a query on one version of the index.
+     */
+    static class Key {
+        private final Query query;
+        private final Filter filter;
+        private final Sort sort;
+        private final String language;
+        private final long version;
+
+        /**
+         * @param filter the filter of the query, null if it only depends on the query.
+         */
+        Key(Query query, Filter filter, Sort sort, String language, long version) {
+            this.query = query;
+            this.filter = filter;
+            this.sort = sort;
+            this.language = language;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return version == key.version
+                && Objects.equals(query, key.query)
+                && Objects.equals(filter, key.filter)
+                && Objects.equals(sort, key.sort)
+                && Objects.equals(language, key.language);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, filter, sort, language, version);
+        }
+    }
+
+    private static class Window {
+        private final int start;
+        private final TopDocs hits;
+
+        private Window(int start, TopDocs hits) {
+            this.start = start;
+            this.hits = hits;
+        }
+    }
+}
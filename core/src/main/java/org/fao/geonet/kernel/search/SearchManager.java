@@ -154,6 +154,32 @@ public class SearchManager implements ISearchManager {
     private static final Configuration FILTER_1_0_0 = new org.geotools.filter.v1_0.OGCConfiguration();
     private static final Configuration FILTER_1_1_0 = new org.geotools.filter.v1_1.OGCConfiguration();
     private static final Configuration FILTER_2_0_0 = new org.geotools.filter.v2_0.FESConfiguration();
+    /**
+     * The types of the indexed fields, shared by all the documents. They only depend on the store,
+     * index and token flags of the field and on its numeric type.
+     */
+    private static final FieldType[] FIELD_TYPES = new FieldType[8 * (NumericType.values().length + 1)];
+    private static final FieldType MULTILINGUAL_SORT_FIELD_TYPE = new FieldType();
+
+    static {
+        for (int i = 0; i < FIELD_TYPES.length; i++) {
+            FieldType fieldType = new FieldType();
+            fieldType.setStored((i & 4) != 0);
+            fieldType.setIndexed((i & 2) != 0);
+            fieldType.setTokenized((i & 1) != 0);
+            if (i >= 8) {
+                fieldType.setNumericType(NumericType.values()[i / 8 - 1]);
+            }
+            fieldType.freeze();
+            FIELD_TYPES[i] = fieldType;
+        }
+        MULTILINGUAL_SORT_FIELD_TYPE.setIndexed(true);
+        MULTILINGUAL_SORT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_ONLY);
+        MULTILINGUAL_SORT_FIELD_TYPE.setOmitNorms(true);
+        MULTILINGUAL_SORT_FIELD_TYPE.setTokenized(false);
+        MULTILINGUAL_SORT_FIELD_TYPE.setStored(true);
+        MULTILINGUAL_SORT_FIELD_TYPE.freeze();
+    }
     private static Path _stopwordsDir;
     /**
      * Used when adding documents to the Lucene index.
@@ -696,9 +722,10 @@ public class SearchManager implements ISearchManager {
             IE_LOGGER.debug("Indexing fields:\n{}", Xml.getString(xmlDoc));
         }
 
+        LuceneConfig luceneConfig = ApplicationContextHolder.get().getBean(LuceneConfig.class);
         @SuppressWarnings(value = "unchecked")
         List<Element> documentElements = xmlDoc.getContent();
-        Collection<Field> multilingualSortFields = findMultilingualSortElements(documentElements);
+        Collection<Field> multilingualSortFields = findMultilingualSortElements(luceneConfig, documentElements);
 
         List<IndexInformation> documents = Lists.newArrayList();
         for (Element doc : documentElements) {
@@ -711,7 +738,7 @@ public class SearchManager implements ISearchManager {
             }
 
             String locale = getLocaleFromIndexDoc(doc);
-            documents.add(newDocument(locale, doc, multilingualSortFields));
+            documents.add(newDocument(luceneConfig, locale, doc, multilingualSortFields));
         }
         if (IE_LOGGER.isDebugEnabled())
             IE_LOGGER.debug("Lucene document:\n{}", Xml.getString(xmlDoc));
@@ -739,10 +766,7 @@ public class SearchManager implements ISearchManager {
         return defaultLangStyleSheet;
     }
 
-    private Collection<Field> findMultilingualSortElements(List<Element> documentElements) {
-        ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        LuceneConfig luceneConfig = applicationContext.getBean(LuceneConfig.class);
-
+    private Collection<Field> findMultilingualSortElements(LuceneConfig luceneConfig, List<Element> documentElements) {
         Map<String, Field> multilingualSortFields = new HashMap<String, Field>();
 
         for (Element doc : documentElements) {
@@ -757,13 +781,8 @@ public class SearchManager implements ISearchManager {
                     String nameWithLocale = LuceneConfig.multilingualSortFieldName(fieldName, locale);
                     if (!multilingualSortFields.containsKey(nameWithLocale)) {
                         String fieldValue = field.getAttributeValue("string");
-                        FieldType fieldType = new FieldType();
-                        fieldType.setIndexed(true);
-                        fieldType.setIndexOptions(IndexOptions.DOCS_ONLY);
-                        fieldType.setOmitNorms(true);
-                        fieldType.setTokenized(false);
-                        fieldType.setStored(true);
-                        multilingualSortFields.put(nameWithLocale, new Field(nameWithLocale, fieldValue, fieldType));
+                        multilingualSortFields.put(nameWithLocale,
+                            new Field(nameWithLocale, fieldValue, MULTILINGUAL_SORT_FIELD_TYPE));
                     }
                 }
             }
@@ -1034,10 +1053,10 @@ public class SearchManager implements ISearchManager {
             params.put("inspire", Boolean.toString(isInspireEnabled()));
             params.put("thesauriDir", geonetworkDataDirectory.getThesauriDir().toAbsolutePath().toString());
 
-            Element defaultLang = Xml.transform(xml, defaultLangStyleSheet, params);
+            Element defaultLang = Xml.prepareTransform(defaultLangStyleSheet).transform(xml, params);
             if (Files.exists(otherLocalesStyleSheet)) {
                 @SuppressWarnings(value = "unchecked")
-                List<Element> otherLanguages = Xml.transform(xml, otherLocalesStyleSheet, params).removeContent();
+                List<Element> otherLanguages = Xml.prepareTransform(otherLocalesStyleSheet).transform(xml, params).removeContent();
                 mergeDefaultLang(defaultLang, otherLanguages);
                 documents.addContent(otherLanguages);
             }
@@ -1070,7 +1089,7 @@ public class SearchManager implements ISearchManager {
             .getMetadataTitle(id));
 
         try {
-            documents = Xml.transform(xml, singleStyleSheet, params);
+            documents = Xml.prepareTransform(singleStyleSheet).transform(xml, params);
         } catch (Exception e) {
             documents.addContent(onGetIndexFieldsError(e, xml));
         }
@@ -1261,7 +1280,8 @@ public class SearchManager implements ISearchManager {
      *
      * @param xml The list of field to be indexed.
      */
-    private IndexInformation newDocument(String language, Element xml, Collection<Field> multilingualSortFields) {
+    private IndexInformation newDocument(LuceneConfig luceneConfig, String language, Element xml,
+                                         Collection<Field> multilingualSortFields) {
         Document doc = new Document();
         Collection<CategoryPath> categories = new HashSet<CategoryPath>();
 
@@ -1269,15 +1289,8 @@ public class SearchManager implements ISearchManager {
         for (Field field : multilingualSortFields) {
             doc.add(field);
         }
-        final FieldType storeNotTokenizedFieldType = new FieldType();
-        storeNotTokenizedFieldType.setIndexed(true);
-        storeNotTokenizedFieldType.setTokenized(false);
-        storeNotTokenizedFieldType.setStored(true);
-
-        final FieldType storeNotIndexedFieldType = new FieldType();
-        storeNotIndexedFieldType.setIndexed(true);
-        storeNotIndexedFieldType.setTokenized(false);
-        storeNotIndexedFieldType.setStored(true);
+        final FieldType storeNotTokenizedFieldType = getFieldType(true, true, false, null);
+        final FieldType storeNotIndexedFieldType = getFieldType(true, true, false, null);
         float documentBoost = 1;
         // Set boost to promote some types of document selectively according to DocumentBoosting class
         if (_documentBoostClass != null) {
@@ -1287,9 +1300,6 @@ public class SearchManager implements ISearchManager {
                 documentBoost = f;
             }
         }
-        ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        LuceneConfig luceneConfig = applicationContext.getBean(LuceneConfig.class);
-
         boolean hasLocaleField = false;
         for (Object o : xml.getChildren()) {
             Element field = (Element) o;
@@ -1303,17 +1313,13 @@ public class SearchManager implements ISearchManager {
                 boolean bStore = sStore != null && sStore.equals("true");
                 boolean bIndex = sIndex != null && sIndex.equals("true");
                 boolean token = luceneConfig.isTokenizedField(name);
-                boolean isNumeric = luceneConfig.isNumericField(name);
+                LuceneConfigNumericField numericField = luceneConfig.getNumericField(name);
 
-                FieldType fieldType = new FieldType();
-                fieldType.setStored(bStore);
-                fieldType.setIndexed(bIndex);
-                fieldType.setTokenized(token);
                 Field f;
                 List<Field> fFacets = new ArrayList<Field>();
-                if (isNumeric) {
+                if (numericField != null) {
                     try {
-                        f = addNumericField(name, string, fieldType);
+                        f = addNumericField(numericField, name, string, bStore, bIndex, token);
                     } catch (Exception e) {
                         String msg = "Invalid value. Field '" + name + "' is not added to the document. Error is: " + e.getMessage();
 
@@ -1328,10 +1334,10 @@ public class SearchManager implements ISearchManager {
                         continue;
                     }
                 } else {
-                    f = new Field(name, string, fieldType);
+                    f = new Field(name, string, getFieldType(bStore, bIndex, token, null));
                 }
 
-                fFacets.addAll(getFacetFieldsFor(language, name, string));
+                fFacets.addAll(getFacetFieldsFor(luceneConfig, language, name, string));
 
                 // As of lucene 4.0 to boost a document all field boosts must be premultiplied by documentBoost
                 // because there is no doc.setBoost method anymore.
@@ -1363,11 +1369,8 @@ public class SearchManager implements ISearchManager {
         return new IndexInformation(language, doc, categories);
     }
 
-    private List<Field> getFacetFieldsFor(String locale, String indexKey, String value) {
+    private List<Field> getFacetFieldsFor(LuceneConfig luceneConfig, String locale, String indexKey, String value) {
         List<Field> result = new ArrayList<>();
-        ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        LuceneConfig luceneConfig = applicationContext.getBean(LuceneConfig.class);
-
         for (Dimension dimension : luceneConfig.getDimensionsUsing(indexKey)) {
             result.addAll(getFacetFieldsFor(locale, dimension, value));
         }
@@ -1393,37 +1396,29 @@ public class SearchManager implements ISearchManager {
     /**
      * Creates Lucene numeric field.
      *
+     * @param fieldConfig The configuration of the numeric field
      * @param name   The field name
      * @param string The value to be indexed. It is parsed to its numeric type. If exception occurs
      *               field is not added to the index.
      */
-    private Field addNumericField(String name, String string, FieldType fieldType) throws Exception {
-        ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        LuceneConfig luceneConfig = applicationContext.getBean(LuceneConfig.class);
-
-        LuceneConfigNumericField fieldConfig = luceneConfig.getNumericField(name);
-
+    private Field addNumericField(LuceneConfigNumericField fieldConfig, String name, String string,
+                                  boolean store, boolean index, boolean token) throws Exception {
         Field field;
-        // TODO : reuse the numeric field for better performance
         IE_LOGGER.debug("Indexing numeric field: {} with value: {}", name, string);
         try {
             String paramType = fieldConfig.getType();
             if ("double".equals(paramType)) {
                 double d = Double.valueOf(string);
-                fieldType.setNumericType(NumericType.DOUBLE);
-                field = new DoubleField(name, d, fieldType);
+                field = new DoubleField(name, d, getFieldType(store, index, token, NumericType.DOUBLE));
             } else if ("float".equals(paramType)) {
                 float f = Float.valueOf(string);
-                fieldType.setNumericType(NumericType.FLOAT);
-                field = new FloatField(name, f, fieldType);
+                field = new FloatField(name, f, getFieldType(store, index, token, NumericType.FLOAT));
             } else if ("long".equals(paramType)) {
                 long l = Long.parseLong(string);
-                fieldType.setNumericType(NumericType.LONG);
-                field = new LongField(name, l, fieldType);
+                field = new LongField(name, l, getFieldType(store, index, token, NumericType.LONG));
             } else {
                 int i = Integer.parseInt(string);
-                fieldType.setNumericType(NumericType.INT);
-                field = new IntField(name, i, fieldType);
+                field = new IntField(name, i, getFieldType(store, index, token, NumericType.INT));
             }
             return field;
         } catch (Exception e) {
@@ -1433,6 +1428,18 @@ public class SearchManager implements ISearchManager {
         }
     }
 
+    /**
+     * @param numericType the numeric type of the field, null if the field is not numeric
+     * @return the shared, frozen type of the fields with these flags.
+     */
+    static FieldType getFieldType(boolean store, boolean index, boolean token, NumericType numericType) {
+        int i = (store ? 4 : 0) + (index ? 2 : 0) + (token ? 1 : 0);
+        if (numericType != null) {
+            i += 8 * (numericType.ordinal() + 1);
+        }
+        return FIELD_TYPES[i];
+    }
+
     public Spatial getSpatial() {
         return _spatial;
     }
@@ -31,15 +31,19 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.PreDestroy;
+import javax.management.ObjectName;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.lucene.document.Document;
@@ -63,23 +67,68 @@ import org.fao.geonet.kernel.search.SearchManager;
 import org.fao.geonet.kernel.search.index.GeonetworkNRTManager.AcquireResult;
 import org.fao.geonet.utils.Log;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jmx.export.MBeanExporter;
 
 /**
  * Keeps track of the lucene indexes that currently exist so that we don't have to keep polling
  * filesystem
  *
+ * The index and taxonomy writers are thread safe: documents are added and deleted by several
+ * threads at the same time, and searchers are acquired while documents are added. Only opening,
+ * resetting and closing the indexes is exclusive.
+ *
+ * With {@link LuceneConfig#nrtReopenWithoutCommit()} the searchers are reopened from the writers
+ * without committing: the changes are searchable right away and are committed in the background
+ * once {@link LuceneConfig#commitMaxDocuments()} changes are pending or the oldest one is older
+ * than {@link LuceneConfig#commitMaxDelay()}. The reopen and commit latencies are published
+ * through JMX as {@value #STATISTICS_MBEAN_NAME}.
+ *
  * @author jeichar
  */
 public class LuceneIndexLanguageTracker {
-    private final Map<String, Directory> dirs = new HashMap<String, Directory>();
-    private final Map<String, TrackingIndexWriter> trackingWriters = new HashMap<String, TrackingIndexWriter>();
-    private final Map<String, GeonetworkNRTManager> searchManagers = new HashMap<String, GeonetworkNRTManager>();
+    public static final String STATISTICS_MBEAN_NAME = "geonetwork:name=lucene-index";
+
+    private final Map<String, Directory> dirs = new ConcurrentHashMap<String, Directory>();
+    private final Map<String, TrackingIndexWriter> trackingWriters = new ConcurrentHashMap<String, TrackingIndexWriter>();
+    private final Map<String, GeonetworkNRTManager> searchManagers = new ConcurrentHashMap<String, GeonetworkNRTManager>();
     private final SearcherVersionTracker versionTracker = new SearcherVersionTracker();
-    private TaxonomyIndexTracker taxonomyIndexTracker;
+    private volatile TaxonomyIndexTracker taxonomyIndexTracker;
     private AtomicBoolean initialized = new AtomicBoolean(false);
-    private Lock lock = new ReentrantLock();
+    /**
+     * Held in read mode to use the indexes and in write mode to initialize, reset, close or reopen
+     * them.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Held in read mode to modify the indexes and in write mode to commit them, so that the
+     * taxonomy, committed first, has the categories of all the documents committed.
+     */
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    /**
+     * Held to open the index of a new language.
+     */
+    private final Lock openLock = new ReentrantLock();
+    /**
+     * Held while the versions of the searchers are tracked.
+     */
+    private final Lock searcherLock = new ReentrantLock();
     private AtomicInteger _openReaderCounter = new AtomicInteger(0);
     private AtomicBoolean destroyed = new AtomicBoolean(false);
+    /**
+     * Number of documents added or deleted since the last commit.
+     */
+    private final AtomicLong uncommittedChanges = new AtomicLong();
+    /**
+     * Time of the oldest change not committed, 0 if there is none.
+     */
+    private final AtomicLong firstUncommittedChange = new AtomicLong();
+    /**
+     * Time at which the last reopen of the searchers started.
+     */
+    private volatile long lastRefresh;
+    private final LuceneIndexStatistics statistics = new LuceneIndexStatistics(uncommittedChanges);
+    private MBeanExporter exporter;
+    private ObjectName statisticsName;
 
     public LuceneIndexLanguageTracker() {
         // used by spring
@@ -103,31 +152,61 @@ public class LuceneIndexLanguageTracker {
         return locale;
     }
 
+    /**
+     * Open the indexes on first use. Must be called before taking the read lock.
+     */
     private void lazyInit() {
-        final ConfigurableApplicationContext context = ApplicationContextHolder.get();
-        LuceneConfig luceneConfig = context.getBean(LuceneConfig.class);
-        DirectoryFactory directoryFactory = context.getBean(DirectoryFactory.class);
-        ScheduledThreadPoolExecutor timer = context.getBean("timerThreadPool", ScheduledThreadPoolExecutor.class);
+        if (initialized.get()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!initialized.get()) {
+                final ConfigurableApplicationContext context = ApplicationContextHolder.get();
+                LuceneConfig luceneConfig = context.getBean(LuceneConfig.class);
+                DirectoryFactory directoryFactory = context.getBean(DirectoryFactory.class);
+                ScheduledThreadPoolExecutor timer = context.getBean("timerThreadPool", ScheduledThreadPoolExecutor.class);
 
-        if (!initialized.get()) {
-            lock.lock();
-            try {
                 this.taxonomyIndexTracker = new TaxonomyIndexTracker(directoryFactory, luceneConfig);
                 init();
 
                 if (timer != null) {
-                    timer.scheduleAtFixedRate(new CommitTimerTask(), 30, 30, TimeUnit.SECONDS);
+                    long commitInterval = luceneConfig.commitInterval() > 0 ? luceneConfig.commitInterval()
+                        : TimeUnit.SECONDS.toMillis(30);
+                    timer.scheduleWithFixedDelay(new CommitTimerTask(), commitInterval, commitInterval,
+                        TimeUnit.MILLISECONDS);
                     timer.scheduleAtFixedRate(new PurgeExpiredSearchersTask(), 30, 30, TimeUnit.SECONDS);
                 }
+                registerStatistics(context);
                 initialized.set(true);
-            } catch (Throwable e) {
-                throw new RuntimeException(e);
-            } finally {
-                lock.unlock();
             }
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void registerStatistics(ConfigurableApplicationContext context) {
+        Map<String, MBeanExporter> exporters = context.getBeansOfType(MBeanExporter.class);
+        if (exporters == null || exporters.isEmpty()) {
+            return;
+        }
+        try {
+            MBeanExporter mbeanExporter = exporters.values().iterator().next();
+            ObjectName name = new ObjectName(STATISTICS_MBEAN_NAME);
+            mbeanExporter.registerManagedResource(statistics, name);
+            exporter = mbeanExporter;
+            statisticsName = name;
+        } catch (Exception e) {
+            Log.warning(Geonet.LUCENE, "Lucene index statistics not registered in JMX: " + e.getMessage());
         }
     }
 
+    public LuceneIndexStatistics getStatistics() {
+        return statistics;
+    }
+
     private void init() throws Exception {
         final ConfigurableApplicationContext context = ApplicationContextHolder.get();
         DirectoryFactory directoryFactory = context.getBean(DirectoryFactory.class);
@@ -171,8 +250,28 @@ public class LuceneIndexLanguageTracker {
             }
         }
         dirs.put(indexId, cachedFSDir);
-        trackingWriters.put(indexId, trackingIndexWriter);
         searchManagers.put(indexId, nrtManager);
+        // Published last, the writer of a language is only used once the index is fully opened
+        trackingWriters.put(indexId, trackingIndexWriter);
+    }
+
+    /**
+     * @return the writer of the language index, opened if needed. The read lock must be held.
+     */
+    private TrackingIndexWriter getWriter(String language) throws IOException {
+        TrackingIndexWriter writer = trackingWriters.get(language);
+        if (writer == null) {
+            openLock.lock();
+            try {
+                if (!trackingWriters.containsKey(language)) {
+                    openIndex(language);
+                }
+                writer = trackingWriters.get(language);
+            } finally {
+                openLock.unlock();
+            }
+        }
+        return writer;
     }
 
     /**
@@ -182,122 +281,209 @@ public class LuceneIndexLanguageTracker {
      * @return an index reader for reading from all indices
      */
     public IndexAndTaxonomy acquire(final String preferredLang, final long versionToken) throws IOException {
-        lock.lock();
-        try {
-            lazyInit();
+        final ConfigurableApplicationContext context = ApplicationContextHolder.get();
+        LuceneConfig luceneConfig = context.getBean(LuceneConfig.class);
 
-            final ConfigurableApplicationContext context = ApplicationContextHolder.get();
-            LuceneConfig luceneConfig = context.getBean(LuceneConfig.class);
+        long maxStalenessMillis = Long.MAX_VALUE;
+        if (!luceneConfig.useNRTManagerReopenThread()
+            || Boolean.parseBoolean(System.getProperty(LuceneConfig.USE_NRT_MANAGER_REOPEN_THREAD))) {
+            maxStalenessMillis = 0;
+        }
+        return acquire(preferredLang, versionToken, maxStalenessMillis);
+    }
 
-            if (!luceneConfig.useNRTManagerReopenThread()
-                || Boolean.parseBoolean(System.getProperty(LuceneConfig.USE_NRT_MANAGER_REOPEN_THREAD))) {
+    /**
+     * Get {@linkplain org.apache.lucene.index.MultiReader}, reopened if the last reopen started
+     * more than maxStalenessMillis ago.
+     *
+     * @param versionToken       A token indicating which state of search should be obtained
+     * @param maxStalenessMillis how old the changes not visible to the reader may be, 0 to see all
+     *                           the changes done so far, {@link Long#MAX_VALUE} to not reopen.
+     * @return an index reader for reading from all indices
+     */
+    public IndexAndTaxonomy acquire(final String preferredLang, final long versionToken, final long maxStalenessMillis)
+        throws IOException {
+        lazyInit();
+        lock.readLock().lock();
+        try {
+            if (maxStalenessMillis != Long.MAX_VALUE
+                && System.currentTimeMillis() - lastRefresh >= maxStalenessMillis) {
                 maybeRefreshBlocking();
             }
 
-
-            long finalVersion = versionToken;
-            Map<AcquireResult, GeonetworkNRTManager> searchers = new HashMap<>(
-                (int) (searchManagers.size() * 1.5));
-            IndexReader[] readers = new IndexReader[searchManagers.size()];
-            int i = 1;
-            boolean tokenExpired = false;
-            boolean lastVersionUpToDate = true;
-            for (GeonetworkNRTManager manager : searchManagers.values()) {
-                AcquireResult result = manager.acquire(versionToken, versionTracker);
-                lastVersionUpToDate = lastVersionUpToDate && result.lastVersionUpToDate;
-                tokenExpired = tokenExpired || result.newSearcher;
-
-                if ((preferredLang != null && preferredLang.equalsIgnoreCase(manager.language)) || i >= readers.length) {
-                    readers[0] = result.searcher.getIndexReader();
-                } else {
-                    readers[i] = result.searcher.getIndexReader();
-                    i++;
-                }
-                searchers.put(result, manager);
+            searcherLock.lock();
+            try {
+                return acquireSearchers(preferredLang, versionToken);
+            } finally {
+                searcherLock.unlock();
             }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-            if (tokenExpired) {
-                if (lastVersionUpToDate) {
-                    finalVersion = versionTracker.lastVersion();
-                } else {
-                    taxonomyIndexTracker.maybeRefresh();
-                    finalVersion = versionTracker.register(searchers);
-                }
+    private IndexAndTaxonomy acquireSearchers(String preferredLang, long versionToken) throws IOException {
+        // The index of a new language may be opened meanwhile
+        List<GeonetworkNRTManager> managers = new ArrayList<>(searchManagers.values());
+        long finalVersion = versionToken;
+        Map<AcquireResult, GeonetworkNRTManager> searchers = new HashMap<>(
+            (int) (managers.size() * 1.5));
+        IndexReader[] readers = new IndexReader[managers.size()];
+        int i = 1;
+        boolean tokenExpired = false;
+        boolean lastVersionUpToDate = true;
+        for (GeonetworkNRTManager manager : managers) {
+            AcquireResult result = manager.acquire(versionToken, versionTracker);
+            lastVersionUpToDate = lastVersionUpToDate && result.lastVersionUpToDate;
+            tokenExpired = tokenExpired || result.newSearcher;
+
+            if ((preferredLang != null && preferredLang.equalsIgnoreCase(manager.language)) || i >= readers.length) {
+                readers[0] = result.searcher.getIndexReader();
+            } else {
+                readers[i] = result.searcher.getIndexReader();
+                i++;
+            }
+            searchers.put(result, manager);
+        }
 
+        if (tokenExpired) {
+            if (lastVersionUpToDate) {
+                finalVersion = versionTracker.lastVersion();
+            } else {
+                taxonomyIndexTracker.maybeRefresh();
+                finalVersion = versionTracker.register(searchers);
             }
-            return new IndexAndTaxonomy(finalVersion, new GeonetworkMultiReader(_openReaderCounter, readers, searchers),
-                taxonomyIndexTracker.acquire()); //this is likely leaking a refCount to the TaxonomyReader
-        } finally {
-            lock.unlock();
+
         }
+        return new IndexAndTaxonomy(finalVersion, new GeonetworkMultiReader(_openReaderCounter, readers, searchers),
+            taxonomyIndexTracker.acquire()); //this is likely leaking a refCount to the TaxonomyReader
     }
 
     /**
-     * Block until a fresh index reader can be acquired.
+     * Block until a fresh index reader can be acquired. The indexes are committed first unless
+     * {@link LuceneConfig#nrtReopenWithoutCommit()} is set.
      */
     public void maybeRefreshBlocking() throws IOException {
-        lock.lock();
+        lazyInit();
+        lock.readLock().lock();
         try {
-            lazyInit();
-            commit();
+            final ConfigurableApplicationContext context = ApplicationContextHolder.get();
+            if (!context.getBean(LuceneConfig.class).nrtReopenWithoutCommit()) {
+                commit();
+            }
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             for (GeonetworkNRTManager manager : searchManagers.values()) {
                 manager.maybeRefreshBlocking();
             }
+            statistics.reopened(System.nanoTime() - startNanos);
+            lastRefresh = start;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     public void commit() throws IOException {
-        lock.lock();
+        lazyInit();
+        lock.readLock().lock();
         try {
-            lazyInit();
-            // before a writer commits the IndexWriter, it must commit the
-            // TaxonomyWriter.
-            taxonomyIndexTracker.commit();
-            for (TrackingIndexWriter writer : trackingWriters.values()) {
-                writer.getIndexWriter().commit();
+            // Documents are neither added nor deleted while committing
+            commitLock.writeLock().lock();
+            try {
+                long start = System.nanoTime();
+                // before a writer commits the IndexWriter, it must commit the
+                // TaxonomyWriter.
+                taxonomyIndexTracker.commit();
+                for (TrackingIndexWriter writer : trackingWriters.values()) {
+                    writer.getIndexWriter().commit();
+                }
+                uncommittedChanges.set(0);
+                firstUncommittedChange.set(0);
+                statistics.committed(System.nanoTime() - start);
+            } finally {
+                commitLock.writeLock().unlock();
             }
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
+    /**
+     * Commit the indexes if enough changes are pending or if the oldest one is too old.
+     *
+     * @return true if the indexes were committed.
+     */
+    boolean commitIfNeeded() throws IOException {
+        long changes = uncommittedChanges.get();
+        if (changes == 0) {
+            return false;
+        }
+        final ConfigurableApplicationContext context = ApplicationContextHolder.get();
+        LuceneConfig luceneConfig = context.getBean(LuceneConfig.class);
+        boolean enoughChanges = luceneConfig.commitMaxDocuments() > 0 && changes >= luceneConfig.commitMaxDocuments();
+        boolean tooOld = System.currentTimeMillis() - firstUncommittedChange.get() >= luceneConfig.commitMaxDelay();
+        if (!enoughChanges && !tooOld) {
+            return false;
+        }
+        commit();
+        return true;
+    }
+
+    /**
+     * Record a change to commit. The commit lock must be held in read mode.
+     */
+    private void changed() {
+        uncommittedChanges.incrementAndGet();
+        firstUncommittedChange.compareAndSet(0, System.currentTimeMillis());
+    }
+
     void withWriter(Function function) throws IOException {
-        lock.lock();
+        lazyInit();
+        lock.readLock().lock();
         try {
-            lazyInit();
-            for (TrackingIndexWriter writer : trackingWriters.values()) {
-                function.apply(taxonomyIndexTracker.writer(), writer);
+            commitLock.readLock().lock();
+            try {
+                for (TrackingIndexWriter writer : trackingWriters.values()) {
+                    function.apply(taxonomyIndexTracker.writer(), writer);
+                }
+                changed();
+            } finally {
+                commitLock.readLock().unlock();
             }
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     public void addDocument(IndexInformation info)
         throws IOException {
-        lock.lock();
+        lazyInit();
+        final String language = normalize(info.language);
+        if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
+            Log.debug(Geonet.INDEX_ENGINE, "Adding document to " + language + " index");
+        }
+        lock.readLock().lock();
         try {
-            lazyInit();
-            final String language = normalize(info.language);
-            if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
-                Log.debug(Geonet.INDEX_ENGINE, "Adding document to " + language + " index");
-            }
-            open(language);
-            // Add taxonomy first
-            Document docAfterFacetBuild = info.document;
-            docAfterFacetBuild = taxonomyIndexTracker.addDocument(info.document, info.taxonomy);
-            // Index the document returned after the facets are built by the taxonomy writer
-            if (docAfterFacetBuild == null) {
-                // Drop FacetField from the document in that case
-                removeFacetFields(info.document);
-                trackingWriters.get(language).addDocument(info.document);
-            } else {
-                trackingWriters.get(language).addDocument(docAfterFacetBuild);
+            TrackingIndexWriter writer = getWriter(language);
+            commitLock.readLock().lock();
+            try {
+                // Add taxonomy first
+                Document docAfterFacetBuild = info.document;
+                docAfterFacetBuild = taxonomyIndexTracker.addDocument(info.document, info.taxonomy);
+                // Index the document returned after the facets are built by the taxonomy writer
+                if (docAfterFacetBuild == null) {
+                    // Drop FacetField from the document in that case
+                    removeFacetFields(info.document);
+                    writer.addDocument(info.document);
+                } else {
+                    writer.addDocument(docAfterFacetBuild);
+                }
+                changed();
+            } finally {
+                commitLock.readLock().unlock();
             }
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -317,15 +503,12 @@ public class LuceneIndexLanguageTracker {
     }
 
     public void open(String language) throws IOException {
-        lock.lock();
+        lazyInit();
+        lock.readLock().lock();
         try {
-            lazyInit();
-            language = normalize(language);
-            if (!trackingWriters.containsKey(language)) {
-                openIndex(language);
-            }
+            getWriter(normalize(language));
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -337,9 +520,9 @@ public class LuceneIndexLanguageTracker {
      *                        exception.
      */
     public void reset(long timeoutInMillis) throws Exception {
-        lock.lock();
+        lazyInit();
+        lock.writeLock().lock();
         try {
-            lazyInit();
             final ConfigurableApplicationContext context = ApplicationContextHolder.get();
             DirectoryFactory directoryFactory = context.getBean(DirectoryFactory.class);
 
@@ -350,7 +533,7 @@ public class LuceneIndexLanguageTracker {
             directoryFactory.resetIndex();
             init();
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -376,6 +559,9 @@ public class LuceneIndexLanguageTracker {
         Log.warning(Geonet.LUCENE_TRACKING, "LuceneIndexLanguageTracker:destroy() called, closing indexes ...");
         try {
             close(TimeUnit.MINUTES.toMillis(1), true, false);
+            if (statisticsName != null) {
+                exporter.unregisterManagedResource(statisticsName);
+            }
             Log.warning(Geonet.LUCENE_TRACKING, "LuceneIndexLanguageTracker:destroy() Done.");
             destroyed.set(true);
         } catch (Exception e) {
@@ -394,10 +580,10 @@ public class LuceneIndexLanguageTracker {
      *                         lazyInit call might be already destroyed).
      */
     public void close(long timeoutInMillis, boolean closeTaxonomy, boolean lazyInitRequired) throws IOException {
-        lock.lock();
+        if (lazyInitRequired)
+            lazyInit();
+        lock.writeLock().lock();
         try {
-            if (lazyInitRequired)
-                lazyInit();
 
             List<Throwable> errors = new ArrayList<Throwable>(5);
             try {
@@ -442,6 +628,9 @@ public class LuceneIndexLanguageTracker {
             dirs.clear();
             trackingWriters.clear();
             searchManagers.clear();
+            // the writers commit when closed
+            uncommittedChanges.set(0);
+            firstUncommittedChange.set(0);
 
             if (!errors.isEmpty()) {
                 for (Throwable throwable : errors) {
@@ -449,7 +638,7 @@ public class LuceneIndexLanguageTracker {
                 }
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -458,20 +647,26 @@ public class LuceneIndexLanguageTracker {
     }
 
     public void optimize() throws Exception {
-        lock.lock();
+        lazyInit();
+        OutOfMemoryError outOfMemory = null;
+        lock.readLock().lock();
         try {
-            lazyInit();
             for (TrackingIndexWriter writer : trackingWriters.values()) {
                 try {
                     writer.getIndexWriter().forceMergeDeletes(true);
                     writer.getIndexWriter().forceMerge(1, false);
                 } catch (OutOfMemoryError e) {
-                    reset(TimeUnit.MINUTES.toMillis(1));
-                    throw new RuntimeException(e);
+                    outOfMemory = e;
+                    break;
                 }
             }
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
+        }
+        // reset needs the write lock
+        if (outOfMemory != null) {
+            reset(TimeUnit.MINUTES.toMillis(1));
+            throw new RuntimeException(outOfMemory);
         }
 
         // wait for the merges to be done outside of the lock to avoid locking writes to the indexes
@@ -480,7 +675,7 @@ public class LuceneIndexLanguageTracker {
         }
 
         // need to re-open the indexes for the files' size to actually reduce
-        lock.lock();
+        lock.writeLock().lock();
         try{
             ArrayList<String> ids = new ArrayList<>(trackingWriters.keySet());
             for (String id : ids) {
@@ -490,26 +685,20 @@ public class LuceneIndexLanguageTracker {
                 openIndex(id);
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
     public void deleteDocuments(final Term term) throws IOException {
-        lock.lock();
-        try {
-            lazyInit();
-            if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
-                Log.debug(Geonet.INDEX_ENGINE, "deleting term '" + term + "' from index");
-            }
-            withWriter(new Function() {
-                @Override
-                public void apply(TaxonomyWriter taxonomyWriter, TrackingIndexWriter input) throws IOException {
-                    input.deleteDocuments(term);
-                }
-            });
-        } finally {
-            lock.unlock();
+        if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
+            Log.debug(Geonet.INDEX_ENGINE, "deleting term '" + term + "' from index");
         }
+        withWriter(new Function() {
+            @Override
+            public void apply(TaxonomyWriter taxonomyWriter, TrackingIndexWriter input) throws IOException {
+                input.deleteDocuments(term);
+            }
+        });
     }
 
 
@@ -517,28 +706,23 @@ public class LuceneIndexLanguageTracker {
 
         @Override
         public void run() {
-            lock.lock();
+            if (destroyed.get()) {
+                return;
+            }
+            Log.debug(Geonet.LUCENE, "Running Lucene committer timer");
             try {
-                Log.debug(Geonet.LUCENE, "Running Lucene committer timer");
-                for (TrackingIndexWriter writer : trackingWriters.values()) {
-                    try {
-                        try {
-                            writer.getIndexWriter().commit();
-                        } catch (Throwable e) {
-                            Log.error(Geonet.LUCENE, "Error committing writer: " + writer, e);
-                        }
-                    } catch (OutOfMemoryError e) {
-                        try {
-                            Log.error(Geonet.LUCENE, "OOM Error committing writer: " + writer, e);
-                            reset(TimeUnit.MINUTES.toMillis(1));
-                        } catch (Exception e1) {
-                            Log.error(Geonet.LUCENE, "Error resetting lucene indices", e);
-                        }
-                        throw new RuntimeException(e);
-                    }
+                commitIfNeeded();
+            } catch (OutOfMemoryError e) {
+                try {
+                    Log.error(Geonet.LUCENE, "OOM Error committing the indexes", e);
+                    reset(TimeUnit.MINUTES.toMillis(1));
+                } catch (Exception e1) {
+                    Log.error(Geonet.LUCENE, "Error resetting lucene indices", e);
                 }
-            } finally {
-                lock.unlock();
+                throw new RuntimeException(e);
+            } catch (Throwable e) {
+                // keep the task scheduled, the next run commits again
+                Log.error(Geonet.LUCENE, "Error committing the indexes", e);
             }
         }
 
@@ -547,14 +731,16 @@ public class LuceneIndexLanguageTracker {
     private class PurgeExpiredSearchersTask implements Runnable {
         @Override
         public void run() {
-            lock.lock();
+            lock.readLock().lock();
+            searcherLock.lock();
             try {
                 Collection<GeonetworkNRTManager> values = searchManagers.values();
                 for (GeonetworkNRTManager geonetworkNRTManager : values) {
                     geonetworkNRTManager.purgeExpiredSearchers(versionTracker);
                 }
             } finally {
-                lock.unlock();
+                searcherLock.unlock();
+                lock.readLock().unlock();
             }
             Log.info(Geonet.LUCENE, "Done running PurgeExpiredSearchersTask. " + versionTracker.size()
                 + " versions still cached.");
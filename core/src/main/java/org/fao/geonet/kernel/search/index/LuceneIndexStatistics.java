@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.index;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of the reopens and commits of the {@link
+ * LuceneIndexLanguageTracker}.
+ */
+public class LuceneIndexStatistics implements LuceneIndexStatisticsMBean {
+    /**
+     * Upper bounds, in milliseconds, of the buckets of the histograms. The last bucket holds the
+     * slower operations.
+     */
+    private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final Histogram reopens = new Histogram();
+    private final Histogram commits = new Histogram();
+    private final AtomicLong uncommittedChanges;
+
+    /**
+     * @param uncommittedChanges the number of documents added or deleted since the last commit,
+     *                           maintained by the tracker.
+     */
+    LuceneIndexStatistics(AtomicLong uncommittedChanges) {
+        this.uncommittedChanges = uncommittedChanges;
+    }
+
+    void reopened(long nanos) {
+        reopens.record(nanos);
+    }
+
+    void committed(long nanos) {
+        commits.record(nanos);
+    }
+
+    @Override
+    public long getReopens() {
+        return reopens.count.get();
+    }
+
+    @Override
+    public long getReopenTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(reopens.totalNanos.get());
+    }
+
+    @Override
+    public long[] getReopenLatencyHistogram() {
+        return reopens.toArray();
+    }
+
+    @Override
+    public long getCommits() {
+        return commits.count.get();
+    }
+
+    @Override
+    public long getCommitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(commits.totalNanos.get());
+    }
+
+    @Override
+    public long[] getCommitLatencyHistogram() {
+        return commits.toArray();
+    }
+
+    @Override
+    public long[] getLatencyHistogramBoundsMillis() {
+        return BOUNDS.clone();
+    }
+
+    @Override
+    public long getUncommittedChanges() {
+        return uncommittedChanges.get();
+    }
+
+    private static class Histogram {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+        void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BOUNDS.length && millis >= BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            totalNanos.addAndGet(nanos);
+            count.incrementAndGet();
+        }
+
+        long[] toArray() {
+            long[] result = new long[buckets.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+    }
+}
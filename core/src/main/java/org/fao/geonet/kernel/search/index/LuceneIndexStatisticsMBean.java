@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.index;
+
+/**
+ * JMX view of the reopens and commits of the {@link LuceneIndexLanguageTracker}.
+ */
+public interface LuceneIndexStatisticsMBean {
+    /**
+     * @return the number of times the searchers were reopened on request.
+     */
+    long getReopens();
+
+    /**
+     * @return the total time spent reopening the searchers.
+     */
+    long getReopenTimeMillis();
+
+    /**
+     * @return the number of reopens per latency bucket, see {@link #getLatencyHistogramBoundsMillis()}.
+     */
+    long[] getReopenLatencyHistogram();
+
+    /**
+     * @return the number of commits of the taxonomy and language indexes.
+     */
+    long getCommits();
+
+    /**
+     * @return the total time spent committing the indexes.
+     */
+    long getCommitTimeMillis();
+
+    /**
+     * @return the number of commits per latency bucket, see {@link #getLatencyHistogramBoundsMillis()}.
+     */
+    long[] getCommitLatencyHistogram();
+
+    /**
+     * @return the exclusive upper bounds of the latency buckets. The histograms have one more
+     * bucket for the operations slower than the last bound.
+     */
+    long[] getLatencyHistogramBoundsMillis();
+
+    /**
+     * @return the number of documents added or deleted since the last commit.
+     */
+    long getUncommittedChanges();
+}
@@ -45,7 +45,8 @@ import java.util.List;
 /**
  * For concurrency issues this class should not escape the confines of this package because {@link
  * LuceneIndexLanguageTracker} controls access to it and also controls concurrency and
- * synchronization
+ * synchronization. The taxonomy writer is used by several threads at the same time, the reader is
+ * guarded by this object.
  *
  * @author jeichar
  */
@@ -97,7 +98,7 @@ class TaxonomyIndexTracker {
     //We are returning the taxonomyReader to the outside world -- its up to the caller to handle the refCount.
     //This method will increment the ref count on the returned taxonomy reader.
     // The caller should decrement the ref count when its finished with it.
-    TaxonomyReader acquire() throws IOException {
+    synchronized TaxonomyReader acquire() throws IOException {
         if (taxonomyReader == null) {
             this.taxonomyReader = new DirectoryTaxonomyReader(taxonomyWriter);
         }
@@ -129,7 +130,7 @@ class TaxonomyIndexTracker {
         return docAfterFacetBuild;
     }
 
-    void close(List<Throwable> errors) throws IOException {
+    synchronized void close(List<Throwable> errors) throws IOException {
         try {
             if (taxonomyReader != null) {
                 taxonomyReader.close(); // this will decrement a reference
@@ -164,7 +165,7 @@ class TaxonomyIndexTracker {
     }
 
 
-    void reset() throws Exception {
+    synchronized void reset() throws Exception {
         List<Throwable> errors = new ArrayList<Throwable>(5);
         close(errors);
 
@@ -212,7 +213,7 @@ class TaxonomyIndexTracker {
         }
     }
 
-    public void maybeRefresh() throws IOException {
+    public synchronized void maybeRefresh() throws IOException {
         if (taxonomyReader != null) {
             // this returns null if the index didn't change (i.e. we continue using same taxonomyReader
             //  and don't have to modify the refCount because we still reference it).
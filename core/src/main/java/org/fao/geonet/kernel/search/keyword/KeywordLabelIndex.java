@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.keyword;
+
+import com.google.common.base.Function;
+import org.fao.geonet.kernel.Thesaurus;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Value;
+import org.openrdf.sesame.config.AccessDeniedException;
+import org.openrdf.sesame.query.MalformedQueryException;
+import org.openrdf.sesame.query.QueryEvaluationException;
+import org.openrdf.sesame.query.QueryResultsTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the preferred labels of the concepts of a thesaurus, for looking up the
+ * concepts whose label starts with a prefix without querying the RDF repository.
+ *
+ * The labels of each language are kept in lower case in a sorted array, the concepts matching a
+ * prefix are found by binary search. The index is immutable, a new one is built when the thesaurus
+ * is modified (see {@link Thesaurus#getLabelIndex()}).
+ */
+public final class KeywordLabelIndex {
+    private static final String LABEL_QUERY = "SELECT id, prefLabel"
+        + " FROM {id} rdf:type {skos:Concept}, {id} skos:prefLabel {prefLabel}"
+        + " USING NAMESPACE skos = <http://www.w3.org/2004/02/skos/core#>";
+
+    /**
+     * The labels by 2 letter language code, labels without language are indexed with an empty
+     * language code.
+     */
+    private final Map<String, Labels> labelsByLanguage;
+
+    private KeywordLabelIndex(Map<String, Labels> labelsByLanguage) {
+        this.labelsByLanguage = labelsByLanguage;
+    }
+
+    /**
+     * Build the index of the preferred labels of a thesaurus.
+     */
+    public static KeywordLabelIndex build(Thesaurus thesaurus) throws IOException, MalformedQueryException,
+        QueryEvaluationException, AccessDeniedException {
+        QueryResultsTable table = thesaurus.performRequest(LABEL_QUERY);
+        Builder builder = new Builder();
+        for (int row = 0; row < table.getRowCount(); row++) {
+            Value id = table.getValue(row, 0);
+            Value label = table.getValue(row, 1);
+            if (id != null && label instanceof Literal) {
+                builder.add(id.toString(), ((Literal) label).getLabel(), ((Literal) label).getLanguage());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Find the concepts having a label starting with the prefix, ignoring the case.
+     *
+     * @param prefix     the start of the labels
+     * @param maxResults the maximum number of concepts to return
+     * @param languages  the 2 letter codes of the languages of the labels to look at, in order of
+     *                   preference. All the languages are looked at if none is provided.
+     * @return the uris of the concepts, sorted by label in each language
+     */
+    public List<String> findByPrefix(String prefix, int maxResults, String... languages) {
+        String normalized = normalize(prefix);
+        Iterable<String> searched = languages == null || languages.length == 0
+            ? labelsByLanguage.keySet() : Arrays.asList(languages);
+
+        Set<String> uris = new LinkedHashSet<>();
+        for (String language : searched) {
+            Labels labels = labelsByLanguage.get(language == null ? "" : language.toLowerCase(Locale.ROOT));
+            if (labels != null) {
+                labels.collect(normalized, maxResults, uris);
+            }
+            if (uris.size() >= maxResults) {
+                break;
+            }
+        }
+        return new ArrayList<>(uris);
+    }
+
+    /**
+     * @return the number of labels in the index.
+     */
+    public int size() {
+        int size = 0;
+        for (Labels labels : labelsByLanguage.values()) {
+            size += labels.labels.length;
+        }
+        return size;
+    }
+
+    private static String normalize(String label) {
+        return label.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Collects the labels of the concepts before building the index.
+     */
+    public static final class Builder {
+        private final Map<String, List<String[]>> entries = new HashMap<>();
+
+        public Builder add(String uri, String label, String language) {
+            String key = language == null ? "" : language.toLowerCase(Locale.ROOT);
+            List<String[]> labels = entries.get(key);
+            if (labels == null) {
+                labels = new ArrayList<>();
+                entries.put(key, labels);
+            }
+            labels.add(new String[]{normalize(label), uri});
+            return this;
+        }
+
+        /**
+         * Add all the labels of another index, eg. to merge the indexes of several thesauri.
+         *
+         * @param uriMapper maps the uris of the concepts of the index to the uris of the built
+         *                  index
+         */
+        public Builder addAll(KeywordLabelIndex index, Function<String, String> uriMapper) {
+            for (Map.Entry<String, Labels> entry : index.labelsByLanguage.entrySet()) {
+                Labels labels = entry.getValue();
+                for (int i = 0; i < labels.labels.length; i++) {
+                    add(uriMapper.apply(labels.uris[i]), labels.labels[i], entry.getKey());
+                }
+            }
+            return this;
+        }
+
+        public KeywordLabelIndex build() {
+            Map<String, Labels> labelsByLanguage = new HashMap<>(entries.size());
+            for (Map.Entry<String, List<String[]>> entry : entries.entrySet()) {
+                labelsByLanguage.put(entry.getKey(), new Labels(entry.getValue()));
+            }
+            return new KeywordLabelIndex(Collections.unmodifiableMap(labelsByLanguage));
+        }
+    }
+
+    /**
+     * The sorted labels of a language with the uri of their concept at the same position.
+     */
+    private static final class Labels {
+        private final String[] labels;
+        private final String[] uris;
+
+        Labels(List<String[]> entries) {
+            String[][] sorted = entries.toArray(new String[entries.size()][]);
+            Arrays.sort(sorted, new Comparator<String[]>() {
+                @Override
+                public int compare(String[] e1, String[] e2) {
+                    int comp = e1[0].compareTo(e2[0]);
+                    return comp != 0 ? comp : e1[1].compareTo(e2[1]);
+                }
+            });
+            labels = new String[sorted.length];
+            uris = new String[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                labels[i] = sorted[i][0];
+                uris[i] = sorted[i][1];
+            }
+        }
+
+        void collect(String prefix, int maxResults, Set<String> result) {
+            int position = Arrays.binarySearch(labels, prefix);
+            if (position < 0) {
+                position = -position - 1;
+            } else {
+                // Go back to the first of the labels equal to the prefix
+                while (position > 0 && labels[position - 1].equals(prefix)) {
+                    position--;
+                }
+            }
+            for (int i = position; i < labels.length && result.size() < maxResults && labels[i].startsWith(prefix); i++) {
+                result.add(uris[i]);
+            }
+        }
+    }
+}
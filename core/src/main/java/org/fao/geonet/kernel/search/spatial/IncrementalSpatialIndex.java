@@ -0,0 +1,403 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.spatial;
+
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.utils.Log;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.SpatialIndex;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory spatial index of the {@link SpatialIndexWriter.Data} of the records, updated
+ * incrementally.
+ *
+ * The index is made of a packed {@link STRtree} built from a snapshot of the records and of a
+ * {@link Quadtree} delta holding the current extents of the records modified since the snapshot.
+ * The extents of the modified records are masked in the STRtree. When the delta grows too large,
+ * a new STRtree is built in the background from the current records and replaces the previous
+ * one; searches keep using the previous generation until then.
+ */
+public class IncrementalSpatialIndex implements SpatialIndex {
+    /**
+     * Minimum number of modified records before the delta is merged.
+     */
+    static final int MIN_DELTA_SIZE_TO_MERGE = 1000;
+    /**
+     * Ratio of modified records before the delta is merged.
+     */
+    static final double DELTA_RATIO_TO_MERGE = 0.1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService merger;
+
+    /**
+     * The current extents of each record. The lists are never modified once added.
+     */
+    private final Map<String, List<SpatialIndexWriter.Data>> entries = new HashMap<>();
+    private STRtree base = emptyTree();
+    /**
+     * The records whose extents in the base tree are out of date.
+     */
+    private Set<String> modified = new HashSet<>();
+    private Quadtree delta = new Quadtree();
+    /**
+     * The records modified while a merge is running, null if no merge is running.
+     */
+    private Set<String> modifiedDuringMerge;
+    /**
+     * True if the index has been reloaded while a merge is running.
+     */
+    private boolean mergeCancelled;
+    private final AtomicBoolean mergeQueued = new AtomicBoolean();
+
+    public IncrementalSpatialIndex() {
+        merger = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "spatial-index-merge");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return a number which changes each time the content of the index changes.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Add extents to the ones of a record.
+     */
+    public void add(String metadataId, Collection<SpatialIndexWriter.Data> data) {
+        if (data.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<SpatialIndexWriter.Data> current = entries.get(metadataId);
+            List<SpatialIndexWriter.Data> updated = new ArrayList<>(data.size() + (current == null ? 0 : current.size()));
+            if (current != null) {
+                updated.addAll(current);
+            }
+            updated.addAll(data);
+            update(metadataId, Collections.unmodifiableList(updated));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        mergeIfNeeded();
+    }
+
+    /**
+     * Replace the extents of a record.
+     */
+    public void replace(String metadataId, Collection<SpatialIndexWriter.Data> data) {
+        lock.writeLock().lock();
+        try {
+            update(metadataId, data.isEmpty() ? null : Collections.unmodifiableList(new ArrayList<>(data)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        mergeIfNeeded();
+    }
+
+    /**
+     * Remove the extents of a record.
+     */
+    public void remove(String metadataId) {
+        lock.writeLock().lock();
+        try {
+            if (entries.containsKey(metadataId)) {
+                update(metadataId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        mergeIfNeeded();
+    }
+
+    /**
+     * Replace the content of the index with the extents of the records and build the base tree
+     * right away.
+     */
+    public void load(Map<String, List<SpatialIndexWriter.Data>> records) {
+        STRtree tree = new STRtree();
+        Map<String, List<SpatialIndexWriter.Data>> loaded = new HashMap<>(records.size());
+        for (Map.Entry<String, List<SpatialIndexWriter.Data>> record : records.entrySet()) {
+            for (SpatialIndexWriter.Data d : record.getValue()) {
+                tree.insert(d.getEnv(), d);
+            }
+            loaded.put(record.getKey(), Collections.unmodifiableList(new ArrayList<>(record.getValue())));
+        }
+        tree.build();
+
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            entries.putAll(loaded);
+            base = tree;
+            modified = new HashSet<>();
+            delta = new Quadtree();
+            // The running merge must not restore the previous records
+            mergeCancelled = modifiedDuringMerge != null;
+            generation.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all the records.
+     */
+    public void clear() {
+        load(Collections.<String, List<SpatialIndexWriter.Data>>emptyMap());
+    }
+
+    /**
+     * @return the number of records in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of records served by the delta.
+     */
+    int getDeltaSize() {
+        lock.readLock().lock();
+        try {
+            return modified.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build a new base tree from the current records, whatever the size of the delta.
+     */
+    void merge() {
+        Map<String, List<SpatialIndexWriter.Data>> snapshot;
+        lock.writeLock().lock();
+        try {
+            if (modifiedDuringMerge != null || modified.isEmpty()) {
+                return;
+            }
+            snapshot = new HashMap<>(entries);
+            modifiedDuringMerge = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        STRtree tree = null;
+        try {
+            STRtree built = new STRtree();
+            for (List<SpatialIndexWriter.Data> data : snapshot.values()) {
+                for (SpatialIndexWriter.Data d : data) {
+                    built.insert(d.getEnv(), d);
+                }
+            }
+            built.build();
+            tree = built;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (tree != null && !mergeCancelled) {
+                    base = tree;
+                    modified = modifiedDuringMerge;
+                    delta = new Quadtree();
+                    for (String metadataId : modified) {
+                        List<SpatialIndexWriter.Data> data = entries.get(metadataId);
+                        if (data != null) {
+                            insert(delta, data);
+                        }
+                    }
+                    generation.incrementAndGet();
+                }
+                modifiedDuringMerge = null;
+                mergeCancelled = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Stop merging the delta in the background.
+     */
+    public void close() {
+        merger.shutdownNow();
+    }
+
+    @Override
+    public void insert(Envelope itemEnv, Object item) {
+        SpatialIndexWriter.Data data = (SpatialIndexWriter.Data) item;
+        add(data.getMetadataId(), Collections.singletonList(data));
+    }
+
+    @Override
+    public boolean remove(Envelope itemEnv, Object item) {
+        SpatialIndexWriter.Data data = (SpatialIndexWriter.Data) item;
+        lock.writeLock().lock();
+        try {
+            List<SpatialIndexWriter.Data> current = entries.get(data.getMetadataId());
+            if (current == null || !current.contains(data)) {
+                return false;
+            }
+            List<SpatialIndexWriter.Data> updated = new ArrayList<>(current);
+            updated.remove(data);
+            update(data.getMetadataId(), updated.isEmpty() ? null : Collections.unmodifiableList(updated));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List query(Envelope searchEnv) {
+        final List<SpatialIndexWriter.Data> result = new ArrayList<>();
+        query(searchEnv, new ItemVisitor() {
+            @Override
+            public void visitItem(Object item) {
+                result.add((SpatialIndexWriter.Data) item);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void query(final Envelope searchEnv, final ItemVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            final Set<String> masked = modified;
+            base.query(searchEnv, new ItemVisitor() {
+                @Override
+                public void visitItem(Object item) {
+                    if (!masked.contains(((SpatialIndexWriter.Data) item).getMetadataId())) {
+                        visitor.visitItem(item);
+                    }
+                }
+            });
+            // The quadtree returns all the items of the nodes overlapping the envelope
+            delta.query(searchEnv, new ItemVisitor() {
+                @Override
+                public void visitItem(Object item) {
+                    if (((SpatialIndexWriter.Data) item).getEnv().intersects(searchEnv)) {
+                        visitor.visitItem(item);
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Set the extents of a record, the write lock must be held.
+     */
+    private void update(String metadataId, List<SpatialIndexWriter.Data> data) {
+        if (modified.contains(metadataId)) {
+            List<SpatialIndexWriter.Data> previous = entries.get(metadataId);
+            if (previous != null) {
+                for (SpatialIndexWriter.Data d : previous) {
+                    delta.remove(d.getEnv(), d);
+                }
+            }
+        } else {
+            modified.add(metadataId);
+        }
+        if (data == null) {
+            entries.remove(metadataId);
+        } else {
+            entries.put(metadataId, data);
+            insert(delta, data);
+        }
+        if (modifiedDuringMerge != null) {
+            modifiedDuringMerge.add(metadataId);
+        }
+        generation.incrementAndGet();
+    }
+
+    private void mergeIfNeeded() {
+        boolean needed;
+        lock.readLock().lock();
+        try {
+            needed = modifiedDuringMerge == null && modified.size() >= MIN_DELTA_SIZE_TO_MERGE
+                && modified.size() >= entries.size() * DELTA_RATIO_TO_MERGE;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (needed && !merger.isShutdown() && mergeQueued.compareAndSet(false, true)) {
+            merger.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mergeQueued.set(false);
+                    try {
+                        merge();
+                    } catch (Throwable e) {
+                        Log.error(Geonet.INDEX_ENGINE, "Spatial index merge error: " + e.getMessage(), e);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void insert(Quadtree tree, List<SpatialIndexWriter.Data> data) {
+        for (SpatialIndexWriter.Data d : data) {
+            tree.insert(d.getEnv(), d);
+        }
+    }
+
+    private static STRtree emptyTree() {
+        STRtree tree = new STRtree();
+        tree.build();
+        return tree;
+    }
+}
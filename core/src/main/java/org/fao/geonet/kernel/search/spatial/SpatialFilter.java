@@ -22,6 +22,10 @@
 
 package org.fao.geonet.kernel.search.spatial;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import org.locationtech.jts.geom.Envelope;
@@ -34,13 +38,16 @@ import org.apache.jcs.access.exception.CacheException;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.FieldCache;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.OpenBitSet;
 import org.fao.geonet.JeevesJCS;
 import org.fao.geonet.constants.Geonet;
@@ -63,6 +70,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -76,6 +84,26 @@ import static org.fao.geonet.kernel.search.spatial.SpatialIndexWriter.SPATIAL_FI
 public abstract class SpatialFilter extends Filter {
     private static Logger LOGGER = LoggerFactory.getLogger(Geonet.SPATIAL);
     private static final int MAX_FIDS_PER_QUERY = 5000;
+    private static final int UNREFINED_MATCHES_CACHE_SIZE = 64;
+
+    /**
+     * If true, the metadata id of the hits is read from the stored fields of the documents
+     * instead of the terms index of the id field.
+     */
+    private static final boolean LOAD_IDS_FROM_STORED_FIELDS =
+        Boolean.getBoolean("geonetwork.spatial.filter.storedFields");
+
+    /**
+     * The spatial index matches of the recent envelopes, per spatial index. The matches are keyed
+     * by generation of the index and envelope so that they are not reused once the index changes.
+     */
+    private static final LoadingCache<SpatialIndex, Cache<Pair<Long, Envelope>, Map<String, FeatureId>>> UNREFINED_MATCHES =
+        CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<SpatialIndex, Cache<Pair<Long, Envelope>, Map<String, FeatureId>>>() {
+            @Override
+            public Cache<Pair<Long, Envelope>, Map<String, FeatureId>> load(SpatialIndex key) {
+                return CacheBuilder.newBuilder().maximumSize(UNREFINED_MATCHES_CACHE_SIZE).build();
+            }
+        });
 
     private static final Geometry WORLD_BOUNDS;
 
@@ -134,7 +162,24 @@ public abstract class SpatialFilter extends Filter {
 
         if (unrefinedSpatialMatches.isEmpty() || _hits >= _numHits) return bits;
 
-        new IndexSearcher(context.reader()).search(_query, new Collector() {
+        if (LOAD_IDS_FROM_STORED_FIELDS) {
+            collectFromStoredFields(context.reader(), unrefinedSpatialMatches, matches, docIndexLookup);
+        } else {
+            collectFromTermsIndex(context.reader(), unrefinedSpatialMatches, matches, docIndexLookup);
+        }
+        JeevesJCS jcs = getJCSCache();
+        processCachedFeatures(jcs, matches, docIndexLookup, bits);
+        processNonCachedFeature(jcs, matches, docIndexLookup, bits);
+        return bits;
+    }
+
+    /**
+     * Collect the documents of the segment matching the query and the spatial index, loading the
+     * metadata id of each document from its stored fields.
+     */
+    void collectFromStoredFields(AtomicReader segmentReader, final Map<String, FeatureId> unrefinedSpatialMatches,
+                                 final Set<FeatureId> matches, final Multimap<FeatureId, Integer> docIndexLookup) throws IOException {
+        new IndexSearcher(segmentReader).search(_query, new Collector() {
             private int docBase;
             private Document document;
             private AtomicReader reader;
@@ -170,10 +215,52 @@ public abstract class SpatialFilter extends Filter {
                 this.reader = context.reader();
             }
         });
-        JeevesJCS jcs = getJCSCache();
-        processCachedFeatures(jcs, matches, docIndexLookup, bits);
-        processNonCachedFeature(jcs, matches, docIndexLookup, bits);
-        return bits;
+    }
+
+    /**
+     * Collect the documents of the segment matching the query and the spatial index, resolving the
+     * metadata id of each document with the terms index of the id field. The terms index is built
+     * once per segment by the {@link FieldCache}, so no stored field is loaded.
+     */
+    void collectFromTermsIndex(AtomicReader segmentReader, final Map<String, FeatureId> unrefinedSpatialMatches,
+                               final Set<FeatureId> matches, final Multimap<FeatureId, Integer> docIndexLookup) throws IOException {
+        final SortedDocValues ids = FieldCache.DEFAULT.getTermsIndex(segmentReader, Geonet.IndexFieldNames.ID);
+        final FeatureIdsByOrd featureIds = new FeatureIdsByOrd(ids, unrefinedSpatialMatches);
+        if (featureIds.isEmpty()) {
+            return;
+        }
+
+        new IndexSearcher(segmentReader).search(_query, new Collector() {
+            private int docBase;
+
+            // ignore scorer
+            public void setScorer(Scorer scorer) {
+            }
+
+            // accept docs out of order (for a BitSet it doesn't matter)
+            public boolean acceptsDocsOutOfOrder() {
+                return true;
+            }
+
+            public void collect(int doc) {
+                doc = doc + docBase;
+                int ord = ids.getOrd(doc);
+                if (ord < 0) {
+                    return;
+                }
+                FeatureId featureId = featureIds.get(ord);
+                if (featureId != null && _hits < _numHits) {
+                    _hits++;
+                    matches.add(featureId);
+                    docIndexLookup.put(featureId, doc);
+                }
+            }
+
+            @Override
+            public void setNextReader(AtomicReaderContext context) throws IOException {
+                this.docBase = context.docBase;
+            }
+        });
     }
 
     private void processCachedFeatures(GroupCacheAccess jcs, Set<FeatureId> matches, Multimap<FeatureId, Integer> docIndexLookup, OpenBitSet bits) {
@@ -254,10 +341,20 @@ public abstract class SpatialFilter extends Filter {
     protected synchronized Map<String, FeatureId> unrefinedSpatialMatches() {
         if (_unrefinedMatches == null) {
             SpatialIndex spatialIndex = sourceAccessor.two();
-            List<SpatialIndexWriter.Data> fids = spatialIndex.query(_geom.getEnvelopeInternal());
-            _unrefinedMatches = new HashMap<>();
-            for (SpatialIndexWriter.Data match : fids) {
-                _unrefinedMatches.put(match.getMetadataId(), match.getFeatureId());
+            Envelope envelope = new Envelope(_geom.getEnvelopeInternal());
+            long generation = spatialIndex instanceof IncrementalSpatialIndex ?
+                ((IncrementalSpatialIndex) spatialIndex).getGeneration() : 0;
+            Pair<Long, Envelope> key = Pair.read(generation, envelope);
+            Cache<Pair<Long, Envelope>, Map<String, FeatureId>> recentMatches = UNREFINED_MATCHES.getUnchecked(spatialIndex);
+            _unrefinedMatches = recentMatches.getIfPresent(key);
+            if (_unrefinedMatches == null) {
+                List<SpatialIndexWriter.Data> fids = spatialIndex.query(envelope);
+                Map<String, FeatureId> unrefinedMatches = new HashMap<>();
+                for (SpatialIndexWriter.Data match : fids) {
+                    unrefinedMatches.put(match.getMetadataId(), match.getFeatureId());
+                }
+                _unrefinedMatches = Collections.unmodifiableMap(unrefinedMatches);
+                recentMatches.put(key, _unrefinedMatches);
             }
         }
         return _unrefinedMatches;
@@ -283,4 +380,55 @@ public abstract class SpatialFilter extends Filter {
     public void setQuery(Query query) {
         _query = query;
     }
+
+    /**
+     * The features of the spatial index matches indexed by the ordinal of their metadata id in
+     * the terms index of a segment. Dense when most of the terms of the segment match, sorted
+     * arrays searched by bisection otherwise.
+     */
+    static final class FeatureIdsByOrd {
+        private final FeatureId[] dense;
+        private final int[] ords;
+        private final FeatureId[] sparse;
+
+        FeatureIdsByOrd(SortedDocValues ids, Map<String, FeatureId> unrefinedSpatialMatches) {
+            int valueCount = ids.getValueCount();
+            if (unrefinedSpatialMatches.size() * 8L >= valueCount) {
+                dense = new FeatureId[valueCount];
+                for (int ord = 0; ord < valueCount; ord++) {
+                    dense[ord] = unrefinedSpatialMatches.get(ids.lookupOrd(ord).utf8ToString());
+                }
+                ords = null;
+                sparse = null;
+            } else {
+                int[] matchedOrds = new int[unrefinedSpatialMatches.size()];
+                int count = 0;
+                for (String metadataId : unrefinedSpatialMatches.keySet()) {
+                    int ord = ids.lookupTerm(new BytesRef(metadataId));
+                    if (ord >= 0) {
+                        matchedOrds[count++] = ord;
+                    }
+                }
+                ords = Arrays.copyOf(matchedOrds, count);
+                Arrays.sort(ords);
+                sparse = new FeatureId[count];
+                for (int i = 0; i < count; i++) {
+                    sparse[i] = unrefinedSpatialMatches.get(ids.lookupOrd(ords[i]).utf8ToString());
+                }
+                dense = null;
+            }
+        }
+
+        boolean isEmpty() {
+            return dense == null ? ords.length == 0 : dense.length == 0;
+        }
+
+        FeatureId get(int ord) {
+            if (dense != null) {
+                return dense[ord];
+            }
+            int i = Arrays.binarySearch(ords, ord);
+            return i < 0 ? null : sparse[i];
+        }
+    }
 }
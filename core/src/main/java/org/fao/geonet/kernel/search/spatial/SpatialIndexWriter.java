@@ -26,7 +26,6 @@ package org.fao.geonet.kernel.search.spatial;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.geom.util.GeometryTransformer;
 import org.locationtech.jts.index.SpatialIndex;
-import org.locationtech.jts.index.strtree.STRtree;
 import org.apache.jcs.access.exception.CacheException;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.util.GMLParsers;
@@ -67,9 +66,11 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 
@@ -91,7 +92,12 @@ public class SpatialIndexWriter implements FeatureListener {
     private final Lock _lock;
     private int _maxWrites;
     private FeatureStore<SimpleFeatureType, SimpleFeature> _featureStore;
-    private STRtree _index;
+    private IncrementalSpatialIndex _index;
+    /**
+     * The records added in the current transaction. Their feature ids are only known once the
+     * transaction is committed.
+     */
+    private final Set<String> _pendingIds = new HashSet<>();
     private Map<String, String> errorMessage;
     private Name _idColumn;
     private boolean _autocommit;
@@ -268,7 +274,6 @@ public class SpatialIndexWriter implements FeatureListener {
                       Element metadata) throws Exception {
         _lock.lock();
         try {
-            _index = null;
             errorMessage = new HashMap<>();
             Geometry geometry = extractGeometriesFrom(
                 schemaDir, metadata, errorMessage);
@@ -283,12 +288,18 @@ public class SpatialIndexWriter implements FeatureListener {
                 template.setAttribute(getIdColumn(), id);
                 features.add(template);
 
-                _featureStore.addFeatures(features);
+                List<FeatureId> featureIds = _featureStore.addFeatures(features);
+                if (_index != null && !featureIds.isEmpty()) {
+                    _index.add(id, buildData(id, featureIds.get(0), geometry));
+                }
+                if (!_autocommit) {
+                    _pendingIds.add(id);
+                }
 
                 _writes++;
 
                 if (!_autocommit && _writes > _maxWrites) {
-                    _transaction.commit();
+                    commitTransaction();
                     _writes = 0;
                 }
             }
@@ -317,7 +328,11 @@ public class SpatialIndexWriter implements FeatureListener {
                 _writes = 0;
             }
             _transaction.close();
-            _index = null;
+            _pendingIds.clear();
+            if (_index != null) {
+                _index.close();
+                _index = null;
+            }
             _featureStore.setTransaction(Transaction.AUTO_COMMIT);
             // Done by JCSServletContextListener: SpatialFilter.getJCSCache().clear();
         } catch (Exception e) {
@@ -339,9 +354,11 @@ public class SpatialIndexWriter implements FeatureListener {
             Filter filter = factory.equals(
                 factory.property(getIdColumn()), factory.literal(id));
 
-            _index = null;
-
             _featureStore.removeFeatures(filter);
+            if (_index != null) {
+                _index.remove(id);
+            }
+            _pendingIds.remove(id);
             try {
                 SpatialFilter.getJCSCache().clear();
             } catch (Throwable e) {
@@ -366,9 +383,13 @@ public class SpatialIndexWriter implements FeatureListener {
                     factory.property(idColumn), factory.literal(id)));
             }
 
-            _index = null;
-
             _featureStore.removeFeatures(factory.or(filters));
+            for (String id : ids) {
+                if (_index != null) {
+                    _index.remove(id);
+                }
+                _pendingIds.remove(id);
+            }
             try {
                 SpatialFilter.getJCSCache().clear();
             } catch (Throwable e) {
@@ -386,8 +407,7 @@ public class SpatialIndexWriter implements FeatureListener {
 
             if (!_autocommit && _writes > 0) {
                 _writes = 0;
-                _transaction.commit();
-                _index = null;
+                commitTransaction();
                 SpatialFilter.getJCSCache().clear();
             }
         } catch (Throwable e) {
@@ -398,6 +418,45 @@ public class SpatialIndexWriter implements FeatureListener {
 
     }
 
+    /**
+     * Commit the transaction and update the extents of the records added in the transaction
+     * with their final feature ids.
+     */
+    private void commitTransaction() throws IOException {
+        _transaction.commit();
+        if (_pendingIds.isEmpty()) {
+            return;
+        }
+        if (_index != null) {
+            FilterFactory2 factory = CommonFactoryFinder
+                .getFilterFactory2(GeoTools.getDefaultHints());
+            List<Filter> filters = new ArrayList<>(_pendingIds.size());
+            String idColumn = getIdColumn();
+            for (String id : _pendingIds) {
+                filters.add(factory.equals(
+                    factory.property(idColumn), factory.literal(id)));
+            }
+
+            Map<String, List<Data>> committed = new HashMap<>();
+            FeatureIterator<SimpleFeature> features = null;
+            try {
+                features = _featureStore.getFeatures(factory.or(filters)).features();
+                while (features.hasNext()) {
+                    addData(committed, features.next());
+                }
+            } finally {
+                if (features != null) {
+                    features.close();
+                }
+            }
+            for (String id : _pendingIds) {
+                List<Data> data = committed.get(id);
+                _index.replace(id, data == null ? new ArrayList<Data>() : data);
+            }
+        }
+        _pendingIds.clear();
+    }
+
     public SpatialIndex getIndex() throws IOException {
         _lock.lock();
         try {
@@ -418,8 +477,11 @@ public class SpatialIndexWriter implements FeatureListener {
         _lock.lock();
         try {
             _featureStore.setTransaction(Transaction.AUTO_COMMIT);
-            _index = null;
             _featureStore.removeFeatures(Filter.INCLUDE);
+            _pendingIds.clear();
+            if (_index != null) {
+                _index.clear();
+            }
             _featureStore.setTransaction(_transaction);
         } finally {
             _lock.unlock();
@@ -432,8 +494,7 @@ public class SpatialIndexWriter implements FeatureListener {
         } catch (CacheException e) {
             Log.error(Geonet.INDEX_ENGINE,"SpatialIndexWriter JCSCache clear error: " + e.getMessage(), e);
         }
-        _index = new STRtree();
-
+        Map<String, List<Data>> records = new HashMap<>();
         FeatureIterator<SimpleFeature> features = null;
         try {
             features = _featureStore.getFeatures().features();
@@ -442,10 +503,7 @@ public class SpatialIndexWriter implements FeatureListener {
                 if (_idColumn == null) {
                     _idColumn = findIdColumn(_featureStore);
                 }
-
-                if (feature.getDefaultGeometry() != null) {
-                    insertFeatureInIndex(feature);
-                }
+                addData(records, feature);
             }
 
         } finally {
@@ -453,6 +511,8 @@ public class SpatialIndexWriter implements FeatureListener {
                 features.close();
             }
         }
+        _index = new IncrementalSpatialIndex();
+        _index.load(records);
     }
 
     private FeatureStore<SimpleFeatureType, SimpleFeature> createFeatureStore(DataStore datastore) throws Exception {
@@ -577,29 +637,40 @@ public class SpatialIndexWriter implements FeatureListener {
         }
     }
 
-    private void insertFeatureInIndex(SimpleFeature feature) {
+    private void addData(Map<String, List<Data>> records, SimpleFeature feature) {
         Geometry defaultGeometry = (Geometry) feature.getDefaultGeometry();
-        if (defaultGeometry instanceof MultiPolygon && defaultGeometry.getNumGeometries() > 1) {
-            for (int i = 0; i < defaultGeometry.getNumGeometries(); i++) {
-                Data data = buildData(feature, defaultGeometry.getNumGeometries());
-                Envelope envelope = defaultGeometry.getGeometryN(i).getEnvelopeInternal();
-                data.setEnv(envelope);
-                _index.insert(envelope, data);
+        if (defaultGeometry == null) {
+            return;
+        }
+        String metadataId = feature.getAttribute(_idColumn == null ? _IDS_ATTRIBUTE_NAME : _idColumn.toString()).toString();
+        List<Data> data = records.get(metadataId);
+        if (data == null) {
+            data = new ArrayList<>();
+            records.put(metadataId, data);
+        }
+        data.addAll(buildData(metadataId, feature.getIdentifier(), defaultGeometry));
+    }
+
+    private List<Data> buildData(String metadataId, FeatureId featureId, Geometry geometry) {
+        List<Data> result = new ArrayList<>();
+        if (geometry instanceof MultiPolygon && geometry.getNumGeometries() > 1) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                result.add(buildData(metadataId, featureId, geometry.getNumGeometries(),
+                    geometry.getGeometryN(i).getEnvelopeInternal()));
             }
 
         } else {
-            Data data = buildData(feature, 1);
-            Envelope envelope = defaultGeometry.getEnvelopeInternal();
-            data.setEnv(envelope);
-            _index.insert(envelope, data);
+            result.add(buildData(metadataId, featureId, 1, geometry.getEnvelopeInternal()));
         }
+        return result;
     }
 
-    private Data buildData(SimpleFeature feature, int numBrotherGeometries) {
+    private Data buildData(String metadataId, FeatureId featureId, int numBrotherGeometries, Envelope envelope) {
         Data data = new Data();
-        data.setMetadataId(feature.getAttribute(_idColumn == null ? _IDS_ATTRIBUTE_NAME : _idColumn.toString()).toString());
-        data.setFeatureId(feature.getIdentifier());
+        data.setMetadataId(metadataId);
+        data.setFeatureId(featureId);
         data.setNumBrotherGeometries(numBrotherGeometries);
+        data.setEnv(envelope);
         return data;
     }
 
@@ -695,7 +766,7 @@ public class SpatialIndexWriter implements FeatureListener {
     }
 
     /**
-     * Record stored in STRTree.
+     * Record stored in the {@link IncrementalSpatialIndex}.
      */
     public class Data {
         /** FeatureID, can be used to select feature from data store */
@@ -32,6 +32,8 @@ import org.fao.geonet.domain.Setting;
 import org.fao.geonet.domain.SettingDataType;
 import org.fao.geonet.domain.Setting_;
 import org.fao.geonet.domain.Source;
+import org.fao.geonet.entitylistener.GeonetworkEntityListener;
+import org.fao.geonet.entitylistener.PersistentEventType;
 import org.fao.geonet.repository.LanguageRepository;
 import org.fao.geonet.repository.SettingRepository;
 import org.fao.geonet.repository.SortUtils;
@@ -39,16 +41,23 @@ import org.fao.geonet.repository.SourceRepository;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.ObjectName;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.servlet.ServletContext;
@@ -63,8 +72,14 @@ import static org.fao.geonet.kernel.setting.Settings.SYSTEM_SITE_NAME_PATH;
  * A convenience class for updating and accessing settings.  One of the primary needs of this class
  * at the moment is to maintain backwards compatibility so not all code and xsl files that make use
  * of the settings need to be modified.
+ *
+ * The settings are read from an immutable snapshot of the settings table, loaded on first use and
+ * dropped when a setting is persisted, updated or removed (see {@link SnapshotListener}) or {@link
+ * #refresh()} is called. Bulk updates and SQL scripts bypass the listener and need {@link
+ * #refresh()}. The cache statistics are published through JMX as {@value #STATISTICS_MBEAN_NAME}.
  */
 public class SettingManager {
+    public static final String STATISTICS_MBEAN_NAME = "geonetwork:name=settings-cache";
 
     @PersistenceContext
     private EntityManager _entityManager;
@@ -80,9 +95,41 @@ public class SettingManager {
     @Autowired
     SourceRepository sourceRepository;
 
+    @Autowired(required = false)
+    private MBeanExporter exporter;
+
+    private final SettingsCacheStatistics statistics = new SettingsCacheStatistics();
+    /**
+     * Incremented each time the settings are modified, a snapshot loaded before a modification is
+     * not used.
+     */
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private ObjectName statisticsName;
+
     @PostConstruct
     private void init() {
         this.pathFinder = new ServletPathFinder(servletContext);
+        if (exporter != null) {
+            try {
+                statisticsName = new ObjectName(STATISTICS_MBEAN_NAME);
+                exporter.registerManagedResource(statistics, statisticsName);
+            } catch (Exception e) {
+                statisticsName = null;
+                Log.warning(Geonet.SETTINGS, "Settings cache statistics not registered in JMX: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (statisticsName != null) {
+            exporter.unregisterManagedResource(statisticsName);
+        }
+    }
+
+    public SettingsCacheStatistics getCacheStatistics() {
+        return statistics;
     }
 
     public List<Setting> getAll() {
@@ -175,7 +222,7 @@ public class SettingManager {
             Log.debug(Geonet.SETTINGS, "Requested setting with name: " + path);
         }
 
-        Setting se = repo.findOne(path);
+        Setting se = getSetting(path);
         if (se == null) {
             // TODO : When a settings is not available in the settings table
             // we end here. It could be relevant to add a list of default
@@ -200,11 +247,11 @@ public class SettingManager {
         List<Setting> settings = new ArrayList<>();
         for (int i = 0; i < keys.length; i++) {
             String key = keys[i];
-            Setting se = repo.findOne(key);
+            Setting se = getSetting(key);
             if (se == null) {
                 Log.warning(Geonet.SETTINGS, "  Requested setting with name: " + key + " not found. Add it to the settings table.");
             } else {
-                settings.add(se);
+                settings.add(copy(se));
             }
         }
         return settings;
@@ -219,7 +266,7 @@ public class SettingManager {
         Element env = new Element("settings");
         for (int i = 0; i < keys.length; i++) {
             String key = keys[i];
-            Setting se = repo.findOne(key);
+            Setting se = getSetting(key);
             if (se == null) {
                 Log.error(Geonet.SETTINGS, "  Requested setting with name: " + key + " not found. Add it to the settings table.");
             } else {
@@ -299,6 +346,7 @@ public class SettingManager {
         setting.setValue(value);
 
         repo.save(setting);
+        invalidate();
         return true;
     }
 
@@ -344,9 +392,110 @@ public class SettingManager {
      */
     public final boolean refresh() throws SQLException {
         _entityManager.getEntityManagerFactory().getCache().evict(HarvesterSetting.class);
+        invalidate();
         return true;
     }
 
+    /**
+     * @return the setting from the snapshot, or from the database if it was added without using
+     * this class.
+     */
+    private Setting getSetting(String key) {
+        Setting setting = getSnapshot().get(key);
+        if (setting != null) {
+            statistics.hit();
+            return setting;
+        }
+
+        statistics.miss();
+        setting = repo.findOne(key);
+        if (setting != null) {
+            invalidate();
+        }
+        return setting;
+    }
+
+    private Map<String, Setting> getSnapshot() {
+        Snapshot current = snapshot;
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            return current.settings;
+        }
+
+        Map<String, Setting> settings = new HashMap<String, Setting>();
+        for (Setting setting : repo.findAll()) {
+            settings.put(setting.getName(), copy(setting));
+        }
+        settings = Collections.unmodifiableMap(settings);
+        statistics.loaded(settings.size());
+        // Not kept if the settings were modified while loading
+        if (version.get() == currentVersion) {
+            snapshot = new Snapshot(currentVersion, settings);
+        }
+        return settings;
+    }
+
+    /**
+     * Drop the snapshot, and drop it again when the current transaction completes so that the
+     * snapshot loaded meanwhile, which may not have the committed or rolled back values, is not
+     * kept.
+     */
+    private void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    private static Setting copy(Setting setting) {
+        return new Setting()
+            .setName(setting.getName())
+            .setValue(setting.getValue())
+            .setDataType(setting.getDataType())
+            .setPosition(setting.getPosition())
+            .setInternal(setting.isInternal());
+    }
+
+    /**
+     * Drops the snapshot when a setting is persisted, updated or removed, whether through this
+     * class or the {@link SettingRepository}.
+     */
+    public static class SnapshotListener implements GeonetworkEntityListener<Setting> {
+        private final SettingManager settingManager;
+
+        public SnapshotListener(SettingManager settingManager) {
+            this.settingManager = settingManager;
+        }
+
+        @Override
+        public Class<Setting> getEntityClass() {
+            return Setting.class;
+        }
+
+        @Override
+        public void handleEvent(PersistentEventType type, Setting entity) {
+            if (type == PersistentEventType.PostPersist || type == PersistentEventType.PostUpdate
+                || type == PersistentEventType.PostRemove) {
+                settingManager.invalidate();
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final Map<String, Setting> settings;
+
+        private Snapshot(long version, Map<String, Setting> settings) {
+            this.version = version;
+            this.settings = settings;
+        }
+    }
+
     public final String getSiteId() {
         return getValue(Settings.SYSTEM_SITE_SITE_ID_PATH);
     }
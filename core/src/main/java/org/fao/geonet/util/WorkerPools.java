@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.util;
+
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.utils.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * The pools of the work a request splits over several threads, eg. parsing the records of a
+ * search page or running the schematrons of a record.
+ *
+ * A pool is created on first use with a fixed number of daemon threads, which stop when idle. Its
+ * queue holds 16 tasks per thread, a task submitted to a full queue runs in the submitting
+ * thread. Tasks must then not depend on the thread they run in: a task running in the submitting
+ * thread joins its transaction, for example. The pools are shut down with the application context.
+ */
+public class WorkerPools {
+    private final ConcurrentMap<String, ThreadPoolExecutor> pools = new ConcurrentHashMap<>();
+    private boolean shutDown;
+
+    /**
+     * @param name    the name of the pool, its threads are named after it.
+     * @param threads the number of threads, used when the pool is created.
+     */
+    public ExecutorService getPool(String name, int threads) {
+        ThreadPoolExecutor pool = pools.get(name);
+        if (pool == null) {
+            synchronized (pools) {
+                if (shutDown) {
+                    throw new RejectedExecutionException("The worker pools are shut down");
+                }
+                pool = pools.get(name);
+                if (pool == null) {
+                    pool = createPool(name, Math.max(1, threads));
+                    pools.put(name, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        synchronized (pools) {
+            shutDown = true;
+        }
+        for (ThreadPoolExecutor pool : pools.values()) {
+            pool.shutdown();
+        }
+        for (ThreadPoolExecutor pool : pools.values()) {
+            try {
+                pool.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Log.warning(Geonet.THREADPOOL, "Error while stopping the worker pools", e);
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createPool(final String name, int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(threads * 16), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                // unlike CallerRunsPolicy, do not drop the task silently once shut down, the
+                // submitter would wait for it forever
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("The " + name + " pool is shut down");
+                }
+                r.run();
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JeevesCacheManagerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        JeevesCacheManager.clear();
+    }
+
+    @Test
+    public void valueIsLoadedOnce() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() {
+                return "value" + loads.incrementAndGet();
+            }
+        };
+
+        assertEquals("value1", JeevesCacheManager.findInEternalCache("key", loader));
+        assertEquals("value1", JeevesCacheManager.findInEternalCache("key", loader));
+        assertEquals("value2", JeevesCacheManager.findInTenSecondCache("key", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void concurrentMissesLoadTheValueOnce() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                loads.incrementAndGet();
+                Thread.sleep(100);
+                return "value";
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        return JeevesCacheManager.findInTenSecondCache("concurrent", loader);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("value", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void nullValuesAreNotCached() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() {
+                loads.incrementAndGet();
+                return null;
+            }
+        };
+
+        assertNull(JeevesCacheManager.findInEternalCache("null", loader));
+        assertNull(JeevesCacheManager.findInEternalCache("null", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void loaderExceptionsArePropagated() throws Exception {
+        JeevesCacheManager.findInEternalCache("error", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new IOException("failed");
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves;
+
+import org.jdom.Element;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class XmlFileCacherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fileIsReloadedWhenModified() throws Exception {
+        Path file = write("<strings><title>first</title></strings>", 1000);
+        XmlFileCacher cacher = new XmlFileCacher(file, 0, null, folder.getRoot().toPath());
+
+        Element first = cacher.get();
+        assertEquals("first", first.getChildText("title"));
+        assertSame(first, cacher.get());
+
+        write("<strings><title>second</title></strings>", 2000);
+        assertEquals("second", cacher.get().getChildText("title"));
+    }
+
+    @Test
+    public void fileIsReloadedByTheRefresher() throws Exception {
+        Path file = write("<strings><title>first</title></strings>", 1000);
+        final List<Runnable> tasks = new ArrayList<>();
+        XmlFileCacher cacher = new XmlFileCacher(file, 0, null, folder.getRoot().toPath(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        Element first = cacher.get();
+        write("<strings><title>second</title></strings>", 2000);
+
+        // The previous content is returned until the refresher has run
+        assertSame(first, cacher.get());
+        assertSame(first, cacher.get());
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals("second", cacher.get().getChildText("title"));
+    }
+
+    private Path write(String xml, long lastModified) throws Exception {
+        Path file = folder.getRoot().toPath().resolve("strings.xml");
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+}
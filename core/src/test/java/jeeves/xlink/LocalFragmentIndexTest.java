@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves.xlink;
+
+import org.fao.geonet.utils.Xml;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LocalFragmentIndexTest {
+    private static final Namespace GMD = Namespace.getNamespace("gmd", "http://www.isotc211.org/2005/gmd");
+
+    @Test
+    public void findsTheFirstElementBelowTheChildrenOfTheRoot() throws Exception {
+        Element md = new Element("MD_Metadata", GMD);
+        Element child = new Element("contact", GMD).setAttribute("id", "top");
+        Element first = new Element("party", GMD).setAttribute("id", "a");
+        Element second = new Element("party", GMD).setAttribute("id", "a");
+        md.addContent(child.addContent(first).addContent(second));
+
+        LocalFragmentIndex index = new LocalFragmentIndex(md);
+
+        assertSame(first, index.get("a"));
+        assertNull(index.get("top"));
+        assertNull(index.get("unknown"));
+
+        first.detach();
+        assertSame(second, index.get("a"));
+
+        Element added = new Element("party", GMD).setAttribute("id", "b");
+        child.addContent(added);
+        assertSame(added, index.get("b"));
+    }
+
+    @Test
+    public void resolvesLikeTheXPathLookup() throws Exception {
+        Element expected = createRecord(50, 200);
+        Set<String> expectedErrors = resolveWithXPath(expected);
+
+        Element actual = createRecord(50, 200);
+        Set<String> actualErrors = Processor.searchLocalXLink(actual, "resolve");
+
+        assertEquals(Xml.getString(expected), Xml.getString(actual));
+        assertEquals(expectedErrors, actualErrors);
+        assertEquals(Collections.singleton("#missing"), actualErrors);
+    }
+
+    @Test
+    public void skipsFragmentsReferencingThemselves() throws Exception {
+        Element md = new Element("MD_Metadata", GMD);
+        Element fragment = new Element("party", GMD).setAttribute("id", "loop");
+        fragment.addContent(new Element("name", GMD).setAttribute(XLink.HREF, "#loop", XLink.NAMESPACE_XLINK));
+        Element link = new Element("contact", GMD).setAttribute(XLink.HREF, "#loop", XLink.NAMESPACE_XLINK);
+        md.addContent(new Element("contact", GMD).addContent(fragment));
+        md.addContent(new Element("pointOfContact", GMD).addContent(link));
+
+        assertEquals(0, Processor.searchLocalXLink(md, "resolve").size());
+        assertEquals(0, link.getContentSize());
+    }
+
+    /**
+     * Compare the time spent resolving the local XLinks of a large record with an XPath lookup
+     * per link and with the index.
+     */
+    @Test
+    @Ignore
+    public void benchmarkLocalXLinks() throws Exception {
+        final int iterations = 20;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                resolveWithXPath(createRecord(500, 2000));
+            }
+            long xpath = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Processor.searchLocalXLink(createRecord(500, 2000), "resolve");
+            }
+            long indexed = System.nanoTime() - start;
+
+            System.out.println(String.format("XPath lookup: %d ms/record, index: %d ms/record",
+                xpath / iterations / 1000000, indexed / iterations / 1000000));
+        }
+    }
+
+    /**
+     * @return a record with some parties and links to them, the last link points to a missing id.
+     */
+    private static Element createRecord(int parties, int links) {
+        Element md = new Element("MD_Metadata", GMD);
+        Element contacts = new Element("contact", GMD);
+        md.addContent(contacts);
+        for (int i = 0; i < parties; i++) {
+            Element party = new Element("CI_ResponsibleParty", GMD).setAttribute("id", "party-" + i);
+            party.addContent(new Element("organisationName", GMD).setText("Organisation " + i));
+            party.addContent(new Element("role", GMD).setText(i % 2 == 0 ? "author" : "publisher"));
+            contacts.addContent(party);
+        }
+        for (int i = 0; i < links; i++) {
+            Element identification = new Element("identificationInfo", GMD);
+            Element poc = new Element("pointOfContact", GMD);
+            String href = i == links - 1 ? "#missing" : "#party-" + (i * 7 % parties);
+            poc.setAttribute(XLink.HREF, href, XLink.NAMESPACE_XLINK);
+            md.addContent(identification.addContent(poc));
+        }
+        return md;
+    }
+
+    /**
+     * The lookup of the local fragments before the index, one XPath per link.
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<String> resolveWithXPath(Element md) throws Exception {
+        List<Attribute> xlinks = (List<Attribute>) Xml.selectNodes(md, "*//@xlink:href[starts-with(.,'#')]",
+            Collections.singletonList(XLink.NAMESPACE_XLINK));
+        Set<String> errors = new HashSet<String>();
+        Map<String, Element> localIds = new HashMap<String, Element>();
+        for (Attribute xlink : xlinks) {
+            Element element = xlink.getParent();
+            String idSearch = xlink.getValue().substring(1);
+            Element localFragment = localIds.get(idSearch);
+            if (localFragment == null) {
+                localFragment = Xml.selectElement(md, "*//*[@id='" + idSearch + "']");
+                localIds.put(idSearch, localFragment);
+            }
+            if (localFragment != null) {
+                List<?> subXlinks = Xml.selectNodes(localFragment, "*//@xlink:href[.='#" + idSearch + "']",
+                    Collections.singletonList(XLink.NAMESPACE_XLINK));
+                if (!subXlinks.isEmpty()) {
+                    continue;
+                }
+                localFragment = (Element) localFragment.clone();
+                localFragment.removeAttribute("id");
+                element.removeContent();
+                element.addContent(localFragment);
+            } else {
+                errors.add(xlink.getValue());
+            }
+        }
+        return errors;
+    }
+}
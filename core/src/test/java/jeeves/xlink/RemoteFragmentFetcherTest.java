@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves.xlink;
+
+import org.fao.geonet.util.WorkerPools;
+import org.jdom.Element;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RemoteFragmentFetcherTest {
+
+    @Test
+    public void concurrentFetchesShareOneRequest() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingFetcher fetcher = new CountingFetcher() {
+            @Override
+            protected Element download(String uri) throws IOException {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return super.download(uri);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Element> first = executor.submit(fetch(fetcher, "http://host/fragment"));
+            started.await(10, TimeUnit.SECONDS);
+            Future<Element> second = executor.submit(fetch(fetcher, "http://host/fragment"));
+            Future<Element> third = executor.submit(fetch(fetcher, "http://HOST/fragment"));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertSame(first.get(), second.get());
+            assertSame(first.get(), third.get());
+            assertEquals(1, fetcher.downloads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fetchedFragmentsAreCached() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher();
+
+        Element fragment = fetcher.fetch("http://host/fragment");
+        assertNotNull(fragment);
+        assertSame(fragment, fetcher.fetch("http://host/fragment"));
+        assertEquals(1, fetcher.downloads.get());
+    }
+
+    @Test
+    public void failuresAreNotRequestedAgain() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher();
+
+        assertNull(fetcher.fetch("http://host/error"));
+        assertNull(fetcher.fetch("http://host/error"));
+        assertEquals(1, fetcher.downloads.get());
+
+        fetcher.clearFailures();
+        assertNull(fetcher.fetch("http://host/error"));
+        assertEquals(2, fetcher.downloads.get());
+    }
+
+    @Test
+    public void unreachableHostsAreNotRequestedAgain() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher();
+
+        try {
+            fetcher.fetch("http://dead/first");
+            fail("The host is not reachable");
+        } catch (ConnectException e) {
+            // expected
+        }
+        assertNull(fetcher.fetch("http://dead/second"));
+        assertEquals(1, fetcher.downloads.get());
+        assertNotNull(fetcher.fetch("http://host/fragment"));
+    }
+
+    @Test
+    public void prefetchFillsTheCache() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher();
+
+        WorkerPools workerPools = new WorkerPools();
+        try {
+            fetcher.prefetch(Arrays.asList("http://host/a", "http://host/b", "http://host/a", "http://dead/c"), workerPools);
+        } finally {
+            workerPools.shutDown();
+        }
+        assertEquals(3, fetcher.downloads.get());
+        assertEquals(2, fetcher.cache.size());
+
+        assertNotNull(fetcher.fetch("http://host/a"));
+        assertNull(fetcher.fetch("http://dead/c"));
+        assertEquals(3, fetcher.downloads.get());
+    }
+
+    private static Callable<Element> fetch(final RemoteFragmentFetcher fetcher, final String uri) {
+        return new Callable<Element>() {
+            @Override
+            public Element call() throws Exception {
+                return fetcher.fetch(uri);
+            }
+        };
+    }
+
+    /**
+     * Serves a fragment named after the path of the URI, hosts named "dead" refuse connections.
+     */
+    private static class CountingFetcher extends RemoteFragmentFetcher {
+        final AtomicInteger downloads = new AtomicInteger();
+        final Map<String, Element> cache = new ConcurrentHashMap<String, Element>();
+
+        CountingFetcher() {
+            super(4, 2, 60);
+        }
+
+        @Override
+        protected Element getCached(String uri) {
+            return cache.get(uri.toLowerCase());
+        }
+
+        @Override
+        protected void cache(String uri, Element fragment) {
+            cache.put(uri.toLowerCase(), fragment);
+        }
+
+        @Override
+        protected Element download(String uri) throws IOException {
+            downloads.incrementAndGet();
+            if (uri.toLowerCase().startsWith("http://dead/")) {
+                throw new ConnectException("Connection refused");
+            }
+            return new Element(uri.substring(uri.lastIndexOf('/') + 1));
+        }
+    }
+}
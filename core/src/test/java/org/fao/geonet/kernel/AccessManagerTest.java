@@ -22,12 +22,39 @@
  */
 package org.fao.geonet.kernel;
 
+import jeeves.server.UserSession;
+import jeeves.server.context.ServiceContext;
 import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.domain.Group;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.domain.Operation;
+import org.fao.geonet.domain.OperationAllowed;
+import org.fao.geonet.domain.OperationAllowedId;
+import org.fao.geonet.domain.Profile;
+import org.fao.geonet.domain.ReservedOperation;
+import org.fao.geonet.domain.User;
+import org.fao.geonet.domain.UserGroup;
+import org.fao.geonet.events.user.GroupJoined;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
+import org.fao.geonet.repository.GroupRepositoryTest;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.repository.MetadataRepositoryTest;
+import org.fao.geonet.repository.OperationAllowedRepository;
+import org.fao.geonet.repository.OperationRepository;
+import org.fao.geonet.repository.UserRepositoryTest;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -39,6 +66,14 @@ public class AccessManagerTest extends AbstractCoreIntegrationTest {
     private SettingManager settingManager;
     @Autowired
     private AccessManager accessManager;
+    @Autowired
+    private MetadataRepository metadataRepository;
+    @Autowired
+    private OperationAllowedRepository operationAllowedRepository;
+    @Autowired
+    private OperationRepository operationRepository;
+
+    private AtomicInteger inc = new AtomicInteger();
 
     /**
      * In previous versions network needed to end in a series of zeroes to be recognized as part
@@ -93,4 +128,92 @@ public class AccessManagerTest extends AbstractCoreIntegrationTest {
         }
         assertFalse("IP " + "192.168.2.1" +" is not in the intranet", accessManager.isIntranet("192.168.2.1"));
     }
+
+    @Test
+    public void testGroupsFollowMembershipChanges() throws Exception {
+        ServiceContext context = createServiceContext();
+        User user = _userRepo.save(UserRepositoryTest.newUser(inc));
+        Group group = _groupRepo.save(GroupRepositoryTest.newGroup(inc));
+        loginAs(user, context);
+
+        assertFalse(accessManager.getReviewerGroups(context.getUserSession()).contains(group.getId()));
+        assertFalse(accessManager.getUserGroups(context.getUserSession(), null, false).contains(group.getId()));
+
+        UserGroup userGroup = _userGroupRepo.save(new UserGroup().setUser(user).setGroup(group).setProfile(Profile.Reviewer));
+        _applicationContext.publishEvent(new GroupJoined(userGroup));
+
+        assertTrue(accessManager.getReviewerGroups(context.getUserSession()).contains(group.getId()));
+        assertTrue(accessManager.getUserGroups(context.getUserSession(), null, false).contains(group.getId()));
+        assertFalse(accessManager.getUserGroups(context.getUserSession(), null, true).contains(group.getId()));
+    }
+
+    @Test
+    public void testGetOperationsOfSeveralMetadata() throws Exception {
+        ServiceContext context = createServiceContext();
+        User user = _userRepo.save(UserRepositoryTest.newUser(inc));
+        Group group = _groupRepo.save(GroupRepositoryTest.newGroup(inc));
+        _userGroupRepo.save(new UserGroup().setUser(user).setGroup(group).setProfile(Profile.Editor));
+
+        Metadata owned = MetadataRepositoryTest.newMetadata(inc);
+        owned.getSourceInfo().setOwner(user.getId());
+        owned = metadataRepository.save(owned);
+        Metadata shared = metadataRepository.save(MetadataRepositoryTest.newMetadata(inc));
+        operationAllowedRepository.save(new OperationAllowed(new OperationAllowedId().setMetadataId(shared.getId())
+            .setGroupId(group.getId()).setOperationId(ReservedOperation.editing.getId())));
+        Metadata notShared = metadataRepository.save(MetadataRepositoryTest.newMetadata(inc));
+        loginAs(user, context);
+
+        List<String> ids = Arrays.asList(String.valueOf(shared.getId()), String.valueOf(owned.getId()),
+            String.valueOf(notShared.getId()));
+        Map<String, Set<Operation>> operations = accessManager.getOperations(context, ids, null);
+
+        assertEquals(ids, new ArrayList<>(operations.keySet()));
+        assertEquals(new HashSet<>(operationRepository.findAll()), operations.get(String.valueOf(owned.getId())));
+        assertEquals(1, operations.get(String.valueOf(shared.getId())).size());
+        assertEquals(ReservedOperation.editing.getId(), operations.get(String.valueOf(shared.getId())).iterator().next().getId());
+        assertTrue(operations.get(String.valueOf(notShared.getId())).isEmpty());
+        for (String id : ids) {
+            assertEquals(accessManager.getOperations(context, id, null), operations.get(id));
+        }
+    }
+
+    @Test
+    public void testGetEditableMetadataIds() throws Exception {
+        ServiceContext context = createServiceContext();
+        User owner = _userRepo.save(UserRepositoryTest.newUser(inc));
+        User editor = _userRepo.save(UserRepositoryTest.newUser(inc));
+        Group group = _groupRepo.save(GroupRepositoryTest.newGroup(inc));
+        _userGroupRepo.save(new UserGroup().setUser(editor).setGroup(group).setProfile(Profile.Editor));
+
+        Metadata owned = MetadataRepositoryTest.newMetadata(inc);
+        owned.getSourceInfo().setOwner(owner.getId());
+        owned = metadataRepository.save(owned);
+        Metadata shared = metadataRepository.save(MetadataRepositoryTest.newMetadata(inc));
+        operationAllowedRepository.save(new OperationAllowed(new OperationAllowedId().setMetadataId(shared.getId())
+            .setGroupId(group.getId()).setOperationId(ReservedOperation.editing.getId())));
+        Metadata viewed = metadataRepository.save(MetadataRepositoryTest.newMetadata(inc));
+        operationAllowedRepository.save(new OperationAllowed(new OperationAllowedId().setMetadataId(viewed.getId())
+            .setGroupId(group.getId()).setOperationId(ReservedOperation.view.getId())));
+
+        List<String> ids = Arrays.asList(String.valueOf(owned.getId()), String.valueOf(shared.getId()),
+            String.valueOf(viewed.getId()));
+
+        loginAs(owner, context);
+        assertEditableMetadataIds(context, ids, String.valueOf(owned.getId()));
+
+        loginAs(editor, context);
+        assertEditableMetadataIds(context, ids, String.valueOf(shared.getId()));
+
+        // guest
+        context.setUserSession(new UserSession());
+        assertEditableMetadataIds(context, ids);
+    }
+
+    private void assertEditableMetadataIds(ServiceContext context, List<String> ids, String... expected) throws Exception {
+        Set<String> editable = accessManager.getEditableMetadataIds(context, ids);
+        assertEquals(new HashSet<>(Arrays.asList(expected)), editable);
+        for (String id : ids) {
+            assertEquals(accessManager.canEdit(context, id), editable.contains(id));
+        }
+    }
 }
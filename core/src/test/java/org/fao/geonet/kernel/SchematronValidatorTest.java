@@ -44,6 +44,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Jesse on 4/1/2015.
@@ -59,6 +60,8 @@ public class SchematronValidatorTest extends AbstractCoreIntegrationTest {
     private SchematronRepository schematronRepository;
     @Autowired
     private SchematronCriteriaGroupRepository criteriaGroupRepository;
+    @Autowired
+    private SchematronEngine schematronEngine;
     private int id;
     private Element metadata;
     private MetadataSchema schema;
@@ -119,4 +122,23 @@ public class SchematronValidatorTest extends AbstractCoreIntegrationTest {
             found |= applicable.schematron.getId() == schematron.getId();
         }
     }
+
+    @Test
+    public void testRuleSetsAreDroppedOnChange() throws Exception {
+        assertEquals(2, getCriteriaGroupCount());
+        assertSame(schematronEngine.getRuleSets(schematron.getSchemaName()),
+            schematronEngine.getRuleSets(schematron.getSchemaName()));
+
+        criteriaGroupRepository.deleteAll();
+        assertEquals(0, getCriteriaGroupCount());
+    }
+
+    private int getCriteriaGroupCount() {
+        for (SchematronEngine.RuleSet ruleSet : schematronEngine.getRuleSets(schematron.getSchemaName())) {
+            if (ruleSet.getSchematron().getId() == schematron.getId()) {
+                return ruleSet.getCriteriaGroups().size();
+            }
+        }
+        return -1;
+    }
 }
@@ -43,6 +43,7 @@ import org.openrdf.sesame.query.QueryEvaluationException;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -482,6 +483,17 @@ public class ThesaurusTest extends AbstractThesaurusBasedTest {
         assertFalse(result);
     }
 
+    @Test
+    public void testLabelIndexFollowsModifications() throws Exception {
+        assertEquals(0, writableThesaurus.getLabelIndex().size());
+
+        writableThesaurus.addElement(new KeywordBean(isoLangMapper).setUriCode(TEST_KEYWORD).setValue("Hello", "eng"));
+        assertEquals(Collections.singletonList(TEST_KEYWORD), writableThesaurus.getLabelIndex().findByPrefix("hel", 10, "en"));
+
+        writableThesaurus.removeElement(TEST_KEYWORD);
+        assertEquals(Collections.emptyList(), writableThesaurus.getLabelIndex().findByPrefix("hel", 10, "en"));
+    }
+
     private void addKeywordToWritableThesaurus(String uri)
         throws IOException, AccessDeniedException, GraphException {
         KeywordBean keyword = new KeywordBean(isoLangMapper);
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.domain.Pair;
+import org.fao.geonet.domain.ReservedOperation;
+import org.fao.geonet.kernel.schema.MetadataSchema;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class XmlSerializerTest {
+    private MetadataSchema schema;
+    private Element metadata;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = mock(MetadataSchema.class);
+        when(schema.getNamespaces()).thenReturn(Collections.<Namespace>emptyList());
+        when(schema.getOperationFilter(ReservedOperation.download))
+            .thenReturn(Pair.<String, Element>read("*//download", null));
+        when(schema.getOperationFilter(ReservedOperation.dynamic))
+            .thenReturn(Pair.<String, Element>read("*//dynamic", null));
+        when(schema.getOperationFilter(ReservedOperation.editing))
+            .thenReturn(Pair.read("*//internal", new Element("mark").setAttribute("nilReason", "withheld")));
+        metadata = Xml.loadString("<record><links><download/><dynamic/></links>"
+            + "<contact><internal>secret</internal></contact></record>", false);
+    }
+
+    @Test
+    public void elementsAreKeptWithTheOperations() throws Exception {
+        XmlSerializer.removeHiddenElements(metadata, schema,
+            EnumSet.of(ReservedOperation.download, ReservedOperation.dynamic), true);
+
+        assertNotNull(metadata.getChild("links").getChild("download"));
+        assertNotNull(metadata.getChild("links").getChild("dynamic"));
+        assertEquals("secret", metadata.getChild("contact").getChildText("internal"));
+    }
+
+    @Test
+    public void elementsAreRemovedWithoutTheOperations() throws Exception {
+        XmlSerializer.removeHiddenElements(metadata, schema, EnumSet.of(ReservedOperation.view), false);
+
+        assertNull(metadata.getChild("links").getChild("download"));
+        assertNull(metadata.getChild("links").getChild("dynamic"));
+        Element internal = metadata.getChild("contact").getChild("internal");
+        assertEquals("", internal.getText());
+        assertEquals("withheld", internal.getAttributeValue("nilReason"));
+    }
+}
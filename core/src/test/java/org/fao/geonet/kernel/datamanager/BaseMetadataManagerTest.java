@@ -22,20 +22,34 @@
  */
 package org.fao.geonet.kernel.datamanager;
 
+import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.io.IOUtils;
 import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.constants.Edit;
+import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.Group;
 import org.fao.geonet.domain.Metadata;
 import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.domain.OperationAllowed;
+import org.fao.geonet.domain.OperationAllowedId;
+import org.fao.geonet.domain.Profile;
+import org.fao.geonet.domain.ReservedGroup;
+import org.fao.geonet.domain.ReservedOperation;
 import org.fao.geonet.domain.User;
+import org.fao.geonet.domain.UserGroup;
 import org.fao.geonet.kernel.XmlSerializerIntegrationTest;
 import org.fao.geonet.kernel.datamanager.base.BaseMetadataManager;
 import org.fao.geonet.kernel.datamanager.base.BaseMetadataUtils;
 import org.fao.geonet.repository.GroupRepository;
+import org.fao.geonet.repository.GroupRepositoryTest;
+import org.fao.geonet.repository.OperationAllowedRepository;
 import org.fao.geonet.repository.UserRepository;
+import org.fao.geonet.repository.UserRepositoryTest;
 import org.fao.geonet.repository.specification.MetadataSpecs;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -43,7 +57,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -66,6 +84,9 @@ public class BaseMetadataManagerTest extends AbstractCoreIntegrationTest {
     @Autowired
     private GroupRepository groupRepository;
 
+    @Autowired
+    private OperationAllowedRepository operationAllowedRepository;
+
     private User user;
     private Group group;
     private AbstractMetadata md;
@@ -145,6 +166,83 @@ public class BaseMetadataManagerTest extends AbstractCoreIntegrationTest {
             .findAll(MetadataSpecs.hasMetadataId(md.getId())).isEmpty());
     }
 
+    @Test
+    public void testGetMetadataOfSeveralRecords() throws Exception {
+        ServiceContext context = createServiceContext();
+        AtomicInteger inc = new AtomicInteger();
+        User owner = userRepository.save(UserRepositoryTest.newUser(inc).setProfile(Profile.Editor));
+        User editor = userRepository.save(UserRepositoryTest.newUser(inc).setProfile(Profile.Editor));
+        Group editorGroup = groupRepository.save(GroupRepositoryTest.newGroup(inc));
+        _userGroupRepo.save(new UserGroup().setUser(editor).setGroup(editorGroup).setProfile(Profile.Editor));
+
+        AbstractMetadata owned = metadataManager.save(createRecord("owned-metadata", owner.getId()));
+        AbstractMetadata shared = metadataManager.save(createRecord("shared-metadata", 1));
+        setOperation(shared, editorGroup.getId(), ReservedOperation.view);
+        setOperation(shared, editorGroup.getId(), ReservedOperation.editing);
+        AbstractMetadata published = metadataManager.save(createRecord("published-metadata", 1));
+        setOperation(published, ReservedGroup.all.getId(), ReservedOperation.view);
+
+        String ownedId = String.valueOf(owned.getId());
+        String sharedId = String.valueOf(shared.getId());
+        String publishedId = String.valueOf(published.getId());
+        List<String> ids = Arrays.asList(publishedId, sharedId, ownedId);
+
+        loginAs(owner, context);
+        Map<String, Element> records = assertSameAsSingleRecords(context, ids);
+        assertEditable(records, ownedId);
+
+        loginAs(editor, context);
+        records = assertSameAsSingleRecords(context, ids);
+        assertEditable(records, sharedId);
+
+        // guest
+        context.setUserSession(new UserSession());
+        records = assertSameAsSingleRecords(context, ids);
+        assertEditable(records);
+    }
+
+    /**
+     * Check the records loaded together are the records loaded one by one, with their info element.
+     */
+    private Map<String, Element> assertSameAsSingleRecords(ServiceContext context, List<String> ids) throws Exception {
+        Map<String, Element> records = metadataManager.getMetadata(context, ids, false);
+        assertEquals(ids, new ArrayList<>(records.keySet()));
+        for (String id : ids) {
+            Element single = metadataManager.getMetadata(context, id, false, true, false, false);
+            assertNotNull(records.get(id).getChild(Edit.RootChild.INFO, Edit.NAMESPACE));
+            assertEquals(Xml.getString(single), Xml.getString(records.get(id)));
+        }
+        return records;
+    }
+
+    /**
+     * Check only the editable records are flagged as such and keep their withheld elements.
+     */
+    private void assertEditable(Map<String, Element> records, String... editableIds) throws Exception {
+        List<String> editable = Arrays.asList(editableIds);
+        for (Map.Entry<String, Element> record : records.entrySet()) {
+            boolean canEdit = editable.contains(record.getKey());
+            Element info = record.getValue().getChild(Edit.RootChild.INFO, Edit.NAMESPACE);
+            assertEquals(canEdit ? "true" : null, info.getChildText(Edit.Info.Elem.EDIT));
+            List<?> withheldContent = Xml.selectNodes(record.getValue(), "*//*[@gco:nilReason = 'withheld']/*",
+                Arrays.asList(Geonet.Namespaces.GCO, Geonet.Namespaces.GMD));
+            assertEquals(canEdit, !withheldContent.isEmpty());
+        }
+    }
+
+    private void setOperation(AbstractMetadata metadata, int groupId, ReservedOperation operation) {
+        operationAllowedRepository.save(new OperationAllowed(new OperationAllowedId().setMetadataId(metadata.getId())
+            .setGroupId(groupId).setOperationId(operation.getId())));
+    }
+
+    private AbstractMetadata createRecord(String uuid, int owner) throws IOException {
+        AbstractMetadata md = createMetadata();
+        md.setUuid(uuid);
+        md.getSourceInfo().setOwner(owner);
+        md.getDataInfo().setType(MetadataType.METADATA);
+        return md;
+    }
+
     private AbstractMetadata createMetadata() throws IOException {
         AbstractMetadata md = new Metadata();
         md.setUuid("test-metadata");
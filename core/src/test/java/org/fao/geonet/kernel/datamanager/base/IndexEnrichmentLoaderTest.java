@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import org.fao.geonet.domain.Group;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.domain.OperationAllowed;
+import org.fao.geonet.domain.OperationAllowedId;
+import org.fao.geonet.domain.StatusValueType;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.repository.GroupRepository;
+import org.fao.geonet.repository.InspireAtomFeedRepository;
+import org.fao.geonet.repository.MetadataStatusRepository;
+import org.fao.geonet.repository.MetadataValidationRepository;
+import org.fao.geonet.repository.OperationAllowedRepository;
+import org.fao.geonet.repository.UserRepository;
+import org.fao.geonet.repository.userfeedback.UserFeedbackRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexEnrichmentLoaderTest {
+
+    private IMetadataUtils metadataUtils;
+    private MetadataStatusRepository statusRepository;
+    private MetadataValidationRepository validationRepository;
+    private OperationAllowedRepository operationAllowedRepository;
+    private InspireAtomFeedRepository atomFeedRepository;
+    private UserRepository userRepository;
+    private GroupRepository groupRepository;
+    private UserFeedbackRepository feedbackRepository;
+    private IndexEnrichmentLoader toTest;
+
+    @Before
+    public void setUp() {
+        metadataUtils = mock(IMetadataUtils.class);
+        statusRepository = mock(MetadataStatusRepository.class);
+        validationRepository = mock(MetadataValidationRepository.class);
+        operationAllowedRepository = mock(OperationAllowedRepository.class);
+        atomFeedRepository = mock(InspireAtomFeedRepository.class);
+        userRepository = mock(UserRepository.class);
+        groupRepository = mock(GroupRepository.class);
+        feedbackRepository = mock(UserFeedbackRepository.class);
+        toTest = new IndexEnrichmentLoader(metadataUtils, statusRepository, validationRepository,
+            operationAllowedRepository, atomFeedRepository, userRepository, groupRepository, feedbackRepository);
+    }
+
+    @Test
+    public void oneQueryPerKindOfInformation() {
+        Metadata md1 = newMetadata(1, "uuid-1", 10);
+        Metadata md2 = newMetadata(2, "uuid-2", 10);
+        doReturn(Arrays.asList(md1, md2)).when(metadataUtils).findAll(anySetOf(Integer.class));
+        when(operationAllowedRepository.findAll(any(Specification.class))).thenReturn(Arrays.asList(
+            new OperationAllowed(new OperationAllowedId().setMetadataId(1).setGroupId(1).setOperationId(0)),
+            new OperationAllowed(new OperationAllowedId().setMetadataId(1).setGroupId(2).setOperationId(0)),
+            new OperationAllowed(new OperationAllowedId().setMetadataId(2).setGroupId(1).setOperationId(0))));
+        Group group = new Group().setId(1).setName("all");
+
+        IndexEnrichment enrichment = toTest.load(Arrays.asList("1", "2", "3"), Collections.singletonList(group), false);
+
+        assertTrue(enrichment.covers(1));
+        assertTrue(enrichment.covers(3));
+        assertFalse(enrichment.covers(4));
+        assertSame(md1, enrichment.getMetadata(1));
+        assertNull(enrichment.getMetadata(3));
+        assertEquals(2, enrichment.getOperationsAllowed(1).size());
+        assertEquals(1, enrichment.getOperationsAllowed(2).size());
+        assertEquals(0, enrichment.getOperationsAllowed(3).size());
+        assertEquals(0, enrichment.getWorkflowStatuses(1).size());
+        assertSame(group, enrichment.getGroup(1));
+        assertNull(enrichment.getGroup(2));
+        assertFalse(enrichment.hasFeedbackCounts());
+
+        verify(metadataUtils, times(1)).findAll(anySetOf(Integer.class));
+        verify(statusRepository, times(1)).findAllByMetadataIdInAndByType(
+            anyCollectionOf(Integer.class), eq(StatusValueType.workflow), any(Sort.class));
+        verify(validationRepository, times(1)).findAll(any(Specification.class));
+        verify(operationAllowedRepository, times(1)).findAll(any(Specification.class));
+        verify(atomFeedRepository, times(1)).findAll(any(Specification.class));
+        verify(groupRepository, never()).findAll();
+        verify(userRepository, times(1)).findAll(anySetOf(Integer.class));
+        verify(feedbackRepository, never()).countByMetadataUuidIn(anyCollectionOf(String.class));
+    }
+
+    @Test
+    public void feedbackCountsAreLoadedOnRequest() {
+        doReturn(Arrays.asList(newMetadata(1, "uuid-1", 10))).when(metadataUtils).findAll(anySetOf(Integer.class));
+        when(feedbackRepository.countByMetadataUuidIn(anyCollectionOf(String.class)))
+            .thenReturn(Collections.singletonList(new Object[]{"uuid-1", 3L}));
+
+        IndexEnrichment enrichment = toTest.load(Collections.singletonList(1), Collections.<Group>emptyList(), true);
+
+        assertTrue(enrichment.hasFeedbackCounts());
+        assertEquals(3, enrichment.getFeedbackCount("uuid-1"));
+        assertEquals(0, enrichment.getFeedbackCount("uuid-2"));
+    }
+
+    @Test
+    public void noQueryWithoutValidIds() {
+        Collection<String> ids = Collections.singletonList("not-a-number");
+
+        IndexEnrichment enrichment = toTest.load(ids, Collections.<Group>emptyList(), true);
+
+        assertFalse(enrichment.covers(1));
+        verify(metadataUtils, never()).findAll(anySetOf(Integer.class));
+        verify(groupRepository, never()).findAll();
+    }
+
+    @Test
+    public void groupsAreLoadedOnce() {
+        Group group = new Group().setId(1).setName("all");
+        when(groupRepository.findAll()).thenReturn(Collections.singletonList(group));
+        doReturn(Arrays.asList(newMetadata(1, "uuid-1", 10))).when(metadataUtils).findAll(anySetOf(Integer.class));
+
+        List<Group> groups = toTest.loadGroups();
+        toTest.load(Collections.singletonList(1), groups, false);
+        IndexEnrichment enrichment = toTest.load(Collections.singletonList(2), groups, false);
+
+        assertSame(group, enrichment.getGroup(1));
+        verify(groupRepository, times(1)).findAll();
+    }
+
+    private Metadata newMetadata(int id, String uuid, int owner) {
+        Metadata md = new Metadata();
+        md.setId(id);
+        md.setUuid(uuid);
+        md.getSourceInfo().setOwner(owner);
+        return md;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.mef;
+
+import jeeves.server.context.ServiceContext;
+
+import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.Constants;
+import org.fao.geonet.ZipUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MEF2ExporterIntegrationTest extends AbstractCoreIntegrationTest {
+    private static final String FIRST_UUID = "da165110-88fd-11da-a88f-000d939bc5d8";
+    private static final String SECOND_UUID = "0e1943d6-64e8-4430-827c-b465c3e9e55c";
+
+    @Test
+    public void testStreamedExport() throws Exception {
+        ServiceContext context = createServiceContext();
+        loginAsAdmin(context);
+
+        final MEFLibIntegrationTest.ImportMetadata importMetadata = new MEFLibIntegrationTest.ImportMetadata(this, context);
+        importMetadata.getMefFilesToLoad().clear();
+        importMetadata.getMefFilesToLoad().add("mef2-example-2md.zip");
+        importMetadata.invoke();
+
+        Set<String> uuids = new LinkedHashSet<>(Arrays.asList(FIRST_UUID, SECOND_UUID));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MEF2Exporter.doExport(context, uuids, MEFLib.Format.FULL, false, null, false, false, false, true, false, out);
+
+        List<String> names = new ArrayList<>();
+        String csv = null;
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                names.add(entry.getName());
+                if (entry.getName().equals("index.csv")) {
+                    ByteArrayOutputStream csvContent = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[1024];
+                    int read;
+                    while ((read = zis.read(buffer)) > 0) {
+                        csvContent.write(buffer, 0, read);
+                    }
+                    csv = new String(csvContent.toByteArray(), Constants.CHARSET);
+                }
+            }
+        }
+
+        assertTrue(names.contains(FIRST_UUID + "/metadata/metadata.xml"));
+        assertTrue(names.contains(FIRST_UUID + "/info.xml"));
+        assertTrue(names.contains(FIRST_UUID + "/private/basins.zip"));
+        assertTrue(names.contains(FIRST_UUID + "/public/thumbnail.gif"));
+        assertTrue(names.contains(SECOND_UUID + "/metadata/metadata.xml"));
+        // The records are written in the requested order, the index files last
+        assertTrue(names.indexOf(FIRST_UUID + "/info.xml") < names.indexOf(SECOND_UUID + "/"));
+        assertEquals(Arrays.asList("index.csv", "index.html"), names.subList(names.size() - 2, names.size()));
+        assertEquals(3, csv.split("\n").length);
+        assertTrue(csv.indexOf(FIRST_UUID) < csv.indexOf(SECOND_UUID));
+
+        Path path = MEF2Exporter.doExport(context, uuids, MEFLib.Format.FULL, false, null, false, false, false, true, false);
+        try (FileSystem zipFs = ZipUtil.openZipFs(path)) {
+            for (String name : names) {
+                assertTrue(name, Files.exists(zipFs.getPath(name)));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
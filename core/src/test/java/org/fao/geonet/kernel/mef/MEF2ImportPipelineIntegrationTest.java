@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.kernel.mef;
+
+import jeeves.server.context.ServiceContext;
+
+import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.Constants;
+import org.fao.geonet.ZipUtil;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.kernel.setting.SettingManager;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.utils.IO;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class MEF2ImportPipelineIntegrationTest extends AbstractCoreIntegrationTest {
+    private static final String FIRST_RECORD = "0e1943d6-64e8-4430-827c-b465c3e9e55c";
+    private static final String SECOND_RECORD = "da165110-88fd-11da-a88f-000d939bc5d8";
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+    @Autowired
+    private SettingManager settingManager;
+
+    @Test
+    public void testFailedRecordsAreReported() throws Exception {
+        ServiceContext context = createServiceContext();
+        loginAsAdmin(context);
+
+        String firstUuid = UUID.randomUUID().toString();
+        String secondUuid = UUID.randomUUID().toString();
+        Map<String, String[]> records = new LinkedHashMap<>();
+        records.put("first", new String[]{FIRST_RECORD, firstUuid});
+        records.put("second", new String[]{SECOND_RECORD, secondUuid});
+        // same uuid as the first record: the batch fails and its records are inserted one by one
+        records.put("duplicate", new String[]{FIRST_RECORD, firstUuid});
+        // no metadata file: the record cannot be read
+        records.put("broken", null);
+        Path mefFile = createMef(records);
+
+        MEFImportReport report = doImport(MEFLib.UuidAction.NOTHING, context, mefFile);
+
+        List<String> expectedUuids = new ArrayList<>();
+        String rejectedDuplicate = null;
+        for (String name : listRecords(mefFile)) {
+            if (name.equals("broken")) {
+                continue;
+            }
+            String uuid = records.get(name)[1];
+            if (expectedUuids.contains(uuid)) {
+                rejectedDuplicate = name + " (" + uuid + ")";
+            } else {
+                expectedUuids.add(uuid);
+            }
+        }
+
+        assertEquals(4, report.getProcessedRecords());
+        assertEquals(new HashSet<>(Arrays.asList(rejectedDuplicate, "broken")), report.getErrors().keySet());
+        assertEquals(expectedUuids, getUuids(report.getMetadataIds()));
+        assertEquals(1, metadataRepository.findAllByUuid(firstUuid).size());
+        assertEquals(1, metadataRepository.findAllByUuid(secondUuid).size());
+    }
+
+    @Test
+    public void testOverwrite() throws Exception {
+        ServiceContext context = createServiceContext();
+        loginAsAdmin(context);
+
+        String firstUuid = UUID.randomUUID().toString();
+        String secondUuid = UUID.randomUUID().toString();
+        Map<String, String[]> records = new LinkedHashMap<>();
+        records.put("first", new String[]{FIRST_RECORD, firstUuid});
+        records.put("second", new String[]{SECOND_RECORD, secondUuid});
+        Path mefFile = createMef(records);
+
+        List<String> expectedUuids = new ArrayList<>();
+        for (String name : listRecords(mefFile)) {
+            expectedUuids.add(records.get(name)[1]);
+        }
+
+        MEFImportReport imported = doImport(MEFLib.UuidAction.NOTHING, context, mefFile);
+        assertEquals(0, imported.getErrors().size());
+        assertEquals(expectedUuids, getUuids(imported.getMetadataIds()));
+
+        MEFImportReport overwritten = doImport(MEFLib.UuidAction.OVERWRITE, context, mefFile);
+        assertEquals(2, overwritten.getProcessedRecords());
+        assertEquals(0, overwritten.getErrors().size());
+        assertEquals(expectedUuids, getUuids(overwritten.getMetadataIds()));
+        for (String id : imported.getMetadataIds()) {
+            assertNull(metadataRepository.findOne(Integer.valueOf(id)));
+            assertFalse(overwritten.getMetadataIds().contains(id));
+        }
+        assertEquals(1, metadataRepository.findAllByUuid(firstUuid).size());
+        assertEquals(1, metadataRepository.findAllByUuid(secondUuid).size());
+    }
+
+    private MEFImportReport doImport(MEFLib.UuidAction uuidAction, ServiceContext context, Path mefFile) throws Exception {
+        return MEFLib.doMEF2Import(uuidAction, "_none_", settingManager.getSiteId(), MetadataType.METADATA,
+            new String[]{""}, "", false, false, context, mefFile);
+    }
+
+    private List<String> getUuids(List<String> ids) {
+        List<String> uuids = new ArrayList<>();
+        for (String id : ids) {
+            Metadata metadata = metadataRepository.findOne(Integer.valueOf(id));
+            uuids.add(metadata == null ? null : metadata.getUuid());
+        }
+        return uuids;
+    }
+
+    /**
+     * @return the record folders in the order the import reads them.
+     */
+    private List<String> listRecords(Path mefFile) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (FileSystem zipFs = ZipUtil.openZipFs(mefFile);
+             DirectoryStream<Path> paths = Files.newDirectoryStream(zipFs.getRootDirectories().iterator().next())) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                names.add(name.endsWith("/") ? name.substring(0, name.length() - 1) : name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Copy records of mef2-example-2md.zip with new uuids, a null record is a folder without
+     * metadata file.
+     *
+     * @param records the record folder names mapped to the copied record and its new uuid.
+     */
+    private Path createMef(Map<String, String[]> records) throws Exception {
+        Path mefFile = Files.createTempFile("mefTestFile", ".zip");
+        Path example = IO.toPath(MEF2ImportPipelineIntegrationTest.class.getResource("mef2-example-2md.zip").toURI());
+        try (FileSystem exampleFs = ZipUtil.openZipFs(example);
+             FileSystem mefFs = ZipUtil.createZipFs(mefFile)) {
+            Path exampleRoot = exampleFs.getRootDirectories().iterator().next();
+            Path mefRoot = mefFs.getRootDirectories().iterator().next();
+            for (Map.Entry<String, String[]> record : records.entrySet()) {
+                Path recordDir = mefRoot.resolve(record.getKey());
+                if (record.getValue() == null) {
+                    Files.createDirectories(recordDir.resolve("metadata"));
+                } else {
+                    copyRecord(exampleRoot.resolve(record.getValue()[0]), recordDir, record.getValue()[0],
+                        record.getValue()[1]);
+                }
+            }
+        }
+        return mefFile;
+    }
+
+    private void copyRecord(final Path from, final Path to, final String uuid, final String newUuid) throws IOException {
+        Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(to.resolve(from.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path target = to.resolve(from.relativize(file).toString());
+                if (file.getFileName().toString().endsWith(".xml")) {
+                    String xml = new String(Files.readAllBytes(file), Constants.CHARSET);
+                    Files.write(target, xml.replace(uuid, newUuid).getBytes(Constants.CHARSET));
+                } else {
+                    Files.copy(file, target);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.kernel.oaipmh;
+
+import org.fao.geonet.kernel.setting.SettingManager;
+import org.fao.oaipmh.responses.GeonetworkResumptionToken;
+import org.fao.oaipmh.util.SearchResult;
+import org.jdom.Element;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the eviction of the {@link ResumptionTokenCache}.
+ */
+public class ResumptionTokenCacheTest {
+    private static final String MAX_IDS_PROPERTY = "geonetwork.oai.tokenCache.maxIds";
+
+    private ResumptionTokenCache cache;
+
+    @Before
+    public void createCache() {
+        System.setProperty(MAX_IDS_PROPERTY, "10");
+        SettingManager settingManager = mock(SettingManager.class);
+        when(settingManager.getValueAsInt("system/oai/tokentimeout")).thenReturn(3600);
+        when(settingManager.getValueAsInt("system/oai/cachesize")).thenReturn(3);
+        cache = new ResumptionTokenCache(settingManager);
+    }
+
+    @After
+    public void stopCache() {
+        cache.stopRunning();
+        System.clearProperty(MAX_IDS_PROPERTY);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTokenIsEvictedAtCacheSize() {
+        GeonetworkResumptionToken first = store("first", 1);
+        GeonetworkResumptionToken second = store("second", 1);
+        store("third", 1);
+        assertSame(first, cache.getResumptionToken(first.getKey()));
+
+        store("fourth", 1);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.getResumptionToken(second.getKey()));
+        assertNotNull(cache.getResumptionToken(first.getKey()));
+        assertEquals(3, cache.getCachedIds());
+    }
+
+    @Test
+    public void testTokensAreEvictedAtMaxIds() {
+        GeonetworkResumptionToken first = store("first", 4);
+        GeonetworkResumptionToken second = store("second", 4);
+
+        GeonetworkResumptionToken third = store("third", 4);
+
+        assertNull(cache.getResumptionToken(first.getKey()));
+        assertNotNull(cache.getResumptionToken(second.getKey()));
+        assertNotNull(cache.getResumptionToken(third.getKey()));
+        assertEquals(8, cache.getCachedIds());
+    }
+
+    @Test
+    public void testTokenLargerThanMaxIdsIsCachedAlone() {
+        store("first", 2);
+        store("second", 2);
+
+        GeonetworkResumptionToken large = store("large", 25);
+
+        assertEquals(1, cache.size());
+        assertSame(large, cache.getResumptionToken(large.getKey()));
+        assertEquals(25, cache.getCachedIds());
+
+        GeonetworkResumptionToken small = store("small", 1);
+
+        assertEquals(1, cache.size());
+        assertSame(small, cache.getResumptionToken(small.getKey()));
+        assertEquals(1, cache.getCachedIds());
+    }
+
+    @Test
+    public void testStoringTheSameKeyAgainReplacesTheToken() {
+        GeonetworkResumptionToken first = store("first", 3);
+        GeonetworkResumptionToken second = store("second", 3);
+        GeonetworkResumptionToken third = store("third", 3);
+
+        // the previous copy does not count, no other token is evicted
+        GeonetworkResumptionToken secondAgain = store("second", 4);
+
+        assertEquals(3, cache.size());
+        assertEquals(10, cache.getCachedIds());
+        assertSame(first, cache.getResumptionToken(first.getKey()));
+        assertSame(secondAgain, cache.getResumptionToken(second.getKey()));
+        assertSame(third, cache.getResumptionToken(third.getKey()));
+    }
+
+    private GeonetworkResumptionToken store(String randomId, int idCount) {
+        Element element = new Element("resumptionToken").setText(
+            "set" + GeonetworkResumptionToken.SEPARATOR + "prefix" + GeonetworkResumptionToken.SEPARATOR
+                + GeonetworkResumptionToken.SEPARATOR + GeonetworkResumptionToken.SEPARATOR + randomId
+                + GeonetworkResumptionToken.SEPARATOR + "0");
+        GeonetworkResumptionToken token = new GeonetworkResumptionToken(element);
+        SearchResult result = new SearchResult("prefix");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < idCount; i++) {
+            ids.add(i);
+        }
+        result.setIds(ids);
+        token.setRes(result);
+        cache.storeResumptionToken(token);
+        return token;
+    }
+}
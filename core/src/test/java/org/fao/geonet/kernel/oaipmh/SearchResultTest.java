@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.kernel.oaipmh;
+
+import org.fao.oaipmh.exceptions.BadResumptionTokenException;
+import org.fao.oaipmh.util.SearchResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SearchResult}.
+ */
+public class SearchResultTest {
+
+    @Test
+    public void testIdsAreAdded() {
+        SearchResult result = new SearchResult("iso19139");
+        assertNull(result.getIds());
+
+        result.setIds(Arrays.asList(1, 2, 3));
+        result.addIds(Collections.<Integer>emptyList());
+        result.addIds(Arrays.asList(4, 5));
+        List<Integer> more = new ArrayList<>();
+        for (int i = 6; i <= 100; i++) {
+            more.add(i);
+        }
+        result.addIds(more);
+
+        assertEquals(100, result.getIdCount());
+        assertEquals(100, result.getIds().size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, result.getId(i));
+            assertEquals(Integer.valueOf(i + 1), result.getIds().get(i));
+        }
+    }
+
+    @Test
+    public void testSetIdsReplacesTheIds() {
+        SearchResult result = new SearchResult("iso19139");
+        result.setIds(Arrays.asList(1, 2, 3));
+        result.setIds(Arrays.asList(7));
+
+        assertEquals(Arrays.asList(7), result.getIds());
+        assertEquals(1, result.getIdCount());
+    }
+
+    @Test
+    public void testIdsFromEmptyResult() {
+        SearchResult result = new SearchResult("iso19139");
+        result.addIds(Collections.<Integer>emptyList());
+        result.addIds(Arrays.asList(3));
+
+        assertEquals(Arrays.asList(3), result.getIds());
+    }
+
+    @Test
+    public void testIndexBounds() {
+        SearchResult result = new SearchResult("iso19139");
+        result.setIds(Arrays.asList(1, 2, 3, 4));
+        result.setIds(Arrays.asList(1, 2));
+
+        for (int index : new int[]{-1, 2, 4}) {
+            try {
+                result.getId(index);
+                fail("Index " + index + " is out of bounds");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+            try {
+                result.getIds().get(index);
+                fail("Index " + index + " is out of bounds");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testTokenBeyondTheIds() throws Exception {
+        SearchResult result = new SearchResult("iso19139");
+        result.setIds(Arrays.asList(1, 2));
+
+        assertEquals(1, result.parseToken("1"));
+        try {
+            result.parseToken("2");
+            fail("Token beyond the ids");
+        } catch (BadResumptionTokenException e) {
+            // expected
+        }
+    }
+}
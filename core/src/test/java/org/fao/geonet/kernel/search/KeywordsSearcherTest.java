@@ -52,6 +52,7 @@ import java.util.Set;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -169,6 +170,44 @@ public class KeywordsSearcherTest extends AbstractThesaurusBasedTest {
         assertNull(kw);
     }
 
+    @Test
+    public void testSearchByLabelPrefix() throws Exception {
+        KeywordsSearcher searcher = new KeywordsSearcher(isoLangMapper, thesaurusFinder);
+
+        searcher.searchByLabelPrefix(thesaurusFoo.getKey(), "1", 3, "eng", "fre");
+        List<KeywordBean> results = searcher.getResults();
+        assertEquals(3, results.size());
+        assertEquals(createFooLabel(10, "eng"), results.get(0).getDefaultValue());
+        assertEquals(createFooLabel(10, "fre"), results.get(0).getValues().get("fre"));
+        assertEquals(createFooLabel(12, "eng"), results.get(2).getDefaultValue());
+
+        searcher.searchByLabelPrefix(thesaurusFoo.getKey(), "19_FOOVAL_FRE", 10, "eng", "fre");
+        assertEquals(1, searcher.getNbResults());
+        assertEquals(FOO_COM_NS + "19", searcher.getResults().get(0).getUriCode());
+
+        searcher.searchByLabelPrefix(thesaurusFoo.getKey(), "19_fooVal_fre", 10, "eng");
+        assertEquals(0, searcher.getNbResults());
+    }
+
+    @Test
+    public void testSearchByLabelPrefixAllThesaurus() throws Exception {
+        AllThesaurus allThesaurus = new AllThesaurus(thesaurusFinder, isoLangMapper, "http://siteurl.com");
+        thesaurusMap.put(AllThesaurus.ALL_THESAURUS_KEY, allThesaurus);
+        KeywordsSearcher searcher = new KeywordsSearcher(isoLangMapper, thesaurusFinder);
+
+        searcher.searchByLabelPrefix(AllThesaurus.ALL_THESAURUS_KEY, "19_FOOVAL_FRE", 10, "eng", "fre");
+        assertEquals(1, searcher.getNbResults());
+        KeywordBean keyword = searcher.getResults().get(0);
+        AllThesaurus.DecomposedAllUri decomposedUri = new AllThesaurus.DecomposedAllUri(keyword.getUriCode());
+        assertEquals(thesaurusFoo.getKey(), decomposedUri.thesaurusKey);
+        assertEquals(FOO_COM_NS + "19", decomposedUri.keywordUri);
+        assertEquals(createFooLabel(19, "fre"), keyword.getValues().get("fre"));
+
+        searcher.searchByLabelPrefix(AllThesaurus.ALL_THESAURUS_KEY, "1_", 10, "eng");
+        assertEquals(3, searcher.getNbResults());
+        assertSame(allThesaurus.getLabelIndex(), allThesaurus.getLabelIndex());
+    }
+
     @Test
     public void testSearchNoContextEngLangNoSearchAllThesauri() throws Exception {
         KeywordsSearcher searcher = new KeywordsSearcher(isoLangMapper, thesaurusFinder);
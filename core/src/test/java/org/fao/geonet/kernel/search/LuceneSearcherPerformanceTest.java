@@ -32,6 +32,7 @@ import org.fao.geonet.TestFunction;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.constants.Params;
 import org.fao.geonet.domain.User;
+import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
 import org.fao.geonet.kernel.mef.MEFLibIntegrationTest;
 import org.fao.geonet.kernel.search.index.FSDirectoryFactory;
 import org.fao.geonet.repository.UserRepository;
@@ -56,6 +57,8 @@ public class LuceneSearcherPerformanceTest extends AbstractCoreIntegrationTest {
     private SearchManager searchManager;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private IMetadataIndexer metadataIndexer;
 
     @Test
     @Ignore
@@ -75,6 +78,30 @@ public class LuceneSearcherPerformanceTest extends AbstractCoreIntegrationTest {
         measurePerformance(searchAndPresent(context));
     }
 
+    /**
+     * Measure the time spent reindexing the records, compare the runs with
+     * -XX:+UnlockDiagnosticVMOptions -XX:+PrintTLAB or a profiler for the allocations.
+     */
+    @Test
+    @Ignore
+    public void testReindex() throws Exception {
+        final ServiceContext context = createServiceContext();
+        loginAsAdmin(context);
+
+        final MEFLibIntegrationTest.ImportMetadata importMetadata = new MEFLibIntegrationTest.ImportMetadata(this, context);
+        importMetadata.setUuidAction(Params.GENERATE_UUID);
+        importMetadata.getMefFilesToLoad().add("mef2-example-2md.zip");
+        importMetadata.invoke(100);
+        searchManager.forceIndexChanges();
+
+        measurePerformance(new TestFunction() {
+            @Override
+            public void exec() throws Exception {
+                metadataIndexer.indexMetadata(importMetadata.getMetadataIds());
+            }
+        });
+    }
+
     private void loginAsNewUser(ServiceContext context) {
         final UserSession session = new UserSession();
         context.setUserSession(session);
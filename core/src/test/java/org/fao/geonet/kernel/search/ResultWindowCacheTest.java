@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResultWindowCacheTest {
+    private final ResultWindowCache cache = new ResultWindowCache(10);
+
+    @Test
+    public void pagesInTheWindowAreFound() {
+        cache.put(key("a", 1), 20, hits(20, 50, 1000));
+
+        TopDocs page = cache.get(key("a", 1), 30, 40);
+        assertEquals(10, page.scoreDocs.length);
+        assertEquals(30, page.scoreDocs[0].doc);
+        assertEquals(1000, page.totalHits);
+    }
+
+    @Test
+    public void pagesOutsideTheWindowAreNotFound() {
+        cache.put(key("a", 1), 20, hits(20, 50, 1000));
+
+        assertNull(cache.get(key("a", 1), 10, 30));
+        assertNull(cache.get(key("a", 1), 60, 80));
+        assertNull(cache.get(key("b", 1), 30, 40));
+        assertNull(cache.get(key("a", 2), 30, 40));
+    }
+
+    @Test
+    public void lastPageMayBeShorter() {
+        cache.put(key("a", 1), 0, hits(0, 25, 25));
+
+        TopDocs page = cache.get(key("a", 1), 20, 40);
+        assertEquals(5, page.scoreDocs.length);
+    }
+
+    private static ResultWindowCache.Key key(String text, long version) {
+        return new ResultWindowCache.Key(new TermQuery(new Term("any", text)), null, Sort.RELEVANCE, "eng", version);
+    }
+
+    /**
+     * @return the hits from start to end, each one having its position as document id.
+     */
+    private static TopDocs hits(int start, int end, int totalHits) {
+        ScoreDoc[] scoreDocs = new ScoreDoc[end - start];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            scoreDocs[i] = new FieldDoc(start + i, 1f, new Object[]{1f});
+        }
+        return new TopDocs(totalHits, scoreDocs, 1f);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.kernel.search;
+
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.FieldType.NumericType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SearchManagerFieldTypeTest {
+
+    @Test
+    public void fieldTypesMatchTheFlags() {
+        for (boolean store : new boolean[]{true, false}) {
+            for (boolean index : new boolean[]{true, false}) {
+                for (boolean token : new boolean[]{true, false}) {
+                    FieldType fieldType = SearchManager.getFieldType(store, index, token, null);
+                    assertEquals(store, fieldType.stored());
+                    assertEquals(index, fieldType.indexed());
+                    assertEquals(token, fieldType.tokenized());
+                    assertNull(fieldType.numericType());
+
+                    for (NumericType numericType : NumericType.values()) {
+                        FieldType numericFieldType = SearchManager.getFieldType(store, index, token, numericType);
+                        assertEquals(store, numericFieldType.stored());
+                        assertEquals(index, numericFieldType.indexed());
+                        assertEquals(token, numericFieldType.tokenized());
+                        assertEquals(numericType, numericFieldType.numericType());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fieldTypesAreShared() {
+        assertSame(SearchManager.getFieldType(true, true, false, null), SearchManager.getFieldType(true, true, false, null));
+        assertSame(SearchManager.getFieldType(false, true, true, NumericType.INT),
+            SearchManager.getFieldType(false, true, true, NumericType.INT));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fieldTypesCannotBeModified() {
+        SearchManager.getFieldType(true, true, false, null).setStored(false);
+    }
+}
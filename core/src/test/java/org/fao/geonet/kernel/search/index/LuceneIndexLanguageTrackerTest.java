@@ -34,6 +34,7 @@ import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.kernel.search.IndexAndTaxonomy;
 import org.fao.geonet.kernel.search.LuceneConfig;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -46,14 +47,22 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
 /**
@@ -339,4 +348,144 @@ public class LuceneIndexLanguageTrackerTest {
         }
 
     }
+
+    @Test(timeout = 60000)
+    public void testConcurrentAddDocumentsWhileSearching() throws Exception {
+        final LuceneIndexLanguageTracker tracker = newTracker(folder.getRoot().toPath());
+        final AtomicBoolean ingesting = new AtomicBoolean(true);
+        final Exception[] error = new Exception[1];
+        startThread("Searcher", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (ingesting.get()) {
+                        tracker.acquire(LANG, -1).indexReader.releaseToNRTManager();
+                    }
+                } catch (Exception e) {
+                    error[0] = e;
+                }
+            }
+        });
+
+        try {
+            addDocumentsConcurrently(tracker, 4, 250);
+        } finally {
+            ingesting.set(false);
+        }
+
+        final IndexAndTaxonomy acquire = tracker.acquire(LANG, -1);
+        assertEquals(1000, acquire.indexReader.numDocs());
+        acquire.indexReader.releaseToNRTManager();
+        tracker.close(1000, true);
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+
+    @Test
+    public void testNrtReopenWithoutCommit() throws Exception {
+        final LuceneIndexLanguageTracker tracker = newTracker(folder.newFolder().toPath());
+        LuceneConfig luceneConfig = ApplicationContextHolder.get().getBean(LuceneConfig.class);
+        Mockito.when(luceneConfig.nrtReopenWithoutCommit()).thenReturn(true);
+        Mockito.when(luceneConfig.commitMaxDelay()).thenReturn(TimeUnit.HOURS.toMillis(1));
+        Mockito.when(luceneConfig.commitMaxDocuments()).thenReturn(10);
+        LuceneIndexStatistics statistics = tracker.getStatistics();
+
+        addDocumentsConcurrently(tracker, 1, 5);
+        IndexAndTaxonomy acquire = tracker.acquire(LANG, -1);
+        assertEquals(5, acquire.indexReader.numDocs());
+        acquire.indexReader.releaseToNRTManager();
+        assertEquals(1, statistics.getReopens());
+        assertEquals(0, statistics.getCommits());
+        assertEquals(5, statistics.getUncommittedChanges());
+        assertFalse(tracker.commitIfNeeded());
+
+        // a stale reader is good enough, the searchers are not reopened
+        addDocumentsConcurrently(tracker, 1, 5);
+        acquire = tracker.acquire(LANG, -1, TimeUnit.HOURS.toMillis(1));
+        assertEquals(5, acquire.indexReader.numDocs());
+        acquire.indexReader.releaseToNRTManager();
+        assertEquals(1, statistics.getReopens());
+
+        assertTrue(tracker.commitIfNeeded());
+        assertEquals(1, statistics.getCommits());
+        assertEquals(0, statistics.getUncommittedChanges());
+        tracker.close(1000, true);
+    }
+
+    /**
+     * Measure the number of documents added per second depending on the number of indexing
+     * threads.
+     */
+    @Test
+    @Ignore
+    public void benchmarkConcurrentAddDocuments() throws Exception {
+        final int documents = 40000;
+        for (int threads : new int[]{1, 2, 4, 8, 16}) {
+            final LuceneIndexLanguageTracker tracker = newTracker(folder.newFolder().toPath());
+            // warm up the writers
+            addDocumentsConcurrently(tracker, threads, 100);
+
+            long start = System.nanoTime();
+            addDocumentsConcurrently(tracker, threads, documents / threads);
+            tracker.commit();
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%d threads: %d documents/s", threads,
+                TimeUnit.SECONDS.toNanos(documents) / elapsed));
+            tracker.close(1000, true);
+        }
+    }
+
+    private LuceneIndexLanguageTracker newTracker(Path luceneDir) {
+        GeonetworkDataDirectory datadir = Mockito.mock(GeonetworkDataDirectory.class);
+        Mockito.when(datadir.getLuceneDir()).thenReturn(luceneDir);
+
+        FSDirectoryFactory directoryFactory = new FSDirectoryFactory();
+        LuceneConfig luceneConfig = Mockito.mock(LuceneConfig.class);
+        Mockito.when(luceneConfig.commitInterval()).thenReturn(1L);
+        Mockito.when(luceneConfig.useNRTManagerReopenThread()).thenReturn(false);
+        Mockito.when(luceneConfig.getTaxonomyConfiguration()).thenReturn(new FacetsConfig());
+
+        final ConfigurableApplicationContext applicationContext = Mockito.mock(ConfigurableApplicationContext.class);
+        ApplicationContextHolder.set(applicationContext);
+        Mockito.when(applicationContext.getBean(GeonetworkDataDirectory.class)).thenReturn(datadir);
+        Mockito.when(applicationContext.getBean(DirectoryFactory.class)).thenReturn(directoryFactory);
+        Mockito.when(applicationContext.getBean(LuceneConfig.class)).thenReturn(luceneConfig);
+
+        return new LuceneIndexLanguageTracker();
+    }
+
+    /**
+     * Add documents in several languages from several threads at the same time.
+     */
+    private void addDocumentsConcurrently(final LuceneIndexLanguageTracker tracker, int threads,
+                                          final int documentsPerThread) throws Exception {
+        final String[] languages = {LANG, "fre", "ger"};
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < documentsPerThread; i++) {
+                            int id = thread * documentsPerThread + i;
+                            Document document = new Document();
+                            document.add(new IntField("id", id, Field.Store.YES));
+                            document.add(new IntField("intField1", id % 10, Field.Store.YES));
+                            Collection<CategoryPath> categories = Arrays.asList(new CategoryPath("intField1", String.valueOf(id % 10)));
+                            tracker.addDocument(new IndexInformation(languages[id % languages.length], document, categories));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
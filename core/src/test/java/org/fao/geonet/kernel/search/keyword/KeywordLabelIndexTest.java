@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.keyword;
+
+import com.google.common.base.Function;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeywordLabelIndexTest {
+
+    private final KeywordLabelIndex index = new KeywordLabelIndex.Builder()
+        .add("http://test#water", "Water", "en")
+        .add("http://test#waterfall", "waterfall", "en")
+        .add("http://test#wind", "Wind", "en")
+        .add("http://test#water", "Eau", "fr")
+        .add("http://test#waterfall", "Chute d'eau", "fr")
+        .add("http://test#wind", "Vent", "fr")
+        .add("http://test#wine", "wine", null)
+        .build();
+
+    @Test
+    public void findByPrefixIgnoresCase() {
+        assertEquals(Arrays.asList("http://test#water", "http://test#waterfall"), index.findByPrefix("WAT", 10, "en"));
+        assertEquals(Collections.singletonList("http://test#wind"), index.findByPrefix("wind", 10, "en"));
+        assertEquals(Collections.emptyList(), index.findByPrefix("z", 10, "en"));
+    }
+
+    @Test
+    public void findByPrefixLooksAtTheRequestedLanguages() {
+        assertEquals(Collections.singletonList("http://test#water"), index.findByPrefix("eau", 10, "en", "fr"));
+        assertEquals(Collections.emptyList(), index.findByPrefix("eau", 10, "en"));
+        assertEquals(Collections.singletonList("http://test#wine"), index.findByPrefix("win", 10, "fr", ""));
+        assertEquals(2, index.findByPrefix("win", 10).size());
+    }
+
+    @Test
+    public void findByPrefixReturnsEachConceptOnce() {
+        assertEquals(Arrays.asList("http://test#water", "http://test#waterfall"), index.findByPrefix("w", 2, "en", "fr"));
+        assertEquals(Arrays.asList("http://test#water", "http://test#waterfall", "http://test#wind"),
+            index.findByPrefix("", 10, "en", "fr"));
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    public void addAllMergesIndexes() {
+        KeywordLabelIndex other = new KeywordLabelIndex.Builder()
+            .add("http://other#waterway", "Waterway", "en")
+            .build();
+        KeywordLabelIndex merged = new KeywordLabelIndex.Builder()
+            .addAll(index, prefix("a:"))
+            .addAll(other, prefix("b:"))
+            .build();
+        assertEquals(Arrays.asList("a:http://test#water", "a:http://test#waterfall", "b:http://other#waterway"),
+            merged.findByPrefix("water", 10, "en"));
+        assertEquals(Collections.singletonList("a:http://test#water"), merged.findByPrefix("EAU", 10, "fr"));
+        assertEquals(Collections.singletonList("a:http://test#wine"), merged.findByPrefix("wine", 10, ""));
+        assertEquals(8, merged.size());
+    }
+
+    private static Function<String, String> prefix(final String prefix) {
+        return new Function<String, String>() {
+            @Override
+            public String apply(String uri) {
+                return prefix + uri;
+            }
+        };
+    }
+}
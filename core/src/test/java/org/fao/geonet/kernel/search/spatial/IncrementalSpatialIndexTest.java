@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.spatial;
+
+import org.geotools.data.Transaction;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalSpatialIndexTest {
+    private SpatialIndexWriter writer;
+    private IncrementalSpatialIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        writer = new SpatialIndexWriter(new MemoryDataStore(), Transaction.AUTO_COMMIT, 1, new ReentrantLock());
+        index = new IncrementalSpatialIndex();
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+    }
+
+    @Test
+    public void addedRecordsAreFound() {
+        index.load(records(0, 10));
+        index.add("20", data("20", 20));
+
+        assertEquals(ids("0", "1", "2"), query(0, 2));
+        assertEquals(ids("20"), query(19.5, 20.5));
+        assertEquals(11, index.size());
+        assertEquals(1, index.getDeltaSize());
+    }
+
+    @Test
+    public void removedRecordsAreMasked() {
+        index.load(records(0, 10));
+        index.remove("1");
+        index.remove("unknown");
+
+        assertEquals(ids("0", "2"), query(0, 2));
+        assertEquals(9, index.size());
+    }
+
+    @Test
+    public void replacedRecordsAreMoved() {
+        index.load(records(0, 10));
+        index.replace("1", data("1", 50));
+
+        assertEquals(ids("0", "2"), query(0, 2));
+        assertEquals(ids("1"), query(49.5, 50.5));
+
+        index.replace("1", data("1", 60));
+        assertEquals(ids(), query(49.5, 50.5));
+        assertEquals(ids("1"), query(59.5, 60.5));
+        assertEquals(1, index.getDeltaSize());
+    }
+
+    @Test
+    public void mergeKeepsTheSameContent() {
+        index.load(records(0, 10));
+        index.add("20", data("20", 20));
+        index.remove("3");
+        index.replace("1", data("1", 50));
+
+        Set<String> beforeMerge = query(-180, 180);
+        long generation = index.getGeneration();
+        index.merge();
+
+        assertEquals(beforeMerge, query(-180, 180));
+        assertEquals(0, index.getDeltaSize());
+        assertNotEquals(generation, index.getGeneration());
+    }
+
+    @Test
+    public void generationChangesOnModification() {
+        long generation = index.getGeneration();
+        index.add("1", data("1", 1));
+        assertTrue(index.getGeneration() != generation);
+
+        generation = index.getGeneration();
+        index.query(new Envelope(0, 2, 0, 2));
+        assertEquals(generation, index.getGeneration());
+    }
+
+    @Test
+    public void clearRemovesAllTheRecords() {
+        index.load(records(0, 10));
+        index.add("20", data("20", 20));
+        index.clear();
+
+        assertEquals(ids(), query(-180, 180));
+        assertEquals(0, index.size());
+    }
+
+    private Set<String> query(double min, double max) {
+        Set<String> result = new TreeSet<>();
+        for (Object data : index.query(new Envelope(min, max, min, max))) {
+            result.add(((SpatialIndexWriter.Data) data).getMetadataId());
+        }
+        return result;
+    }
+
+    private Map<String, List<SpatialIndexWriter.Data>> records(int from, int to) {
+        Map<String, List<SpatialIndexWriter.Data>> records = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            records.put(String.valueOf(i), new ArrayList<>(data(String.valueOf(i), i)));
+        }
+        return records;
+    }
+
+    /**
+     * @return the extent of a record, a square of 0.5 degrees centered on (position, position).
+     */
+    private List<SpatialIndexWriter.Data> data(String metadataId, double position) {
+        SpatialIndexWriter.Data data = writer.new Data();
+        data.setMetadataId(metadataId);
+        data.setFeatureId(new FeatureIdImpl("spatialindex." + metadataId));
+        data.setNumBrotherGeometries(1);
+        data.setEnv(new Envelope(position - 0.25, position + 0.25, position - 0.25, position + 0.25));
+        return Collections.singletonList(data);
+    }
+
+    private static Set<String> ids(String... ids) {
+        Set<String> result = new TreeSet<>();
+        Collections.addAll(result, ids);
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.spatial;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.Pair;
+import org.geotools.data.FeatureSource;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.index.SpatialIndex;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.identity.FeatureId;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpatialFilterTest {
+    private static final int RECORDS = 2000;
+    private static final int RECORDS_PER_SEGMENT = 300;
+
+    private RAMDirectory directory;
+    private DirectoryReader reader;
+    private Pair<FeatureSource<SimpleFeatureType, SimpleFeature>, SpatialIndex> sourceAccessor;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Geonet.LUCENE_VERSION, new KeywordAnalyzer()))) {
+            for (int id = 0; id < RECORDS; id++) {
+                Document document = new Document();
+                document.add(new StringField(Geonet.IndexFieldNames.ID, String.valueOf(id), Field.Store.YES));
+                document.add(new StringField("type", id % 2 == 0 ? "dataset" : "service", Field.Store.NO));
+                writer.addDocument(document);
+                if (id % RECORDS_PER_SEGMENT == 0) {
+                    writer.commit();
+                }
+            }
+        }
+        reader = DirectoryReader.open(directory);
+
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("spatialIndex");
+        typeBuilder.add("the_geom", MultiPolygon.class);
+        typeBuilder.add("id", String.class);
+        @SuppressWarnings("unchecked")
+        FeatureSource<SimpleFeatureType, SimpleFeature> featureSource = mock(FeatureSource.class);
+        when(featureSource.getSchema()).thenReturn(typeBuilder.buildFeatureType());
+        sourceAccessor = Pair.<FeatureSource<SimpleFeatureType, SimpleFeature>, SpatialIndex>read(featureSource, new STRtree());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void sameCandidatesWithFewSpatialMatches() throws Exception {
+        assertSameCandidates(new MatchAllDocsQuery(), spatialMatches(50), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void sameCandidatesWithManySpatialMatches() throws Exception {
+        assertSameCandidates(new MatchAllDocsQuery(), spatialMatches(2), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void sameCandidatesWithQueryRestriction() throws Exception {
+        assertSameCandidates(new TermQuery(new Term("type", "service")), spatialMatches(5), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void candidatesAreLimitedByTheNumberOfHits() throws Exception {
+        Set<FeatureId> matches = new HashSet<>();
+        collect(false, new MatchAllDocsQuery(), spatialMatches(1), 10, matches, HashMultimap.<FeatureId, Integer>create());
+
+        assertEquals(10, matches.size());
+    }
+
+    @Test
+    public void unknownIdsAreIgnored() throws Exception {
+        Map<String, FeatureId> spatialMatches = new HashMap<>();
+        spatialMatches.put("unknown", new FeatureIdImpl("spatialIndex.unknown"));
+        spatialMatches.put("12", new FeatureIdImpl("spatialIndex.12"));
+        Set<FeatureId> matches = new HashSet<>();
+        Multimap<FeatureId, Integer> docIndexLookup = HashMultimap.create();
+
+        collect(false, new MatchAllDocsQuery(), spatialMatches, Integer.MAX_VALUE, matches, docIndexLookup);
+
+        assertEquals(1, matches.size());
+        assertTrue(matches.contains(new FeatureIdImpl("spatialIndex.12")));
+        assertEquals(1, docIndexLookup.size());
+    }
+
+    /**
+     * Compare the time spent collecting the candidates of a spatial query when reading the metadata
+     * ids from the stored fields and from the terms index.
+     */
+    @Test
+    @Ignore
+    public void benchmarkCandidateCollection() throws Exception {
+        final int iterations = 200;
+        for (Map<String, FeatureId> spatialMatches : new Map[]{spatialMatches(1), spatialMatches(50)}) {
+            for (boolean fromStoredFields : new boolean[]{true, false, true, false}) {
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    collect(fromStoredFields, new MatchAllDocsQuery(), spatialMatches, Integer.MAX_VALUE,
+                        new HashSet<FeatureId>(), HashMultimap.<FeatureId, Integer>create());
+                }
+                System.out.println(String.format("%d spatial matches, %s: %d us/query", spatialMatches.size(),
+                    fromStoredFields ? "stored fields" : "terms index", (System.nanoTime() - start) / iterations / 1000));
+            }
+        }
+    }
+
+    private void assertSameCandidates(Query query, Map<String, FeatureId> spatialMatches, int numHits) throws IOException {
+        Set<FeatureId> storedFieldsMatches = new HashSet<>();
+        Multimap<FeatureId, Integer> storedFieldsDocs = HashMultimap.create();
+        collect(true, query, spatialMatches, numHits, storedFieldsMatches, storedFieldsDocs);
+
+        Set<FeatureId> termsIndexMatches = new HashSet<>();
+        Multimap<FeatureId, Integer> termsIndexDocs = HashMultimap.create();
+        collect(false, query, spatialMatches, numHits, termsIndexMatches, termsIndexDocs);
+
+        assertTrue(storedFieldsMatches.size() > 0);
+        assertEquals(storedFieldsMatches, termsIndexMatches);
+        assertEquals(storedFieldsDocs, termsIndexDocs);
+    }
+
+    private void collect(boolean fromStoredFields, Query query, Map<String, FeatureId> spatialMatches, int numHits,
+                         Set<FeatureId> matches, Multimap<FeatureId, Integer> docIndexLookup) throws IOException {
+        SpatialFilter filter = new IntersectionFilter(query, numHits, new Envelope(-180, 180, -90, 90), sourceAccessor);
+        for (AtomicReaderContext context : reader.leaves()) {
+            // The filter works on segment doc ids, make them unique across the segments
+            Multimap<FeatureId, Integer> segmentDocs = HashMultimap.create();
+            if (fromStoredFields) {
+                filter.collectFromStoredFields(context.reader(), spatialMatches, matches, segmentDocs);
+            } else {
+                filter.collectFromTermsIndex(context.reader(), spatialMatches, matches, segmentDocs);
+            }
+            for (Map.Entry<FeatureId, Integer> entry : segmentDocs.entries()) {
+                docIndexLookup.put(entry.getKey(), context.docBase + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return a feature for one record out of every {@code step}.
+     */
+    private Map<String, FeatureId> spatialMatches(int step) {
+        Map<String, FeatureId> spatialMatches = new HashMap<>();
+        for (int id = 0; id < RECORDS; id += step) {
+            spatialMatches.put(String.valueOf(id), new FeatureIdImpl("spatialIndex." + id));
+        }
+        return spatialMatches;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.setting;
+
+import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.domain.Setting;
+import org.fao.geonet.repository.SettingRepository;
+import org.fao.geonet.repository.Updater;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.Nonnull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SettingManagerIntegrationTest extends AbstractCoreIntegrationTest {
+    @Autowired
+    private SettingManager settingManager;
+    @Autowired
+    private SettingRepository settingRepository;
+
+    @Test
+    public void testValuesAreServedFromTheCache() throws Exception {
+        settingManager.refresh();
+        SettingsCacheStatistics statistics = settingManager.getCacheStatistics();
+        String siteName = settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH);
+        long loads = statistics.getLoads();
+        long hits = statistics.getHits();
+
+        assertEquals(siteName, settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH));
+        assertEquals(siteName, settingManager.getSiteName());
+        assertEquals(loads, statistics.getLoads());
+        assertEquals(hits + 2, statistics.getHits());
+    }
+
+    @Test
+    public void testSetValueIsVisible() throws Exception {
+        settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH);
+        settingManager.setValue(Settings.SYSTEM_SITE_NAME_PATH, "cached site");
+
+        assertEquals("cached site", settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH));
+    }
+
+    @Test
+    public void testRefreshReloadsTheValues() throws Exception {
+        settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH);
+        settingRepository.update(Settings.SYSTEM_SITE_NAME_PATH, new Updater<Setting>() {
+            @Override
+            public void apply(@Nonnull Setting entity) {
+                entity.setValue("updated site");
+            }
+        });
+        settingManager.refresh();
+
+        assertEquals("updated site", settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH));
+    }
+
+    @Test
+    public void testRepositoryChangesAreVisible() throws Exception {
+        settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH);
+        settingRepository.update(Settings.SYSTEM_SITE_NAME_PATH, new Updater<Setting>() {
+            @Override
+            public void apply(@Nonnull Setting entity) {
+                entity.setValue("saved site");
+            }
+        });
+
+        assertEquals("saved site", settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH));
+
+        settingRepository.delete(Settings.SYSTEM_SITE_NAME_PATH);
+        settingRepository.flush();
+
+        assertNull(settingManager.getValue(Settings.SYSTEM_SITE_NAME_PATH));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2001-2016 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+
+package org.fao.geonet.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WorkerPoolsTest {
+    private final WorkerPools workerPools = new WorkerPools();
+
+    @After
+    public void shutDown() {
+        workerPools.shutDown();
+    }
+
+    @Test
+    public void poolsAreSharedByName() {
+        ExecutorService pool = workerPools.getPool("test", 2);
+        assertSame(pool, workerPools.getPool("test", 4));
+        assertNotSame(pool, workerPools.getPool("other", 2));
+    }
+
+    @Test
+    public void tasksRunInTheCallerWhenTheQueueIsFull() throws Exception {
+        ExecutorService pool = workerPools.getPool("test", 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        // one task running and 16 queued fill the pool
+        for (int i = 0; i < 17; i++) {
+            pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    release.await();
+                    return null;
+                }
+            });
+        }
+        Future<String> future = pool.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        });
+        assertTrue(future.isDone());
+        assertEquals(Thread.currentThread().getName(), future.get());
+        release.countDown();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void tasksAreRejectedOnceShutDown() {
+        ExecutorService pool = workerPools.getPool("test", 1);
+        workerPools.shutDown();
+        pool.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void poolsAreNotCreatedOnceShutDown() {
+        workerPools.shutDown();
+        workerPools.getPool("test", 1);
+    }
+}
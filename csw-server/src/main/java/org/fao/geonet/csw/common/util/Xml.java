@@ -140,7 +140,7 @@ public class Xml {
             params.put("displayInfo", resultType == ResultType.RESULTS_WITH_SUMMARY ? "true" : "false");
 
             try {
-                result = org.fao.geonet.utils.Xml.transform(result, styleSheet, params);
+                result = org.fao.geonet.utils.Xml.prepareTransform(styleSheet).transform(result, params);
             } catch (Exception e) {
                 String msg = String.format(
                     "Error occured while transforming metadata with id '%s' using '%s'.",
@@ -578,7 +578,7 @@ public class SearchController {
             params.put("displayInfo", resultType == ResultType.RESULTS_WITH_SUMMARY ? "true" : "false");
 
             try {
-                result = Xml.transform(result, styleSheet, params);
+                result = Xml.prepareTransform(styleSheet).transform(result, params);
             } catch (Exception e) {
                 context.error("Error while transforming metadata with id : " + id + " using " + styleSheet);
                 context.error("  (C) StackTrace:\n" + Util.getStackTrace(e));
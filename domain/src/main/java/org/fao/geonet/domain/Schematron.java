@@ -23,6 +23,8 @@
 
 package org.fao.geonet.domain;
 
+import org.fao.geonet.entitylistener.SchematronEntityListenerManager;
+
 import java.io.File;
 import java.util.Comparator;
 import java.util.Map;
@@ -34,6 +36,7 @@ import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
@@ -54,6 +57,7 @@ import javax.persistence.UniqueConstraint;
 @Entity
 @Table(name = "schematron",
     uniqueConstraints = @UniqueConstraint(columnNames = {"schemaName", "filename"}))
+@EntityListeners(SchematronEntityListenerManager.class)
 @Cacheable
 @Access(AccessType.PROPERTY)
 @SequenceGenerator(name = Schematron.ID_SEQ_NAME, initialValue = 100, allocationSize = 1)
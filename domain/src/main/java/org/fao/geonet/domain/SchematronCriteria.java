@@ -23,6 +23,7 @@
 
 package org.fao.geonet.domain;
 
+import org.fao.geonet.entitylistener.SchematronCriteriaEntityListenerManager;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.springframework.context.ApplicationContext;
@@ -40,6 +41,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "SchematronCriteria")
+@EntityListeners(SchematronCriteriaEntityListenerManager.class)
 @Cacheable
 @Access(AccessType.PROPERTY)
 @SequenceGenerator(name = SchematronCriteria.ID_SEQ_NAME, initialValue = 100, allocationSize = 1)
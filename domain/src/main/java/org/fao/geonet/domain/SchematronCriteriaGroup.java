@@ -23,6 +23,7 @@
 
 package org.fao.geonet.domain;
 
+import org.fao.geonet.entitylistener.SchematronCriteriaGroupEntityListenerManager;
 import org.jdom.Element;
 
 import javax.annotation.Nonnull;
@@ -36,6 +37,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "SchematronCriteriaGroup")
+@EntityListeners(SchematronCriteriaGroupEntityListenerManager.class)
 @Cacheable
 @Access(AccessType.PROPERTY)
 public class SchematronCriteriaGroup extends GeonetEntity {
@@ -12,6 +12,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.Collection;
 
 /**
  * Specifications for querying {@link org.fao.geonet.repository.MetadataValidationRepository}.
@@ -48,4 +49,18 @@ public class MetadataValidationSpecs {
             }
         };
     }
+
+    /**
+     * A specification that selects the validations of the given metadata.
+     *
+     * @param metadataIds the ids of the metadata
+     */
+    public static Specification<MetadataValidation> hasMetadataIdIn(final Collection<Integer> metadataIds) {
+        return new Specification<MetadataValidation>() {
+            @Override
+            public Predicate toPredicate(Root<MetadataValidation> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                return root.get(MetadataValidation_.id).get(MetadataValidationId_.metadataId).in(metadataIds);
+            }
+        };
+    }
 }
@@ -22,6 +22,7 @@
  */
 package org.fao.geonet.repository.userfeedback;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -56,6 +57,15 @@ public interface UserFeedbackRepository extends JpaRepository<UserFeedback, UUID
      */
     List<UserFeedback> findByMetadata_Uuid(String metadataUuid);
 
+    /**
+     * Count the user feedbacks of a set of records in one query.
+     *
+     * @param metadataUuids the uuids of the records (must not be empty).
+     * @return pairs of record uuid and number of user feedbacks. Records without feedback are not returned.
+     */
+    @Query("SELECT uf.metadata.uuid, count(uf) from GUF_UserFeedback uf where uf.metadata.uuid in ?1 group by uf.metadata.uuid")
+    List<Object[]> countByMetadataUuidIn(Collection<String> metadataUuids);
+
     /**
      * Find by metadata uuid and status order by date desc.
      *
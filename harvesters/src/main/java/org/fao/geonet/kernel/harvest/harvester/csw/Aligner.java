@@ -49,6 +49,7 @@ import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
 import org.fao.geonet.kernel.datamanager.IMetadataManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.harvest.BaseAligner;
+import org.fao.geonet.kernel.harvest.harvester.AbstractParams;
 import org.fao.geonet.kernel.harvest.harvester.CategoryMapper;
 import org.fao.geonet.kernel.harvest.harvester.GroupMapper;
 import org.fao.geonet.kernel.harvest.harvester.HarvestError;
@@ -101,8 +102,24 @@ public class Aligner extends BaseAligner<CswParams> {
     private IMetadataManager metadataManager;
     private IMetadataIndexer metadataIndexer;
 
+    /**
+     * Number of concurrent GetRecordById requests sent to the remote server, 0 to retrieve the
+     * records one by one while storing them.
+     */
+    private static final int FETCH_THREADS = Integer.getInteger("geonetwork.harvester.csw.fetchThreads", 4);
+    /**
+     * Number of ids in a GetRecordById request. Servers returning only one record per request are
+     * supported but are queried twice for most records, so it is 1 by default.
+     */
+    private static final int FETCH_BATCH_SIZE = Integer.getInteger("geonetwork.harvester.csw.fetchBatchSize", 1);
+    /**
+     * Number of GetRecordById requests prepared ahead of the record being stored.
+     */
+    private static final int FETCH_REQUESTS_AHEAD = 4;
+
     private HarvestResult result;
-    private GetRecordByIdRequest request;
+    private CswOperation oper;
+    private RecordFetcher fetcher;
     private String processName;
     private Map<String, Object> processParams = new HashMap<String, Object>();
     private Logger log;
@@ -126,10 +143,17 @@ public class Aligner extends BaseAligner<CswParams> {
 
         //--- setup get-record-by-id request
 
-        request = new GetRecordByIdRequest(sc);
-        request.setElementSetName(ElementSetName.FULL);
+        oper = server.getOperation(CswServer.GET_RECORD_BY_ID);
+        newGetRecordByIdRequest();
+    }
 
-        CswOperation oper = server.getOperation(CswServer.GET_RECORD_BY_ID);
+    /**
+     * Create a GetRecordById request to the remote server. A request per thread is needed as the
+     * requests hold the ids.
+     */
+    private GetRecordByIdRequest newGetRecordByIdRequest() throws OperationAbortedEx {
+        GetRecordByIdRequest request = new GetRecordByIdRequest(context);
+        request.setElementSetName(ElementSetName.FULL);
 
         // Use the preferred HTTP method and check one exist.
         if (oper.getGetUrl() != null && Harvester.PREFERRED_HTTP_METHOD.equals("GET")) {
@@ -163,7 +187,7 @@ public class Aligner extends BaseAligner<CswParams> {
         if (params.isUseAccount()) {
             request.setCredentials(params.getUsername(), params.getPassword());
         }
-
+        return request;
     }
 
     public HarvestResult align(Collection<RecordInfo> records, Collection<HarvestError> errors) throws Exception {
@@ -192,63 +216,131 @@ public class Aligner extends BaseAligner<CswParams> {
     }
 
     private void insertOrUpdate(Collection<RecordInfo> records, Collection<HarvestError> errors) {
-        for (RecordInfo ri : records) {
+        List<RecordInfo> recordList = new ArrayList<>(records);
+        int prefetched = 0;
+        int window = Math.max(FETCH_THREADS, 1) * Math.max(FETCH_BATCH_SIZE, 1) * FETCH_REQUESTS_AHEAD;
+
+        fetcher = new RecordFetcher(new RecordFetcher.Source() {
+            @Override
+            public List<Element> getRecordsById(Collection<String> uuids) throws Exception {
+                return getRecordsFromServer(uuids);
+            }
 
-            if (cancelMonitor.get()) {
-                return;
+            @Override
+            public String getUuid(Element record) {
+                try {
+                    String schema = dataMan.autodetectSchema(record, null);
+                    return schema == null ? null : metadataUtils.extractUUID(schema, record);
+                } catch (Exception e) {
+                    return null;
+                }
             }
-            try {
-                String id = metadataUtils.getMetadataId(ri.uuid);
-
-                if (id == null) {
-                    //record doesn't exist (so it doesn't belong to this harvester)
-                    log.debug("Adding record with uuid " + ri.uuid);
-                    addMetadata(ri, ri.uuid);
-                } else if (localUuids.getID(ri.uuid) == null) {
-                    //Record does not belong to this harvester
-                    result.datasetUuidExist++;
-
-                    switch (params.getOverrideUuid()) {
-                        case OVERRIDE:
-                            updateMetadata(ri, Integer.toString(metadataUtils.findOneByUuid(ri.uuid).getId()), true);
-                            log.debug("Overriding record with uuid " + ri.uuid);
-
-                            if (params.isIfRecordExistAppendPrivileges()) {
-                                addPrivileges(id, params.getPrivileges(), localGroups, context);
-                                result.privilegesAppendedOnExistingRecord++;
-                            }
-                            break;
-                        case RANDOM:
-                            log.debug("Generating random uuid for remote record with uuid " + ri.uuid);
-                            addMetadata(ri, UUID.randomUUID().toString());
-                            break;
-                        case SKIP:
-                            log.debug("Skipping record with uuid " + ri.uuid);
-                            result.uuidSkipped++;
-                        default:
-                            break;
-                    }
-                } else {
-                    //record exists and belongs to this harvester
-                    updateMetadata(ri, id, false);
+        }, FETCH_THREADS, FETCH_BATCH_SIZE);
 
-                    if (params.isIfRecordExistAppendPrivileges()) {
-                        addPrivileges(id, params.getPrivileges(), localGroups, context);
-                        result.privilegesAppendedOnExistingRecord++;
-                    }
+        try {
+            for (int i = 0; i < recordList.size(); i++) {
+                if (cancelMonitor.get()) {
+                    return;
+                }
+                // Keep the fetching threads busy while this thread stores the records
+                if (FETCH_THREADS > 0 && prefetched - i < window / 2) {
+                    int end = Math.min(i + window, recordList.size());
+                    prefetch(recordList.subList(Math.max(prefetched, i), end));
+                    prefetched = end;
                 }
+                insertOrUpdate(recordList.get(i), errors);
+                fetcher.discard(recordList.get(i).uuid);
+            }
+        } finally {
+            fetcher.close();
+            fetcher = null;
+        }
+    }
 
-                context.getBean(LuceneIndexLanguageTracker.class).commit();
+    /**
+     * Start retrieving the records which are going to be added or updated.
+     */
+    private void prefetch(List<RecordInfo> records) {
+        List<String> uuids = new ArrayList<>();
+        for (RecordInfo ri : records) {
+            try {
+                if (needsRetrieval(ri)) {
+                    uuids.add(ri.uuid);
+                }
+            } catch (Exception e) {
+                // the record is retrieved when it is processed, if it needs to be
+                log.debug("Unable to check if record " + ri.uuid + " needs to be retrieved: " + e.getMessage());
+            }
+        }
+        fetcher.prefetch(uuids);
+    }
 
-                result.totalMetadata++;
-            } catch (Throwable t) {
-                errors.add(new HarvestError(this.context, t));
-                log.error("Unable to process record from csw (" + this.params.getName() + ")");
-                log.error("   Record failed: " + ri.uuid + ". Error is: " + t.getMessage());
-                log.error(t);
-            } finally {
-                result.originalMetadata++;
+    /**
+     * @return true if {@link #insertOrUpdate(RecordInfo, Collection)} is going to retrieve the
+     * record from the remote server.
+     */
+    private boolean needsRetrieval(RecordInfo ri) throws Exception {
+        if (metadataUtils.getMetadataId(ri.uuid) == null) {
+            return true;
+        } else if (localUuids.getID(ri.uuid) == null) {
+            return params.getOverrideUuid() != AbstractParams.OverrideUuid.SKIP;
+        }
+        String date = localUuids.getChangeDate(ri.uuid);
+        return date != null && ri.isMoreRecentThan(date);
+    }
+
+    private void insertOrUpdate(RecordInfo ri, Collection<HarvestError> errors) {
+        try {
+            String id = metadataUtils.getMetadataId(ri.uuid);
+
+            if (id == null) {
+                //record doesn't exist (so it doesn't belong to this harvester)
+                log.debug("Adding record with uuid " + ri.uuid);
+                addMetadata(ri, ri.uuid);
+            } else if (localUuids.getID(ri.uuid) == null) {
+                //Record does not belong to this harvester
+                result.datasetUuidExist++;
+
+                switch (params.getOverrideUuid()) {
+                    case OVERRIDE:
+                        updateMetadata(ri, Integer.toString(metadataUtils.findOneByUuid(ri.uuid).getId()), true);
+                        log.debug("Overriding record with uuid " + ri.uuid);
+
+                        if (params.isIfRecordExistAppendPrivileges()) {
+                            addPrivileges(id, params.getPrivileges(), localGroups, context);
+                            result.privilegesAppendedOnExistingRecord++;
+                        }
+                        break;
+                    case RANDOM:
+                        log.debug("Generating random uuid for remote record with uuid " + ri.uuid);
+                        addMetadata(ri, UUID.randomUUID().toString());
+                        break;
+                    case SKIP:
+                        log.debug("Skipping record with uuid " + ri.uuid);
+                        result.uuidSkipped++;
+                    default:
+                        break;
+                }
+            } else {
+                //record exists and belongs to this harvester
+                updateMetadata(ri, id, false);
+
+                if (params.isIfRecordExistAppendPrivileges()) {
+                    addPrivileges(id, params.getPrivileges(), localGroups, context);
+                    result.privilegesAppendedOnExistingRecord++;
+                }
             }
+
+            context.getBean(LuceneIndexLanguageTracker.class).commit();
+
+            result.totalMetadata++;
+        } catch (Throwable t) {
+            errors.add(new HarvestError(this.context, t));
+            log.error("Unable to process record from csw (" + this.params.getName() + ")");
+            log.error("   Record failed: " + ri.uuid + ". Error is: " + t.getMessage());
+            log.error(t);
+        } finally {
+            result.originalMetadata++;
         }
     }
 
@@ -476,37 +568,23 @@ public class Aligner extends BaseAligner<CswParams> {
     }
 
     /**
-     * Does CSW GetRecordById request. If validation is requested and the metadata does not
+     * Gets a record with a CSW GetRecordById request, which may have been sent in the background
+     * by the {@link RecordFetcher}. If validation is requested and the metadata does not
      * validate, null is returned.
      *
      * @param uuid uuid of metadata to request
      * @return metadata the metadata
      */
     private Element retrieveMetadata(String uuid) {
-        request.clearIds();
-        request.addId(uuid);
-
         try {
-            log.debug("Getting record from : " + request.getHost() + " (uuid:" + uuid + ")");
-
-            Element response = request.execute();
-            if (log.isDebugEnabled()) {
-                log.debug("Record got: " + Xml.getString(response) + "\n");
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Element> list = response.getChildren();
+            Element response = fetcher.get(uuid);
 
             //--- maybe the metadata has been removed
 
-            if (list.size() == 0) {
+            if (response == null) {
                 return null;
             }
 
-            response = list.get(0);
-            response = (Element) response.detach();
-
-
             try {
                 Integer groupIdVal = null;
                 if (StringUtils.isNotEmpty(params.getOwnerIdGroup())) {
@@ -538,6 +616,33 @@ public class Aligner extends BaseAligner<CswParams> {
         }
     }
 
+    /**
+     * Does a CSW GetRecordById request, called from the fetching threads.
+     *
+     * @param uuids the uuids of the records to request
+     * @return the records returned, detached from the response
+     */
+    private List<Element> getRecordsFromServer(Collection<String> uuids) throws Exception {
+        GetRecordByIdRequest request = newGetRecordByIdRequest();
+        for (String uuid : uuids) {
+            request.addId(uuid);
+        }
+
+        log.debug("Getting record from : " + request.getHost() + " (uuid:" + StringUtils.join(uuids, ",") + ")");
+
+        Element response = request.execute();
+        if (log.isDebugEnabled()) {
+            log.debug("Record got: " + Xml.getString(response) + "\n");
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Element> list = new ArrayList<Element>(response.getChildren());
+        for (Element record : list) {
+            record.detach();
+        }
+        return list;
+    }
+
     /**
      * Check for metadata in the catalog having the same resource identifier as the harvested
      * record.
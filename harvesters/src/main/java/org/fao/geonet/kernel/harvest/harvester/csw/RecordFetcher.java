@@ -0,0 +1,224 @@
+//=============================================================================
+//===	Copyright (C) 2001-2007 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.harvest.harvester.csw;
+
+import org.jdom.Element;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retrieves the records of a remote catalog in the background while the harvester stores the
+ * previous ones.
+ *
+ * The records are requested by batches of ids, one GetRecordById request per batch, on a fixed
+ * number of threads. The records of a batch are mapped back to their uuid when they are read so
+ * that servers answering only the first id of a request are supported: the records missing from a
+ * batch response, or of a failed batch request, are requested one by one.
+ *
+ * The records must be read from a single thread.
+ */
+class RecordFetcher implements Closeable {
+    /**
+     * Access to the remote catalog.
+     */
+    interface Source {
+        /**
+         * Request the records, called from the fetching threads.
+         *
+         * @return the records found, detached from the response
+         */
+        List<Element> getRecordsById(Collection<String> uuids) throws Exception;
+
+        /**
+         * @return the uuid of a record returned by {@link #getRecordsById(Collection)}, null if
+         * unknown.
+         */
+        String getUuid(Element record);
+    }
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final Source source;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final Map<String, Batch> pending = new HashMap<>();
+
+    /**
+     * @param threads   the number of concurrent requests to the remote catalog, records are only
+     *                  retrieved when read if 0
+     * @param batchSize the number of ids in a GetRecordById request
+     */
+    RecordFetcher(Source source, int threads, int batchSize) {
+        this.source = source;
+        this.batchSize = Math.max(1, batchSize);
+        if (threads > 0) {
+            final String prefix = "csw-harvester-fetch-" + POOL_NUMBER.incrementAndGet() + "-";
+            final AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return the number of records requested in the background and not read yet.
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Start retrieving the records in the background.
+     */
+    void prefetch(List<String> uuids) {
+        if (executor == null) {
+            return;
+        }
+        for (int start = 0; start < uuids.size(); start += batchSize) {
+            final List<String> ids = new ArrayList<>();
+            for (String uuid : uuids.subList(start, Math.min(start + batchSize, uuids.size()))) {
+                if (!pending.containsKey(uuid) && !ids.contains(uuid)) {
+                    ids.add(uuid);
+                }
+            }
+            if (ids.isEmpty()) {
+                continue;
+            }
+            Batch batch = new Batch(ids, executor.submit(new Callable<List<Element>>() {
+                @Override
+                public List<Element> call() throws Exception {
+                    return source.getRecordsById(ids);
+                }
+            }));
+            for (String uuid : ids) {
+                pending.put(uuid, batch);
+            }
+        }
+    }
+
+    /**
+     * Get a record, waiting for it if it is being retrieved and retrieving it if it was not
+     * prefetched.
+     *
+     * @return the record, null if the remote catalog does not have it
+     */
+    Element get(String uuid) throws Exception {
+        Batch batch = pending.remove(uuid);
+        if (batch != null && batch.ids.size() == 1) {
+            return batch.getRecords().remove(uuid);
+        } else if (batch != null) {
+            try {
+                Map<String, Element> records = batch.getRecords();
+                if (records.containsKey(uuid)) {
+                    return records.remove(uuid);
+                }
+            } catch (Exception e) {
+                // The server may not support several ids in a request, try again with this one only
+            }
+        }
+        List<Element> records = source.getRecordsById(Collections.singletonList(uuid));
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    /**
+     * Forget a prefetched record which is not needed anymore.
+     */
+    void discard(String uuid) {
+        Batch batch = pending.remove(uuid);
+        if (batch != null && batch.records != null) {
+            batch.records.remove(uuid);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Batch batch : pending.values()) {
+            batch.future.cancel(true);
+        }
+        pending.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private final class Batch {
+        private final List<String> ids;
+        private final Future<List<Element>> future;
+        /**
+         * The records by uuid, set when the response is first read.
+         */
+        private Map<String, Element> records;
+
+        private Batch(List<String> ids, Future<List<Element>> future) {
+            this.ids = ids;
+            this.future = future;
+        }
+
+        private Map<String, Element> getRecords() throws Exception {
+            if (records == null) {
+                List<Element> response;
+                try {
+                    response = future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+                records = new HashMap<>();
+                if (ids.size() == 1) {
+                    if (!response.isEmpty()) {
+                        records.put(ids.get(0), response.get(0));
+                    }
+                } else {
+                    for (Element record : response) {
+                        String uuid = source.getUuid(record);
+                        if (uuid != null && ids.contains(uuid) && !records.containsKey(uuid)) {
+                            records.put(uuid, record);
+                        }
+                    }
+                }
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+//=============================================================================
+//===	Copyright (C) 2001-2007 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.harvest.harvester.csw;
+
+import org.jdom.Element;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecordFetcherTest {
+    private RecordFetcher fetcher;
+
+    @After
+    public void tearDown() {
+        if (fetcher != null) {
+            fetcher.close();
+        }
+    }
+
+    @Test
+    public void prefetchedRecordsAreReturned() throws Exception {
+        MockSource source = new MockSource(Integer.MAX_VALUE, "1", "2", "3");
+        fetcher = new RecordFetcher(source, 2, 1);
+
+        fetcher.prefetch(Arrays.asList("1", "2", "unknown"));
+
+        assertEquals("1", fetcher.get("1").getText());
+        assertEquals("2", fetcher.get("2").getText());
+        assertNull(fetcher.get("unknown"));
+        assertEquals(3, source.requests.size());
+
+        // Not prefetched
+        assertEquals("3", fetcher.get("3").getText());
+        assertEquals(4, source.requests.size());
+    }
+
+    @Test
+    public void batchesAreSplitByUuid() throws Exception {
+        MockSource source = new MockSource(Integer.MAX_VALUE, "1", "2", "3");
+        fetcher = new RecordFetcher(source, 1, 2);
+
+        fetcher.prefetch(Arrays.asList("1", "2", "3"));
+
+        assertEquals("2", fetcher.get("2").getText());
+        assertEquals("1", fetcher.get("1").getText());
+        assertEquals("3", fetcher.get("3").getText());
+        assertEquals(2, source.requests.size());
+    }
+
+    @Test
+    public void recordsMissingFromABatchAreRequestedAlone() throws Exception {
+        // A server answering the first id only
+        MockSource source = new MockSource(1, "1", "2");
+        fetcher = new RecordFetcher(source, 1, 2);
+
+        fetcher.prefetch(Arrays.asList("1", "2"));
+
+        assertEquals("1", fetcher.get("1").getText());
+        assertEquals("2", fetcher.get("2").getText());
+        assertEquals(Arrays.asList(Arrays.asList("1", "2"), Collections.singletonList("2")), source.requests);
+    }
+
+    @Test
+    public void discardedRecordsAreForgotten() throws Exception {
+        MockSource source = new MockSource(Integer.MAX_VALUE, "1");
+        fetcher = new RecordFetcher(source, 1, 1);
+
+        fetcher.prefetch(Collections.singletonList("1"));
+        fetcher.discard("1");
+
+        assertEquals(0, fetcher.getPendingCount());
+    }
+
+    @Test
+    public void recordsAreRequestedWhenReadWithoutThreads() throws Exception {
+        MockSource source = new MockSource(Integer.MAX_VALUE, "1");
+        fetcher = new RecordFetcher(source, 0, 1);
+
+        fetcher.prefetch(Collections.singletonList("1"));
+        assertEquals(0, source.requests.size());
+
+        assertEquals("1", fetcher.get("1").getText());
+        assertEquals(1, source.requests.size());
+    }
+
+    private static class MockSource implements RecordFetcher.Source {
+        private final int maxRecordsPerRequest;
+        private final List<String> uuids;
+        private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<List<String>>());
+
+        MockSource(int maxRecordsPerRequest, String... uuids) {
+            this.maxRecordsPerRequest = maxRecordsPerRequest;
+            this.uuids = Arrays.asList(uuids);
+        }
+
+        @Override
+        public List<Element> getRecordsById(Collection<String> ids) {
+            requests.add(new ArrayList<>(ids));
+            List<Element> records = new ArrayList<>();
+            for (String id : ids) {
+                if (uuids.contains(id) && records.size() < maxRecordsPerRequest) {
+                    records.add(new Element("record").setText(id));
+                }
+            }
+            return records;
+        }
+
+        @Override
+        public String getUuid(Element record) {
+            return record.getText();
+        }
+    }
+}
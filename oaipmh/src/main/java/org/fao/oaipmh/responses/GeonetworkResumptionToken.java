@@ -49,7 +49,7 @@ public class GeonetworkResumptionToken extends ResumptionToken {
     private Boolean isReset = false;
     private String randomid;
     private SearchResult res;
-    private SecureRandom random = new SecureRandom();
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     /**
      * Default constructor. Builds a GeonetworkResumptionToken.
@@ -155,7 +155,7 @@ public class GeonetworkResumptionToken extends ResumptionToken {
     //---------------------------------------------------------------------------
 
     public void setupToken(int newpos) {
-        if (newpos < res.getIds().size()) // update token so that it refers to the next chunk
+        if (newpos < res.getIdCount()) // update token so that it refers to the next chunk
             setPos(newpos);
         else {
             reset();    // reset token to indicate last chunk
@@ -218,7 +218,7 @@ public class GeonetworkResumptionToken extends ResumptionToken {
     }
 
     public String generateRandomString() {
-        return new BigInteger(130, random).toString(36);
+        return new BigInteger(130, RANDOM).toString(36);
     }
 
 }
@@ -23,6 +23,8 @@
 
 package org.fao.oaipmh.util;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.fao.oaipmh.exceptions.BadResumptionTokenException;
@@ -37,7 +39,12 @@ public class SearchResult {
     //---------------------------------------------------------------------------
 
     public String prefix;
-    private List<Integer> ids;
+    /**
+     * The ids of the records, only the first {@link #idCount} are used. Kept as primitive values
+     * because the results of the harvesting requests are kept by the resumption tokens.
+     */
+    private int[] ids;
+    private int idCount;
 
     private String token;
 
@@ -67,7 +74,7 @@ public class SearchResult {
         }
         int pos = Integer.parseInt(token);
 
-        if (pos >= ids.size())
+        if (pos >= idCount)
             throw new BadResumptionTokenException("Token beyond limit : " + token);
 
         this.token = token;
@@ -90,25 +97,63 @@ public class SearchResult {
     }
 
     /**
-     * @return the ids
+     * @return a read-only view of the ids, null if they have not been set
      */
     public List<Integer> getIds() {
-        return ids;
+        if (ids == null) {
+            return null;
+        }
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return getId(index);
+            }
+
+            @Override
+            public int size() {
+                return idCount;
+            }
+        };
+    }
+
+    /**
+     * @return the id at the position
+     */
+    public int getId(int index) {
+        if (index < 0 || index >= idCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + idCount);
+        }
+        return ids[index];
+    }
+
+    /**
+     * @return the number of ids
+     */
+    public int getIdCount() {
+        return idCount;
     }
 
     /**
      * @param ids the ids to set
      */
     public void setIds(List<Integer> ids) {
-        this.ids = ids;
+        this.ids = new int[ids.size()];
+        this.idCount = 0;
+        addIds(ids);
     }
 
     /**
      * @param ids the ids to add
      */
     public void addIds(List<Integer> ids) {
-        if (this.ids == null) this.ids = ids;
-        else this.ids.addAll(ids);
+        if (this.ids == null) {
+            this.ids = new int[ids.size()];
+        } else if (this.ids.length < idCount + ids.size()) {
+            this.ids = Arrays.copyOf(this.ids, idCount + ids.size());
+        }
+        for (Integer id : ids) {
+            this.ids[idCount++] = id;
+        }
     }
 
     /**
@@ -62,6 +62,7 @@ import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.datamanager.IMetadataManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.mef.Importer;
+import org.fao.geonet.kernel.mef.MEFImportReport;
 import org.fao.geonet.kernel.mef.MEFLib;
 import org.fao.geonet.kernel.search.SearchManager;
 import org.fao.geonet.kernel.setting.SettingManager;
@@ -367,9 +368,8 @@ public class MetadataInsertDeleteApi {
                 if (MEFLib.isValidArchiveExtensionForMEF(f.getFileName().toString())) {
                     try {
                         MEFLib.Version version = MEFLib.getMEFVersion(f);
-                        List<String> ids = MEFLib.doImport(version == MEFLib.Version.V1 ? "mef" : "mef2",
-                                uuidProcessing, transformWith, settingManager.getSiteId(), metadataType, category,
-                                group, rejectIfInvalid, assignToCatalog, context, f);
+                        List<String> ids = importMef(version, uuidProcessing, transformWith, metadataType, category,
+                                group, rejectIfInvalid, assignToCatalog, context, f, f.getFileName().toString(), report);
                         for (String id : ids) {
                             report.addMetadataInfos(Integer.parseInt(id), id, !publishToAll, false,
                                     String.format("Metadata imported from MEF with id '%s'", id));
@@ -549,9 +549,8 @@ public class MetadataInsertDeleteApi {
 
                         MEFLib.Version version = MEFLib.getMEFVersion(tempFile);
 
-                        List<String> ids = MEFLib.doImport(version == MEFLib.Version.V1 ? "mef" : "mef2",
-                                uuidProcessing, transformWith, settingManager.getSiteId(), metadataType, category,
-                                group, rejectIfInvalid, assignToCatalog, context, tempFile);
+                        List<String> ids = importMef(version, uuidProcessing, transformWith, metadataType, category,
+                                group, rejectIfInvalid, assignToCatalog, context, tempFile, f.getOriginalFilename(), report);
                         if (ids.isEmpty()) {
                             //we could have used a finer-grained error handling inside the MEFLib import call (MEF MD file processing)
                             //This is a catch-for-call for the case when there is no record is imported, to notify the user the import is not successful.
@@ -801,6 +800,30 @@ public class MetadataInsertDeleteApi {
                 metadata.getData()).publish(applicationContext);
     }
 
+    /**
+     * Import a MEF file. MEF2 files are imported by batches and their records which cannot be
+     * imported are added to the report, the other records are still imported.
+     *
+     * @return the ids of the records imported.
+     */
+    private List<String> importMef(MEFLib.Version version, MEFLib.UuidAction uuidProcessing, String transformWith,
+                                   MetadataType metadataType, String[] category, String group, boolean rejectIfInvalid,
+                                   boolean assignToCatalog, ServiceContext context, Path file, String fileName,
+                                   SimpleMetadataProcessingReport report) throws Exception {
+        if (version == MEFLib.Version.V1) {
+            return MEFLib.doImport("mef", uuidProcessing, transformWith, settingManager.getSiteId(), metadataType,
+                    category, group, rejectIfInvalid, assignToCatalog, context, file);
+        }
+        MEFImportReport importReport = MEFLib.doMEF2Import(uuidProcessing, transformWith, settingManager.getSiteId(),
+                metadataType, category, group, rejectIfInvalid, assignToCatalog, context, file);
+        for (Map.Entry<String, Exception> error : importReport.getErrors().entrySet()) {
+            report.addError(error.getValue());
+            report.addInfos(String.format("Failed to import record '%s' from MEF file '%s'. Check error for details.",
+                    error.getKey(), fileName));
+        }
+        return importReport.getMetadataIds();
+    }
+
     private Pair<Integer, String> loadRecord(MetadataType metadataType, Element xmlElement,
             final MEFLib.UuidAction uuidProcessing, final String group, final String[] category,
             final boolean rejectIfInvalid, final boolean publishToAll, final String transformWith, String schema,
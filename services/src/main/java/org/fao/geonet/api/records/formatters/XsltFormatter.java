@@ -133,7 +133,7 @@ public class XsltFormatter implements FormatterImpl {
                 requestParameters.put(key, fparams.webRequest.getParameterMap().get(key));
             }
         }
-        Element transformed = Xml.transform(root, fparams.viewFile, requestParameters);
+        Element transformed = Xml.prepareTransform(fparams.viewFile).transform(root, requestParameters);
         return "textResponse".equals(transformed.getName()) ?
             transformed.getTextNormalize() :
             Xml.getString(transformed);
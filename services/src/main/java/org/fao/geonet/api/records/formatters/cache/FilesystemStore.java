@@ -25,10 +25,23 @@ package org.fao.geonet.api.records.formatters.cache;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.Striped;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.DummyCounter;
+import com.yammer.metrics.core.DummyTimer;
+import com.yammer.metrics.core.Timer;
+import com.yammer.metrics.core.TimerContext;
+
+import jeeves.monitor.MetricsFactory;
+import jeeves.monitor.MonitorManager;
 
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.lib.Lib;
+import org.fao.geonet.monitor.formatter.FormatterStoreHitCounter;
+import org.fao.geonet.monitor.formatter.FormatterStoreMissCounter;
+import org.fao.geonet.monitor.formatter.FormatterStoreReadTimer;
+import org.fao.geonet.monitor.formatter.FormatterStoreWriteTimer;
 import org.fao.geonet.utils.IO;
 import org.fao.geonet.utils.Log;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,10 +49,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -48,6 +64,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -60,12 +82,19 @@ import static org.fao.geonet.constants.Params.Access.PUBLIC;
  * A {@link org.fao.geonet.api.records.formatters.cache.PersistentStore} that saves the files to
  * disk.
  *
+ * The info of the stored files is persisted in an embedded H2 database and mirrored in memory, so
+ * reads never query the database nor take a global lock. Writes of the same key are serialized by
+ * striped locks, writes of different keys run concurrently. The files are written to a temporary
+ * file first and then moved in place so readers never see a partially written file. Resizing the
+ * store excludes all the writes.
+ *
  * @author Jesse on 3/5/2015.
  */
 public class FilesystemStore implements PersistentStore {
     public static final String WITHHELD_MD_DIRNAME = "withheld_md";
     public static final String FULL_MD_NAME = "full_md";
     private static final String BASE_CACHE_DIR = "formatter-cache";
+    private static final String TMP_SUFFIX = ".tmp";
     private static final String INFO_TABLE = "info";
     private static final String KEY = "keyhash";
     private static final String CHANGE_DATE = "changedate";
@@ -77,7 +106,7 @@ public class FilesystemStore implements PersistentStore {
     private static final String VALUE = "value";
     public static final String QUERY_SETCURRENT_SIZE = "MERGE INTO " + STATS_TABLE + " (" + NAME + ", " + VALUE + ") VALUES ('" + CURRENT_SIZE + "', ?)";
     public static final String QUERY_GETCURRENT_SIZE = "SELECT " + VALUE + " FROM " + STATS_TABLE + " WHERE " + NAME + " = '" + CURRENT_SIZE + "'";
-    private static final String QUERY_GET_INFO = "SELECT * FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
+    private static final String QUERY_GET_ALL_INFO = "SELECT " + KEY + "," + CHANGE_DATE + "," + PUBLISHED + " FROM " + INFO_TABLE;
     private static final String QUERY_GET_INFO_FOR_RESIZE = "SELECT " + KEY + "," + PATH + " FROM " + INFO_TABLE + " ORDER BY " + CHANGE_DATE + " ASC";
     private static final String QUERY_PUT = "MERGE INTO " + INFO_TABLE + " (" + KEY + "," + CHANGE_DATE + "," + PUBLISHED + "," + PATH + ") VALUES (?,?,?, ?)";
     private static final String QUERY_REMOVE = "DELETE FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
@@ -87,13 +116,34 @@ public class FilesystemStore implements PersistentStore {
     Connection metadataDb;
     @Autowired
     private GeonetworkDataDirectory geonetworkDataDir;
+    @Autowired(required = false)
+    private MonitorManager monitorManager;
     private boolean testing = false;
     private volatile long maxSizeB = 10000;
-    private volatile long currentSize = 0;
+    private final AtomicLong currentSize = new AtomicLong();
     private volatile boolean initialized = false;
-
-    private synchronized void init() throws SQLException {
-        if (!initialized) {
+    /**
+     * The info of the stored files by key hash, the in-memory copy of the info table.
+     */
+    private final ConcurrentMap<Integer, StoreInfo> index = new ConcurrentHashMap<>();
+    /**
+     * Serialize the writes of a key.
+     */
+    private final Striped<Lock> keyLocks = Striped.lock(64);
+    /**
+     * Shared by the writes, held exclusively while resizing or clearing the store.
+     */
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private final Object currentSizeDbLock = new Object();
+
+    private void init() throws SQLException {
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            if (initialized) {
+                return;
+            }
             // using a h2 database and not normal geonetwork DB to ensure that the accesses are always on localhost and therefore
             // hopefully quick.
             try {
@@ -117,7 +167,14 @@ public class FilesystemStore implements PersistentStore {
                 Statement statement = metadataDb.createStatement();
                 ResultSet rs = statement.executeQuery(QUERY_GETCURRENT_SIZE)) {
                 if (rs.next()) {
-                    this.currentSize = Long.parseLong(rs.getString(1));
+                    this.currentSize.set(Long.parseLong(rs.getString(1)));
+                }
+            }
+            try (
+                Statement statement = metadataDb.createStatement();
+                ResultSet rs = statement.executeQuery(QUERY_GET_ALL_INFO)) {
+                while (rs.next()) {
+                    index.put(rs.getInt(KEY), new StoreInfo(rs.getLong(CHANGE_DATE), rs.getBoolean(PUBLISHED)));
                 }
             }
             Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
@@ -132,7 +189,6 @@ public class FilesystemStore implements PersistentStore {
             }));
             initialized = true;
         }
-
     }
 
     @PreDestroy
@@ -144,46 +200,77 @@ public class FilesystemStore implements PersistentStore {
     }
 
     @Override
-    public synchronized StoreInfoAndData get(@Nonnull Key key) throws IOException, SQLException {
+    public StoreInfoAndData get(@Nonnull Key key) throws IOException, SQLException {
         init();
-        StoreInfo info = getInfo(key);
-        if (info == null) {
+        TimerContext timerContext = getTimer(FormatterStoreReadTimer.class).time();
+        try {
+            StoreInfo info = index.get(key.hashCode());
+            if (info != null) {
+                try {
+                    byte[] data = Files.readAllBytes(getPrivatePath(key));
+                    getCounter(FormatterStoreHitCounter.class).inc();
+                    return new StoreInfoAndData(info, data);
+                } catch (NoSuchFileException e) {
+                    // removed concurrently
+                }
+            }
+            getCounter(FormatterStoreMissCounter.class).inc();
             return null;
+        } finally {
+            timerContext.stop();
         }
-        byte[] data = Files.readAllBytes(getPrivatePath(key));
-        return new StoreInfoAndData(info, data);
     }
 
     @Override
-    public synchronized StoreInfo getInfo(@Nonnull Key key) throws SQLException {
+    public StoreInfo getInfo(@Nonnull Key key) throws SQLException {
         init();
-        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_GET_INFO)) {
-            statement.setInt(1, key.hashCode());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    long date = resultSet.getLong(CHANGE_DATE);
-                    boolean isPublished = resultSet.getBoolean(PUBLISHED);
-                    return new StoreInfo(date, isPublished);
-                } else {
-                    return null;
+        return index.get(key.hashCode());
+    }
+
+    @Override
+    public void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) throws IOException, SQLException {
+        init();
+        TimerContext timerContext = getTimer(FormatterStoreWriteTimer.class).time();
+        try {
+            resizeIfRequired(key, data);
+            storeLock.readLock().lock();
+            try {
+                Lock keyLock = keyLocks.get(key.hashCode());
+                keyLock.lock();
+                try {
+                    doPut(key, data);
+                } finally {
+                    keyLock.unlock();
                 }
+            } finally {
+                storeLock.readLock().unlock();
             }
+        } finally {
+            timerContext.stop();
         }
     }
 
-    @Override
-    public synchronized void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) throws IOException, SQLException {
-        init();
-        resizeIfRequired(key, data);
+    private void doPut(Key key, StoreInfoAndData data) throws IOException, SQLException {
         final Path privatePath = getPrivatePath(key);
 
+        long previousSize = 0;
         if (Files.exists(privatePath)) {
-            currentSize -= Files.size(privatePath);
+            previousSize = Files.size(privatePath);
         }
 
         Files.createDirectories(privatePath.getParent());
-        Files.write(privatePath, data.data);
-        currentSize += data.data.length;
+        Path tmpPath = Files.createTempFile(privatePath.getParent(), privatePath.getFileName().toString(), TMP_SUFFIX);
+        try {
+            Files.write(tmpPath, data.data);
+            try {
+                Files.move(tmpPath, privatePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpPath, privatePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+        currentSize.addAndGet(data.data.length - previousSize);
 
         updateDbCurrentSize();
 
@@ -206,27 +293,43 @@ public class FilesystemStore implements PersistentStore {
             statement.setString(4, privatePath.toUri().toString());
             statement.execute();
         }
+        index.put(key.hashCode(), new StoreInfo(data.getChangeDate(), data.isPublished()));
     }
 
     private void updateDbCurrentSize() throws SQLException {
-        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_SETCURRENT_SIZE)) {
-            statement.setString(1, String.valueOf(currentSize));
-            statement.execute();
+        // the size is read in the lock so the last value written is the latest one
+        synchronized (currentSizeDbLock) {
+            try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_SETCURRENT_SIZE)) {
+                statement.setString(1, String.valueOf(currentSize.get()));
+                statement.execute();
+            }
         }
     }
 
     private void resizeIfRequired(Key key, StoreInfoAndData data) throws IOException, SQLException {
-        if (this.currentSize + data.data.length > this.maxSizeB) {
+        if (isResizeRequired(key, data)) {
+            storeLock.writeLock().lock();
+            try {
+                // a concurrent write may have resized the store already
+                if (isResizeRequired(key, data)) {
+                    resize();
+                }
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private boolean isResizeRequired(Key key, StoreInfoAndData data) throws IOException {
+        if (this.currentSize.get() + data.data.length > this.maxSizeB) {
             final Path privatePath = getPrivatePath(key);
             if (Files.exists(privatePath)) {
                 long fileSize = Files.size(privatePath);
-                if (currentSize - fileSize + data.data.length > this.maxSizeB) {
-                    resize();
-                }
-            } else {
-                resize();
+                return currentSize.get() - fileSize + data.data.length > this.maxSizeB;
             }
+            return true;
         }
+        return false;
     }
 
     private void resize() throws SQLException, IOException {
@@ -237,7 +340,7 @@ public class FilesystemStore implements PersistentStore {
             Statement statement = metadataDb.createStatement();
             ResultSet resultSet = statement.executeQuery(QUERY_GET_INFO_FOR_RESIZE);
         ) {
-            while (currentSize > targetSize && resultSet.next()) {
+            while (currentSize.get() > targetSize && resultSet.next()) {
                 Path path = IO.toPath(new URI(resultSet.getString(PATH)));
                 doRemove(path, resultSet.getInt(KEY), false);
             }
@@ -264,11 +367,22 @@ public class FilesystemStore implements PersistentStore {
     }
 
     @Override
-    public synchronized void remove(@Nonnull Key key) throws IOException, SQLException {
+    public void remove(@Nonnull Key key) throws IOException, SQLException {
         init();
         final Path path = getPrivatePath(key);
         final int keyHashCode = key.hashCode();
-        doRemove(path, keyHashCode, true);
+        storeLock.readLock().lock();
+        try {
+            Lock keyLock = keyLocks.get(keyHashCode);
+            keyLock.lock();
+            try {
+                doRemove(path, keyHashCode, true);
+            } finally {
+                keyLock.unlock();
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -287,6 +401,9 @@ public class FilesystemStore implements PersistentStore {
 
                 @Override
                 public FileVisitResult visitFile(Path privatePath, BasicFileAttributes attrs) throws IOException {
+                    if (privatePath.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                        return FileVisitResult.CONTINUE;
+                    }
                     final Path publicPath = toPublicPath(privatePath);
                     if (published) {
                         if (!Files.exists(publicPath)) {
@@ -307,10 +424,12 @@ public class FilesystemStore implements PersistentStore {
     @Override
     public void clear() throws SQLException, IOException {
         init();
+        storeLock.writeLock().lock();
         try (Statement statement = this.metadataDb.createStatement()) {
             statement.execute(QUERY_CLEAR_INFO);
             statement.execute(QUERY_CLEAR_STATS);
-            currentSize = 0;
+            index.clear();
+            currentSize.set(0);
             Files.walkFileTree(getBaseCacheDir(), new SimpleFileVisitor<Path>() {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
@@ -332,13 +451,16 @@ public class FilesystemStore implements PersistentStore {
                     return super.postVisitDirectory(dir, exc);
                 }
             });
+        } finally {
+            storeLock.writeLock().unlock();
         }
     }
 
     private void doRemove(Path privatePath, int keyHashCode, boolean updateDbCurrentSize) throws IOException, SQLException {
+        index.remove(keyHashCode);
         try {
             if (Files.exists(privatePath)) {
-                currentSize -= Files.size(privatePath);
+                currentSize.addAndGet(-Files.size(privatePath));
                 Files.delete(privatePath);
             }
         } finally {
@@ -358,11 +480,23 @@ public class FilesystemStore implements PersistentStore {
         }
     }
 
+    private Counter getCounter(Class<? extends MetricsFactory<Counter>> type) {
+        return monitorManager == null ? DummyCounter.INSTANCE : monitorManager.getCounter(type);
+    }
+
+    private Timer getTimer(Class<? extends MetricsFactory<Timer>> type) {
+        return monitorManager == null ? DummyTimer.INSTANCE : monitorManager.getTimer(type);
+    }
+
     private Path toPublicPath(Path privatePath) {
         Path relativePrivate = getBaseCacheDir().resolve(PRIVATE).relativize(privatePath);
         return getBaseCacheDir().resolve(PUBLIC).resolve(relativePrivate);
     }
 
+    public void setMonitorManager(MonitorManager monitorManager) {
+        this.monitorManager = monitorManager;
+    }
+
     public void setGeonetworkDataDir(GeonetworkDataDirectory geonetworkDataDir) {
         this.geonetworkDataDir = geonetworkDataDir;
     }
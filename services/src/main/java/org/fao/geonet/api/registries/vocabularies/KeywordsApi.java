@@ -293,13 +293,34 @@ public class KeywordsApi {
 //                return null;
 //            }
 
+        Comparator<KeywordBean> comparator;
         if (q == null || q.trim().isEmpty()) {
-            builder.setComparator(KeywordSort.defaultLabelSorter(SortDirection.parse(sort)));
+            comparator = KeywordSort.defaultLabelSorter(SortDirection.parse(sort));
         } else {
-            builder.setComparator(KeywordSort.searchResultsSorter(q, SortDirection.parse(sort)));
+            comparator = KeywordSort.searchResultsSorter(q, SortDirection.parse(sort));
+        }
+        builder.setComparator(comparator);
+
+        if (type == KeywordSearchType.STARTS_WITH && q != null && !q.trim().isEmpty()
+            && uri == null && start == 0 && thesauri != null && thesauri.size() == 1
+            && thesaurusMan.getThesaurusByName(thesauri.get(0).trim()) != null) {
+            // Autocompletion in one thesaurus, use the label index of the thesaurus
+            List<String> searchLangs = new ArrayList<>();
+            if (targetLangs != null) {
+                for (String targetLang : targetLangs) {
+                    if (!targetLang.trim().isEmpty()) {
+                        searchLangs.add(targetLang.trim());
+                    }
+                }
+            }
+            if (searchLangs.isEmpty()) {
+                searchLangs.add(lang);
+            }
+            searcher.searchByLabelPrefix(thesauri.get(0).trim(), q, rows, comparator,
+                searchLangs.toArray(new String[searchLangs.size()]));
+        } else {
+            searcher.search(builder.build());
         }
-
-        searcher.search(builder.build());
         session.setProperty(Geonet.Session.SEARCH_KEYWORDS_RESULT,
             searcher);
 
@@ -45,6 +45,7 @@ import org.fao.geonet.kernel.search.MetaSearcher;
 import org.fao.geonet.kernel.search.SearchManager;
 import org.jdom.Element;
 
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -77,21 +78,22 @@ public class Export implements Service {
      *               search field), service metadata (Using operatesOn search field), related
      *               metadata (Using xml.relation.get service).</li> </ul>
      */
-    public Element exec(Element params, ServiceContext context)
+    public Element exec(Element params, final ServiceContext context)
         throws Exception {
 
         // Get parameters
         Path file = null;
         String uuid = Util.getParam(params, "uuid", null);
-        String format = Util.getParam(params, "format", "full");
+        final String format = Util.getParam(params, "format", "full");
         String version = Util.getParam(params, "version", null);
         String bucket = Util.getParam(params, SELECTION_BUCKET, SELECTION_METADATA);
 
         boolean skipUUID = Boolean.parseBoolean(Util.getParam(params, "skipUuid", "false"));
-        boolean resolveXlink = Boolean.parseBoolean(Util.getParam(params, "resolveXlink", "true"));
-        boolean removeXlinkAttribute = Boolean.parseBoolean(Util.getParam(params, "removeXlinkAttribute", "true"));
-        boolean addSchemaLocation = Boolean.parseBoolean(Util.getParam(params, "addSchemaLocation", "true"));
-        boolean approved = Boolean.parseBoolean(Util.getParam(params, "approved", "true"));
+        final boolean resolveXlink = Boolean.parseBoolean(Util.getParam(params, "resolveXlink", "true"));
+        final boolean removeXlinkAttribute = Boolean.parseBoolean(Util.getParam(params, "removeXlinkAttribute", "true"));
+        final boolean addSchemaLocation = Boolean.parseBoolean(Util.getParam(params, "addSchemaLocation", "true"));
+        final boolean approved = Boolean.parseBoolean(Util.getParam(params, "approved", "true"));
+        final String fileName = "export-" + format + "-" + Calendar.getInstance().getTimeInMillis() + ".zip";
 
         String relatedMetadataRecord = Util
             .getParam(params, "relation", "true");
@@ -162,19 +164,39 @@ public class Export implements Service {
                 }
             }
 
-            uuids = selectionManger.getSelection(SelectionManager.SELECTION_METADATA);
-            Log.info(Geonet.MEF, "Building MEF2 file with " + uuids.size()
+            // The selection is reset before the file is written
+            final Set<String> exportedUuids = new LinkedHashSet<>(
+                selectionManger.getSelection(SelectionManager.SELECTION_METADATA));
+            Log.info(Geonet.MEF, "Building MEF2 file with " + exportedUuids.size()
                 + " records.");
 
-            file = MEFLib.doMEF2Export(context, uuids, format, false, stylePath, resolveXlink, removeXlinkAttribute, false, addSchemaLocation, approved);
+            // The archive is written to the response while the records are exported
+            context.setStreamedResponse(new ServiceContext.StreamedResponse() {
+                @Override
+                public String getContentType() {
+                    return "application/zip";
+                }
+
+                @Override
+                public String getFileName() {
+                    return fileName;
+                }
+
+                @Override
+                public void write(OutputStream out) throws Exception {
+                    MEFLib.doMEF2Export(context, exportedUuids, format, false, stylePath, resolveXlink,
+                        removeXlinkAttribute, false, addSchemaLocation, approved, out);
+                }
+            });
         }
 
         // -- Reset selection manager
         selectionManger.close(SelectionManager.SELECTION_METADATA);
 
-        String fname = String.valueOf(Calendar.getInstance().getTimeInMillis());
-
-        return BinaryFile.encode(200, file, "export-" + format + "-" + fname + ".zip", true).getElement();
+        if (file == null) {
+            return new Element(Jeeves.Elem.RESPONSE);
+        }
+        return BinaryFile.encode(200, file, fileName, true).getElement();
     }
 
     /**
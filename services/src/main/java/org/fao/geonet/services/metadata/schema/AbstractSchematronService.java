@@ -28,6 +28,7 @@ import jeeves.interfaces.Service;
 import jeeves.server.ServiceConfig;
 import jeeves.server.context.ServiceContext;
 
+import org.fao.geonet.kernel.SchematronEngine;
 import org.jdom.Element;
 
 import java.nio.file.Path;
@@ -49,11 +50,23 @@ public abstract class AbstractSchematronService implements Service {
     public final Element exec(Element params, ServiceContext context) throws Exception {
         switch (_action) {
             case ADD:
-                return add(params, context);
+                try {
+                    return add(params, context);
+                } finally {
+                    context.getBean(SchematronEngine.class).clearRuleSets();
+                }
             case DELETE:
-                return delete(params, context);
+                try {
+                    return delete(params, context);
+                } finally {
+                    context.getBean(SchematronEngine.class).clearRuleSets();
+                }
             case EDIT:
-                return edit(params, context);
+                try {
+                    return edit(params, context);
+                } finally {
+                    context.getBean(SchematronEngine.class).clearRuleSets();
+                }
             case EXISTS:
                 Element response = new Element(Jeeves.Elem.RESPONSE);
                 return response.setText(Boolean.toString(exists(params, context)));
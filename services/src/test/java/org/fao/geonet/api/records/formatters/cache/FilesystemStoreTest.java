@@ -33,6 +33,7 @@ import org.fao.geonet.api.records.formatters.FormatterWidth;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -46,7 +47,13 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -294,6 +301,111 @@ public class FilesystemStoreTest {
         store.remove(key); // no exception ? good
     }
 
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final Key[] keys = new Key[8];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Key(i, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+            store.put(keys[i], new StoreInfoAndData("initial " + i, 0, true));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final boolean writer = thread % 2 == 0;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 200; i++) {
+                            Key key = keys[i % keys.length];
+                            if (writer) {
+                                store.put(key, new StoreInfoAndData("value " + key.mdId + " " + i, i, true));
+                            } else {
+                                StoreInfoAndData loaded = store.get(key);
+                                assertNotNull(loaded);
+                                // never a partially written file
+                                assertTrue(loaded.getDataAsString(),
+                                    loaded.getDataAsString().matches("(initial|value) " + key.mdId + "( \\d+)?"));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long expectedSize = 0;
+        for (Key key : keys) {
+            expectedSize += store.get(key).data.length;
+            assertNotNull(store.getPublished(key));
+        }
+        // a private and a public file per key, no temporary file left
+        assertEquals(keys.length * 2, countFiles(geonetworkDataDirectory.getHtmlCacheDir()));
+        try (
+            Statement statement = store.metadataDb.createStatement();
+            ResultSet rs = statement.executeQuery(FilesystemStore.QUERY_GETCURRENT_SIZE)) {
+            assertTrue(rs.next());
+            assertEquals(expectedSize, Long.parseLong(rs.getString(1)));
+        }
+    }
+
+    /**
+     * Measure the throughput of the reads of the cached files by concurrent readers while a writer
+     * updates the store.
+     */
+    @Test
+    @Ignore
+    public void benchmarkConcurrentReaders() throws Exception {
+        final Key[] keys = new Key[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Key(i, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+            store.put(keys[i], new StoreInfoAndData(new byte[4096], i, true));
+        }
+        final int reads = 20000;
+        for (final int readers : new int[]{1, 2, 4, 8, 16}) {
+            ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int thread = 0; thread < readers; thread++) {
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            for (int i = 0; i < reads; i++) {
+                                store.get(keys[i % keys.length]);
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                Future<?> writer = executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < reads / 100; i++) {
+                            store.put(keys[i % keys.length], new StoreInfoAndData(new byte[4096], i, true));
+                        }
+                        return null;
+                    }
+                });
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+                long elapsed = System.nanoTime() - start;
+                writer.get();
+                System.out.println(String.format("%d readers: %d reads/s", readers,
+                    (long) readers * reads * 1000000000L / elapsed));
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testSetPublished() throws Exception {
         StoreInfoAndData data = new StoreInfoAndData("result", 10000, true);